@@ -51,7 +51,7 @@ containerBuild {
 
 java {
   toolchain {
-    languageVersion.set(JavaLanguageVersion.of(17))
+    languageVersion.set(JavaLanguageVersion.of(21))
   }
 }
 
@@ -115,6 +115,21 @@ tasks.named("merge-raml") {
   }
 }
 
+// JMH benchmarks, compiled against the main classes and their dependencies
+val jmh: SourceSet by sourceSets.creating {
+  compileClasspath += sourceSets["main"].output
+  runtimeClasspath += sourceSets["main"].output
+}
+
+configurations["jmhImplementation"].extendsFrom(configurations.implementation.get())
+configurations["jmhRuntimeOnly"].extendsFrom(configurations.runtimeOnly.get())
+
+// load test driver and downstream stand-ins, run outside the service against a deployed instance of it
+val loadtest: SourceSet by sourceSets.creating
+
+configurations["loadtestImplementation"].extendsFrom(configurations.implementation.get())
+configurations["loadtestRuntimeOnly"].extendsFrom(configurations.runtimeOnly.get())
+
 // ensures changing modules are never cached
 configurations.all {
   resolutionStrategy.cacheChangingModulesFor(0, TimeUnit.SECONDS)
@@ -141,6 +156,8 @@ dependencies {
   // Jackson
   implementation("com.fasterxml.jackson.core:jackson-databind:2.15.1")
   implementation("com.fasterxml.jackson.core:jackson-annotations:2.15.1")
+  implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor:2.15.1")
+  implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-smile:2.15.1")
 
   // Log4J
   implementation("org.apache.logging.log4j:log4j-api:2.20.0")
@@ -150,10 +167,17 @@ dependencies {
   implementation("io.prometheus:simpleclient:0.16.0")
   implementation("io.prometheus:simpleclient_common:0.16.0")
 
+  // Response compression
+  implementation("com.github.luben:zstd-jni:1.5.5-5")
+
   // Utils
   implementation("io.vulpine.lib:Jackfish:1.1.0")
   implementation("com.devskiller.friendly-id:friendly-id:1.1.0")
 
+  // Benchmarks
+  "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+  "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+
   // Unit Testing
   testImplementation("org.junit.jupiter:junit-jupiter-api:5.9.2")
   testImplementation("org.mockito:mockito-core:5.2.0")
@@ -164,3 +188,70 @@ val test by tasks.getting(Test::class) {
   // Use junit platform for unit tests
   useJUnitPlatform()
 }
+
+//
+// Benchmarks
+//
+
+val jmhResults = layout.buildDirectory.file("reports/jmh/results.json")
+val jmhBaseline = file("src/jmh/baseline.json")
+
+// runs the benchmarks matching -Pjmh.include (a regex, default all), with the gc profiler for allocation
+//   rates; further JMH options (e.g. "-p rows=10000000") may be passed in -Pjmh.args
+val benchmark by tasks.registering(JavaExec::class) {
+  group = "benchmark"
+  description = "Runs the JMH benchmarks, writing results to build/reports/jmh/results.json."
+  classpath = jmh.runtimeClasspath
+  mainClass.set("org.openjdk.jmh.Main")
+  args((project.findProperty("jmh.include") ?: ".*").toString())
+  args("-prof", "gc", "-rf", "json", "-rff", jmhResults.get().asFile.path)
+  (project.findProperty("jmh.args") as String?)?.let { args(it.trim().split(Regex("\\s+"))) }
+  doFirst { jmhResults.get().asFile.parentFile.mkdirs() }
+}
+
+// fails if the last benchmark results regressed from the baseline by more than -Pjmh.threshold percent (default 10)
+val benchmarkCompare by tasks.registering(JavaExec::class) {
+  group = "benchmark"
+  description = "Compares the last benchmark results with src/jmh/baseline.json."
+  classpath = jmh.runtimeClasspath
+  mainClass.set("org.veupathdb.service.eda.ds.benchmark.BaselineComparison")
+  args(jmhBaseline.path, jmhResults.get().asFile.path, (project.findProperty("jmh.threshold") ?: "10").toString())
+}
+
+// replaces the baseline with the last benchmark results, to be committed with the change that moved them
+val benchmarkBaseline by tasks.registering(Copy::class) {
+  group = "benchmark"
+  description = "Replaces src/jmh/baseline.json with the last benchmark results."
+  from(jmhResults)
+  into(jmhBaseline.parentFile)
+  rename { jmhBaseline.name }
+}
+
+//
+// Load Tests
+//
+
+val loadTestExample = "src/loadtest/resources/example"
+
+// serves the fixtures in -Pfixtures (default the example's) in place of the downstream services and Rserve
+//   until killed; the service is then started with the printed environment
+val loadTestStandIns by tasks.registering(JavaExec::class) {
+  group = "load test"
+  description = "Starts stand-ins for the downstream services and Rserve."
+  classpath = loadtest.runtimeClasspath
+  mainClass.set("org.veupathdb.service.eda.ds.loadtest.StandIns")
+  args(file(project.findProperty("fixtures") ?: "$loadTestExample/fixtures.json").path)
+}
+
+// drives the service with the scenario in -Pscenario (default the example's), optionally overriding its
+//   rate (-Prps) and duration in seconds (-Pduration), writing results to build/reports/loadtest/report.json
+val loadTest by tasks.registering(JavaExec::class) {
+  group = "load test"
+  description = "Runs a load test scenario against a running service."
+  classpath = loadtest.runtimeClasspath
+  mainClass.set("org.veupathdb.service.eda.ds.loadtest.LoadDriver")
+  args(file(project.findProperty("scenario") ?: "$loadTestExample/scenario.json").path)
+  args(layout.buildDirectory.file("reports/loadtest/report.json").get().asFile.path)
+  project.findProperty("rps")?.let { args("--rps", it.toString()) }
+  project.findProperty("duration")?.let { args("--duration", it.toString()) }
+}
@@ -0,0 +1,101 @@
+package org.veupathdb.service.eda.ds.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares JMH results (in JMH's JSON format) with a baseline of earlier results, reporting benchmarks whose
+ * score or allocation per operation has regressed by more than a threshold.  Benchmarks missing from the
+ * baseline are listed but are not regressions.
+ *
+ * Usage: BaselineComparison baseline.json results.json [threshold percent, default 10]
+ *
+ * Exits with status 1 if any benchmark regressed.
+ */
+public class BaselineComparison {
+
+  // secondary metric added by the gc profiler
+  private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+  // allocation changes smaller than this many bytes per operation are noise, whatever the percentage
+  private static final double ALLOCATION_SLACK_BYTES = 64;
+
+  private record Result(String mode, double score, String unit, Double allocationPerOp) {}
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: BaselineComparison <baseline.json> <results.json> [threshold percent]");
+      System.exit(2);
+    }
+    double threshold = (args.length > 2 ? Double.parseDouble(args[2]) : 10) / 100;
+    Map<String, Result> baseline = readResults(new File(args[0]));
+    Map<String, Result> results = readResults(new File(args[1]));
+
+    int regressions = 0;
+    for (Map.Entry<String, Result> entry : results.entrySet()) {
+      Result result = entry.getValue();
+      Result base = baseline.get(entry.getKey());
+      if (base == null) {
+        System.out.printf("NEW         %s: %.3f %s%n", entry.getKey(), result.score(), result.unit());
+        continue;
+      }
+      // throughput should not fall; time per operation should not rise
+      double change = (result.score() - base.score()) / base.score();
+      boolean slower = result.mode().equals("thrpt") ? change < -threshold : change > threshold;
+      boolean allocates = result.allocationPerOp() != null && base.allocationPerOp() != null
+          && result.allocationPerOp() - base.allocationPerOp() > Math.max(ALLOCATION_SLACK_BYTES, base.allocationPerOp() * threshold);
+      if (slower || allocates) {
+        regressions++;
+      }
+      System.out.printf("%-11s %s: %.3f -> %.3f %s (%+.1f%%)%s%n",
+          slower || allocates ? "REGRESSION" : "OK", entry.getKey(), base.score(), result.score(), result.unit(),
+          change * 100, result.allocationPerOp() == null || base.allocationPerOp() == null ? ""
+              : String.format(", %.0f -> %.0f B/op", base.allocationPerOp(), result.allocationPerOp()));
+    }
+
+    if (regressions > 0) {
+      System.out.printf("%d benchmark(s) regressed by more than %.0f%%%n", regressions, threshold * 100);
+      System.exit(1);
+    }
+  }
+
+  // reads results keyed by benchmark name and parameters
+  private static Map<String, Result> readResults(File file) throws IOException {
+    Map<String, Result> results = new LinkedHashMap<>();
+    for (JsonNode benchmark : new ObjectMapper().readTree(file)) {
+      StringBuilder key = new StringBuilder(benchmark.get("benchmark").asText());
+      JsonNode params = benchmark.get("params");
+      if (params != null) {
+        Map<String, String> sortedParams = new TreeMap<>();
+        params.fields().forEachRemaining(param -> sortedParams.put(param.getKey(), param.getValue().asText()));
+        sortedParams.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+      }
+      JsonNode primary = benchmark.get("primaryMetric");
+      results.put(key.toString(), new Result(benchmark.get("mode").asText(),
+          primary.get("score").asDouble(), primary.get("scoreUnit").asText(), allocationPerOp(benchmark)));
+    }
+    return results;
+  }
+
+  // older JMH versions prefix secondary metric names with a middle dot, so match on the suffix
+  private static Double allocationPerOp(JsonNode benchmark) {
+    JsonNode secondary = benchmark.get("secondaryMetrics");
+    if (secondary == null) {
+      return null;
+    }
+    for (Iterator<Map.Entry<String, JsonNode>> metrics = secondary.fields(); metrics.hasNext(); ) {
+      Map.Entry<String, JsonNode> metric = metrics.next();
+      if (metric.getKey().endsWith(ALLOCATION_METRIC)) {
+        return metric.getValue().get("score").asDouble();
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,57 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds log-normally distributed values to a median aggregator and finishes it, with exact and approximate
+ * quantile sketches.  One operation is one marker's worth of values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MedianAggregatorBenchmark {
+
+  @Param({ "1000", "100000" })
+  public int values;
+
+  @Param({ "exact", "approximate" })
+  public String sketch;
+
+  private QuantileSketchConfig _sketchConfig;
+  private double[] _values;
+
+  @Setup
+  public void setup() {
+    _sketchConfig = QuantileSketchConfig.parse(sketch, 0.01);
+    Random random = new Random(1);
+    _values = new double[values];
+    for (int i = 0; i < values; i++) {
+      _values[i] = Math.exp(2 + random.nextGaussian());
+    }
+  }
+
+  @Benchmark
+  public Double median() {
+    MedianAggregator aggregator = new MedianAggregator(0, ValueQuantifier.NUMERIC, _sketchConfig);
+    for (double value : _values) {
+      aggregator.addValue(value);
+    }
+    return aggregator.finish();
+  }
+}
@@ -0,0 +1,65 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests random coordinates against a viewport, one of which spans the international date line.  Scores are
+ * per coordinate tested.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeolocationViewportBenchmark {
+
+  private static final int COORDINATES = 4096;
+
+  @Param({ "regional", "dateLine" })
+  public String viewport;
+
+  private GeolocationViewport _viewport;
+  private double[] _latitudes;
+  private double[] _longitudes;
+
+  @Setup
+  public void setup() {
+    _viewport = viewport.equals("dateLine")
+        ? new GeolocationViewport(-50, 10, 120, -150)
+        : new GeolocationViewport(-20, 30, -30, 60);
+    Random random = new Random(1);
+    _latitudes = new double[COORDINATES];
+    _longitudes = new double[COORDINATES];
+    for (int i = 0; i < COORDINATES; i++) {
+      _latitudes[i] = (random.nextDouble() - 0.5) * 180;
+      _longitudes[i] = (random.nextDouble() - 0.5) * 360;
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(COORDINATES)
+  public int containsCoordinates() {
+    int contained = 0;
+    for (int i = 0; i < COORDINATES; i++) {
+      if (_viewport.containsCoordinates(_latitudes[i], _longitudes[i])) {
+        contained++;
+      }
+    }
+    return contained;
+  }
+}
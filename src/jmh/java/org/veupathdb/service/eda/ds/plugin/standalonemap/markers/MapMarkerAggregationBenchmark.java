@@ -0,0 +1,106 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.CategoricalProportionAggregator;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.ContinuousAggregators;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.CountAggregator;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.MarkerAggregator;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.QualitativeOverlayAggregator;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.ValueQuantifier;
+import org.veupathdb.service.eda.generated.model.CategoricalAggregationConfig;
+import org.veupathdb.service.eda.generated.model.CategoricalAggregationConfigImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.veupathdb.service.eda.ds.plugin.standalonemap.markers.SyntheticMarkerData.*;
+
+/**
+ * Aggregates a whole synthetic table into markers, as the standalone map plugins do, with each kind of marker
+ * aggregator.  One operation is one pass over the table; 10^7 rows can be run with -p rows=10000000.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class MapMarkerAggregationBenchmark {
+
+  @Param({ "100000", "1000000" })
+  public int rows;
+
+  @Param({ "1000", "10000" })
+  public int buckets;
+
+  @Param({ "count", "mean", "median", "proportion", "qualitative" })
+  public String aggregator;
+
+  @Param({ "1", "4" })
+  public int parallelism;
+
+  @Param("200")
+  public int vocabularySize;
+
+  // one pass of the processor over a scanner, with the aggregator type erased
+  private interface MarkerPass {
+    Map<String, ? extends MarkerData<?>> process(TabularStreamScanner scanner) throws IOException;
+  }
+
+  private byte[] _data;
+  private GeolocationViewport _viewport;
+  private MarkerPass _pass;
+
+  @Setup
+  public void setup() {
+    _data = generate(rows, buckets, vocabularySize, 1);
+    // most of the world, as when a map is zoomed out
+    _viewport = new GeolocationViewport(-60, 75, -170, 170);
+    List<String> vocabulary = vocabulary(vocabularySize);
+    _pass = switch (aggregator) {
+      case "count" -> pass(CountAggregator::new);
+      case "mean" -> pass(() -> ContinuousAggregators.Mean.getAggregatorFactory().create(NUMERIC_INDEX, ValueQuantifier.NUMERIC));
+      case "median" -> pass(() -> ContinuousAggregators.Median.getAggregatorFactory().create(NUMERIC_INDEX, ValueQuantifier.NUMERIC));
+      case "proportion" -> {
+        CategoricalAggregationConfig config = new CategoricalAggregationConfigImpl();
+        config.setNumeratorValues(vocabulary.subList(0, 3));
+        config.setDenominatorValues(vocabulary.subList(0, 20));
+        CategoricalProportionAggregator.CategoricalProportionAggregatorFactory factory =
+            new CategoricalProportionAggregator.CategoricalProportionAggregatorFactory(config, () -> vocabulary);
+        yield pass(() -> factory.create(CATEGORICAL_INDEX, null));
+      }
+      case "qualitative" -> {
+        // the overlay shows the most common values and lumps the rest together, as the map client does
+        OverlayRecoder recoder = categoricalOverlay(vocabulary.subList(0, 8)).getOverlayRecoder();
+        yield pass(() -> new QualitativeOverlayAggregator(recoder, CATEGORICAL_INDEX));
+      }
+      default -> throw new IllegalArgumentException("Unknown aggregator " + aggregator);
+    };
+  }
+
+  private <T> MarkerPass pass(Supplier<MarkerAggregator<T>> aggregatorSupplier) {
+    return scanner -> new MapMarkerRowProcessor<T>(GEO_INDEX, LAT_INDEX, LON_INDEX)
+        .process(scanner, _viewport, aggregatorSupplier, parallelism);
+  }
+
+  @Benchmark
+  public Map<String, ? extends MarkerData<?>> process() throws IOException {
+    TabularStreamScanner scanner = new TabularStreamScanner(new ByteArrayInputStream(_data));
+    scanner.readLine();
+    return _pass.process(scanner);
+  }
+}
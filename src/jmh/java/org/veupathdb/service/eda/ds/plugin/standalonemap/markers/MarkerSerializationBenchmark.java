@@ -0,0 +1,99 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.MarkerAggregator;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.QualitativeOverlayAggregator;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.QualitativeOverlayAggregator.CategoricalOverlayData;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.veupathdb.service.eda.ds.plugin.standalonemap.markers.SyntheticMarkerData.*;
+
+/**
+ * Writes a standalone map markers response for a synthetic table, with categorical overlay values per marker,
+ * in each of the response formats.  Aggregation is done once in setup, so only serialization is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarkerSerializationBenchmark {
+
+  @Param({ "1000", "10000" })
+  public int buckets;
+
+  @Param({ "json", "cbor", "smile" })
+  public String format;
+
+  private record Marker(String geoValue, MarkerData<?> data, Map<String, CategoricalOverlayData> overlayValues) {}
+
+  private JsonFactory _factory;
+  private List<Marker> _markers;
+
+  @Setup
+  public void setup() throws IOException {
+    _factory = switch (format) {
+      case "json" -> new JsonFactory();
+      case "cbor" -> new CBORFactory();
+      case "smile" -> new SmileFactory();
+      default -> throw new IllegalArgumentException("Unknown format " + format);
+    };
+
+    TabularStreamScanner scanner = new TabularStreamScanner(new ByteArrayInputStream(generate(buckets * 100, buckets, 200, 1)));
+    scanner.readLine();
+    OverlayRecoder recoder = categoricalOverlay(vocabulary(200).subList(0, 8)).getOverlayRecoder();
+    Supplier<MarkerAggregator<Map<String, CategoricalOverlayData>>> aggregatorSupplier =
+        () -> new QualitativeOverlayAggregator(recoder, CATEGORICAL_INDEX);
+    Map<String, MarkerData<Map<String, CategoricalOverlayData>>> markers =
+        new MapMarkerRowProcessor<Map<String, CategoricalOverlayData>>(GEO_INDEX, LAT_INDEX, LON_INDEX)
+            .process(scanner, new GeolocationViewport(-90, 90, -180, 180), aggregatorSupplier);
+    _markers = new ArrayList<>();
+    markers.forEach((geoValue, data) -> _markers.add(new Marker(geoValue, data, data.getMarkerAggregator().finish())));
+  }
+
+  @Benchmark
+  public int write() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+    try (JsonGenerator generator = _factory.createGenerator(out)) {
+      MarkerResponseWriter writer = new MarkerResponseWriter(generator, "mapElements");
+      for (Marker marker : _markers) {
+        writer.writeMarker(marker.geoValue(), marker.data(), overlay -> {
+          overlay.writeArrayFieldStart("overlayValues");
+          for (Map.Entry<String, CategoricalOverlayData> entry : marker.overlayValues().entrySet()) {
+            overlay.writeStartObject();
+            overlay.writeStringField("binLabel", entry.getKey());
+            overlay.writeNumberField("value", entry.getValue().getProportion());
+            overlay.writeNumberField("count", entry.getValue().getCount());
+            overlay.writeEndObject();
+          }
+          overlay.writeEndArray();
+        });
+      }
+      writer.finish();
+    }
+    return out.size();
+  }
+}
@@ -0,0 +1,86 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.veupathdb.service.eda.ds.plugin.standalonemap.markers.SyntheticMarkerData.*;
+
+/**
+ * Recodes overlay values taken from a synthetic table, for categorical overlays selecting a number of the most
+ * common values and continuous overlays of a number of bins.  Scores are per value recoded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OverlayRecodeBenchmark {
+
+  private static final int VALUES = 4096;
+
+  @Param({ "categorical", "continuous" })
+  public String overlayType;
+
+  // overlay values or bins
+  @Param({ "8", "64" })
+  public int overlaySize;
+
+  @Param("200")
+  public int vocabularySize;
+
+  private OverlaySpecification _overlay;
+  private String[] _values;
+
+  @Setup
+  public void setup() throws IOException {
+    boolean categorical = overlayType.equals("categorical");
+    _overlay = categorical
+        ? categoricalOverlay(vocabulary(vocabularySize).subList(0, overlaySize))
+        : continuousOverlay(overlaySize);
+
+    // take values (including missing ones) from generated rows, so they are as skewed as real ones
+    TabularStreamScanner scanner = new TabularStreamScanner(new ByteArrayInputStream(generate(VALUES, 100, vocabularySize, 1)));
+    scanner.readLine();
+    List<String> values = new ArrayList<>();
+    while (scanner.next()) {
+      int column = categorical ? CATEGORICAL_INDEX : NUMERIC_INDEX;
+      values.add(scanner.isEmpty(column) ? null : scanner.getString(column));
+    }
+    _values = values.toArray(String[]::new);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(VALUES)
+  public void recode(Blackhole blackhole) {
+    for (String value : _values) {
+      blackhole.consume(_overlay.recode(value));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(VALUES)
+  public void recodeToOrdinal(Blackhole blackhole) {
+    OverlayRecoder recoder = _overlay.getOverlayRecoder();
+    for (String value : _values) {
+      blackhole.consume(value == null ? OverlayRecoder.NO_BIN : recoder.recodeToOrdinal(value));
+    }
+  }
+}
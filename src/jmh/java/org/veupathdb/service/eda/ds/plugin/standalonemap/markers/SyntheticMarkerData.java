@@ -0,0 +1,174 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import org.veupathdb.service.eda.generated.model.CategoricalOverlayConfig;
+import org.veupathdb.service.eda.generated.model.CategoricalOverlayConfigImpl;
+import org.veupathdb.service.eda.generated.model.ContinousOverlayConfig;
+import org.veupathdb.service.eda.generated.model.ContinousOverlayConfigImpl;
+import org.veupathdb.service.eda.generated.model.LegacyLabeledRange;
+import org.veupathdb.service.eda.generated.model.LegacyLabeledRangeImpl;
+import org.veupathdb.service.eda.generated.model.VariableSpec;
+import org.veupathdb.service.eda.generated.model.VariableSpecImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Generates tabular map marker input shaped like VectorBase collection data: rows fall into geohash buckets,
+ * a few of which hold most of the rows, with coordinates scattered around each bucket's centre.  Each row has
+ * a categorical overlay value drawn from a skewed vocabulary and a log-normally distributed number; a small
+ * fraction of both are missing.  Data are deterministic for a given seed.
+ */
+public class SyntheticMarkerData {
+
+  public static final List<String> HEADERS = List.of("GEO", "LAT", "LON", "CAT", "NUM");
+  public static final int GEO_INDEX = 0;
+  public static final int LAT_INDEX = 1;
+  public static final int LON_INDEX = 2;
+  public static final int CATEGORICAL_INDEX = 3;
+  public static final int NUMERIC_INDEX = 4;
+
+  private static final String GEOHASH_ALPHABET = "0123456789bcdefghjkmnpqrstuvwxyz";
+  private static final int GEOHASH_LENGTH = 5;
+  private static final double MISSING_FRACTION = 0.05;
+
+  // Zipf exponents; buckets are less skewed than overlay values, whose few most common values dominate
+  private static final double BUCKET_SKEW = 0.8;
+  private static final double VOCABULARY_SKEW = 1.2;
+
+  /**
+   * @return vocabulary of the categorical column, most common value first
+   */
+  public static List<String> vocabulary(int vocabularySize) {
+    return IntStream.range(0, vocabularySize).mapToObj(i -> "value" + i).toList();
+  }
+
+  /**
+   * @return distinct geohash-like bucket values, as they appear in the geo column
+   */
+  public static List<String> buckets(int bucketCount, long seed) {
+    Random random = new Random(seed);
+    return Arrays.stream(bucketCenters(bucketCount, random)).map(Bucket::geohash).toList();
+  }
+
+  /**
+   * Generates a tab-delimited table, with a header row, of the passed number of rows.
+   *
+   * @param rows number of data rows
+   * @param bucketCount number of distinct geo column values
+   * @param vocabularySize number of distinct categorical column values
+   * @param seed seed for the generated values
+   * @return UTF-8 bytes of the table
+   */
+  public static byte[] generate(int rows, int bucketCount, int vocabularySize, long seed) {
+    Random random = new Random(seed);
+    Bucket[] buckets = bucketCenters(bucketCount, random);
+    double[] bucketDistribution = zipfDistribution(bucketCount, BUCKET_SKEW);
+    double[] vocabularyDistribution = zipfDistribution(vocabularySize, VOCABULARY_SKEW);
+    List<String> vocabulary = vocabulary(vocabularySize);
+
+    StringBuilder row = new StringBuilder(64);
+    ByteArrayOutputStream out = new ByteArrayOutputStream(rows * 48);
+    out.writeBytes((String.join("\t", HEADERS) + "\n").getBytes(StandardCharsets.UTF_8));
+    for (int i = 0; i < rows; i++) {
+      Bucket bucket = buckets[sample(bucketDistribution, random)];
+      row.setLength(0);
+      row.append(bucket.geohash()).append('\t')
+          .append(round(bucket.lat() + (random.nextDouble() - 0.5) * 0.04)).append('\t')
+          .append(round(bucket.lon() + (random.nextDouble() - 0.5) * 0.04)).append('\t');
+      if (random.nextDouble() >= MISSING_FRACTION) {
+        row.append(vocabulary.get(sample(vocabularyDistribution, random)));
+      }
+      row.append('\t');
+      if (random.nextDouble() >= MISSING_FRACTION) {
+        row.append(round(Math.exp(2 + random.nextGaussian())));
+      }
+      row.append('\n');
+      out.writeBytes(row.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * @return overlay selecting the passed values of the categorical column
+   */
+  public static OverlaySpecification categoricalOverlay(List<String> overlayValues) {
+    CategoricalOverlayConfig config = new CategoricalOverlayConfigImpl();
+    config.setOverlayVariable(overlayVariable("CAT"));
+    config.setOverlayValues(overlayValues);
+    return new OverlaySpecification(config, var -> "string", var -> "categorical");
+  }
+
+  /**
+   * @return overlay binning the numeric column into the passed number of bins of equal width, closed on the
+   * left, which together cover all its values
+   */
+  public static OverlaySpecification continuousOverlay(int binCount) {
+    // log-normal values with mu 2 and sigma 1 are practically never above e^9 (7 sigma)
+    double width = Math.exp(9) / binCount;
+    List<LegacyLabeledRange> bins = new ArrayList<>();
+    for (int i = 0; i < binCount; i++) {
+      String start = Double.toString(i * width);
+      String end = Double.toString((i + 1) * width);
+      LegacyLabeledRange bin = new LegacyLabeledRangeImpl();
+      bin.setBinStart(start);
+      bin.setBinEnd(end);
+      bin.setBinLabel("[" + start + ", " + end + ")");
+      bins.add(bin);
+    }
+    ContinousOverlayConfig config = new ContinousOverlayConfigImpl();
+    config.setOverlayVariable(overlayVariable("NUM"));
+    config.setOverlayValues(bins);
+    return new OverlaySpecification(config, var -> "number", var -> "continuous");
+  }
+
+  private static VariableSpec overlayVariable(String variableId) {
+    VariableSpec spec = new VariableSpecImpl();
+    spec.setEntityId("E");
+    spec.setVariableId(variableId);
+    return spec;
+  }
+
+  private record Bucket(String geohash, double lat, double lon) {}
+
+  private static Bucket[] bucketCenters(int bucketCount, Random random) {
+    Bucket[] buckets = new Bucket[bucketCount];
+    for (int i = 0; i < bucketCount; i++) {
+      // geohash-like values spell out the bucket index in base 32, so they are distinct
+      StringBuilder geohash = new StringBuilder(GEOHASH_LENGTH);
+      for (int remaining = i, c = 0; c < GEOHASH_LENGTH; c++, remaining /= GEOHASH_ALPHABET.length()) {
+        geohash.append(GEOHASH_ALPHABET.charAt(remaining % GEOHASH_ALPHABET.length()));
+      }
+      buckets[i] = new Bucket(geohash.reverse().toString(),
+          (random.nextDouble() - 0.5) * 140, (random.nextDouble() - 0.5) * 340);
+    }
+    return buckets;
+  }
+
+  // cumulative probabilities of ranks 0..n-1 under a Zipf distribution with the passed exponent
+  private static double[] zipfDistribution(int n, double exponent) {
+    double[] cumulative = new double[n];
+    double total = 0;
+    for (int i = 0; i < n; i++) {
+      total += 1 / Math.pow(i + 1, exponent);
+      cumulative[i] = total;
+    }
+    for (int i = 0; i < n; i++) {
+      cumulative[i] /= total;
+    }
+    return cumulative;
+  }
+
+  private static int sample(double[] cumulative, Random random) {
+    int index = Arrays.binarySearch(cumulative, random.nextDouble());
+    return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+  }
+
+  private static double round(double value) {
+    return Math.round(value * 100000) / 100000.0;
+  }
+}
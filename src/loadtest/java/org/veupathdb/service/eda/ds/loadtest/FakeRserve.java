@@ -0,0 +1,312 @@
+package org.veupathdb.service.eda.ds.loadtest;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.veupathdb.service.eda.ds.loadtest.FixtureManifest.RserveRule;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Speaks enough of the Rserve protocol (QAP1) for the service's Rserve client: evals return canned results
+ * after configurable delays, and files may be written, read and removed.  Uploaded files are discarded, so
+ * nothing is computed; a load test with the fake measures the service's own work around R.
+ *
+ * Evals matching a rule take the rule's time and return its result; if the rule has a file, they return the
+ * name of a file holding its contents, as plot.data functions do, which the client then reads.  Evals of an
+ * integer literal (e.g. the pool's health check of "1L") return it.  Other evals fail with an R error, so
+ * missing fixtures are noticed.  Void evals take the time of the rule they match, if any, and never fail.
+ */
+public class FakeRserve {
+
+  private static final Logger LOG = LogManager.getLogger(FakeRserve.class);
+
+  private static final byte[] ID_STRING = "Rsrv0103QAP1\r\n\r\n--------------\r\n".getBytes(StandardCharsets.US_ASCII);
+
+  // commands and protocol constants, as in org.rosuda.REngine.Rserve.protocol.RTalk
+  private static final int CMD_VOID_EVAL = 0x02;
+  private static final int CMD_EVAL = 0x03;
+  private static final int CMD_SHUTDOWN = 0x04;
+  private static final int CMD_OPEN_FILE = 0x10;
+  private static final int CMD_CREATE_FILE = 0x11;
+  private static final int CMD_CLOSE_FILE = 0x12;
+  private static final int CMD_READ_FILE = 0x13;
+  private static final int CMD_WRITE_FILE = 0x14;
+  private static final int CMD_REMOVE_FILE = 0x15;
+  private static final int CMD_SET_SEXP = 0x20;
+  private static final int CMD_ASSIGN_SEXP = 0x21;
+  private static final int CMD_SET_BUFFER_SIZE = 0x81;
+  private static final int CMD_SET_ENCODING = 0x82;
+  private static final int RESP_OK = 0x10001;
+  private static final int RESP_ERR = 0x10002;
+  private static final int ERR_INV_PAR = 0x44;
+  private static final int ERR_R_ERROR = 0x45;
+  private static final int ERR_NOT_OPEN = 0x47;
+  private static final int ERR_UNSUPPORTED_CMD = 0x49;
+  private static final int DT_SEXP = 10;
+  private static final int DT_LARGE = 64;
+  private static final int XT_ARRAY_INT = 32;
+  private static final int XT_ARRAY_STR = 34;
+  private static final int XT_LARGE = 64;
+  private static final int MAX_SMALL_LENGTH = 0xfffff0;
+
+  private static final Pattern INTEGER_LITERAL = Pattern.compile("\\s*(-?\\d+)L\\s*");
+
+  private record CompiledRule(RserveRule rule, Pattern pattern, byte[] file) {}
+
+  private final List<CompiledRule> _rules = new ArrayList<>();
+  private final long _delayMs;
+  private final long _jitterMs;
+  private final AtomicInteger _evals = new AtomicInteger();
+  private final AtomicLong _bytesUploaded = new AtomicLong();
+  private final AtomicInteger _fileNames = new AtomicInteger();
+  private final ExecutorService _connectionThreads = Executors.newVirtualThreadPerTaskExecutor();
+  private ServerSocket _serverSocket;
+
+  public FakeRserve(FixtureManifest.Rserve config, File fixtureDir) throws IOException {
+    _delayMs = config.delayMs();
+    _jitterMs = config.jitterMs();
+    if (config.rules() != null) {
+      for (RserveRule rule : config.rules()) {
+        byte[] file = rule.file() == null ? null : Files.readAllBytes(new File(fixtureDir, rule.file()).toPath());
+        _rules.add(new CompiledRule(rule, Pattern.compile(rule.pattern()), file));
+      }
+    }
+  }
+
+  public void start(int port) throws IOException {
+    _serverSocket = new ServerSocket(port);
+    Thread.ofPlatform().name("fake-rserve").daemon().start(() -> {
+      while (!_serverSocket.isClosed()) {
+        try {
+          Socket socket = _serverSocket.accept();
+          _connectionThreads.execute(() -> serve(socket));
+        }
+        catch (IOException e) {
+          if (!_serverSocket.isClosed()) {
+            LOG.error("Unable to accept Rserve connection", e);
+          }
+        }
+      }
+    });
+  }
+
+  public void stop() throws IOException {
+    _serverSocket.close();
+    _connectionThreads.shutdownNow();
+  }
+
+  /**
+   * @return number of evals (not void evals) served
+   */
+  public int getEvalCount() {
+    return _evals.get();
+  }
+
+  /**
+   * @return number of bytes written to files by clients
+   */
+  public long getBytesUploaded() {
+    return _bytesUploaded.get();
+  }
+
+  // serves one connection (an R session in real Rserve) until the client closes it
+  private void serve(Socket socket) {
+    Map<String, byte[]> files = new HashMap<>();
+    InputStream openFile = null;
+    try (socket) {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+      out.write(ID_STRING);
+      out.flush();
+      while (true) {
+        byte[] header = new byte[16];
+        try {
+          in.readFully(header);
+        }
+        catch (EOFException e) {
+          return;
+        }
+        ByteBuffer headerBuffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+        int command = headerBuffer.getInt();
+        long length = Integer.toUnsignedLong(headerBuffer.getInt()) | (Integer.toUnsignedLong(headerBuffer.getInt(12)) << 32);
+        byte[] payload = new byte[Math.toIntExact(length)];
+        in.readFully(payload);
+        ByteBuffer params = ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN);
+
+        switch (command) {
+          case CMD_EVAL -> {
+            _evals.incrementAndGet();
+            String code = readString(params);
+            CompiledRule rule = findRule(code);
+            if (rule != null) {
+              StandIns.pause(rule.rule().delayMs(), rule.rule().jitterMs());
+              String result = rule.rule().result();
+              if (rule.file() != null) {
+                result = "fake-rserve-" + _fileNames.incrementAndGet() + ".json";
+                files.put(result, rule.file());
+              }
+              respond(out, RESP_OK, stringResult(result == null ? "" : result));
+            }
+            else if (INTEGER_LITERAL.matcher(code).matches()) {
+              respond(out, RESP_OK, intResult(Integer.parseInt(INTEGER_LITERAL.matcher(code).replaceAll("$1"))));
+            }
+            else {
+              StandIns.pause(_delayMs, _jitterMs);
+              LOG.warn("No Rserve rule for eval of: " + code);
+              respond(out, RESP_ERR | (ERR_R_ERROR << 24), null);
+            }
+          }
+          case CMD_VOID_EVAL -> {
+            CompiledRule rule = findRule(readString(params));
+            if (rule != null) {
+              StandIns.pause(rule.rule().delayMs(), rule.rule().jitterMs());
+            }
+            else {
+              StandIns.pause(_delayMs, _jitterMs);
+            }
+            respond(out, RESP_OK, null);
+          }
+          case CMD_CREATE_FILE -> {
+            files.put(readString(params), new byte[0]);
+            respond(out, RESP_OK, null);
+          }
+          case CMD_WRITE_FILE -> {
+            _bytesUploaded.addAndGet(readParamLength(params));
+            respond(out, RESP_OK, null);
+          }
+          case CMD_OPEN_FILE -> {
+            byte[] contents = files.get(readString(params));
+            if (contents == null) {
+              respond(out, RESP_ERR | (ERR_INV_PAR << 24), null);
+            }
+            else {
+              openFile = new ByteArrayInputStream(contents);
+              respond(out, RESP_OK, null);
+            }
+          }
+          case CMD_READ_FILE -> {
+            if (openFile == null) {
+              respond(out, RESP_ERR | (ERR_NOT_OPEN << 24), null);
+            }
+            else {
+              readParamLength(params);
+              respond(out, RESP_OK, openFile.readNBytes(params.getInt()));
+            }
+          }
+          case CMD_CLOSE_FILE -> {
+            openFile = null;
+            respond(out, RESP_OK, null);
+          }
+          case CMD_REMOVE_FILE -> {
+            files.remove(readString(params));
+            respond(out, RESP_OK, null);
+          }
+          case CMD_SET_SEXP, CMD_ASSIGN_SEXP, CMD_SET_BUFFER_SIZE, CMD_SET_ENCODING, CMD_SHUTDOWN ->
+              respond(out, RESP_OK, null);
+          default -> respond(out, RESP_ERR | (ERR_UNSUPPORTED_CMD << 24), null);
+        }
+      }
+    }
+    catch (IOException e) {
+      LOG.warn("Rserve connection failed", e);
+    }
+  }
+
+  private CompiledRule findRule(String code) {
+    for (CompiledRule rule : _rules) {
+      if (rule.pattern().matcher(code).find()) {
+        return rule;
+      }
+    }
+    return null;
+  }
+
+  // reads the header of the next parameter, returning its length and leaving the buffer at its content
+  private static long readParamLength(ByteBuffer params) {
+    int header = params.getInt();
+    long length = header >>> 8;
+    if ((header & DT_LARGE) != 0) {
+      length |= Integer.toUnsignedLong(params.getInt()) << 24;
+    }
+    return length;
+  }
+
+  private static String readString(ByteBuffer params) {
+    int length = (int) readParamLength(params);
+    int start = params.position();
+    int end = start;
+    while (end < start + length && params.get(end) != 0) {
+      end++;
+    }
+    params.position(start + length);
+    return new String(params.array(), start, end - start, StandardCharsets.UTF_8);
+  }
+
+  private static byte[] stringResult(String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    // null-terminated, padded to a multiple of 4 bytes with 1s
+    int length = (bytes.length + 1 + 3) & ~3;
+    ByteBuffer data = ByteBuffer.allocate(length);
+    data.put(bytes).put((byte) 0);
+    while (data.hasRemaining()) {
+      data.put((byte) 1);
+    }
+    return sexp(XT_ARRAY_STR, data.array());
+  }
+
+  private static byte[] intResult(int value) {
+    return sexp(XT_ARRAY_INT, ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array());
+  }
+
+  // wraps an R expression of the passed type and content in a DT_SEXP parameter
+  private static byte[] sexp(int type, byte[] content) {
+    boolean large = content.length > MAX_SMALL_LENGTH;
+    int sexpLength = (large ? 8 : 4) + content.length;
+    boolean largeParam = sexpLength > MAX_SMALL_LENGTH;
+    ByteBuffer param = ByteBuffer.allocate((largeParam ? 8 : 4) + sexpLength).order(ByteOrder.LITTLE_ENDIAN);
+    putHeader(param, DT_SEXP | (largeParam ? DT_LARGE : 0), sexpLength, largeParam);
+    putHeader(param, type | (large ? XT_LARGE : 0), content.length, large);
+    return param.put(content).array();
+  }
+
+  private static void putHeader(ByteBuffer buffer, int type, long length, boolean large) {
+    buffer.putInt(type | (int) ((length & 0xffffff) << 8));
+    if (large) {
+      buffer.putInt((int) (length >>> 24));
+    }
+  }
+
+  private static void respond(OutputStream out, int response, byte[] content) throws IOException {
+    int length = content == null ? 0 : content.length;
+    ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN)
+        .putInt(response).putInt(length).putInt(0).putInt(0);
+    out.write(header.array());
+    if (content != null) {
+      out.write(content);
+    }
+    out.flush();
+  }
+}
@@ -0,0 +1,83 @@
+package org.veupathdb.service.eda.ds.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fixtures served by the stand-ins, read from a JSON manifest.  File paths in the manifest are relative to
+ * the directory holding it.
+ *
+ * <pre>
+ * {
+ *   "services": {
+ *     "subsetting": { "port": 8191, "upstream": "https://...", "routes": [ route, ... ] },
+ *     "merging": ..., "compute": ..., "datasetAccess": ...
+ *   },
+ *   "rserve": { "port": 8195, "delayMs": 50, "rules": [ rule, ... ] }
+ * }
+ * </pre>
+ */
+public record FixtureManifest(Map<String, Service> services, Rserve rserve) {
+
+  /**
+   * Stand-in for a downstream HTTP service.
+   *
+   * @param port port to listen on
+   * @param upstream if given, requests matching no route are forwarded to this URL and their responses recorded
+   *                 as new routes
+   * @param routes fixtures, of which the first matching a request is served
+   */
+  public record Service(int port, String upstream, List<Route> routes) {}
+
+  /**
+   * A response served to requests with the given method whose path (including any query) matches the path
+   * regex and, if given, whose body contains the given text or has the given SHA-256 digest (hex).  The
+   * response body is the given file, the given text or a synthetic table, in that order of precedence, and is
+   * started after the delay (plus up to the jitter, at random).
+   */
+  public record Route(String method, String path, String bodyContains, String bodySha256,
+                      int status, String contentType, String file, String body, SyntheticTable table,
+                      long delayMs, long jitterMs) {
+
+    public int statusOrDefault() {
+      return status == 0 ? 200 : status;
+    }
+  }
+
+  /**
+   * Tab-delimited table with a header row of the column names, generated anew for each request.
+   */
+  public record SyntheticTable(long rows, long seed, List<Column> columns) {}
+
+  /**
+   * @param type one of id, number, integer, category, date, latitude, longitude, geohash
+   * @param cardinality number of distinct values of category and geohash columns; location columns of a row
+   *                    share the geohash bucket of the row
+   * @param missing fraction of values left empty (not applicable to id and location columns)
+   */
+  public record Column(String name, String type, int cardinality, double missing) {}
+
+  /**
+   * Fake Rserve server.
+   *
+   * @param port port to listen on
+   * @param delayMs time taken by each eval or void eval matching no rule (plus up to the jitter)
+   * @param rules canned eval results, of which the first matching the evaluated code is used
+   */
+  public record Rserve(int port, long delayMs, long jitterMs, List<RserveRule> rules) {}
+
+  /**
+   * Canned result of evaluating R code matching the pattern (a regex found anywhere in the code).  The eval
+   * returns the given result string or, if a file is given, the name of a file on the fake server holding the
+   * file's contents, as plot.data functions do.  Void evals of matching code only take the rule's time.
+   */
+  public record RserveRule(String pattern, String result, String file, long delayMs, long jitterMs) {}
+
+  public static FixtureManifest read(File file) throws IOException {
+    return new ObjectMapper().readValue(file, FixtureManifest.class);
+  }
+}
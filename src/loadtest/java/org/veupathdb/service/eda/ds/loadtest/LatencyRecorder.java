@@ -0,0 +1,76 @@
+package org.veupathdb.service.eda.ds.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencies and outcomes of the requests of one kind sent during measurement.  Latencies are kept whole (a
+ * load test sends at most a few hundred thousand requests) so percentiles are exact.
+ */
+public class LatencyRecorder {
+
+  private long[] _latencies = new long[1024];
+  private int _count;
+  private int _errors;
+  private long _bytes;
+  private final Map<String, Integer> _errorCounts = new TreeMap<>();
+
+  /**
+   * @param latencyNanos time from the request's intended start to the end of its response
+   * @param error description of the failure (e.g. "HTTP 500"), or null if it succeeded
+   * @param bytes number of response body bytes received
+   */
+  public synchronized void add(long latencyNanos, String error, long bytes) {
+    if (_count == _latencies.length) {
+      _latencies = Arrays.copyOf(_latencies, _count * 2);
+    }
+    _latencies[_count++] = latencyNanos;
+    _bytes += bytes;
+    if (error != null) {
+      _errors++;
+      _errorCounts.merge(error, 1, Integer::sum);
+    }
+  }
+
+  public synchronized void addAll(LatencyRecorder other) {
+    synchronized (other) {
+      for (int i = 0; i < other._count; i++) {
+        add(other._latencies[i], null, 0);
+      }
+      _bytes += other._bytes;
+      _errors += other._errors;
+      other._errorCounts.forEach((error, count) -> _errorCounts.merge(error, count, Integer::sum));
+    }
+  }
+
+  public synchronized int getCount() {
+    return _count;
+  }
+
+  public synchronized int getErrors() {
+    return _errors;
+  }
+
+  public synchronized long getBytes() {
+    return _bytes;
+  }
+
+  public synchronized Map<String, Integer> getErrorCounts() {
+    return new TreeMap<>(_errorCounts);
+  }
+
+  /**
+   * @param percentile percentile in (0, 100]
+   * @return latency in milliseconds at the passed percentile (nearest rank), or 0 if none were recorded
+   */
+  public synchronized double getPercentileMillis(double percentile) {
+    if (_count == 0) {
+      return 0;
+    }
+    long[] sorted = Arrays.copyOf(_latencies, _count);
+    Arrays.sort(sorted);
+    int rank = (int) Math.ceil(percentile / 100 * _count);
+    return sorted[Math.max(rank, 1) - 1] / 1e6;
+  }
+}
@@ -0,0 +1,281 @@
+package org.veupathdb.service.eda.ds.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.veupathdb.service.eda.ds.loadtest.LoadScenario.Request;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the service with the request mix of a scenario (see LoadScenario) at a fixed rate, then reports
+ * latency percentiles, throughput and errors per request and overall, and the service's heap use and GC
+ * pauses if the scenario says where to find them.
+ *
+ * Load is open: requests are started on schedule whether or not earlier ones have finished, and each
+ * latency is measured from when its request was scheduled to start, so a stalled service is charged for the
+ * requests it held up (coordinated omission) rather than appearing to serve fewer, faster ones.
+ *
+ * Usage: LoadDriver scenario.json [report.json] [--rps N] [--duration seconds]
+ */
+public class LoadDriver {
+
+  private static final String OVERALL = "overall";
+
+  private final LoadScenario _scenario;
+  // request bodies, by index of the request in the mix
+  private final List<byte[]> _bodies = new ArrayList<>();
+  private final int[] _cumulativeWeights;
+  private final Map<String, LatencyRecorder> _recorders = new LinkedHashMap<>();
+  private final HttpClient _client;
+  private final AtomicInteger _inFlight = new AtomicInteger();
+  private final AtomicInteger _dropped = new AtomicInteger();
+
+  public LoadDriver(LoadScenario scenario, File scenarioDir) throws IOException {
+    if (scenario.requests() == null || scenario.requests().isEmpty()) {
+      throw new IllegalArgumentException("Scenario has no requests");
+    }
+    if (scenario.rps() <= 0 || scenario.durationSeconds() <= 0) {
+      throw new IllegalArgumentException("Scenario rps and durationSeconds must be positive");
+    }
+    _scenario = scenario;
+    _cumulativeWeights = new int[scenario.requests().size()];
+    int total = 0;
+    for (int i = 0; i < scenario.requests().size(); i++) {
+      Request request = scenario.requests().get(i);
+      _bodies.add(request.body() == null ? null : Files.readAllBytes(new File(scenarioDir, request.body()).toPath()));
+      total += Math.max(request.weight(), 1);
+      _cumulativeWeights[i] = total;
+      _recorders.putIfAbsent(request.name(), new LatencyRecorder());
+    }
+    _client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(10))
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .build();
+  }
+
+  public static void main(String[] args) throws Exception {
+    List<String> positional = new ArrayList<>();
+    Double rps = null;
+    Integer duration = null;
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--rps" -> rps = Double.parseDouble(args[++i]);
+        case "--duration" -> duration = Integer.parseInt(args[++i]);
+        default -> positional.add(args[i]);
+      }
+    }
+    if (positional.isEmpty() || positional.size() > 2) {
+      System.err.println("Usage: LoadDriver <scenario.json> [report.json] [--rps N] [--duration seconds]");
+      System.exit(2);
+    }
+    File scenarioFile = new File(positional.get(0)).getAbsoluteFile();
+    LoadScenario scenario = LoadScenario.read(scenarioFile);
+    if (rps != null || duration != null) {
+      scenario = new LoadScenario(scenario.baseUrl(), scenario.headers(), rps != null ? rps : scenario.rps(),
+          scenario.warmupSeconds(), duration != null ? duration : scenario.durationSeconds(), scenario.maxInFlight(),
+          scenario.metricsUrl(), scenario.gcLog(), scenario.requests());
+    }
+
+    Map<String, Object> report = new LoadDriver(scenario, scenarioFile.getParentFile()).run();
+    if (positional.size() == 2) {
+      File reportFile = new File(positional.get(1));
+      if (reportFile.getParentFile() != null) {
+        reportFile.getParentFile().mkdirs();
+      }
+      new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile, report);
+      System.out.println("Report written to " + reportFile);
+    }
+  }
+
+  /**
+   * Runs the scenario, printing its results.
+   *
+   * @return the results, for a JSON report
+   */
+  public Map<String, Object> run() throws IOException, InterruptedException {
+    ServiceJvmMonitor monitor = new ServiceJvmMonitor(_scenario.metricsUrl(),
+        _scenario.gcLog() == null ? null : new File(_scenario.gcLog()));
+    long interval = (long) (TimeUnit.SECONDS.toNanos(1) / _scenario.rps());
+    long start = System.nanoTime();
+    long measureStart = start + TimeUnit.SECONDS.toNanos(_scenario.warmupSeconds());
+    long end = measureStart + TimeUnit.SECONDS.toNanos(_scenario.durationSeconds());
+    System.out.println("Sending " + _scenario.rps() + " requests/s to " + _scenario.baseUrl() + " for "
+        + _scenario.warmupSeconds() + "s warmup and " + _scenario.durationSeconds() + "s measurement");
+
+    boolean measuring = false;
+    for (long i = 0; ; i++) {
+      long intended = start + i * interval;
+      if (intended >= end) {
+        break;
+      }
+      if (!measuring && intended >= measureStart) {
+        monitor.start();
+        measuring = true;
+      }
+      long wait;
+      while ((wait = intended - System.nanoTime()) > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      boolean measured = measuring;
+      if (_inFlight.get() >= _scenario.maxInFlightOrDefault()) {
+        if (measured) {
+          _dropped.incrementAndGet();
+        }
+        continue;
+      }
+      _inFlight.incrementAndGet();
+      int index = pick();
+      Thread.ofVirtual().start(() -> {
+        try {
+          send(index, intended, measured);
+        }
+        finally {
+          _inFlight.decrementAndGet();
+        }
+      });
+    }
+    // requests still in flight finish within the measurement, late as they are
+    long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+    while (_inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+      Thread.sleep(10);
+    }
+    double elapsedSeconds = (System.nanoTime() - measureStart) / 1e9;
+    ServiceJvmMonitor.Report jvm = monitor.stop();
+    return report(elapsedSeconds, jvm);
+  }
+
+  private int pick() {
+    int target = ThreadLocalRandom.current().nextInt(_cumulativeWeights[_cumulativeWeights.length - 1]);
+    for (int i = 0; ; i++) {
+      if (target < _cumulativeWeights[i]) {
+        return i;
+      }
+    }
+  }
+
+  private void send(int index, long intended, boolean measured) {
+    Request request = _scenario.requests().get(index);
+    byte[] body = _bodies.get(index);
+    HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(_scenario.baseUrl().replaceAll("/$", "") + request.path()))
+        .timeout(Duration.ofMinutes(5))
+        .method(body == null ? "GET" : "POST",
+            body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body));
+    if (body != null) {
+      builder.header("Content-Type", "application/json");
+    }
+    if (_scenario.headers() != null) {
+      _scenario.headers().forEach(builder::header);
+    }
+    if (request.headers() != null) {
+      request.headers().forEach(builder::header);
+    }
+
+    String error = null;
+    long bytes = 0;
+    try {
+      HttpResponse<InputStream> response = _client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+      // the response is read whole, as a client would, but not kept
+      try (InputStream in = response.body()) {
+        bytes = in.transferTo(OutputStream.nullOutputStream());
+      }
+      if (response.statusCode() >= 400) {
+        error = "HTTP " + response.statusCode();
+      }
+    }
+    catch (IOException e) {
+      error = e.getClass().getSimpleName();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      error = "interrupted";
+    }
+    if (measured) {
+      _recorders.get(request.name()).add(System.nanoTime() - intended, error, bytes);
+    }
+  }
+
+  private Map<String, Object> report(double elapsedSeconds, ServiceJvmMonitor.Report jvm) {
+    Map<String, Object> report = new LinkedHashMap<>();
+    Map<String, Object> latencies = new LinkedHashMap<>();
+    LatencyRecorder overall = new LatencyRecorder();
+    System.out.println();
+    System.out.printf("%-24s %8s %7s %10s %10s %10s %10s %10s %12s%n",
+        "request", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "max ms", "req/s", "bytes");
+    for (Map.Entry<String, LatencyRecorder> recorder : _recorders.entrySet()) {
+      latencies.put(recorder.getKey(), print(recorder.getKey(), recorder.getValue(), elapsedSeconds));
+      overall.addAll(recorder.getValue());
+    }
+    latencies.put(OVERALL, print(OVERALL, overall, elapsedSeconds));
+    report.put("targetRps", _scenario.rps());
+    report.put("measuredSeconds", elapsedSeconds);
+    report.put("dropped", _dropped.get());
+    report.put("latencies", latencies);
+    report.put("jvm", jvm);
+
+    if (_dropped.get() > 0) {
+      System.out.println(_dropped.get() + " requests dropped with " + _scenario.maxInFlightOrDefault()
+          + " in flight; the service cannot sustain " + _scenario.rps() + " requests/s");
+    }
+    overall.getErrorCounts().forEach((error, count) -> System.out.println(count + " requests failed with " + error));
+
+    System.out.println();
+    if (jvm.heapSamples() > 0) {
+      System.out.printf("Heap used (metrics, %d samples): max %s, mean %s%n",
+          jvm.heapSamples(), megabytes(jvm.heapUsedMaxBytes()), megabytes(jvm.heapUsedMeanBytes()));
+    }
+    if (jvm.gcCollections() >= 0) {
+      System.out.printf("GC (metrics): %d collections, %.3fs%n", jvm.gcCollections(), jvm.gcSeconds());
+    }
+    if (jvm.gcPauses() >= 0) {
+      System.out.printf("GC pauses (log): %d (%d full), total %.1f ms, p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+          jvm.gcPauses(), jvm.fullGcPauses(), jvm.gcPauseTotalMs(), jvm.gcPauseP50Ms(), jvm.gcPauseP99Ms(), jvm.gcPauseMaxMs());
+      if (jvm.heapBeforeGcMaxBytes() >= 0) {
+        System.out.printf("Heap (log): max before GC %s, max after GC %s, max committed %s%n",
+            megabytes(jvm.heapBeforeGcMaxBytes()), megabytes(jvm.heapAfterGcMaxBytes()), megabytes(jvm.heapCommittedMaxBytes()));
+      }
+    }
+    if (jvm.heapSamples() == 0 && jvm.gcCollections() < 0 && jvm.gcPauses() < 0) {
+      System.out.println("Heap and GC not reported; set metricsUrl and/or gcLog in the scenario");
+    }
+    return report;
+  }
+
+  private static Map<String, Object> print(String name, LatencyRecorder recorder, double elapsedSeconds) {
+    Map<String, Object> row = new LinkedHashMap<>();
+    row.put("count", recorder.getCount());
+    row.put("errors", recorder.getErrors());
+    row.put("p50Ms", recorder.getPercentileMillis(50));
+    row.put("p90Ms", recorder.getPercentileMillis(90));
+    row.put("p99Ms", recorder.getPercentileMillis(99));
+    row.put("maxMs", recorder.getPercentileMillis(100));
+    row.put("throughputRps", (recorder.getCount() - recorder.getErrors()) / elapsedSeconds);
+    row.put("bytes", recorder.getBytes());
+    System.out.printf("%-24s %8d %7d %10.1f %10.1f %10.1f %10.1f %10.1f %12d%n", name, recorder.getCount(),
+        recorder.getErrors(), row.get("p50Ms"), row.get("p90Ms"), row.get("p99Ms"), row.get("maxMs"),
+        row.get("throughputRps"), recorder.getBytes());
+    return row;
+  }
+
+  private static String megabytes(long bytes) {
+    return (bytes >> 20) + "M";
+  }
+}
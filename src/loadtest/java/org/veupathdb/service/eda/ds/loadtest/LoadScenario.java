@@ -0,0 +1,44 @@
+package org.veupathdb.service.eda.ds.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load to drive the service with, read from a JSON file.  Request body paths are relative to the directory
+ * holding the file.
+ *
+ * @param baseUrl URL of the service under test
+ * @param headers headers sent with every request (e.g. Auth-Key, Accept-Encoding)
+ * @param rps requests started per second, whether or not earlier ones have finished
+ * @param warmupSeconds time for which load is applied before measurement starts
+ * @param durationSeconds time for which load is measured
+ * @param maxInFlight requests in flight beyond which new ones are dropped rather than sent (and counted as such)
+ * @param metricsUrl if given, the service's Prometheus metrics, sampled for heap use and GC time
+ * @param gcLog if given, the service's GC log (-Xlog:gc), read for GC pauses and heap use
+ * @param requests mix of requests, each sent with probability proportional to its weight
+ */
+public record LoadScenario(String baseUrl, Map<String, String> headers, double rps, int warmupSeconds,
+                           int durationSeconds, int maxInFlight, String metricsUrl, String gcLog,
+                           List<Request> requests) {
+
+  /**
+   * @param name name to report the request's latencies under
+   * @param path path of the endpoint, relative to the base URL
+   * @param body file holding the JSON request body
+   * @param weight relative frequency of the request in the mix
+   * @param headers headers sent with this request in addition to the scenario's
+   */
+  public record Request(String name, String path, String body, int weight, Map<String, String> headers) {}
+
+  public int maxInFlightOrDefault() {
+    return maxInFlight > 0 ? maxInFlight : 1000;
+  }
+
+  public static LoadScenario read(File file) throws IOException {
+    return new ObjectMapper().readValue(file, LoadScenario.class);
+  }
+}
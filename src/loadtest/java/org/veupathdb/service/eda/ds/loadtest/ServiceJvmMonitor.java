@@ -0,0 +1,207 @@
+package org.veupathdb.service.eda.ds.loadtest;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Watches the heap and garbage collection of the service under test during measurement, through either or
+ * both of its Prometheus metrics (sampled each second) and its GC log (read for the lines appended during
+ * measurement).  The GC log gives every pause, so is the better source; it requires the service to be run
+ * with -Xlog:gc:file=...
+ */
+public class ServiceJvmMonitor {
+
+  private static final Logger LOG = LogManager.getLogger(ServiceJvmMonitor.class);
+
+  private static final long SAMPLE_INTERVAL_MS = 1000;
+
+  // heap used, as exported by simpleclient_hotspot (jvm_memory_bytes_used) or client_java 1.x (jvm_memory_used_bytes)
+  private static final Pattern HEAP_USED = Pattern.compile(
+      "^jvm_memory_(?:bytes_used|used_bytes)\\{area=\"heap\",?} (\\S+)$", Pattern.MULTILINE);
+  private static final Pattern GC_SECONDS_SUM = Pattern.compile(
+      "^jvm_gc_collection_seconds_sum\\{[^}]*} (\\S+)$", Pattern.MULTILINE);
+  private static final Pattern GC_SECONDS_COUNT = Pattern.compile(
+      "^jvm_gc_collection_seconds_count\\{[^}]*} (\\S+)$", Pattern.MULTILINE);
+
+  // unified logging pause lines, e.g. "GC(12) Pause Young (Normal) (G1 Evacuation Pause) 112M->40M(256M) 3.456ms"
+  private static final Pattern GC_PAUSE = Pattern.compile("GC\\(\\d+\\) (Pause [A-Za-z ]+?)(?: \\((?:[^()]|\\([^)]*\\))*\\))*"
+      + "(?: (\\d+)([KMG])->(\\d+)([KMG])\\((\\d+)([KMG])\\))? ([\\d.]+)ms$");
+
+  /**
+   * Heap and GC over the measurement.  Values not available from the configured sources are -1.
+   */
+  public record Report(long heapSamples, long heapUsedMaxBytes, long heapUsedMeanBytes,
+                       long gcCollections, double gcSeconds,
+                       long gcPauses, double gcPauseTotalMs, double gcPauseP50Ms, double gcPauseP99Ms,
+                       double gcPauseMaxMs, long heapBeforeGcMaxBytes, long heapAfterGcMaxBytes,
+                       long heapCommittedMaxBytes, long fullGcPauses) {}
+
+  private final String _metricsUrl;
+  private final File _gcLog;
+  private final HttpClient _client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+  private final List<Long> _heapSamples = new ArrayList<>();
+  private double[] _gcAtStart;
+  private double[] _gcAtEnd;
+  private long _gcLogStart;
+  private volatile boolean _running;
+  private Thread _sampler;
+
+  /**
+   * @param metricsUrl URL of the service's Prometheus metrics, or null
+   * @param gcLog the service's GC log, or null
+   */
+  public ServiceJvmMonitor(String metricsUrl, File gcLog) {
+    _metricsUrl = metricsUrl;
+    _gcLog = gcLog;
+  }
+
+  public void start() {
+    if (_gcLog != null) {
+      _gcLogStart = _gcLog.length();
+    }
+    if (_metricsUrl != null) {
+      _gcAtStart = sampleMetrics();
+      _running = true;
+      _sampler = Thread.ofPlatform().name("jvm-monitor").daemon().start(() -> {
+        while (_running) {
+          try {
+            Thread.sleep(SAMPLE_INTERVAL_MS);
+          }
+          catch (InterruptedException e) {
+            return;
+          }
+          sampleMetrics();
+        }
+      });
+    }
+  }
+
+  public Report stop() throws IOException {
+    if (_sampler != null) {
+      _running = false;
+      _sampler.interrupt();
+      _gcAtEnd = sampleMetrics();
+    }
+    long heapSamples, heapMax = -1, heapMean = -1;
+    synchronized (_heapSamples) {
+      heapSamples = _heapSamples.size();
+      if (!_heapSamples.isEmpty()) {
+        heapMax = _heapSamples.stream().mapToLong(Long::longValue).max().orElseThrow();
+        heapMean = (long) _heapSamples.stream().mapToLong(Long::longValue).average().orElseThrow();
+      }
+    }
+    long gcCollections = -1;
+    double gcSeconds = -1;
+    if (_gcAtStart != null && _gcAtEnd != null) {
+      gcCollections = (long) (_gcAtEnd[1] - _gcAtStart[1]);
+      gcSeconds = _gcAtEnd[0] - _gcAtStart[0];
+    }
+
+    List<Double> pauses = new ArrayList<>();
+    long before = -1, after = -1, committed = -1, full = 0;
+    if (_gcLog != null) {
+      for (String line : readAppended()) {
+        Matcher pause = GC_PAUSE.matcher(line);
+        if (!pause.find()) {
+          continue;
+        }
+        pauses.add(Double.parseDouble(pause.group(8)));
+        if (pause.group(1).startsWith("Pause Full")) {
+          full++;
+        }
+        if (pause.group(2) != null) {
+          before = Math.max(before, toBytes(pause.group(2), pause.group(3)));
+          after = Math.max(after, toBytes(pause.group(4), pause.group(5)));
+          committed = Math.max(committed, toBytes(pause.group(6), pause.group(7)));
+        }
+      }
+    }
+    double[] sorted = pauses.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+    boolean hasLog = _gcLog != null;
+    return new Report(heapSamples, heapMax, heapMean, gcCollections, gcSeconds,
+        hasLog ? sorted.length : -1, hasLog ? Arrays.stream(sorted).sum() : -1,
+        hasLog ? percentile(sorted, 50) : -1, hasLog ? percentile(sorted, 99) : -1,
+        hasLog ? percentile(sorted, 100) : -1, before, after, committed, hasLog ? full : -1);
+  }
+
+  // records the heap used and returns the GC seconds and collections so far, or null if the metrics are unavailable
+  private double[] sampleMetrics() {
+    try {
+      HttpResponse<String> response = _client.send(HttpRequest.newBuilder(URI.create(_metricsUrl))
+          .timeout(Duration.ofSeconds(5)).build(), HttpResponse.BodyHandlers.ofString());
+      if (response.statusCode() != 200) {
+        LOG.warn("Metrics request returned HTTP " + response.statusCode());
+        return null;
+      }
+      String metrics = response.body();
+      Matcher heap = HEAP_USED.matcher(metrics);
+      if (heap.find()) {
+        synchronized (_heapSamples) {
+          _heapSamples.add((long) Double.parseDouble(heap.group(1)));
+        }
+      }
+      return new double[] { sum(GC_SECONDS_SUM, metrics), sum(GC_SECONDS_COUNT, metrics) };
+    }
+    catch (IOException e) {
+      LOG.warn("Unable to read metrics from " + _metricsUrl + ": " + e);
+      return null;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  // sums a metric over its label values (e.g. each collector)
+  private static double sum(Pattern metric, String metrics) {
+    double sum = 0;
+    Matcher matcher = metric.matcher(metrics);
+    while (matcher.find()) {
+      sum += Double.parseDouble(matcher.group(1));
+    }
+    return sum;
+  }
+
+  private List<String> readAppended() throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(_gcLog, "r")) {
+      // a log rotated during the run starts again from the beginning
+      long start = file.length() < _gcLogStart ? 0 : _gcLogStart;
+      byte[] appended = new byte[Math.toIntExact(file.length() - start)];
+      file.seek(start);
+      file.readFully(appended);
+      return new String(appended, StandardCharsets.UTF_8).lines().toList();
+    }
+  }
+
+  private static long toBytes(String value, String unit) {
+    long amount = Long.parseLong(value);
+    return switch (unit) {
+      case "K" -> amount << 10;
+      case "M" -> amount << 20;
+      default -> amount << 30;
+    };
+  }
+
+  private static double percentile(double[] sorted, double percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+    return sorted[Math.max(rank, 1) - 1];
+  }
+}
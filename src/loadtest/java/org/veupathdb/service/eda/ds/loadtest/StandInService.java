@@ -0,0 +1,227 @@
+package org.veupathdb.service.eda.ds.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.veupathdb.service.eda.ds.loadtest.FixtureManifest.Route;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Serves fixtures in place of a downstream HTTP service (subsetting, merging, compute or dataset access).
+ * Requests are answered by the first route matching them, after the route's delay; requests matching none get
+ * a 404, unless the stand-in has an upstream service, in which case they are forwarded to it and the
+ * response is recorded as a new route (its body in a file next to the manifest), so fixtures for a realistic
+ * request mix can be captured by running it once against a live stack.
+ */
+public class StandInService {
+
+  private static final Logger LOG = LogManager.getLogger(StandInService.class);
+
+  // request headers not forwarded upstream when recording (the HTTP client sets or forbids them, or, for
+  // accept-encoding, the recorded body would be served compressed without saying so)
+  private static final Set<String> UNFORWARDED_HEADERS =
+      Set.of("accept-encoding", "connection", "content-length", "expect", "host", "transfer-encoding", "upgrade");
+
+  private record CompiledRoute(Route route, Pattern path) {}
+
+  private final String _name;
+  private final File _fixtureDir;
+  private final String _upstream;
+  private final List<CompiledRoute> _routes = new ArrayList<>();
+  private final List<Route> _recorded = new ArrayList<>();
+  private final AtomicInteger _requests = new AtomicInteger();
+  private final HttpClient _client = HttpClient.newHttpClient();
+  private HttpServer _server;
+
+  public StandInService(String name, FixtureManifest.Service config, File fixtureDir) {
+    _name = name;
+    _fixtureDir = fixtureDir;
+    _upstream = config.upstream();
+    if (config.routes() != null) {
+      config.routes().forEach(this::addRoute);
+    }
+  }
+
+  public void start(int port) throws IOException {
+    _server = HttpServer.create(new InetSocketAddress(port), 0);
+    _server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    _server.createContext("/", this::handle);
+    _server.start();
+  }
+
+  public void stop() {
+    _server.stop(0);
+  }
+
+  /**
+   * @return number of requests served
+   */
+  public int getRequestCount() {
+    return _requests.get();
+  }
+
+  private synchronized void addRoute(Route route) {
+    _routes.add(new CompiledRoute(route, Pattern.compile(route.path())));
+  }
+
+  private synchronized CompiledRoute findRoute(String method, String path, byte[] body) {
+    String bodyText = null;
+    String bodyDigest = null;
+    for (CompiledRoute candidate : _routes) {
+      Route route = candidate.route();
+      if (route.method() != null && !route.method().equalsIgnoreCase(method) || !candidate.path().matcher(path).matches()) {
+        continue;
+      }
+      if (route.bodyContains() != null) {
+        bodyText = bodyText == null ? new String(body, StandardCharsets.UTF_8) : bodyText;
+        if (!bodyText.contains(route.bodyContains())) {
+          continue;
+        }
+      }
+      if (route.bodySha256() != null) {
+        bodyDigest = bodyDigest == null ? sha256(body) : bodyDigest;
+        if (!route.bodySha256().equalsIgnoreCase(bodyDigest)) {
+          continue;
+        }
+      }
+      return candidate;
+    }
+    return null;
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      _requests.incrementAndGet();
+      String path = exchange.getRequestURI().toString();
+      byte[] body = exchange.getRequestBody().readAllBytes();
+      CompiledRoute match = findRoute(exchange.getRequestMethod(), path, body);
+      if (match != null) {
+        StandIns.pause(match.route().delayMs(), match.route().jitterMs());
+        writeResponse(exchange, match.route());
+      }
+      else if (_upstream != null) {
+        // the upstream has already taken its time
+        writeResponse(exchange, record(exchange, path, body));
+      }
+      else {
+        LOG.warn("No " + _name + " fixture for " + exchange.getRequestMethod() + " " + path);
+        exchange.sendResponseHeaders(404, -1);
+      }
+    }
+    catch (IOException | RuntimeException e) {
+      LOG.error("Unable to serve " + _name + " request " + exchange.getRequestURI(), e);
+      throw e;
+    }
+    finally {
+      exchange.close();
+    }
+  }
+
+  private void writeResponse(HttpExchange exchange, Route route) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type",
+        route.contentType() != null ? route.contentType() : route.table() != null ? "text/tab-separated-values" : "application/json");
+    if (route.file() != null) {
+      File file = new File(_fixtureDir, route.file());
+      exchange.sendResponseHeaders(route.statusOrDefault(), file.length());
+      try (OutputStream out = exchange.getResponseBody()) {
+        Files.copy(file.toPath(), out);
+      }
+    }
+    else if (route.body() != null) {
+      byte[] body = route.body().getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(route.statusOrDefault(), body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    }
+    else if (route.table() != null) {
+      // chunked, as downstream services stream tables
+      exchange.sendResponseHeaders(route.statusOrDefault(), 0);
+      try (OutputStream out = exchange.getResponseBody()) {
+        new SyntheticTableWriter(route.table()).write(out);
+      }
+    }
+    else {
+      exchange.sendResponseHeaders(route.statusOrDefault(), -1);
+    }
+  }
+
+  // forwards the request upstream, saving the response as a fixture and its route to the recorded manifest
+  private Route record(HttpExchange exchange, String path, byte[] body) throws IOException {
+    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(_upstream.replaceAll("/$", "") + path))
+        .method(exchange.getRequestMethod(), body.length == 0
+            ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body));
+    exchange.getRequestHeaders().forEach((header, values) -> {
+      if (!UNFORWARDED_HEADERS.contains(header.toLowerCase())) {
+        values.forEach(value -> request.header(header, value));
+      }
+    });
+    long start = System.nanoTime();
+    HttpResponse<InputStream> response;
+    try {
+      response = _client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while forwarding request", e);
+    }
+    long delayMs = (System.nanoTime() - start) / 1_000_000;
+
+    int index;
+    synchronized (this) {
+      index = _recorded.size();
+      _recorded.add(null);
+    }
+    File file = new File(_fixtureDir, "recorded/" + _name + "-" + (index + 1) + ".body");
+    file.getParentFile().mkdirs();
+    try (InputStream in = response.body()) {
+      Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+    Route route = new Route(exchange.getRequestMethod(), Pattern.quote(path), null, body.length == 0 ? null : sha256(body),
+        response.statusCode(), response.headers().firstValue("Content-Type").orElse(null),
+        _fixtureDir.toPath().relativize(file.toPath()).toString(), null, null, delayMs, 0);
+    synchronized (this) {
+      _recorded.set(index, route);
+      addRoute(route);
+      new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+          .writeValue(new File(_fixtureDir, "recorded/" + _name + "-routes.json"),
+              _recorded.stream().filter(Objects::nonNull).toList());
+    }
+    LOG.info("Recorded " + _name + " fixture for " + exchange.getRequestMethod() + " " + path + " in " + file);
+    return route;
+  }
+
+  private static String sha256(byte[] body) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package org.veupathdb.service.eda.ds.loadtest;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Starts stand-ins for the service's downstream dependencies, serving the fixtures in a manifest (see
+ * FixtureManifest), and prints the environment with which to start the service against them.  Runs until
+ * killed, then prints how many requests each stand-in served.
+ *
+ * Usage: StandIns fixtures.json
+ */
+public class StandIns {
+
+  private static final Logger LOG = LogManager.getLogger(StandIns.class);
+
+  // environment variable holding each downstream service's URL, by its name in the manifest
+  private static final Map<String, String> SERVICE_URL_VARS = Map.of(
+      "subsetting", "SUBSETTING_SERVICE_URL",
+      "merging", "MERGING_SERVICE_URL",
+      "compute", "COMPUTE_SERVICE_URL",
+      "datasetAccess", "DATASET_ACCESS_SERVICE_URL");
+
+  public static void main(String[] args) throws Exception {
+    if (args.length != 1) {
+      System.err.println("Usage: StandIns <fixtures.json>");
+      System.exit(2);
+    }
+    File manifestFile = new File(args[0]).getAbsoluteFile();
+    FixtureManifest manifest = FixtureManifest.read(manifestFile);
+    File fixtureDir = manifestFile.getParentFile();
+
+    Map<String, String> environment = new LinkedHashMap<>();
+    Map<String, StandInService> services = new LinkedHashMap<>();
+    if (manifest.services() != null) {
+      for (Map.Entry<String, FixtureManifest.Service> config : manifest.services().entrySet()) {
+        String urlVar = SERVICE_URL_VARS.get(config.getKey());
+        if (urlVar == null) {
+          throw new IllegalArgumentException("Unknown service " + config.getKey() + "; expected one of " + SERVICE_URL_VARS.keySet());
+        }
+        StandInService service = new StandInService(config.getKey(), config.getValue(), fixtureDir);
+        service.start(config.getValue().port());
+        services.put(config.getKey(), service);
+        environment.put(urlVar, "http://localhost:" + config.getValue().port());
+      }
+    }
+    FakeRserve rserve = null;
+    if (manifest.rserve() != null) {
+      rserve = new FakeRserve(manifest.rserve(), fixtureDir);
+      rserve.start(manifest.rserve().port());
+      environment.put("RSERVE_URL", "http://localhost:" + manifest.rserve().port());
+    }
+
+    List<String> missing = new ArrayList<>(SERVICE_URL_VARS.keySet());
+    missing.removeAll(services.keySet());
+    if (!missing.isEmpty()) {
+      LOG.warn("No stand-ins for " + missing + "; the service must be pointed at real ones");
+    }
+    System.out.println("Stand-ins started; run the service with:");
+    environment.forEach((name, value) -> System.out.println("  " + name + "=" + value));
+
+    FakeRserve finalRserve = rserve;
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      services.forEach((name, service) -> System.out.println(name + " stand-in served " + service.getRequestCount() + " requests"));
+      if (finalRserve != null) {
+        System.out.println("Fake Rserve served " + finalRserve.getEvalCount() + " evals and received "
+            + finalRserve.getBytesUploaded() + " bytes of files");
+      }
+    }));
+    // servers run on their own threads until the process is killed
+    Thread.currentThread().join();
+  }
+
+  /**
+   * Sleeps for the passed delay plus a random part of the passed jitter, as a stand-in's work.
+   */
+  static void pause(long delayMs, long jitterMs) {
+    long millis = delayMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+    if (millis <= 0) {
+      return;
+    }
+    try {
+      Thread.sleep(millis);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
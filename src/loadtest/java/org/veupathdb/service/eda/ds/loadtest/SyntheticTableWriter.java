@@ -0,0 +1,120 @@
+package org.veupathdb.service.eda.ds.loadtest;
+
+import org.veupathdb.service.eda.ds.loadtest.FixtureManifest.Column;
+import org.veupathdb.service.eda.ds.loadtest.FixtureManifest.SyntheticTable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Writes synthetic tabular data as a downstream service streams it.  Category and geohash values are drawn
+ * from Zipf distributions, so a few values are much more common than the rest; numbers are log-normal.
+ */
+public class SyntheticTableWriter {
+
+  private static final String GEOHASH_ALPHABET = "0123456789bcdefghjkmnpqrstuvwxyz";
+  private static final int DEFAULT_CARDINALITY = 1000;
+  private static final LocalDate FIRST_DATE = LocalDate.of(2000, 1, 1);
+
+  private final SyntheticTable _table;
+  private final double[][] _distributions;
+  private final int _bucketCount;
+  private final double[] _bucketLats;
+  private final double[] _bucketLons;
+  private final double[] _bucketDistribution;
+
+  public SyntheticTableWriter(SyntheticTable table) {
+    _table = table;
+    _distributions = table.columns().stream()
+        .map(column -> column.type().equals("category") ? zipf(cardinality(column), 1.2) : null)
+        .toArray(double[][]::new);
+    _bucketCount = table.columns().stream()
+        .filter(column -> column.type().equals("geohash"))
+        .mapToInt(SyntheticTableWriter::cardinality)
+        .findFirst().orElse(DEFAULT_CARDINALITY);
+    Random random = new Random(table.seed());
+    _bucketLats = random.doubles(_bucketCount, -70, 70).toArray();
+    _bucketLons = random.doubles(_bucketCount, -170, 170).toArray();
+    _bucketDistribution = zipf(_bucketCount, 0.8);
+  }
+
+  public void write(OutputStream out) throws IOException {
+    Random random = new Random(_table.seed());
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    writer.write(_table.columns().stream().map(Column::name).collect(Collectors.joining("\t")));
+    writer.write('\n');
+    StringBuilder row = new StringBuilder(128);
+    for (long i = 0; i < _table.rows(); i++) {
+      row.setLength(0);
+      int bucket = sample(_bucketDistribution, random);
+      for (int c = 0; c < _table.columns().size(); c++) {
+        Column column = _table.columns().get(c);
+        if (c > 0) {
+          row.append('\t');
+        }
+        if (!column.type().equals("id") && column.missing() > 0 && random.nextDouble() < column.missing()) {
+          continue;
+        }
+        switch (column.type()) {
+          case "id" -> row.append(column.name()).append('_').append(i);
+          case "number" -> row.append(round(Math.exp(2 + random.nextGaussian())));
+          case "integer" -> row.append((long) Math.exp(2 + random.nextGaussian()));
+          case "category" -> row.append("value").append(sample(_distributions[c], random));
+          case "date" -> row.append(FIRST_DATE.plusDays(random.nextInt(365 * 20)));
+          case "latitude" -> row.append(round(_bucketLats[bucket] + (random.nextDouble() - 0.5) * 0.04));
+          case "longitude" -> row.append(round(_bucketLons[bucket] + (random.nextDouble() - 0.5) * 0.04));
+          case "geohash" -> appendGeohash(row, bucket);
+          default -> throw new IllegalArgumentException("Unknown synthetic column type: " + column.type());
+        }
+      }
+      row.append('\n');
+      writer.append(row);
+    }
+    writer.flush();
+  }
+
+  private static int cardinality(Column column) {
+    return column.cardinality() > 0 ? column.cardinality() : DEFAULT_CARDINALITY;
+  }
+
+  // geohash-like value spelling out the bucket in base 32
+  private static void appendGeohash(StringBuilder row, int bucket) {
+    char[] geohash = new char[5];
+    Arrays.fill(geohash, '0');
+    for (int i = geohash.length - 1; i >= 0 && bucket > 0; i--, bucket /= GEOHASH_ALPHABET.length()) {
+      geohash[i] = GEOHASH_ALPHABET.charAt(bucket % GEOHASH_ALPHABET.length());
+    }
+    row.append(geohash);
+  }
+
+  // cumulative probabilities of ranks 0..n-1 under a Zipf distribution with the passed exponent
+  private static double[] zipf(int n, double exponent) {
+    double[] cumulative = new double[n];
+    double total = 0;
+    for (int i = 0; i < n; i++) {
+      total += 1 / Math.pow(i + 1, exponent);
+      cumulative[i] = total;
+    }
+    for (int i = 0; i < n; i++) {
+      cumulative[i] /= total;
+    }
+    return cumulative;
+  }
+
+  private static int sample(double[] cumulative, Random random) {
+    int index = Arrays.binarySearch(cumulative, random.nextDouble());
+    return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+  }
+
+  private static double round(double value) {
+    return Math.round(value * 100000) / 100000.0;
+  }
+}
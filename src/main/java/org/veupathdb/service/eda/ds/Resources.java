@@ -4,8 +4,13 @@ import org.gusdb.fgputil.client.ClientUtil;
 import org.veupathdb.lib.container.jaxrs.config.Options;
 import org.veupathdb.lib.container.jaxrs.server.ContainerResources;
 import org.veupathdb.lib.container.jaxrs.utils.db.DbManager;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.QuantileSketchConfig;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.MarkerWorkerPool;
 import org.veupathdb.service.eda.ds.service.AppsService;
 import org.veupathdb.service.eda.ds.service.FilterAwareMetadataService;
+import org.veupathdb.service.eda.ds.service.ResponseCompressionInterceptor;
+import org.veupathdb.service.eda.ds.service.ResponseFormatFilter;
+import org.veupathdb.service.eda.ds.service.VirtualThreadRequestExecutor;
 
 import static org.gusdb.fgputil.runtime.Environment.getOptionalVar;
 import static org.gusdb.fgputil.runtime.Environment.getRequiredVar;
@@ -27,6 +32,133 @@ public class Resources extends ContainerResources {
   public static final String DATASET_ACCESS_SERVICE_URL = getRequiredVar("DATASET_ACCESS_SERVICE_URL");
   public static final String RSERVE_URL = getRequiredVar("RSERVE_URL");
 
+  // maximum number of concurrent blocking calls to each downstream service (0 = unlimited); calls beyond it
+  // wait up to the given time for one to finish (Rserve calls are bounded by RSERVE_POOL_MAX_CONNECTIONS)
+  public static final int SUBSETTING_MAX_CONCURRENT_REQUESTS =
+      Integer.parseInt(getOptionalVar("SUBSETTING_MAX_CONCURRENT_REQUESTS", "0"));
+  public static final int MERGING_MAX_CONCURRENT_REQUESTS =
+      Integer.parseInt(getOptionalVar("MERGING_MAX_CONCURRENT_REQUESTS", "0"));
+  public static final int COMPUTE_MAX_CONCURRENT_REQUESTS =
+      Integer.parseInt(getOptionalVar("COMPUTE_MAX_CONCURRENT_REQUESTS", "0"));
+  public static final int DATASET_ACCESS_MAX_CONCURRENT_REQUESTS =
+      Integer.parseInt(getOptionalVar("DATASET_ACCESS_MAX_CONCURRENT_REQUESTS", "0"));
+  public static final int DOWNSTREAM_PERMIT_WAIT_SECONDS =
+      Integer.parseInt(getOptionalVar("DOWNSTREAM_PERMIT_WAIT_SECONDS", "30"));
+
+  // study metadata cache configuration
+  public static final int STUDY_METADATA_CACHE_MAX_STUDIES =
+      Integer.parseInt(getOptionalVar("STUDY_METADATA_CACHE_MAX_STUDIES", "200"));
+  public static final int STUDY_METADATA_CACHE_TTL_MINUTES =
+      Integer.parseInt(getOptionalVar("STUDY_METADATA_CACHE_TTL_MINUTES", "60"));
+
+  // number of threads used to aggregate map marker data for a single request (1 = aggregate on request thread)
+  public static final int MAP_MARKER_AGGREGATION_THREADS =
+      Integer.parseInt(getOptionalVar("MAP_MARKER_AGGREGATION_THREADS", "1"));
+  // number of threads shared by all requests to aggregate map marker data; bounds the above across requests
+  public static final int MAP_MARKER_AGGREGATION_MAX_THREADS = Integer.parseInt(getOptionalVar(
+      "MAP_MARKER_AGGREGATION_MAX_THREADS", String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+  // how map marker medians are computed: "exact", or "approximate" within the given rank error (fraction of n)
+  public static final String MAP_MARKER_MEDIAN_MODE = getOptionalVar("MAP_MARKER_MEDIAN_MODE", "exact");
+  public static final double MAP_MARKER_MEDIAN_RANK_ERROR =
+      Double.parseDouble(getOptionalVar("MAP_MARKER_MEDIAN_RANK_ERROR", "0.01"));
+
+  // cache of viewport-independent map marker indexes, so panning and zooming need not re-read marker data;
+  // indexes needing more than the max number of partial markers (0 disables indexing) are not cached
+  public static final int MAP_MARKER_INDEX_CACHE_MAX_MB =
+      Integer.parseInt(getOptionalVar("MAP_MARKER_INDEX_CACHE_MAX_MB", "256"));
+  public static final int MAP_MARKER_INDEX_CACHE_TTL_MINUTES =
+      Integer.parseInt(getOptionalVar("MAP_MARKER_INDEX_CACHE_TTL_MINUTES", "30"));
+  public static final int MAP_MARKER_INDEX_MAX_PARTIALS =
+      Integer.parseInt(getOptionalVar("MAP_MARKER_INDEX_MAX_PARTIALS", "200000"));
+
+  // pool of warm Rserve connections: at most max connections in use at once (others queue for up to the
+  // acquire timeout), each with the preload packages already loaded, closed after idling for max idle seconds
+  public static final int RSERVE_POOL_MAX_CONNECTIONS =
+      Integer.parseInt(getOptionalVar("RSERVE_POOL_MAX_CONNECTIONS", "8"));
+  public static final int RSERVE_POOL_MAX_IDLE_SECONDS =
+      Integer.parseInt(getOptionalVar("RSERVE_POOL_MAX_IDLE_SECONDS", "300"));
+  public static final int RSERVE_POOL_ACQUIRE_TIMEOUT_SECONDS =
+      Integer.parseInt(getOptionalVar("RSERVE_POOL_ACQUIRE_TIMEOUT_SECONDS", "120"));
+  public static final String RSERVE_PRELOAD_PACKAGES =
+      getOptionalVar("RSERVE_PRELOAD_PACKAGES", "data.table,plot.data,veupathUtils");
+
+  // data streams are read ahead into up to max buffered chunks of the given size while they are written to
+  // Rserve files (and while waiting for a pooled connection), a chunk per write; 0 chunks writes directly
+  public static final int RSERVE_TRANSFER_CHUNK_KB =
+      Integer.parseInt(getOptionalVar("RSERVE_TRANSFER_CHUNK_KB", "1024"));
+  public static final int RSERVE_TRANSFER_MAX_BUFFERED_CHUNKS =
+      Integer.parseInt(getOptionalVar("RSERVE_TRANSFER_MAX_BUFFERED_CHUNKS", "16"));
+
+  // requests with several data streams read them all concurrently, each into up to max chunks of the given
+  // size ahead of the plugin; 0 chunks reads each stream only as the plugin does
+  public static final int DATA_STREAM_PREFETCH_CHUNK_KB =
+      Integer.parseInt(getOptionalVar("DATA_STREAM_PREFETCH_CHUNK_KB", "256"));
+  public static final int DATA_STREAM_PREFETCH_MAX_CHUNKS =
+      Integer.parseInt(getOptionalVar("DATA_STREAM_PREFETCH_MAX_CHUNKS", "16"));
+
+  // plugins that support it send their data to Rserve as typed binary columns of only the variables they use,
+  // read with readBin(), rather than as tabular text parsed by fread()
+  public static final boolean RSERVE_COLUMNAR_TRANSFER_ENABLED =
+      Boolean.parseBoolean(getOptionalVar("RSERVE_COLUMNAR_TRANSFER_ENABLED", "false"));
+  // encoding holds a stream's columns on the heap, so longer streams are sent as tabular text instead
+  public static final int RSERVE_COLUMNAR_MAX_INPUT_MB =
+      Integer.parseInt(getOptionalVar("RSERVE_COLUMNAR_MAX_INPUT_MB", "64"));
+
+  // cache of responses of plugins that opt in to response caching; responses larger than the max entry size
+  // are kept in memory-mapped files under the disk directory instead, if one is given
+  public static final int RESPONSE_CACHE_MAX_MB =
+      Integer.parseInt(getOptionalVar("RESPONSE_CACHE_MAX_MB", "64"));
+  public static final int RESPONSE_CACHE_MAX_ENTRY_KB =
+      Integer.parseInt(getOptionalVar("RESPONSE_CACHE_MAX_ENTRY_KB", "1024"));
+  public static final String RESPONSE_CACHE_DISK_DIR = getOptionalVar("RESPONSE_CACHE_DISK_DIR", "");
+  public static final int RESPONSE_CACHE_DISK_MAX_MB =
+      Integer.parseInt(getOptionalVar("RESPONSE_CACHE_DISK_MAX_MB", "1024"));
+
+  // identical concurrent plugin requests share one computation if its response fits in the buffer (0 disables
+  // coalescing); waiting requests compute their own response if the shared one takes longer than the wait limit
+  public static final int REQUEST_COALESCING_MAX_BUFFER_MB =
+      Integer.parseInt(getOptionalVar("REQUEST_COALESCING_MAX_BUFFER_MB", "16"));
+  public static final int REQUEST_COALESCING_WAIT_SECONDS =
+      Integer.parseInt(getOptionalVar("REQUEST_COALESCING_WAIT_SECONDS", "60"));
+
+  // plugin responses of at least the min size are compressed with gzip or zstd (at the given levels) if the
+  // client accepts them; compressed output is written to the client in chunks of the given size by a separate
+  // thread, with up to max chunks waiting
+  public static final boolean RESPONSE_COMPRESSION_ENABLED =
+      Boolean.parseBoolean(getOptionalVar("RESPONSE_COMPRESSION_ENABLED", "true"));
+  public static final int RESPONSE_COMPRESSION_MIN_BYTES =
+      Integer.parseInt(getOptionalVar("RESPONSE_COMPRESSION_MIN_BYTES", "8192"));
+  public static final int RESPONSE_COMPRESSION_GZIP_LEVEL =
+      Integer.parseInt(getOptionalVar("RESPONSE_COMPRESSION_GZIP_LEVEL", "5"));
+  public static final int RESPONSE_COMPRESSION_ZSTD_LEVEL =
+      Integer.parseInt(getOptionalVar("RESPONSE_COMPRESSION_ZSTD_LEVEL", "3"));
+  public static final int RESPONSE_TRANSFER_CHUNK_KB =
+      Integer.parseInt(getOptionalVar("RESPONSE_TRANSFER_CHUNK_KB", "64"));
+  public static final int RESPONSE_TRANSFER_MAX_CHUNKS =
+      Integer.parseInt(getOptionalVar("RESPONSE_TRANSFER_MAX_CHUNKS", "8"));
+
+  // compute numeric histograms in Java rather than with plot.data where the request allows it (date histograms
+  // always use plot.data); off until the engine's reference fixtures (test resources /nativeplot) are recorded
+  // from the deployed plot.data
+  public static final boolean NATIVE_HISTOGRAM_ENABLED =
+      Boolean.parseBoolean(getOptionalVar("NATIVE_HISTOGRAM_ENABLED", "false"));
+
+  // compute bar plots and contingency tables in Java rather than with plot.data where the request allows it (2x2
+  // tables always use plot.data); off until the engine's reference fixtures are recorded from the deployed
+  // plot.data
+  public static final boolean NATIVE_CATEGORICAL_PLOTS_ENABLED =
+      Boolean.parseBoolean(getOptionalVar("NATIVE_CATEGORICAL_PLOTS_ENABLED", "false"));
+
+  // compute box plots in Java rather than with plot.data where the request allows it (box plots of collections
+  // always use plot.data); off until the engine's reference fixtures are recorded from the deployed plot.data;
+  // groups with more values than the max are summarized with a quantile sketch (0 keeps all values) unless all
+  // points are plotted
+  public static final boolean NATIVE_BOXPLOT_ENABLED =
+      Boolean.parseBoolean(getOptionalVar("NATIVE_BOXPLOT_ENABLED", "false"));
+  public static final int NATIVE_BOXPLOT_MAX_EXACT_VALUES =
+      Integer.parseInt(getOptionalVar("NATIVE_BOXPLOT_MAX_EXACT_VALUES", "1000000"));
+
   public Resources(Options opts) {
     super(opts);
 
@@ -35,6 +167,10 @@ public class Resources extends ContainerResources {
     DbManager.initAccountDatabase(opts);
     enableAuth();
 
+    QuantileSketchConfig.setMedianConfig(
+        QuantileSketchConfig.parse(MAP_MARKER_MEDIAN_MODE, MAP_MARKER_MEDIAN_RANK_ERROR));
+    MarkerWorkerPool.setSharedThreads(MAP_MARKER_AGGREGATION_MAX_THREADS);
+
     if (DEVELOPMENT_MODE) {
       enableJerseyTrace();
       ClientUtil.LOG_RESPONSE_HEADERS = true;
@@ -50,7 +186,10 @@ public class Resources extends ContainerResources {
   protected Object[] resources() {
     return new Object[] {
       AppsService.class,
-      FilterAwareMetadataService.class
+      FilterAwareMetadataService.class,
+      ResponseFormatFilter.class,
+      ResponseCompressionInterceptor.class,
+      VirtualThreadRequestExecutor.class
     };
   }
 }
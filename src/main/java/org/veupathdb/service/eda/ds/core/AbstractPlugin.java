@@ -1,21 +1,26 @@
 package org.veupathdb.service.eda.ds.core;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ser.std.StdKeySerializers.Dynamic;
 
+import io.prometheus.client.Histogram;
 import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.MediaType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.gusdb.fgputil.AutoCloseableList;
 import org.gusdb.fgputil.Timer;
 import org.gusdb.fgputil.Tuples.ThreeTuple;
 import org.gusdb.fgputil.Tuples.TwoTuple;
+import org.gusdb.fgputil.EncryptionUtil;
 import org.gusdb.fgputil.client.ResponseFuture;
 import org.gusdb.fgputil.functional.FunctionalInterfaces.ConsumerWithException;
 import org.gusdb.fgputil.functional.Functions;
 import org.gusdb.fgputil.json.JsonUtil;
 import org.gusdb.fgputil.validation.ValidationException;
+import org.rosuda.REngine.Rserve.RConnection;
 import org.veupathdb.service.eda.common.client.*;
 import org.veupathdb.service.eda.common.client.EdaComputeClient.ComputeRequestBody;
 import org.veupathdb.service.eda.common.client.spec.StreamSpec;
@@ -29,6 +34,9 @@ import org.veupathdb.service.eda.common.plugin.constraint.DataElementValidator;
 import org.veupathdb.service.eda.common.plugin.util.PluginUtil;
 import org.veupathdb.service.eda.ds.Resources;
 import org.veupathdb.service.eda.ds.metadata.AppsMetadata;
+import org.veupathdb.service.eda.ds.utils.ColumnarEncoder;
+import org.veupathdb.service.eda.ds.utils.ColumnarEncoder.ColumnType;
+import org.veupathdb.service.eda.ds.utils.ResponseCache.CachedResponse;
 import org.veupathdb.service.eda.generated.model.*;
 import org.veupathdb.service.eda.generated.model.BinSpec.RangeType;
 
@@ -36,12 +44,18 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.time.Duration;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -67,6 +81,11 @@ public abstract class AbstractPlugin<T extends DataPluginRequestBase, S, R> {
   // shared stream name for plugins that need request only a single stream
   protected static final String DEFAULT_SINGLE_STREAM_NAME = "single_tabular_dataset";
 
+  @FunctionalInterface
+  protected interface GeneratorWriter {
+    void write(JsonGenerator generator) throws IOException;
+  }
+
   protected class ClassGroup extends ThreeTuple<Class<T>,Class<S>,Class<R>> {
     public ClassGroup(Class<T> visualizationRequestClass, Class<S> visualizationSpecClass, Class<R> computeConfigClass) {
       super(visualizationRequestClass, visualizationSpecClass, computeConfigClass);
@@ -89,6 +108,8 @@ public abstract class AbstractPlugin<T extends DataPluginRequestBase, S, R> {
   // have to decide if default is 1 and 25 override or vice versa. to facet or not, that is the question...
   public Integer getMaxPanels() { return 1; }
   public ConstraintSpec getConstraintSpec() { return new ConstraintSpec(); }
+  // plugins writing their responses with writeStreamingResponse() may also offer them in binary formats
+  public boolean hasBinaryResponseFormats() { return false; }
 
   protected ReferenceMetadata _referenceMetadata;
   // stored compute name and typed value of the passed compute config object (if plugin requires compute)
@@ -98,7 +119,9 @@ public abstract class AbstractPlugin<T extends DataPluginRequestBase, S, R> {
   protected List<StreamSpec> _requiredStreams;
 
   private Timer _timer;
+  private long _stageStart = 0;
   private boolean _requestProcessed = false;
+  private ResponseFormat _responseFormat = ResponseFormat.JSON;
   private String _studyId;
   private List<APIFilter> _subsetFilters;
   private List<DerivedVariableSpec> _derivedVariableSpecs;
@@ -119,10 +142,23 @@ public abstract class AbstractPlugin<T extends DataPluginRequestBase, S, R> {
    * @throws ValidationException if request validation fails
    */
   public final Consumer<OutputStream> processRequest(String appName, T request, Entry<String,String> authHeader) throws ValidationException {
+    return processRequest(appName, request, authHeader, CompletableFuture.completedFuture(null));
+  }
+
+  /**
+   * Processes the plugin request as above while the caller's check of access to the study completes.  Setup
+   * calls run alongside the check, but no response is produced (from the cache or from data streams) until it
+   * has passed.
+   *
+   * @param accessCheck completes once access to the study is confirmed, or fails if it is denied
+   * @return a consumer for an output stream that will write the response
+   * @throws ValidationException if request validation fails
+   */
+  public final Consumer<OutputStream> processRequest(String appName, T request, Entry<String,String> authHeader,
+                                                     CompletableFuture<Void> accessCheck) throws ValidationException {
 
     // start request timer (used to profile request performance dynamics)
     _timer = new Timer();
-    logRequestTime("Starting timer");
 
     // validate config types match classes provided by subclass
     _pluginSpec = getSpecObject(request, "getConfig", getTypeParameterClasses().getVisualizationSpecClass());
@@ -142,30 +178,70 @@ public abstract class AbstractPlugin<T extends DataPluginRequestBase, S, R> {
     _mergingClient = new EdaMergingClient(Resources.MERGING_SERVICE_URL, authHeader);
     _computeClient = new EdaComputeClient(Resources.COMPUTE_SERVICE_URL, authHeader);
 
-    // get study
-    APIStudyDetail study = _subsettingClient.getStudy(request.getStudyId())
-        .orElseThrow(() -> new ValidationException("Study '" + request.getStudyId() + "' does not exist."));
-    _studyId = study.getId();
+    // the setup calls below only depend on the request, so are made concurrently; until all are done, the
+    //   study is named as requested rather than by the study's own details
+    _studyId = request.getStudyId();
+    String pluginName = getClass().getSimpleName();
+    boolean incorporateComputedVars = _computeInfo.isPresent() && computeGeneratesVars();
+
+    // get study (shared across requests; fetched from subsetting only if not already cached)
+    CompletableFuture<StudyMetadataCache.CachedStudy> studyStage = RequestStages.start(pluginName, "study",
+        () -> StudyMetadataCache.getStudy(request.getStudyId(), _subsettingClient));
 
     // if plugin requires a compute, check if compute results are available
-    if (_computeInfo.isPresent() && !isComputeResultsAvailable()) {
+    CompletableFuture<Boolean> computeResultsStage = _computeInfo.isEmpty()
+        ? CompletableFuture.completedFuture(true)
+        : RequestStages.start(pluginName, "compute_results_available", this::isComputeResultsAvailable);
+
+    // if derived vars present, get derived var metadata
+    CompletableFuture<Consumer<ReferenceMetadata>> derivedVarsStage = _derivedVariableSpecs.isEmpty()
+        ? CompletableFuture.completedFuture(metadata -> {})
+        : RequestStages.start(pluginName, "derived_variable_metadata",
+            () -> Downstream.MERGING.call(() -> _mergingClient.getDerivedVariableMetadata(_studyId, _derivedVariableSpecs)))
+          .thenApply(derivedVars -> metadata -> derivedVars.forEach(metadata::incorporateDerivedVariable));
+
+    // if plugin requires a compute, get computed var metadata
+    CompletableFuture<ComputedVariableMetadata> computedVarsStage = !incorporateComputedVars
+        ? CompletableFuture.completedFuture(null)
+        : RequestStages.start(pluginName, "computed_variable_metadata", this::getComputedVariableMetadata);
+
+    // unavailable compute results are reported ahead of any failure to get their metadata
+    if (!RequestStages.await(computeResultsStage)) {
       throw new BadRequestException("Compute results are not available for the requested job.");
     }
+    StudyMetadataCache.CachedStudy study = RequestStages.await(studyStage, ValidationException.class);
 
-    // construct available variables for each entity from metadata and derived variable config
-    _referenceMetadata = new ReferenceMetadata(study);
-
-    // if derived vars present, get derived var metadata and incorporate
-    _mergingClient.getDerivedVariableMetadata(_studyId, _derivedVariableSpecs)
-        .forEach(_referenceMetadata::incorporateDerivedVariable);
+    // construct available variables for each entity from metadata and derived variable config; the
+    //   cached metadata is shared, so only build our own copy if we need to add variables to it
+    _referenceMetadata = _derivedVariableSpecs.isEmpty() && !incorporateComputedVars
+        ? study.getSharedReferenceMetadata()
+        : study.newReferenceMetadata();
 
-    // if plugin requires a compute, get computed var metadata and incorporate
-    if (_computeInfo.isPresent() && computeGeneratesVars())
-      _referenceMetadata.incorporateComputedVariables(getComputedVariableMetadata().getVariables());
+    // incorporate derived and computed var metadata
+    RequestStages.await(derivedVarsStage).accept(_referenceMetadata);
+    if (incorporateComputedVars)
+      _referenceMetadata.incorporateComputedVariables(RequestStages.await(computedVarsStage).getVariables());
+    _studyId = study.getStudyDetail().getId();
+    recordStage("setup");
 
     // ask subclass to validate the configuration
     validateVisualizationSpec(_pluginSpec);
 
+    // data streams are opened with the caller's credentials, so not before the caller may see the study
+    RequestStages.await(accessCheck);
+
+    // if this plugin caches responses and already has this one, no data streams are needed
+    Optional<Duration> responseCacheTtl = getResponseCacheTtl();
+    final String responseCacheKey = responseCacheTtl.isPresent() ? getResponseCacheKey() : null;
+    if (responseCacheKey != null) {
+      Optional<CachedResponse> cachedResponse = PluginResponseCache.getIfPresent(responseCacheKey);
+      if (cachedResponse.isPresent()) {
+        _requestProcessed = true;
+        recordStage("validation");
+        return out -> writeCachedResponse(cachedResponse.get(), PluginMetrics.countBytesWritten(pluginName, out));
+      }
+    }
+
     // get list of data streams required by this subclass
     _requiredStreams = getRequestedStreams(_pluginSpec);
 
@@ -174,7 +250,7 @@ public abstract class AbstractPlugin<T extends DataPluginRequestBase, S, R> {
         .validateStreamSpecs(_requiredStreams, _referenceMetadata).throwIfInvalid();
 
     _requestProcessed = true;
-    logRequestTime("Initial request processing complete");
+    recordStage("validation");
 
     // create stream generator
     Optional<TwoTuple<String, Object>> typedTuple = _computeInfo.map(info -> new TwoTuple<>(info.getFirst(), info.getSecond()));
@@ -183,23 +259,146 @@ public abstract class AbstractPlugin<T extends DataPluginRequestBase, S, R> {
 
     final AutoCloseableList<InputStream> dataStreams = StreamingDataClient.buildDataStreams(_requiredStreams, streamGenerator);
 
-    return out -> {
+    return responseOut -> {
       if (!_requestProcessed) {
         throw new RuntimeException("Output cannot be streamed until request has been processed.");
       }
+      OutputStream out = PluginMetrics.countBytesWritten(pluginName, responseOut);
 
-      // create stream processor
-      // TODO: might make disallowing empty results optional in the future; this is the original implementation
-      //ConsumerWithException<Map<String,InputStream>> streamProcessor = map -> writeResults(out, map);
-      ConsumerWithException<Map<String, InputStream>> streamProcessor = map -> writeResults(out,
-          Functions.mapValues(map, entry -> new NonEmptyResultStream(entry.getKey(), entry.getValue())));
-
-      // build and process streams
-      logRequestTime("Making requests for data streams");
-      LOG.info("Building and processing " + _requiredStreams.size() + " required data streams.");
-      StreamingDataClient.processDataStreams(_requiredStreams, dataStreams, streamProcessor);
-      logRequestTime("Data streams processed; response written; request complete");
+      if (responseCacheKey == null) {
+        processDataStreams(dataStreams, out);
+        return;
+      }
+
+      // produce the response into the cache, unless a concurrent identical request is already doing so
+      boolean[] streamsProcessed = { false };
+      try {
+        CachedResponse response = PluginResponseCache.get(responseCacheKey, responseCacheTtl.get(), buffer -> {
+          streamsProcessed[0] = true;
+          processDataStreams(dataStreams, buffer);
+        });
+        // the writer only runs within get(), so if it has not, the response really came from the cache
+        if (!streamsProcessed[0]) {
+          recordStage("concurrent_response");
+          closeUnusedDataStreams(dataStreams);
+        }
+        writeCachedResponse(response, out);
+      }
+      catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    };
+  }
+
+  private void processDataStreams(AutoCloseableList<InputStream> dataStreams, OutputStream out) {
+
+    // create stream processor
+    // TODO: might make disallowing empty results optional in the future; this is the original implementation
+    //ConsumerWithException<Map<String,InputStream>> streamProcessor = map -> writeResults(out, map);
+    ConsumerWithException<Map<String, InputStream>> streamProcessor = map -> {
+      // multiple streams are read concurrently, so plugins reading them in step are not held up by one
+      try (DataStreamPrefetcher prefetcher = new DataStreamPrefetcher(getClass().getSimpleName(), map)) {
+        writeResults(out, Functions.mapValues(prefetcher.getStreams(),
+            entry -> new NonEmptyResultStream(entry.getKey(), entry.getValue())));
+      }
     };
+
+    // build and process streams
+    recordStage("output_wait");
+    LOG.info("Building and processing " + _requiredStreams.size() + " required data streams.");
+    StreamingDataClient.processDataStreams(_requiredStreams, dataStreams, streamProcessor);
+    recordStage("response");
+  }
+
+  private static void closeUnusedDataStreams(AutoCloseableList<InputStream> dataStreams) {
+    try {
+      dataStreams.close();
+    }
+    catch (Exception e) {
+      LOG.warn("Unable to close unused data streams", e);
+    }
+  }
+
+  /**
+   * Chooses the format of this plugin's response from those accepted by the client; JSON unless the plugin
+   * has binary response formats.  Must be called before processRequest().
+   *
+   * @param acceptableTypes media types accepted by the client, in order of preference
+   * @return the chosen format
+   */
+  public ResponseFormat negotiateResponseFormat(List<MediaType> acceptableTypes) {
+    _responseFormat = hasBinaryResponseFormats() ? ResponseFormat.negotiate(acceptableTypes) : ResponseFormat.JSON;
+    return _responseFormat;
+  }
+
+  public ResponseFormat getResponseFormat() {
+    return _responseFormat;
+  }
+
+  /**
+   * Writes a response to a generator of the negotiated format as it is produced, for responses too large to
+   * build as objects first, recording the time taken as the serialization stage.
+   */
+  protected void writeStreamingResponse(OutputStream out, GeneratorWriter writer) throws IOException {
+    Histogram.Timer timer = PluginMetrics.startStage(getClass().getSimpleName(), "serialization");
+    try (JsonGenerator generator = _responseFormat.createGenerator(out)) {
+      writer.write(generator);
+    }
+    out.flush();
+    timer.observeDuration();
+  }
+
+  /**
+   * Writes the passed response as JSON, recording the time taken as the serialization stage.
+   */
+  protected void writeJsonResponse(OutputStream out, Object response) throws IOException {
+    Histogram.Timer timer = PluginMetrics.startStage(getClass().getSimpleName(), "serialization");
+    JsonUtil.Jackson.writeValue(out, response);
+    out.flush();
+    timer.observeDuration();
+  }
+
+  private void writeCachedResponse(CachedResponse response, OutputStream out) {
+    try {
+      response.writeTo(out);
+      recordStage("cached_response");
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Plugins whose responses are worth caching opt in by overriding this method to return how long a cached
+   * response stays valid.  A response may only be cached if it is fully determined by the request, i.e. by the
+   * study, subset filters, derived variables, compute config and the part of the plugin spec returned by
+   * {@link #getResponseCacheKeySpec(Object)}.
+   *
+   * @return how long to cache responses of this plugin, or empty (the default) to not cache them
+   */
+  protected Optional<Duration> getResponseCacheTtl() {
+    return Optional.empty();
+  }
+
+  /**
+   * Plugins caching their responses may override this method to leave out parts of their spec that do not
+   * affect the response, so that requests differing only in those parts share a cached response.
+   *
+   * @param pluginSpec spec of this request
+   * @return the parts of the spec that determine the response; by default the whole spec
+   */
+  protected Object getResponseCacheKeySpec(S pluginSpec) {
+    return pluginSpec;
+  }
+
+  private String getResponseCacheKey() {
+    return EncryptionUtil.md5(
+        getClass().getName() + "|" + _responseFormat + "|" + _studyId + "|" +
+        JsonUtil.serializeObject(_subsetFilters) + "|" +
+        JsonUtil.serializeObject(_derivedVariableSpecs) + "|" +
+        _computeInfo.map(info -> info.getFirst() + "|" + JsonUtil.serializeObject(info.getSecond())).orElse("") + "|" +
+        JsonUtil.serializeObject(getResponseCacheKeySpec(_pluginSpec))
+    );
   }
 
   /**
@@ -209,8 +408,15 @@ public abstract class AbstractPlugin<T extends DataPluginRequestBase, S, R> {
     return true;
   }
 
-  protected void logRequestTime(String eventDescription) {
-    LOG.info("Request Time: " + _timer.getElapsed() + "ms, " + eventDescription);
+  /**
+   * Records the time since the previous stage of this request (or its start) as the duration of the passed
+   * stage (see PluginMetrics).
+   */
+  protected void recordStage(String stage) {
+    long elapsed = _timer.getElapsed();
+    PluginMetrics.observeStage(getClass().getSimpleName(), stage, (elapsed - _stageStart) / 1000.0);
+    LOG.debug("Request stage " + stage + " complete after " + elapsed + "ms");
+    _stageStart = elapsed;
   }
 
   protected S getPluginSpec() {
@@ -221,6 +427,10 @@ public abstract class AbstractPlugin<T extends DataPluginRequestBase, S, R> {
     return _subsetFilters;
   }
 
+  protected List<DerivedVariableSpec> getDerivedVariableSpecs() {
+    return _derivedVariableSpecs;
+  }
+
   protected ReferenceMetadata getReferenceMetadata() {
     return _referenceMetadata;
   }
@@ -270,9 +480,9 @@ public abstract class AbstractPlugin<T extends DataPluginRequestBase, S, R> {
    * 3. The plugin to be called cannot have a compute.  In the future, we could maybe have it depend on the same
    *    compute (and compute config) as the calling plugin, but beyond that this plugin instance does not have enough
    *    information to make that call.
-   * 4. Even though the caller and callee plugins must use the same study, the callee will still refetch the
-   *    ReferenceMetadata from subsetting.  Maybe we can pass it in somehow to allow the callee to skip this expensive
-   *    step.
+   * 4. Even though the caller and callee plugins must use the same study, the callee will still look up the
+   *    ReferenceMetadata itself.  This is usually served from the StudyMetadataCache, but if derived variables
+   *    are present, their metadata is refetched from the merging service.
    *
    * @param plugin plugin to call
    * @param visualizationConfig configuration object specific to this plugin (i.e. the spec, normally attached to the config JSON property)
@@ -316,6 +526,86 @@ public abstract class AbstractPlugin<T extends DataPluginRequestBase, S, R> {
     }
   }
 
+  /*****************************************************************
+   *** Methods loading plugin data into Rserve
+   ****************************************************************/
+
+  /**
+   * Writes the passed data streams to files in a pooled Rserve session and runs the passed consumer with the
+   * connection, recording Rserve metrics under this plugin (see PooledRServeClient).
+   *
+   * @param rServeUrl URL of the Rserve server
+   * @param dataStreams data streams by name
+   * @param consumer work to do with the connection
+   */
+  protected void useRConnectionWithRemoteFiles(String rServeUrl, Map<String, InputStream> dataStreams,
+                                               ConsumerWithException<RConnection> consumer) {
+    PooledRServeClient.useRConnectionWithRemoteFiles(getClass().getSimpleName(), rServeUrl, dataStreams, consumer);
+  }
+
+  /**
+   * Writes the data streams of the passed file set to files in a pooled Rserve session and reads them into R,
+   * then runs the passed consumer with the connection (see PooledRServeClient).
+   *
+   * @param rServeUrl URL of the Rserve server
+   * @param fileSet data streams to write, with how to read them
+   * @param consumer work to do with the connection
+   */
+  protected void useRConnectionWithProcessedRemoteFiles(String rServeUrl, RFileSet fileSet,
+                                                        ConsumerWithException<RConnection> consumer) {
+    PooledRServeClient.useRConnectionWithProcessedRemoteFiles(getClass().getSimpleName(), rServeUrl, fileSet, consumer);
+  }
+
+  /**
+   * Loads the passed data streams into a pooled Rserve session, each as a data.table of the same name holding
+   * the columns of the passed variables (nulls are ignored), then runs the passed consumer with the connection.
+   * If RSERVE_COLUMNAR_TRANSFER_ENABLED, the columns are sent in ColumnarEncoder's binary format, unless a stream
+   * is too long to encode; otherwise the streams are sent as is and read with fread.
+   *
+   * @param dataStreams data streams by name
+   * @param streamVariables variables whose columns are read from each stream, by stream name
+   * @param consumer work to do with the connection
+   */
+  protected void useRConnectionWithDataTables(Map<String, InputStream> dataStreams,
+                                              Map<String, List<VariableSpec>> streamVariables,
+                                              ConsumerWithException<RConnection> consumer) {
+    PluginUtil util = getUtil();
+    Map<String, ColumnarEncoder> encoders = new HashMap<>();
+    if (Resources.RSERVE_COLUMNAR_TRANSFER_ENABLED) {
+      for (Entry<String, List<VariableSpec>> stream : streamVariables.entrySet()) {
+        LinkedHashMap<String, ColumnType> columnTypes = new LinkedHashMap<>();
+        for (VariableSpec var : stream.getValue()) {
+          if (var != null) {
+            columnTypes.put(util.toColNameOrEmpty(var), toColumnType(util.getVariableType(var)));
+          }
+        }
+        encoders.put(stream.getKey(), new ColumnarEncoder(columnTypes));
+      }
+    }
+    PooledRServeClient.useRConnectionWithRemoteFiles(getClass().getSimpleName(), Resources.RSERVE_URL, dataStreams,
+        encoders, (connection, encodedStreams) -> {
+      if (!encodedStreams.isEmpty()) {
+        connection.voidEval(ColumnarEncoder.R_READER_DEFINITION);
+      }
+      for (Entry<String, List<VariableSpec>> stream : streamVariables.entrySet()) {
+        connection.voidEval(encodedStreams.contains(stream.getKey())
+            ? ColumnarEncoder.getRReadCommand(stream.getKey())
+            : util.getVoidEvalFreadCommand(stream.getKey(),
+                stream.getValue().stream().filter(Objects::nonNull).collect(Collectors.toList())));
+      }
+      consumer.accept(connection);
+    });
+  }
+
+  private static ColumnType toColumnType(String variableType) {
+    return switch (variableType.toUpperCase()) {
+      case "NUMBER", "LONGITUDE" -> ColumnType.DOUBLE;
+      case "INTEGER" -> ColumnType.INTEGER;
+      case "DATE" -> ColumnType.DATE;
+      default -> ColumnType.STRING;
+    };
+  }
+
   /*****************************************************************
    *** Methods enabling direct calls to the subsetting service's non-tabular endpoints
    ****************************************************************/
@@ -325,7 +615,7 @@ public abstract class AbstractPlugin<T extends DataPluginRequestBase, S, R> {
   }
 
   protected long getSubsetCount(String entityId, List<APIFilter> subsetFilters) {
-    return _subsettingClient.getSubsetCount(_referenceMetadata, entityId, subsetFilters);
+    return Downstream.SUBSETTING.call(() -> _subsettingClient.getSubsetCount(_referenceMetadata, entityId, subsetFilters));
   }
 
   protected Map<String, Long> getCategoricalCountDistribution(VariableSpec varSpec) {
@@ -333,7 +623,8 @@ public abstract class AbstractPlugin<T extends DataPluginRequestBase, S, R> {
   }
 
   protected Map<String, Long> getCategoricalCountDistribution(VariableSpec varSpec, List<APIFilter> subsetFilters) {
-    VariableDistributionPostResponse response = _subsettingClient.getCategoricalDistribution(_referenceMetadata, varSpec, subsetFilters, ValueSpec.COUNT);
+    VariableDistributionPostResponse response = Downstream.SUBSETTING.call(() ->
+        _subsettingClient.getCategoricalDistribution(_referenceMetadata, varSpec, subsetFilters, ValueSpec.COUNT));
     return response.getHistogram().stream().collect(Collectors.toMap(HistogramBin::getBinLabel, bin -> Long.valueOf(bin.getValue().toString())));
   }
 
@@ -342,17 +633,17 @@ public abstract class AbstractPlugin<T extends DataPluginRequestBase, S, R> {
   }
 
   protected Map<String, Double> getCategoricalProportionDistribution(VariableSpec varSpec, List<APIFilter> subsetFilters) {
-    VariableDistributionPostResponse response = _subsettingClient.getCategoricalDistribution(_referenceMetadata, varSpec, subsetFilters, ValueSpec.PROPORTION);
+    VariableDistributionPostResponse response = Downstream.SUBSETTING.call(() ->
+        _subsettingClient.getCategoricalDistribution(_referenceMetadata, varSpec, subsetFilters, ValueSpec.PROPORTION));
     return response.getHistogram().stream().collect(Collectors.toMap(HistogramBin::getBinLabel, bin -> Double.valueOf(bin.getValue().toString())));
   }
 
   protected Map<String, InputStream> getVocabByRootEntity(DynamicDataSpec dataSpec, List<APIFilter> subsetFilters) {
     PluginUtil util = getUtil();
-    ResponseFuture response = _subsettingClient.getVocabByRootEntity(_referenceMetadata, dataSpec, subsetFilters);
-
     Map<String, InputStream> vocab = new HashMap<String, InputStream>();
     try {
-      InputStream vocabStream = response.getInputStream();
+      InputStream vocabStream = Downstream.SUBSETTING.call(() ->
+          _subsettingClient.getVocabByRootEntity(_referenceMetadata, dataSpec, subsetFilters).getInputStream());
       vocab.put(util.toColNameOrEmpty(dataSpec), vocabStream);
     }
     catch (Exception e) {
@@ -367,12 +658,24 @@ public abstract class AbstractPlugin<T extends DataPluginRequestBase, S, R> {
   }
 
   protected Map<String, InputStream> getVocabByRootEntity(List<DynamicDataSpec> dataSpecs, List<APIFilter> subsetFilters) {
-    return dataSpecs.parallelStream()
-        .map(this::getVocabByRootEntity)
-        .collect(Collectors.toMap(
-            e -> e.keySet().stream().findFirst().orElseThrow(),
-            e -> e.values().stream().findFirst().orElseThrow())
-        );
+    // requested concurrently, each on its own virtual thread since the calls only block
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      List<Future<Map<String, InputStream>>> vocabs = dataSpecs.stream()
+          .map(dataSpec -> executor.submit(() -> getVocabByRootEntity(dataSpec)))
+          .collect(Collectors.toList());
+      Map<String, InputStream> vocab = new HashMap<>();
+      for (Future<Map<String, InputStream>> dataSpecVocab : vocabs) {
+        vocab.putAll(dataSpecVocab.get());
+      }
+      return vocab;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while streaming study specific vocabularies.", e);
+    }
+    catch (ExecutionException e) {
+      throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+    }
   }
 
   protected Map<String, InputStream> getVocabByRootEntity(List<DynamicDataSpec> dataSpecs) {
@@ -412,16 +715,20 @@ public abstract class AbstractPlugin<T extends DataPluginRequestBase, S, R> {
   }
 
   protected boolean isComputeResultsAvailable() {
-    return _computeClient.isJobResultsAvailable(getComputeName(), createComputeRequestBody());
+    return Downstream.COMPUTE.call(() -> _computeClient.isJobResultsAvailable(getComputeName(), createComputeRequestBody()));
   }
 
   protected <Q> Q getComputeResultStats(Class<Q> expectedStatsClass) {
-    return _computeClient.getJobStatistics(getComputeName(), createComputeRequestBody(), expectedStatsClass);
+    return Downstream.COMPUTE.call(() -> _computeClient.getJobStatistics(getComputeName(), createComputeRequestBody(), expectedStatsClass));
   }
 
   protected void writeComputeStatsResponseToOutput(OutputStream out) {
-    try (InputStream statsStream = _computeClient.getJobStatistics(getComputeName(), createComputeRequestBody()).getInputStream()) {
-      statsStream.transferTo(out);
+    try {
+      Downstream.COMPUTE.call(() -> {
+        try (InputStream statsStream = _computeClient.getJobStatistics(getComputeName(), createComputeRequestBody()).getInputStream()) {
+          return statsStream.transferTo(out);
+        }
+      });
     }
     catch (Exception e) {
       throw new RuntimeException("Unable to stream stats response from compute service", e);
@@ -429,7 +736,7 @@ public abstract class AbstractPlugin<T extends DataPluginRequestBase, S, R> {
   }
 
   protected ComputedVariableMetadata getComputedVariableMetadata() {
-    return _computeClient.getJobVariableMetadata(getComputeName(), createComputeRequestBody());
+    return Downstream.COMPUTE.call(() -> _computeClient.getJobVariableMetadata(getComputeName(), createComputeRequestBody()));
   }
 
   private ComputeRequestBody createComputeRequestBody() {
@@ -618,6 +925,36 @@ public abstract class AbstractPlugin<T extends DataPluginRequestBase, S, R> {
         "hasStudyDependentVocabulary=" + hasStudyDependentVocabulary + ")";
   }
 
+  /**
+   * Java counterpart of getVariableMetadataRObjectAsString(VariableSpec, String), for plugins that build
+   * their responses natively rather than in R.
+   */
+  public VariableMapping getVariableMapping(VariableSpec var, PlotReferenceValue plotReference) {
+    if (var == null) return null;
+    PluginUtil util = getUtil();
+    VariableMapping mapping = new VariableMappingImpl();
+    mapping.setVariableClass(VariableClass.NATIVE);
+    mapping.setVariableSpec(var);
+    mapping.setPlotReference(plotReference);
+    mapping.setDataType(APIVariableType.valueOf(util.getVariableType(var).toUpperCase()));
+    mapping.setDataShape(APIVariableDataShape.valueOf(util.getVariableDataShape(var).toUpperCase()));
+    mapping.setImputeZero(Boolean.parseBoolean(util.getVariableImputeZero(var)));
+    mapping.setHasStudyDependentVocabulary(util.getHasStudyDependentVocabulary(var));
+    mapping.setIsCollection(false);
+    return mapping;
+  }
+
+  /**
+   * @param varSpecs variables keyed by plot reference value (e.g. "xAxis", "overlay")
+   * @return mappings of the non-null variables, in plot reference order
+   */
+  public List<VariableMapping> getVariableMappings(Map<String, VariableSpec> varSpecs) {
+    return Arrays.stream(PlotReferenceValue.values())
+        .map(plotReference -> getVariableMapping(varSpecs.get(plotReference.getValue()), plotReference))
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
   public String getVoidEvalDynamicDataMetadataListWithStudyDependentVocabs(Map<String, DynamicDataSpec> dataSpecs, String outputEntityId) {
     List<DynamicDataSpec> dataSpecsFromMap = dataSpecs.values().stream().collect(Collectors.toList());
     List<DynamicDataSpec> dataSpecsWithStudyDependentVocabs = getDynamicDataSpecsWithStudyDependentVocabs(outputEntityId, dataSpecsFromMap);
@@ -0,0 +1,176 @@
+package org.veupathdb.service.eda.ds.core;
+
+import io.prometheus.client.Gauge;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.veupathdb.service.eda.ds.Resources;
+import org.veupathdb.service.eda.ds.utils.StreamPipe;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Wraps the data streams of a plugin request to record how quickly each arrives and how much it holds (see
+ * PluginMetrics), and, for requests with several streams, to read them all concurrently.  A plugin reading
+ * several streams in step (e.g. a row of each at a time) otherwise only reads from one at a time, so a stall
+ * on one stops the others from being read and their responses back up in socket buffers.  Prefetching reads
+ * each stream into its own bounded buffer (see DATA_STREAM_PREFETCH_MAX_CHUNKS) on its own thread; a stream
+ * whose buffer is full waits for the plugin.
+ *
+ * Closing the prefetcher stops reading any streams the plugin did not read to the end.
+ */
+public class DataStreamPrefetcher implements AutoCloseable {
+
+  private static final Logger LOG = LogManager.getLogger(DataStreamPrefetcher.class);
+
+  // a virtual thread per stream, since each only blocks on its stream
+  private static final ExecutorService PREFETCH_THREADS =
+      Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("data-stream-prefetch-", 0).factory());
+
+  private final Map<String, InputStream> _streams = new LinkedHashMap<>();
+  private final List<StreamPipe> _pipes = new ArrayList<>();
+  private final List<MeteredInputStream> _meteredStreams = new ArrayList<>();
+
+  /**
+   * Starts reading the passed streams if there are several of them (and prefetching is enabled).
+   *
+   * @param pluginName name under which the streams' metrics are recorded
+   * @param dataStreams data streams by name
+   */
+  public DataStreamPrefetcher(String pluginName, Map<String, InputStream> dataStreams) {
+    boolean prefetch = dataStreams.size() > 1 && Resources.DATA_STREAM_PREFETCH_MAX_CHUNKS > 0;
+    for (Map.Entry<String, InputStream> stream : dataStreams.entrySet()) {
+      MeteredInputStream metered = new MeteredInputStream(pluginName, stream.getKey(), stream.getValue());
+      _meteredStreams.add(metered);
+      if (prefetch) {
+        StreamPipe pipe = StreamPipe.start(metered, Resources.DATA_STREAM_PREFETCH_CHUNK_KB * 1024,
+            Resources.DATA_STREAM_PREFETCH_MAX_CHUNKS, PREFETCH_THREADS);
+        _pipes.add(pipe);
+        _streams.put(stream.getKey(), pipe.toInputStream());
+      }
+      else {
+        _streams.put(stream.getKey(), metered);
+      }
+    }
+  }
+
+  /**
+   * @return the wrapped data streams by name, in the order they were passed
+   */
+  public Map<String, InputStream> getStreams() {
+    return _streams;
+  }
+
+  @Override
+  public void close() {
+    _pipes.forEach(StreamPipe::cancel);
+    _meteredStreams.forEach(MeteredInputStream::release);
+  }
+
+  // records the time to the first byte and to the end of a stream, and the numbers of rows and bytes read;
+  //   the stream counts as in flight from the merging service until its end is read or it is closed
+  private static class MeteredInputStream extends FilterInputStream {
+
+    private final String _pluginName;
+    private final String _streamName;
+    private final Gauge.Child _inFlight = PluginMetrics.inFlight("merging");
+    private final long _startNanos = System.nanoTime();
+    private long _firstByteNanos = -1;
+    private long _bytesRead = 0;
+    private long _rowsRead = -1; // the header is not a data row
+    private boolean _ended = false;
+
+    MeteredInputStream(String pluginName, String streamName, InputStream in) {
+      super(in);
+      _pluginName = pluginName;
+      _streamName = streamName;
+      _inFlight.inc();
+    }
+
+    @Override
+    public int read() throws IOException {
+      int value = super.read();
+      if (value >= 0) {
+        record(new byte[] { (byte) value }, 0, 1);
+      }
+      else {
+        end();
+      }
+      return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int count = super.read(buffer, offset, length);
+      if (count > 0) {
+        record(buffer, offset, count);
+      }
+      else if (count < 0) {
+        end();
+      }
+      return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      }
+      finally {
+        release();
+      }
+    }
+
+    // no longer counts the stream as in flight, whether or not it was read to the end; called by the reading
+    //   thread and by the prefetcher, so returns true only to the first caller
+    synchronized boolean release() {
+      if (_ended) {
+        return false;
+      }
+      _ended = true;
+      _inFlight.dec();
+      return true;
+    }
+
+    private void record(byte[] buffer, int offset, int count) {
+      if (_firstByteNanos < 0) {
+        _firstByteNanos = System.nanoTime() - _startNanos;
+        PluginMetrics.observeStage(_pluginName, "stream_first_byte", _firstByteNanos / 1e9);
+      }
+      long rows = 0;
+      for (int i = offset; i < offset + count; i++) {
+        if (buffer[i] == '\n') {
+          rows++;
+        }
+      }
+      if (_rowsRead < 0 && rows > 0) {
+        // skip the header
+        rows--;
+        _rowsRead = 0;
+      }
+      _rowsRead += rows;
+      _bytesRead += count;
+      PluginMetrics.addRowsRead(_pluginName, rows);
+      PluginMetrics.addBytesRead(_pluginName, count);
+    }
+
+    private void end() {
+      if (!release()) {
+        return;
+      }
+      long durationNanos = System.nanoTime() - _startNanos;
+      PluginMetrics.observeStage(_pluginName, "stream_drain", durationNanos / 1e9);
+      LOG.info("Read data stream " + _streamName + ": " + Math.max(_rowsRead, 0) + " rows, " + _bytesRead +
+          " bytes in " + durationNanos / 1000000 + "ms (" +
+          String.format("%.1f", _bytesRead / 1048576.0 / Math.max(durationNanos / 1e9, 1e-3)) +
+          " MB/s), first byte after " + Math.max(_firstByteNanos, 0) / 1000000 + "ms");
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package org.veupathdb.service.eda.ds.core;
+
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import jakarta.ws.rs.ServiceUnavailableException;
+import org.veupathdb.service.eda.ds.Resources;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Services this one makes blocking calls to, each with an optional limit on the number of calls to it that may
+ * be in flight at once (see Resources).  Requests are served on cheap threads, so their number no longer bounds
+ * the load passed on to these services; these limits do instead.  Calls beyond a limit wait for one in flight
+ * to finish, and fail with a 503 if none does within DOWNSTREAM_PERMIT_WAIT_SECONDS.
+ *
+ * Permits are Semaphores, so waiting for one parks a virtual thread rather than pinning its carrier.
+ */
+public enum Downstream {
+
+  SUBSETTING("subsetting", Resources.SUBSETTING_MAX_CONCURRENT_REQUESTS),
+  MERGING("merging", Resources.MERGING_MAX_CONCURRENT_REQUESTS),
+  COMPUTE("compute", Resources.COMPUTE_MAX_CONCURRENT_REQUESTS),
+  DATASET_ACCESS("dataset access", Resources.DATASET_ACCESS_MAX_CONCURRENT_REQUESTS);
+
+  private static final Histogram PERMIT_WAIT_DURATION = Histogram.build()
+      .name("eda_data_downstream_permit_wait_seconds")
+      .help("Time spent waiting for a permit to call a concurrency-limited downstream service.")
+      .labelNames("service")
+      .register();
+
+  /**
+   * A blocking call to a downstream service.
+   */
+  @FunctionalInterface
+  public interface BlockingCall<T, E extends Exception> {
+    T call() throws E;
+  }
+
+  private final String _displayName;
+  // null if calls are not limited
+  private final Semaphore _permits;
+
+  Downstream(String displayName, int maxConcurrentCalls) {
+    _displayName = displayName;
+    _permits = maxConcurrentCalls > 0 ? new Semaphore(maxConcurrentCalls, true) : null;
+  }
+
+  /**
+   * Makes the passed call once it is within this service's limit, counting it as in flight while it runs.
+   *
+   * @param call call to make
+   * @return the call's result
+   * @throws E if the call fails
+   * @throws ServiceUnavailableException if no permit to make the call became available in time
+   */
+  public <T, E extends Exception> T call(BlockingCall<T, E> call) throws E {
+    if (_permits == null) {
+      return callInFlight(call);
+    }
+    Histogram.Timer waitTimer = PERMIT_WAIT_DURATION.labels(name()).startTimer();
+    try {
+      if (!_permits.tryAcquire(Resources.DOWNSTREAM_PERMIT_WAIT_SECONDS, TimeUnit.SECONDS)) {
+        throw new ServiceUnavailableException("Too many concurrent requests to the " + _displayName + " service.");
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting to call the " + _displayName + " service", e);
+    }
+    finally {
+      waitTimer.observeDuration();
+    }
+    try {
+      return callInFlight(call);
+    }
+    finally {
+      _permits.release();
+    }
+  }
+
+  private <T, E extends Exception> T callInFlight(BlockingCall<T, E> call) throws E {
+    Gauge.Child inFlight = PluginMetrics.inFlight(name().toLowerCase());
+    inFlight.inc();
+    try {
+      return call.call();
+    }
+    finally {
+      inFlight.dec();
+    }
+  }
+}
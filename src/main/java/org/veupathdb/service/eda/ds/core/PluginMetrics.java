@@ -0,0 +1,103 @@
+package org.veupathdb.service.eda.ds.core;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Prometheus metrics of plugin requests, by plugin class:
+ *
+ * <ul>
+ *   <li>durations of request stages: setup (and each concurrent setup call), validation, output_wait, response,
+ *       per-stream stream_first_byte and stream_drain, r_eval and serialization.  Stages may nest; e.g. the
+ *       response stage includes any r_eval and serialization.</li>
+ *   <li>rows and bytes read from data streams, and bytes written to responses</li>
+ *   <li>calls in flight to each downstream service</li>
+ * </ul>
+ *
+ * Metrics are labeled with the plugin passed by the caller, never one looked up from the current thread, since
+ * much of a request's work (reading ahead, transfers to Rserve, Rserve calls) runs on other threads.
+ */
+public class PluginMetrics {
+
+  private static final Histogram STAGE_DURATION = Histogram.build()
+      .name("eda_data_plugin_stage_seconds")
+      .help("Duration of each stage of processing plugin requests.")
+      .labelNames("plugin", "stage")
+      .register();
+
+  private static final Counter ROWS_READ = Counter.build()
+      .name("eda_data_plugin_rows_read_total")
+      .help("Data rows (excluding headers) read from plugin data streams.")
+      .labelNames("plugin")
+      .register();
+
+  private static final Counter BYTES_READ = Counter.build()
+      .name("eda_data_plugin_bytes_read_total")
+      .help("Bytes read from plugin data streams.")
+      .labelNames("plugin")
+      .register();
+
+  private static final Counter BYTES_WRITTEN = Counter.build()
+      .name("eda_data_plugin_bytes_written_total")
+      .help("Bytes written to plugin responses.")
+      .labelNames("plugin")
+      .register();
+
+  private static final Gauge IN_FLIGHT = Gauge.build()
+      .name("eda_data_downstream_in_flight")
+      .help("Calls to (or, for the merging service, data streams from) each downstream service in progress.")
+      .labelNames("service")
+      .register();
+
+  public static void observeStage(String plugin, String stage, double seconds) {
+    STAGE_DURATION.labels(plugin, stage).observe(seconds);
+  }
+
+  /**
+   * @return timer recording the duration of a stage once its observeDuration() is called
+   */
+  public static Histogram.Timer startStage(String plugin, String stage) {
+    return STAGE_DURATION.labels(plugin, stage).startTimer();
+  }
+
+  public static void addRowsRead(String plugin, long rows) {
+    ROWS_READ.labels(plugin).inc(rows);
+  }
+
+  public static void addBytesRead(String plugin, long bytes) {
+    BYTES_READ.labels(plugin).inc(bytes);
+  }
+
+  /**
+   * @return the number of calls in flight to the passed downstream service, to be incremented when a call
+   * starts and decremented when it ends
+   */
+  public static Gauge.Child inFlight(String service) {
+    return IN_FLIGHT.labels(service);
+  }
+
+  /**
+   * @return the passed stream, counting the bytes written to it as the passed plugin's
+   */
+  public static OutputStream countBytesWritten(String plugin, OutputStream out) {
+    Counter.Child bytesWritten = BYTES_WRITTEN.labels(plugin);
+    return new FilterOutputStream(out) {
+      @Override
+      public void write(int b) throws IOException {
+        out.write(b);
+        bytesWritten.inc();
+      }
+
+      @Override
+      public void write(byte[] buffer, int offset, int length) throws IOException {
+        out.write(buffer, offset, length);
+        bytesWritten.inc(length);
+      }
+    };
+  }
+}
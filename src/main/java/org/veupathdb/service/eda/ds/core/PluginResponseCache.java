@@ -0,0 +1,43 @@
+package org.veupathdb.service.eda.ds.core;
+
+import org.veupathdb.service.eda.ds.Resources;
+import org.veupathdb.service.eda.ds.utils.DiskSegmentStore;
+import org.veupathdb.service.eda.ds.utils.ResponseCache;
+import org.veupathdb.service.eda.ds.utils.ResponseCache.CachedResponse;
+import org.veupathdb.service.eda.ds.utils.ResponseCache.ResponseWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Process-wide cache of plugin responses, shared by all plugins that opt in to response caching (see
+ * {@link AbstractPlugin#getResponseCacheTtl()}).  Small responses are kept on the heap; if a disk directory is
+ * configured, larger ones (typically R output) are kept in memory-mapped files there.
+ */
+public class PluginResponseCache {
+
+  private static final ResponseCache CACHE = new ResponseCache(
+      "plugin-response",
+      Resources.RESPONSE_CACHE_MAX_MB * 1024L * 1024L,
+      Resources.RESPONSE_CACHE_MAX_ENTRY_KB * 1024L,
+      Resources.RESPONSE_CACHE_DISK_DIR.isBlank() ? Optional.empty() : Optional.of(new DiskSegmentStore(
+          Path.of(Resources.RESPONSE_CACHE_DISK_DIR),
+          Resources.RESPONSE_CACHE_DISK_MAX_MB * 1024L * 1024L)));
+
+  /**
+   * @return cached response for the passed key, if present and not expired
+   */
+  public static Optional<CachedResponse> getIfPresent(String key) {
+    return CACHE.getIfPresent(key);
+  }
+
+  /**
+   * Returns the cached response for the passed key, producing and caching it with the passed writer if absent.
+   * If several requests miss on the same key at once, the response is only produced once.
+   */
+  public static CachedResponse get(String key, Duration ttl, ResponseWriter writer) throws IOException {
+    return CACHE.get(key, ttl, writer);
+  }
+}
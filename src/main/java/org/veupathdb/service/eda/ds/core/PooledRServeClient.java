@@ -0,0 +1,356 @@
+package org.veupathdb.service.eda.ds.core;
+
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.gusdb.fgputil.functional.FunctionalInterfaces.ConsumerWithException;
+import org.rosuda.REngine.Rserve.RConnection;
+import org.rosuda.REngine.Rserve.RFileOutputStream;
+import org.veupathdb.service.eda.ds.Resources;
+import org.veupathdb.service.eda.ds.utils.ColumnarEncoder;
+import org.veupathdb.service.eda.ds.utils.ConnectionPool;
+import org.veupathdb.service.eda.ds.utils.ConnectionPool.ConnectionLifecycle;
+import org.veupathdb.service.eda.ds.utils.ReplayableInputStream;
+import org.veupathdb.service.eda.ds.utils.StreamPipe;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Runs R code on pooled Rserve connections.  Each Rserve connection is served by its own R process, so a
+ * pooled connection keeps the packages loaded when it was opened (see RSERVE_PRELOAD_PACKAGES), sparing each
+ * request the connection setup and package loading a fresh connection would need.  Between uses, the global
+ * environment of a connection's R session and any files written to it are cleared.
+ *
+ * Drop-in replacement for the equivalent methods of the shared RServeClient.
+ */
+public class PooledRServeClient {
+
+  private static final Logger LOG = LogManager.getLogger(PooledRServeClient.class);
+
+  // one pool per Rserve URL (in practice there is only one)
+  private static final ConcurrentMap<String, ConnectionPool<RConnection>> POOLS = new ConcurrentHashMap<>();
+
+  // reads data streams ahead of their transfer to Rserve, a virtual thread per stream since each only blocks
+  // on its stream
+  private static final ExecutorService TRANSFER_THREADS =
+      Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("rserve-transfer-", 0).factory());
+
+  // makes the calls on Rserve connections; the Rserve client synchronizes on its socket, which would pin the
+  // carrier of a virtual (request) thread, so they are made on platform threads, at most one per connection
+  private static final ExecutorService RSERVE_THREADS =
+      Executors.newCachedThreadPool(Thread.ofPlatform().name("rserve-call-", 0).daemon().factory());
+
+  private static class RServeLifecycle implements ConnectionLifecycle<RConnection> {
+
+    private final String _host;
+    private final int _port;
+    private final String _preloadCommand;
+
+    private RServeLifecycle(String rServeUrl) {
+      try {
+        URL url = new URL(rServeUrl);
+        _host = url.getHost();
+        _port = url.getPort();
+      }
+      catch (Exception e) {
+        throw new RuntimeException("Invalid Rserve URL: " + rServeUrl, e);
+      }
+      _preloadCommand = Arrays.stream(Resources.RSERVE_PRELOAD_PACKAGES.split(","))
+          .map(String::trim)
+          .filter(pkg -> !pkg.isEmpty())
+          .map(pkg -> "library(" + pkg + ")")
+          .collect(Collectors.joining("; ", "suppressPackageStartupMessages({ ", " })"));
+    }
+
+    @Override
+    public RConnection open() throws Exception {
+      return onRServeThread(() -> {
+        RConnection connection = new RConnection(_host, _port);
+        try {
+          connection.voidEval(_preloadCommand);
+          return connection;
+        }
+        catch (Exception e) {
+          connection.close();
+          throw e;
+        }
+      });
+    }
+
+    @Override
+    public boolean isHealthy(RConnection connection) {
+      try {
+        return onRServeThread(() -> connection.isConnected() && connection.eval("1L").asInteger() == 1);
+      }
+      catch (Exception e) {
+        LOG.warn("Pooled Rserve connection failed health check", e);
+        return false;
+      }
+    }
+
+    @Override
+    public void reset(RConnection connection) throws Exception {
+      onRServeThread(() -> connection.voidEval("rm(list = ls(all.names = TRUE)); invisible(gc())"));
+    }
+
+    @Override
+    public void close(RConnection connection) {
+      try {
+        onRServeThread(connection::close);
+      }
+      catch (Exception e) {
+        LOG.warn("Unable to close pooled Rserve connection", e);
+      }
+    }
+  }
+
+  /**
+   * Writes the passed data streams to files in a pooled Rserve session (each named for its stream), then
+   * runs the passed consumer with the connection.  The files are removed afterward.
+   *
+   * Unless disabled (see RSERVE_TRANSFER_MAX_BUFFERED_CHUNKS), all streams start being read ahead before a
+   * connection is acquired, and each is written to its file in large chunks while the rest of it is still
+   * being read, so downloading the data overlaps waiting for a connection and uploading it to Rserve.
+   *
+   * @param plugin name of the plugin doing the work, under which its metrics are recorded
+   * @param rServeUrl URL of the Rserve server
+   * @param dataStreams data streams by name
+   * @param consumer work to do with the connection
+   */
+  public static void useRConnectionWithRemoteFiles(String plugin, String rServeUrl,
+                                                   Map<String, InputStream> dataStreams,
+                                                   ConsumerWithException<RConnection> consumer) {
+    useRConnectionWithRemoteFiles(plugin, rServeUrl, dataStreams, Collections.emptyMap(),
+        (connection, encodedStreams) -> consumer.accept(connection));
+  }
+
+  /**
+   * Writes the data streams of the passed file set to files in a pooled Rserve session, reads those added to it
+   * into R (checking each against its row limit), then runs the passed consumer with the connection.  The files
+   * are removed afterward.
+   * Equivalent of the shared RServeClient.useRConnectionWithProcessedRemoteFiles.
+   *
+   * @param plugin name of the plugin doing the work, under which its metrics are recorded
+   * @param rServeUrl URL of the Rserve server
+   * @param fileSet data streams to write, with how to read them
+   * @param consumer work to do with the connection
+   */
+  public static void useRConnectionWithProcessedRemoteFiles(String plugin, String rServeUrl, RFileSet fileSet,
+                                                            ConsumerWithException<RConnection> consumer) {
+    useRConnectionWithRemoteFiles(plugin, rServeUrl, fileSet.getDataStreams(), connection -> {
+      fileSet.readFiles(connection);
+      consumer.accept(connection);
+    });
+  }
+
+  /**
+   * Does work with an Rserve connection holding files written from data streams, some of them encoded.
+   */
+  @FunctionalInterface
+  public interface EncodedFilesConsumer {
+
+    /**
+     * @param connection connection holding the files
+     * @param encodedStreams names of the streams whose files were written in their encoder's format; the rest
+     *                       were written as is
+     */
+    void accept(RConnection connection, Set<String> encodedStreams) throws Exception;
+  }
+
+  /**
+   * Like {@link #useRConnectionWithRemoteFiles(String, String, Map, ConsumerWithException)}, but the streams with an
+   * encoder are written in its columnar format rather than as is.  Those streams are read and encoded before a
+   * connection is acquired, so only their (smaller) encoded form is uploaded while a connection is held.
+   *
+   * Encoding holds a stream's columns on the heap, so a stream longer than RSERVE_COLUMNAR_MAX_INPUT_MB is
+   * not encoded: what was read of it is written as is, followed by the rest of it, and the consumer is told
+   * which streams were encoded.
+   *
+   * @param plugin name of the plugin doing the work, under which its metrics are recorded
+   * @param rServeUrl URL of the Rserve server
+   * @param dataStreams data streams by name
+   * @param encoders encoders of the streams to be encoded, by stream name
+   * @param consumer work to do with the connection
+   */
+  public static void useRConnectionWithRemoteFiles(String plugin, String rServeUrl,
+                                                   Map<String, InputStream> dataStreams,
+                                                   Map<String, ColumnarEncoder> encoders,
+                                                   EncodedFilesConsumer consumer) {
+    Map<String, StreamPipe> pipes = startPipes(dataStreams, encoders.keySet());
+    try {
+      Map<String, InputStream> unencodedStreams = new HashMap<>(dataStreams);
+      Map<String, byte[]> encodedStreams = encodeStreams(unencodedStreams, encoders,
+          Resources.RSERVE_COLUMNAR_MAX_INPUT_MB * 1024L * 1024L);
+      useRConnection(plugin, rServeUrl, connection -> {
+        try {
+          for (Map.Entry<String, InputStream> stream : unencodedStreams.entrySet()) {
+            try (RFileOutputStream out = connection.createFile(stream.getKey())) {
+              StreamPipe pipe = pipes.get(stream.getKey());
+              if (encodedStreams.containsKey(stream.getKey())) {
+                out.write(encodedStreams.get(stream.getKey()));
+              }
+              else if (pipe != null) {
+                pipe.drainTo(out);
+              }
+              else {
+                stream.getValue().transferTo(out);
+              }
+            }
+          }
+          consumer.accept(connection, encodedStreams.keySet());
+        }
+        finally {
+          for (String name : dataStreams.keySet()) {
+            removeFile(connection, name);
+          }
+        }
+      });
+    }
+    finally {
+      // stops reading any streams left unwritten because encoding, the connection or a write failed
+      pipes.values().forEach(StreamPipe::cancel);
+    }
+  }
+
+  // encodes the streams with encoders, replacing any too long to encode in the passed map with an equivalent
+  //   of the stream as it was before encoding began
+  private static Map<String, byte[]> encodeStreams(Map<String, InputStream> dataStreams,
+                                                   Map<String, ColumnarEncoder> encoders,
+                                                   long maxInputBytes) {
+    Map<String, byte[]> encodedStreams = new HashMap<>();
+    for (Map.Entry<String, ColumnarEncoder> encoder : encoders.entrySet()) {
+      ReplayableInputStream input = new ReplayableInputStream(dataStreams.get(encoder.getKey()), maxInputBytes);
+      ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+      try {
+        encoder.getValue().encode(input, encoded);
+        encodedStreams.put(encoder.getKey(), encoded.toByteArray());
+      }
+      catch (ReplayableInputStream.LimitExceededException e) {
+        LOG.info("Data stream " + encoder.getKey() + " is longer than " + maxInputBytes +
+            " bytes; sending it unencoded");
+        dataStreams.put(encoder.getKey(), input.replay());
+      }
+      catch (IOException e) {
+        throw new RuntimeException("Unable to read data stream " + encoder.getKey(), e);
+      }
+    }
+    return encodedStreams;
+  }
+
+  private static Map<String, StreamPipe> startPipes(Map<String, InputStream> dataStreams, Set<String> excludedStreams) {
+    Map<String, StreamPipe> pipes = new HashMap<>();
+    if (Resources.RSERVE_TRANSFER_MAX_BUFFERED_CHUNKS > 0) {
+      for (Map.Entry<String, InputStream> stream : dataStreams.entrySet()) {
+        if (excludedStreams.contains(stream.getKey())) {
+          continue;
+        }
+        pipes.put(stream.getKey(), StreamPipe.start(stream.getValue(),
+            Resources.RSERVE_TRANSFER_CHUNK_KB * 1024, Resources.RSERVE_TRANSFER_MAX_BUFFERED_CHUNKS, TRANSFER_THREADS));
+      }
+    }
+    return pipes;
+  }
+
+  // a file may not exist if writing the data failed; that failure is the one to report
+  private static void removeFile(RConnection connection, String name) {
+    try {
+      connection.removeFile(name);
+    }
+    catch (Exception e) {
+      LOG.warn("Unable to remove Rserve file " + name, e);
+    }
+  }
+
+  /**
+   * Runs the passed consumer with a pooled Rserve connection, recording its duration as the passed plugin's
+   * r_eval stage (see PluginMetrics).
+   *
+   * @param plugin name of the plugin doing the work
+   * @param rServeUrl URL of the Rserve server
+   * @param consumer work to do with the connection
+   */
+  public static void useRConnection(String plugin, String rServeUrl, ConsumerWithException<RConnection> consumer) {
+    try {
+      POOLS.computeIfAbsent(rServeUrl, url -> new ConnectionPool<>(
+          "rserve",
+          new RServeLifecycle(url),
+          Resources.RSERVE_POOL_MAX_CONNECTIONS,
+          Duration.ofSeconds(Resources.RSERVE_POOL_MAX_IDLE_SECONDS),
+          Duration.ofSeconds(Resources.RSERVE_POOL_ACQUIRE_TIMEOUT_SECONDS)))
+        .use(connection -> {
+          Histogram.Timer timer = PluginMetrics.startStage(plugin, "r_eval");
+          Gauge.Child inFlight = PluginMetrics.inFlight("rserve");
+          inFlight.inc();
+          try {
+            onRServeThread(() -> consumer.accept(connection));
+          }
+          finally {
+            inFlight.dec();
+            timer.observeDuration();
+          }
+        });
+    }
+    catch (RuntimeException e) {
+      throw e;
+    }
+    catch (Exception e) {
+      throw new RuntimeException("Unable to complete processing with Rserve", e);
+    }
+  }
+
+  @FunctionalInterface
+  private interface RServeCall<T> {
+    T call() throws Exception;
+  }
+
+  @FunctionalInterface
+  private interface VoidRServeCall {
+    void call() throws Exception;
+  }
+
+  private static void onRServeThread(VoidRServeCall call) throws Exception {
+    onRServeThread(() -> {
+      call.call();
+      return null;
+    });
+  }
+
+  // runs the passed call on an Rserve thread, waiting (without pinning a carrier) for it to finish
+  private static <T> T onRServeThread(RServeCall<T> call) throws Exception {
+    Future<T> result = RSERVE_THREADS.submit(call::call);
+    try {
+      return result.get();
+    }
+    catch (InterruptedException e) {
+      result.cancel(true);
+      Thread.currentThread().interrupt();
+      throw e;
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package org.veupathdb.service.eda.ds.core;
+
+import jakarta.ws.rs.BadRequestException;
+import org.rosuda.REngine.Rserve.RConnection;
+import org.veupathdb.service.eda.common.plugin.util.PluginUtil;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Data streams to be written to files in a pooled Rserve session, those added to the set with the command
+ * reading the file into R and an optional limit on the number of rows it may hold.  Equivalent of the shared
+ * RFileSetProcessor for PooledRServeClient.useRConnectionWithProcessedRemoteFiles.
+ */
+public class RFileSet {
+
+  /**
+   * Reads a file written to an Rserve session into R.
+   */
+  @FunctionalInterface
+  public interface FileReader {
+
+    /**
+     * @param name name of the file (and of its data stream)
+     * @param connection connection holding the file
+     */
+    void read(String name, RConnection connection) throws Exception;
+  }
+
+  private static class FileSpec {
+
+    private final Long _maxAllowedRows;
+    private final String _showMissingness;
+    private final List<String> _nonStrataVarColNames;
+    private final FileReader _reader;
+
+    private FileSpec(Long maxAllowedRows, String showMissingness, List<String> nonStrataVarColNames, FileReader reader) {
+      _maxAllowedRows = maxAllowedRows;
+      _showMissingness = showMissingness;
+      _nonStrataVarColNames = nonStrataVarColNames;
+      _reader = reader;
+    }
+  }
+
+  private final Map<String, InputStream> _dataStreams;
+  private final Map<String, FileSpec> _files = new LinkedHashMap<>();
+
+  /**
+   * @param dataStreams data streams by name; each is written to a file, including any put in the map after the
+   *                    set was created (e.g. vocabularies), but only those added to the set are read into R
+   */
+  public RFileSet(Map<String, InputStream> dataStreams) {
+    _dataStreams = dataStreams;
+  }
+
+  /**
+   * Adds the data stream with the passed name to the set.
+   *
+   * @param name name of the data stream
+   * @param maxAllowedRows maximum number of rows the file may hold once read, or null for no limit; unless
+   *                       missingness is shown for no variables, every row counts, otherwise only the rows
+   *                       with a value for each non-strata variable
+   * @param showMissingness missingness option of the request (noVariables, strataVariables or allVariables)
+   * @param nonStrataVarColNames columns of the non-strata variables (empty for unset variables)
+   * @param reader reads the file into R
+   * @return this file set
+   */
+  public RFileSet add(String name, Long maxAllowedRows, String showMissingness,
+                      List<String> nonStrataVarColNames, FileReader reader) {
+    if (!_dataStreams.containsKey(name)) {
+      throw new IllegalArgumentException("No data stream named " + name);
+    }
+    _files.put(name, new FileSpec(maxAllowedRows, showMissingness, nonStrataVarColNames, reader));
+    return this;
+  }
+
+  /**
+   * @return data streams to write to files, by name
+   */
+  public Map<String, InputStream> getDataStreams() {
+    return _dataStreams;
+  }
+
+  /**
+   * Reads each of the (already written) files into R, checking each against its row limit.
+   *
+   * @param connection connection holding the files
+   * @throws BadRequestException if a file holds more rows than allowed
+   */
+  public void readFiles(RConnection connection) throws Exception {
+    for (Map.Entry<String, FileSpec> file : _files.entrySet()) {
+      FileSpec spec = file.getValue();
+      spec._reader.read(file.getKey(), connection);
+      if (spec._maxAllowedRows != null) {
+        int rows = connection.eval(getRowCountCommand(file.getKey(), spec)).asInteger();
+        if (rows > spec._maxAllowedRows) {
+          throw new BadRequestException("The requested data has " + rows + " rows, more than the " +
+              spec._maxAllowedRows + " allowed.");
+        }
+      }
+    }
+  }
+
+  // rows with a value for each non-strata variable, unless missing values are shown for one of them
+  private static String getRowCountCommand(String name, FileSpec spec) {
+    List<String> colNames = new ArrayList<>();
+    if ("noVariables".equals(spec._showMissingness)) {
+      spec._nonStrataVarColNames.stream().filter(col -> !col.isEmpty()).forEach(colNames::add);
+    }
+    return colNames.isEmpty()
+        ? "nrow(" + name + ")"
+        : "nrow(na.omit(" + name + ", cols=c(" +
+            colNames.stream().map(PluginUtil::singleQuote).collect(Collectors.joining(",")) + ")))";
+  }
+}
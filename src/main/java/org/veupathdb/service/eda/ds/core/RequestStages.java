@@ -0,0 +1,87 @@
+package org.veupathdb.service.eda.ds.core;
+
+import io.prometheus.client.Histogram;
+import org.apache.logging.log4j.ThreadContext;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs stages of plugin requests that only wait on other services concurrently, recording their durations
+ * (see PluginMetrics).
+ */
+public class RequestStages {
+
+  // a virtual thread per stage, since stages run here only block on other services
+  private static final ExecutorService STAGE_THREADS =
+      Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("plugin-stage-", 0).factory());
+
+  /**
+   * Starts a stage on its own thread, with the logging context of the calling thread.
+   *
+   * @param plugin plugin whose request the stage belongs to
+   * @param stage name of the stage
+   * @param work work of the stage
+   * @return the stage's result, to be collected with {@link #await(CompletableFuture, Class)}
+   */
+  public static <T> CompletableFuture<T> start(String plugin, String stage, Callable<T> work) {
+    Map<String, String> loggingContext = ThreadContext.getImmutableContext();
+    return CompletableFuture.supplyAsync(() -> {
+      ThreadContext.putAll(loggingContext);
+      Histogram.Timer timer = PluginMetrics.startStage(plugin, stage);
+      try {
+        return work.call();
+      }
+      catch (RuntimeException e) {
+        throw e;
+      }
+      catch (Exception e) {
+        throw new CompletionException(e);
+      }
+      finally {
+        timer.observeDuration();
+        ThreadContext.clearMap();
+      }
+    }, STAGE_THREADS);
+  }
+
+  /**
+   * Waits for a stage to complete.
+   *
+   * @param stage stage to wait for
+   * @param checkedType type of checked exception the stage may fail with, rethrown as is
+   * @return the stage's result
+   * @throws E if the stage failed with it
+   */
+  public static <T, E extends Exception> T await(CompletableFuture<T> stage, Class<E> checkedType) throws E {
+    try {
+      return stage.join();
+    }
+    catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (checkedType.isInstance(cause)) {
+        throw checkedType.cast(cause);
+      }
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      if (cause instanceof Error error) {
+        throw error;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Waits for a stage that fails only with unchecked exceptions to complete.
+   *
+   * @return the stage's result
+   */
+  public static <T> T await(CompletableFuture<T> stage) {
+    return await(stage, RuntimeException.class);
+  }
+}
@@ -0,0 +1,114 @@
+package org.veupathdb.service.eda.ds.core;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import com.github.luben.zstd.util.Native;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.veupathdb.service.eda.ds.Resources;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content encodings plugin responses may be compressed with, chosen by the request's Accept-Encoding header.
+ * Streams of both encodings flush what has been written so far when flushed, so a streamed response is not
+ * held back by the compressor.
+ */
+public enum ResponseEncoding {
+
+  IDENTITY("identity"),
+  GZIP("gzip"),
+  ZSTD("zstd");
+
+  /**
+   * Name of the request property holding the encoding negotiated for its response.
+   */
+  public static final String REQUEST_PROPERTY = ResponseEncoding.class.getName();
+
+  private static final Logger LOG = LogManager.getLogger(ResponseEncoding.class);
+
+  private static final int GZIP_BUFFER_SIZE = 8192;
+
+  // zstd needs a native library, which may not load on every platform; it is only offered if it does
+  private static final boolean ZSTD_AVAILABLE = loadZstd();
+
+  private final String _name;
+
+  ResponseEncoding(String name) {
+    _name = name;
+  }
+
+  /**
+   * @return name of this encoding in HTTP headers
+   */
+  public String getName() {
+    return _name;
+  }
+
+  /**
+   * @return a stream writing what is written to it to the passed stream in this encoding, at the configured level
+   */
+  public OutputStream wrap(OutputStream out) throws IOException {
+    return switch (this) {
+      case IDENTITY -> out;
+      case GZIP -> new GZIPOutputStream(out, GZIP_BUFFER_SIZE, true) {{
+        def.setLevel(Resources.RESPONSE_COMPRESSION_GZIP_LEVEL);
+      }};
+      case ZSTD -> new ZstdOutputStream(out, Resources.RESPONSE_COMPRESSION_ZSTD_LEVEL);
+    };
+  }
+
+  /**
+   * Chooses the encoding the client prefers most (by q-value) among those supported, preferring zstd to gzip
+   * when the client has no preference between them.
+   *
+   * @param acceptEncoding value of the Accept-Encoding header, or null if it was not sent
+   * @return the chosen encoding, or IDENTITY if the client accepts none of the others
+   */
+  public static ResponseEncoding negotiate(String acceptEncoding) {
+    if (acceptEncoding == null || acceptEncoding.isBlank()) {
+      return IDENTITY;
+    }
+    Map<String, Double> qValues = new HashMap<>();
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.split(";");
+      double q = 1;
+      for (int i = 1; i < parts.length; i++) {
+        String param = parts[i].trim();
+        if (param.startsWith("q=")) {
+          try {
+            q = Double.parseDouble(param.substring(2).trim());
+          }
+          catch (NumberFormatException e) {
+            q = 0;
+          }
+        }
+      }
+      qValues.put(parts[0].trim().toLowerCase(), q);
+    }
+    ResponseEncoding best = IDENTITY;
+    double bestQ = 0;
+    for (ResponseEncoding encoding : ZSTD_AVAILABLE ? new ResponseEncoding[] { ZSTD, GZIP } : new ResponseEncoding[] { GZIP }) {
+      double q = qValues.getOrDefault(encoding._name, qValues.getOrDefault("*", 0.0));
+      if (q > bestQ) {
+        best = encoding;
+        bestQ = q;
+      }
+    }
+    return best;
+  }
+
+  private static boolean loadZstd() {
+    try {
+      Native.load();
+      return true;
+    }
+    catch (LinkageError e) {
+      LOG.warn("Unable to load zstd native library; responses will not be compressed with zstd", e);
+      return false;
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package org.veupathdb.service.eda.ds.core;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jakarta.ws.rs.core.MediaType;
+import org.gusdb.fgputil.json.JsonUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Formats a plugin streaming its response with a Jackson generator (see AbstractPlugin#writeStreamingResponse)
+ * can write it in.  The binary formats encode the same data model as JSON more compactly, and are chosen by
+ * listing their media types ahead of application/json in the request's Accept header.  Endpoints only produce
+ * application/json as far as JAX-RS is concerned, so the header must also accept JSON for the request to be
+ * routed; the Content-Type of the response is then corrected by ResponseFormatFilter.
+ */
+public enum ResponseFormat {
+
+  JSON(MediaType.APPLICATION_JSON_TYPE, JsonUtil.Jackson.getFactory()),
+  CBOR(new MediaType("application", "cbor"), new CBORFactory()),
+  SMILE(new MediaType("application", "x-jackson-smile"), new SmileFactory());
+
+  /**
+   * Name of the request property holding the format negotiated for its response.
+   */
+  public static final String REQUEST_PROPERTY = ResponseFormat.class.getName();
+
+  private final MediaType _mediaType;
+  private final JsonFactory _factory;
+
+  ResponseFormat(MediaType mediaType, JsonFactory factory) {
+    _mediaType = mediaType;
+    _factory = factory;
+  }
+
+  public MediaType getMediaType() {
+    return _mediaType;
+  }
+
+  /**
+   * @return a generator writing this format to the passed stream; closing it flushes but does not close the stream
+   */
+  public JsonGenerator createGenerator(OutputStream out) throws IOException {
+    return _factory.createGenerator(out).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+  }
+
+  /**
+   * @param acceptableTypes media types accepted by the client, in order of preference
+   * @return the first format accepted, or JSON if none is
+   */
+  public static ResponseFormat negotiate(List<MediaType> acceptableTypes) {
+    for (MediaType acceptable : acceptableTypes) {
+      for (ResponseFormat format : values()) {
+        if (acceptable.isCompatible(format._mediaType)) {
+          return format;
+        }
+      }
+    }
+    return JSON;
+  }
+}
@@ -0,0 +1,73 @@
+package org.veupathdb.service.eda.ds.core;
+
+import org.gusdb.fgputil.validation.ValidationException;
+import org.veupathdb.service.eda.common.client.EdaSubsettingClient;
+import org.veupathdb.service.eda.common.model.ReferenceMetadata;
+import org.veupathdb.service.eda.ds.Resources;
+import org.veupathdb.service.eda.ds.utils.ExpiringLruCache;
+import org.veupathdb.service.eda.generated.model.APIStudyDetail;
+
+import java.time.Duration;
+
+/**
+ * Process-wide cache of study metadata, shared by all plugin requests.  Study metadata only changes when new
+ * data is loaded, yet every plugin request needs it, so rather than asking the subsetting service for it on
+ * every request we keep recently used studies for a configurable time.
+ *
+ * Each cached study holds both the raw study detail and a ReferenceMetadata built from it.  The latter is
+ * shared between requests and must be treated as read-only; requests that need to add derived or computed
+ * variables must use {@link CachedStudy#newReferenceMetadata()} to get their own copy.
+ */
+public class StudyMetadataCache {
+
+  public static class CachedStudy {
+
+    private final APIStudyDetail _studyDetail;
+    private final ReferenceMetadata _sharedMetadata;
+
+    private CachedStudy(APIStudyDetail studyDetail) {
+      _studyDetail = studyDetail;
+      _sharedMetadata = new ReferenceMetadata(studyDetail);
+    }
+
+    public APIStudyDetail getStudyDetail() {
+      return _studyDetail;
+    }
+
+    /**
+     * @return reference metadata shared by all requests for this study; must not be modified
+     */
+    public ReferenceMetadata getSharedReferenceMetadata() {
+      return _sharedMetadata;
+    }
+
+    /**
+     * @return a new reference metadata object built from the cached study detail, which the caller may
+     * modify (e.g. to incorporate derived variables) without affecting other requests
+     */
+    public ReferenceMetadata newReferenceMetadata() {
+      return new ReferenceMetadata(_studyDetail);
+    }
+  }
+
+  private static final ExpiringLruCache<String, CachedStudy> CACHE = new ExpiringLruCache<>(
+      "study-metadata",
+      Resources.STUDY_METADATA_CACHE_MAX_STUDIES,
+      Duration.ofMinutes(Resources.STUDY_METADATA_CACHE_TTL_MINUTES));
+
+  /**
+   * Returns the study with the passed ID, fetching it with the passed client if not already cached.  If
+   * several requests ask for the same uncached study at once, only one fetch is made.  Only that fetch counts
+   * against the limit on concurrent subsetting calls (see Downstream); cache hits and requests waiting on
+   * another's fetch take no permit.
+   *
+   * @param studyId ID of the study to find
+   * @param subsettingClient client used to fetch the study if needed
+   * @return cached study
+   * @throws ValidationException if the study does not exist
+   */
+  public static CachedStudy getStudy(String studyId, EdaSubsettingClient subsettingClient) throws ValidationException {
+    return CACHE.get(studyId, () -> new CachedStudy(Downstream.SUBSETTING.call(() -> subsettingClient.getStudy(studyId))
+        .orElseThrow(() -> new ValidationException("Study '" + studyId + "' does not exist."))));
+  }
+}
@@ -0,0 +1,260 @@
+package org.veupathdb.service.eda.ds.nativeplot;
+
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularRow;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularStreamScanner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Streaming cross-tabulation of two categorical variables (an x variable and a group variable, e.g. an overlay
+ * or y-axis), optionally within panels defined by facet variables.  Values are interned to ordinals as they
+ * are first seen and counted in primitive arrays indexed by those ordinals, so rows may arrive in any order.
+ * Rows missing any variable are counted toward the complete cases of the variables they have, but are
+ * otherwise left out, as plot.data does when missingness is not shown.
+ *
+ * Categories are reported in the order of the variable's vocabulary, if one is given, followed by any values
+ * outside it in string order.
+ */
+public class CategoricalCounts {
+
+  // distinct values of one variable, by ordinal
+  private static class Values {
+
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    private int intern(String value) {
+      Integer ordinal = ordinals.get(value);
+      if (ordinal == null) {
+        ordinal = values.size();
+        ordinals.put(value, ordinal);
+        values.add(value);
+      }
+      return ordinal;
+    }
+
+    // ordinals in reporting order
+    private int[] order(List<String> vocabulary) {
+      Map<String, Integer> vocabularyIndexes = new HashMap<>();
+      if (vocabulary != null) {
+        for (int i = 0; i < vocabulary.size(); i++) {
+          vocabularyIndexes.putIfAbsent(vocabulary.get(i), i);
+        }
+      }
+      Comparator<Integer> order = Comparator
+          .comparing((Integer ordinal) -> vocabularyIndexes.getOrDefault(values.get(ordinal), Integer.MAX_VALUE))
+          .thenComparing(values::get);
+      return IntStream.range(0, values.size()).boxed().sorted(order).mapToInt(i -> i).toArray();
+    }
+  }
+
+  /**
+   * Counts of one panel, by x then group value.
+   */
+  public static class Table {
+
+    private final List<String> xValues;
+    private final List<String> groupValues;
+    private final long[][] counts;
+
+    private Table(List<String> xValues, List<String> groupValues, long[][] counts) {
+      this.xValues = xValues;
+      this.groupValues = groupValues;
+      this.counts = counts;
+    }
+
+    /**
+     * @return x values in reporting order, including those with no rows in this panel
+     */
+    public List<String> getXValues() { return xValues; }
+
+    /**
+     * @return group values in reporting order, including those with no rows in this panel
+     */
+    public List<String> getGroupValues() { return groupValues; }
+
+    public long getCount(int xIndex, int groupIndex) { return counts[xIndex][groupIndex]; }
+
+    /**
+     * @return counts indexed by x, then group; must not be modified
+     */
+    public long[][] getCounts() { return counts; }
+
+    public long getTotal() {
+      long total = 0;
+      for (long[] xCounts : counts) {
+        for (long count : xCounts) {
+          total += count;
+        }
+      }
+      return total;
+    }
+
+    public long getGroupTotal(int groupIndex) {
+      long total = 0;
+      for (long[] xCounts : counts) {
+        total += xCounts[groupIndex];
+      }
+      return total;
+    }
+  }
+
+  private final int xColumn;
+  private final int groupColumn;
+  private final int[] panelColumns;
+  private final UnaryOperator<String> groupRecoder;
+  private final boolean groupIsAxis;
+
+  private final Values xValues = new Values();
+  private final Values groupValues = new Values();
+  private final Map<Strata, long[][]> panelCounts = new HashMap<>();
+
+  private final long[] nonMissingByColumn;
+  private long completeCases = 0;
+  private long completeAxesCases = 0;
+
+  /**
+   * @param xColumn index of the x-axis column
+   * @param groupColumn index of the group column, or -1 to count x values only
+   * @param panelColumns indexes of the facet columns; may be empty
+   * @param groupRecoder maps raw group values to those reported (e.g. overlay bin labels); a null result marks
+   * the value as missing
+   * @param groupIsAxis whether the group variable is a plot axis (e.g. a y-axis) rather than a stratifying
+   * variable, so it counts toward complete axes cases
+   */
+  public CategoricalCounts(int xColumn, int groupColumn, int[] panelColumns, UnaryOperator<String> groupRecoder, boolean groupIsAxis) {
+    this.xColumn = xColumn;
+    this.groupColumn = groupColumn;
+    this.panelColumns = panelColumns;
+    this.groupRecoder = groupRecoder;
+    this.groupIsAxis = groupIsAxis;
+    nonMissingByColumn = new long[panelColumns.length + 2];
+  }
+
+  /**
+   * Reads all remaining rows of the passed scanner (whose header must already have been read).
+   */
+  public void readAll(TabularStreamScanner scanner) throws IOException {
+    while (scanner.next()) {
+      add(scanner);
+    }
+  }
+
+  public void add(TabularRow row) {
+    boolean complete = true;
+    int x = -1;
+    if (row.isEmpty(xColumn)) {
+      complete = false;
+    }
+    else {
+      nonMissingByColumn[0]++;
+      x = xValues.intern(row.getString(xColumn));
+    }
+
+    int group = 0;
+    boolean hasGroup = true;
+    if (groupColumn >= 0) {
+      String groupValue = null;
+      if (!row.isEmpty(groupColumn)) {
+        nonMissingByColumn[1]++;
+        groupValue = groupRecoder.apply(row.getString(groupColumn));
+      }
+      if (groupValue == null) {
+        hasGroup = false;
+        complete = false;
+      }
+      else {
+        group = groupValues.intern(groupValue);
+      }
+    }
+    else {
+      group = groupValues.intern("");
+    }
+
+    if (x >= 0 && (hasGroup || !groupIsAxis)) {
+      completeAxesCases++;
+    }
+
+    String[] panelValues = new String[panelColumns.length];
+    for (int i = 0; i < panelColumns.length; i++) {
+      if (row.isEmpty(panelColumns[i])) {
+        complete = false;
+      }
+      else {
+        nonMissingByColumn[i + 2]++;
+        panelValues[i] = row.getString(panelColumns[i]);
+      }
+    }
+    if (!complete) {
+      return;
+    }
+    completeCases++;
+
+    Strata panel = new Strata(panelValues);
+    long[][] counts = panelCounts.get(panel);
+    if (counts == null) {
+      counts = new long[0][];
+    }
+    if (x >= counts.length) {
+      counts = Arrays.copyOf(counts, Math.max(x + 1, counts.length * 2));
+    }
+    if (counts[x] == null) {
+      counts[x] = new long[Math.max(4, group + 1)];
+    }
+    else if (group >= counts[x].length) {
+      counts[x] = Arrays.copyOf(counts[x], Math.max(group + 1, counts[x].length * 2));
+    }
+    counts[x][group]++;
+    panelCounts.put(panel, counts);
+  }
+
+  /**
+   * @param xVocabulary preferred order of x values, or null for string order
+   * @param groupVocabulary preferred order of group values, or null for string order
+   * @return counts of each panel that has rows, in panel order; every table has all x and group values
+   */
+  public Map<Strata, Table> getTables(List<String> xVocabulary, List<String> groupVocabulary) {
+    int[] xOrder = xValues.order(xVocabulary);
+    int[] groupOrder = groupValues.order(groupVocabulary);
+    List<String> orderedXValues = Arrays.stream(xOrder).mapToObj(xValues.values::get).toList();
+    List<String> orderedGroupValues = Arrays.stream(groupOrder).mapToObj(groupValues.values::get).toList();
+    Map<Strata, Table> tables = new TreeMap<>();
+    for (Map.Entry<Strata, long[][]> panel : panelCounts.entrySet()) {
+      long[][] internal = panel.getValue();
+      long[][] ordered = new long[xOrder.length][groupOrder.length];
+      for (int i = 0; i < xOrder.length; i++) {
+        long[] xCounts = xOrder[i] < internal.length ? internal[xOrder[i]] : null;
+        if (xCounts == null) {
+          continue;
+        }
+        for (int j = 0; j < groupOrder.length; j++) {
+          ordered[i][j] = groupOrder[j] < xCounts.length ? xCounts[groupOrder[j]] : 0;
+        }
+      }
+      tables.put(panel.getKey(), new Table(orderedXValues, orderedGroupValues, ordered));
+    }
+    return tables;
+  }
+
+  public long getCompleteCases() { return completeCases; }
+
+  /**
+   * @return number of rows with values for the x variable and, if it is an axis, the group variable
+   */
+  public long getCompleteAxesCases() { return completeAxesCases; }
+
+  public long getNonMissingX() { return nonMissingByColumn[0]; }
+
+  public long getNonMissingGroup() { return nonMissingByColumn[1]; }
+
+  public long getNonMissingPanel(int index) { return nonMissingByColumn[index + 2]; }
+}
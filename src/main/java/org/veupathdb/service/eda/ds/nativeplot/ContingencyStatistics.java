@@ -0,0 +1,309 @@
+package org.veupathdb.service.eda.ds.nativeplot;
+
+import org.veupathdb.service.eda.ds.utils.StatUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests of association between the two variables of a contingency table, computed as R computes them
+ * (chisq.test, fisher.test), plus Wald estimates of the odds ratio and relative risk of 2x2 tables.
+ */
+public class ContingencyStatistics {
+
+  private static final double FISHER_CONFIDENCE_LEVEL = 0.95;
+
+  // R's .Machine$double.eps
+  private static final double DOUBLE_EPSILON = Math.ulp(1.0);
+
+  public static class ChiSquared {
+
+    private final double statistic;
+    private final int degreesOfFreedom;
+    private final double pValue;
+
+    private ChiSquared(double statistic, int degreesOfFreedom, double pValue) {
+      this.statistic = statistic;
+      this.degreesOfFreedom = degreesOfFreedom;
+      this.pValue = pValue;
+    }
+
+    public double getStatistic() { return statistic; }
+    public int getDegreesOfFreedom() { return degreesOfFreedom; }
+    public double getPValue() { return pValue; }
+  }
+
+  /**
+   * A point estimate with its 95% confidence interval and p-value.
+   */
+  public static class Estimate {
+
+    private final double value;
+    private final double lower;
+    private final double upper;
+    private final double pValue;
+
+    private Estimate(double value, double lower, double upper, double pValue) {
+      this.value = value;
+      this.lower = lower;
+      this.upper = upper;
+      this.pValue = pValue;
+    }
+
+    public double getValue() { return value; }
+    public double getLower() { return lower; }
+    public double getUpper() { return upper; }
+    public double getPValue() { return pValue; }
+  }
+
+  /**
+   * Pearson's chi-squared test of independence, as chisq.test() computes it: with Yates' continuity correction
+   * for 2x2 tables.  Rows and columns without counts are dropped first, since their expected counts are zero.
+   *
+   * @param counts counts indexed by column, then row
+   */
+  public static ChiSquared chiSquared(long[][] counts) {
+    long[][] table = dropEmpty(counts);
+    int numColumns = table.length;
+    int numRows = numColumns == 0 ? 0 : table[0].length;
+    if (numColumns < 2 || numRows < 2) {
+      return new ChiSquared(Double.NaN, Math.max(0, (numColumns - 1) * (numRows - 1)), Double.NaN);
+    }
+    double[] columnTotals = new double[numColumns];
+    double[] rowTotals = new double[numRows];
+    double total = 0;
+    for (int i = 0; i < numColumns; i++) {
+      for (int j = 0; j < numRows; j++) {
+        columnTotals[i] += table[i][j];
+        rowTotals[j] += table[i][j];
+        total += table[i][j];
+      }
+    }
+    boolean yates = numColumns == 2 && numRows == 2;
+    double statistic = 0;
+    for (int i = 0; i < numColumns; i++) {
+      for (int j = 0; j < numRows; j++) {
+        double expected = columnTotals[i] * rowTotals[j] / total;
+        double difference = Math.abs(table[i][j] - expected);
+        if (yates) {
+          difference -= Math.min(0.5, difference);
+        }
+        statistic += difference * difference / expected;
+      }
+    }
+    int degreesOfFreedom = (numColumns - 1) * (numRows - 1);
+    return new ChiSquared(statistic, degreesOfFreedom, StatUtils.chiSquaredUpperTail(statistic, degreesOfFreedom));
+  }
+
+  /**
+   * Fisher's exact test of a 2x2 table, as fisher.test() computes it: the two-sided p-value sums the
+   * probabilities of all tables with the same margins no more likely than the observed one, the estimate is
+   * the conditional maximum likelihood estimate of the odds ratio, and the 95% confidence interval is the
+   * conditional one.  Like fisher.test(), the estimate and interval bounds are found with uniroot(), so they
+   * match R's to all digits rather than only to its tolerance.
+   *
+   * @param a count of exposed cases
+   * @param b count of unexposed cases
+   * @param c count of exposed non-cases
+   * @param d count of unexposed non-cases
+   */
+  public static Estimate fisher(long a, long b, long c, long d) {
+    NoncentralHypergeometric distribution = new NoncentralHypergeometric(a + c, b + d, a + b);
+
+    double[] density = distribution.density(1);
+    double observed = density[(int)(a - distribution.min)];
+    double pValue = 0;
+    for (double probability : density) {
+      if (probability <= observed * (1 + 1e-7)) {
+        pValue += probability;
+      }
+    }
+
+    double alpha = (1 - FISHER_CONFIDENCE_LEVEL) / 2;
+    return new Estimate(
+        fisherEstimate(distribution, a),
+        fisherLowerBound(distribution, a, alpha),
+        fisherUpperBound(distribution, a, alpha),
+        Math.min(1, pValue));
+  }
+
+  // fisher.test()'s mle(): the odds ratio whose conditional mean count is the observed one
+  private static double fisherEstimate(NoncentralHypergeometric distribution, long a) {
+    if (a == distribution.min) {
+      return 0;
+    }
+    if (a == distribution.max) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double mean = distribution.mean(1);
+    if (mean > a) {
+      return RCompat.uniroot(t -> distribution.mean(t) - a, 0, 1);
+    }
+    if (mean < a) {
+      return 1 / RCompat.uniroot(t -> distribution.mean(1 / t) - a, DOUBLE_EPSILON, 1);
+    }
+    return 1;
+  }
+
+  // fisher.test()'s ncp.L(): the odds ratio under which a count at least the observed one has probability alpha
+  private static double fisherLowerBound(NoncentralHypergeometric distribution, long a, double alpha) {
+    if (a == distribution.min) {
+      return 0;
+    }
+    double probability = distribution.probability(a, 1, true);
+    if (probability > alpha) {
+      return RCompat.uniroot(t -> distribution.probability(a, t, true) - alpha, 0, 1);
+    }
+    if (probability < alpha) {
+      return 1 / RCompat.uniroot(t -> distribution.probability(a, 1 / t, true) - alpha, DOUBLE_EPSILON, 1);
+    }
+    return 1;
+  }
+
+  // fisher.test()'s ncp.U(): the odds ratio under which a count at most the observed one has probability alpha
+  private static double fisherUpperBound(NoncentralHypergeometric distribution, long a, double alpha) {
+    if (a == distribution.max) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double probability = distribution.probability(a, 1, false);
+    if (probability < alpha) {
+      return RCompat.uniroot(t -> distribution.probability(a, t, false) - alpha, 0, 1);
+    }
+    if (probability > alpha) {
+      return 1 / RCompat.uniroot(t -> distribution.probability(a, 1 / t, false) - alpha, DOUBLE_EPSILON, 1);
+    }
+    return 1;
+  }
+
+  /**
+   * Odds ratio (ad / bc) with a Wald confidence interval and test on the log scale.
+   */
+  public static Estimate oddsRatio(long a, long b, long c, long d) {
+    double logValue = Math.log((double)a * d / ((double)b * c));
+    double standardError = Math.sqrt(1.0 / a + 1.0 / b + 1.0 / c + 1.0 / d);
+    return logScaleEstimate(logValue, standardError);
+  }
+
+  /**
+   * Relative risk of being a case if exposed (a / (a + c)) versus unexposed (b / (b + d)), with a Wald
+   * confidence interval and test on the log scale.
+   */
+  public static Estimate relativeRisk(long a, long b, long c, long d) {
+    double logValue = Math.log(((double)a / (a + c)) / ((double)b / (b + d)));
+    double standardError = Math.sqrt(1.0 / a - 1.0 / (a + c) + 1.0 / b - 1.0 / (b + d));
+    return logScaleEstimate(logValue, standardError);
+  }
+
+  private static Estimate logScaleEstimate(double logValue, double standardError) {
+    double z = Math.abs(logValue / standardError);
+    return new Estimate(
+        Math.exp(logValue),
+        Math.exp(logValue - StatUtils.Z_SCORE_95 * standardError),
+        Math.exp(logValue + StatUtils.Z_SCORE_95 * standardError),
+        2 * StatUtils.normalUpperTail(z));
+  }
+
+  /**
+   * Distribution of the count of exposed cases among tables with the passed margins, given an odds ratio, as
+   * fisher.test() computes it (its dnhyper(), mnhyper() and pnhyper()).
+   */
+  private static class NoncentralHypergeometric {
+
+    private final long min;
+    private final long max;
+    private final double[] logCentralDensity; // by count, from min
+
+    private NoncentralHypergeometric(long exposed, long unexposed, long cases) {
+      min = Math.max(0, cases - unexposed);
+      max = Math.min(cases, exposed);
+      logCentralDensity = new double[(int)(max - min + 1)];
+      for (long k = min; k <= max; k++) {
+        logCentralDensity[(int)(k - min)] = StatUtils.logChoose(exposed, k) + StatUtils.logChoose(unexposed, cases - k);
+      }
+    }
+
+    private double[] density(double oddsRatio) {
+      double logOddsRatio = Math.log(oddsRatio);
+      double[] density = new double[logCentralDensity.length];
+      double maxLog = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < density.length; i++) {
+        density[i] = logCentralDensity[i] + logOddsRatio * (min + i);
+        maxLog = Math.max(maxLog, density[i]);
+      }
+      double sum = 0;
+      for (int i = 0; i < density.length; i++) {
+        density[i] = Math.exp(density[i] - maxLog);
+        sum += density[i];
+      }
+      for (int i = 0; i < density.length; i++) {
+        density[i] /= sum;
+      }
+      return density;
+    }
+
+    private double mean(double oddsRatio) {
+      if (oddsRatio == 0) {
+        return min;
+      }
+      if (oddsRatio == Double.POSITIVE_INFINITY) {
+        return max;
+      }
+      double[] density = density(oddsRatio);
+      double mean = 0;
+      for (int i = 0; i < density.length; i++) {
+        mean += (min + i) * density[i];
+      }
+      return mean;
+    }
+
+    // probability of a count at least (upper tail) or at most the passed one
+    private double probability(long count, double oddsRatio, boolean upperTail) {
+      if (oddsRatio == 0) {
+        return (upperTail ? count <= min : count >= min) ? 1 : 0;
+      }
+      if (oddsRatio == Double.POSITIVE_INFINITY) {
+        return (upperTail ? count <= max : count >= max) ? 1 : 0;
+      }
+      double[] density = density(oddsRatio);
+      double probability = 0;
+      for (int i = 0; i < density.length; i++) {
+        if (upperTail ? min + i >= count : min + i <= count) {
+          probability += density[i];
+        }
+      }
+      return probability;
+    }
+  }
+
+  // removes columns and rows whose counts are all zero
+  private static long[][] dropEmpty(long[][] counts) {
+    int numRows = counts.length == 0 ? 0 : counts[0].length;
+    boolean[] keepRow = new boolean[numRows];
+    List<long[]> columns = new ArrayList<>();
+    for (long[] column : counts) {
+      boolean keepColumn = false;
+      for (int j = 0; j < numRows; j++) {
+        if (column[j] > 0) {
+          keepColumn = true;
+          keepRow[j] = true;
+        }
+      }
+      if (keepColumn) {
+        columns.add(column);
+      }
+    }
+    int keptRows = 0;
+    for (boolean keep : keepRow) {
+      if (keep) keptRows++;
+    }
+    long[][] table = new long[columns.size()][keptRows];
+    for (int i = 0; i < columns.size(); i++) {
+      for (int j = 0, k = 0; j < numRows; j++) {
+        if (keepRow[j]) {
+          table[i][k++] = columns.get(i)[j];
+        }
+      }
+    }
+    return table;
+  }
+}
@@ -0,0 +1,188 @@
+package org.veupathdb.service.eda.ds.nativeplot;
+
+import org.gusdb.fgputil.DelimitedDataParser;
+import org.veupathdb.service.eda.ds.nativeplot.NumericBoxplot.Box;
+import org.veupathdb.service.eda.ds.nativeplot.NumericBoxplot.Series;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularStreamScanner;
+import org.veupathdb.service.eda.generated.model.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import static org.gusdb.fgputil.FormatUtil.TAB;
+
+/**
+ * Computes box plots of plugin data streams with a NumericBoxplot and builds responses from them in the shape
+ * plot.data::box gives its own.
+ *
+ * Only box plots of a single y variable are computed.  Those with a box for each member of a collection
+ * (CollectionFloatingBoxplotPlugin, AbundanceBoxplotPlugin), which plot.data builds by reshaping the members'
+ * columns into one, are left to plot.data.
+ */
+public class NativeBoxplots {
+
+  /**
+   * Box plots whose statistical tests were requested are left to plot.data.
+   *
+   * @param computeStats value of the request's computeStats flag, or null
+   * @return whether a box plot can be computed natively
+   */
+  public static boolean isSupported(StringBoolean computeStats) {
+    return computeStats == null || !Boolean.parseBoolean(computeStats.getValue());
+  }
+
+  /**
+   * Reads a tabular data stream (with a header) and groups its y values.
+   *
+   * @param dataStream tabular data, including the x, y and stratifying variables
+   * @param columnNames finds the column name of a variable
+   * @param xVariable x-axis variable
+   * @param yVariable numeric y-axis variable
+   * @param strataVariables stratifying variables (overlay, then facets); may be empty
+   * @param strataRecoders maps the raw values of each stratifying variable to those plotted (see NumericBoxplot)
+   * @param maxExactValues number of values a group may hold before it is summarized approximately, or 0
+   * @param allPoints whether all points, rather than only outliers, are to be reported
+   * @param maxAllowedDataPoints number of rows with x and y values after which reading stops, or null
+   */
+  public static NumericBoxplot read(InputStream dataStream, Function<VariableSpec, String> columnNames,
+                                    VariableSpec xVariable, VariableSpec yVariable,
+                                    List<VariableSpec> strataVariables, List<UnaryOperator<String>> strataRecoders,
+                                    int maxExactValues, boolean allPoints, Long maxAllowedDataPoints) throws IOException {
+    TabularStreamScanner scanner = new TabularStreamScanner(dataStream);
+    DelimitedDataParser parser = new DelimitedDataParser(scanner.readLine(), TAB, true);
+    Function<VariableSpec, Integer> indexOf = var -> parser.indexOfColumn(columnNames.apply(var)).orElseThrow();
+    NumericBoxplot boxplot = new NumericBoxplot(indexOf.apply(xVariable), indexOf.apply(yVariable),
+        strataVariables.stream().mapToInt(indexOf::apply).toArray(), strataRecoders,
+        maxExactValues, allPoints, maxAllowedDataPoints);
+    boxplot.readAll(scanner);
+    return boxplot;
+  }
+
+  /**
+   * @param series boxes in strata order
+   * @param overlayVariable overlay variable, or null; if present, its values are the first of each strata
+   * @param facetVariables facet variables, whose values follow any overlay value in each strata
+   * @param allPoints whether to report all values (rawData) rather than only outliers
+   * @param mean whether to report means
+   */
+  public static List<BoxplotData> toBoxplotData(List<Series> series, VariableSpec overlayVariable,
+                                                List<VariableSpec> facetVariables, boolean allPoints, boolean mean) {
+    List<BoxplotData> data = new ArrayList<>();
+    for (Series seriesBoxes : series) {
+      BoxplotData seriesData = new BoxplotDataImpl();
+      setStrataDetails(seriesBoxes.getStrata(), overlayVariable, facetVariables,
+          seriesData::setOverlayVariableDetails, seriesData::setFacetVariableDetails);
+      List<Box> boxes = seriesBoxes.getBoxes();
+      seriesData.setLabel(boxes.stream().map(Box::getLabel).collect(Collectors.toList()));
+      seriesData.setLowerfence(toNumbers(boxes, Box::getLowerFence));
+      seriesData.setUpperfence(toNumbers(boxes, Box::getUpperFence));
+      seriesData.setQ1(toNumbers(boxes, Box::getQ1));
+      seriesData.setQ3(toNumbers(boxes, Box::getQ3));
+      seriesData.setMedian(toNumbers(boxes, Box::getMedian));
+      if (mean) {
+        seriesData.setMean(toNumbers(boxes, Box::getMean));
+      }
+      if (allPoints) {
+        seriesData.setRawData(toNumberLists(boxes, Box::getRawData));
+      }
+      else {
+        seriesData.setOutliers(toNumberLists(boxes, Box::getOutliers));
+      }
+      data.add(seriesData);
+    }
+    return data;
+  }
+
+  public static PlotConfig toPlotConfig(NumericBoxplot boxplot, List<VariableMapping> variables) {
+    PlotConfig config = new PlotConfigImpl();
+    config.setCompleteCasesAllVars(boxplot.getCompleteCasesAllVars());
+    config.setCompleteCasesAxesVars(boxplot.getCompleteCasesAxesVars());
+    config.setVariables(variables);
+    return config;
+  }
+
+  /**
+   * @return one row per series, with the number of values of each of its x values
+   */
+  public static List<SampleSizeTable> toSampleSizeTable(List<Series> series, VariableSpec xVariable,
+                                                        VariableSpec overlayVariable, List<VariableSpec> facetVariables) {
+    List<SampleSizeTable> table = new ArrayList<>();
+    for (Series seriesBoxes : series) {
+      SampleSizeTable row = new SampleSizeTableImpl();
+      setStrataDetails(seriesBoxes.getStrata(), overlayVariable, facetVariables,
+          row::setOverlayVariableDetails, row::setFacetVariableDetails);
+      List<StrataVariableDetails> xDetails = new ArrayList<>();
+      List<Number> sizes = new ArrayList<>();
+      for (Box box : seriesBoxes.getBoxes()) {
+        xDetails.add(toStrataDetails(xVariable, box.getLabel()));
+        sizes.add(box.getCount());
+      }
+      row.setXVariableDetails(xDetails);
+      row.setSize(sizes);
+      table.add(row);
+    }
+    return table;
+  }
+
+  /**
+   * @param strataVariables stratifying variables, in the order their columns were passed to the NumericBoxplot
+   */
+  public static List<VariableCompleteCases> toCompleteCasesTable(NumericBoxplot boxplot, VariableSpec xVariable,
+                                                                 VariableSpec yVariable, List<VariableSpec> strataVariables) {
+    List<VariableCompleteCases> table = new ArrayList<>();
+    table.add(toCompleteCases(xVariable, boxplot.getNonMissingX()));
+    table.add(toCompleteCases(yVariable, boxplot.getNonMissingY()));
+    for (int i = 0; i < strataVariables.size(); i++) {
+      table.add(toCompleteCases(strataVariables.get(i), boxplot.getNonMissingStrata(i)));
+    }
+    return table;
+  }
+
+  private static List<Number> toNumbers(List<Box> boxes, Function<Box, Double> statistic) {
+    return boxes.stream().map(box -> (Number)statistic.apply(box)).collect(Collectors.toList());
+  }
+
+  private static List<List<Number>> toNumberLists(List<Box> boxes, Function<Box, double[]> values) {
+    return boxes.stream()
+        .map(box -> Arrays.stream(values.apply(box)).boxed().map(value -> (Number)value).collect(Collectors.toList()))
+        .collect(Collectors.toList());
+  }
+
+  private static VariableCompleteCases toCompleteCases(VariableSpec variable, long completeCases) {
+    VariableCompleteCases row = new VariableCompleteCasesImpl();
+    row.setVariableDetails(variable);
+    row.setCompleteCases(completeCases);
+    return row;
+  }
+
+  private static void setStrataDetails(Strata strata, VariableSpec overlayVariable, List<VariableSpec> facetVariables,
+                                       Consumer<StrataVariableDetails> overlaySetter,
+                                       Consumer<List<StrataVariableDetails>> facetSetter) {
+    int index = 0;
+    if (overlayVariable != null) {
+      overlaySetter.accept(toStrataDetails(overlayVariable, strata.get(index++)));
+    }
+    if (!facetVariables.isEmpty()) {
+      List<StrataVariableDetails> facetDetails = new ArrayList<>();
+      for (VariableSpec facetVariable : facetVariables) {
+        facetDetails.add(toStrataDetails(facetVariable, strata.get(index++)));
+      }
+      facetSetter.accept(facetDetails);
+    }
+  }
+
+  private static StrataVariableDetails toStrataDetails(VariableSpec variable, String value) {
+    StrataVariableDetails details = new StrataVariableDetailsImpl();
+    details.setEntityId(variable.getEntityId());
+    details.setVariableId(variable.getVariableId());
+    details.setValue(value);
+    return details;
+  }
+}
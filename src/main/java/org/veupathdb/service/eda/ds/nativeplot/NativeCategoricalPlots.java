@@ -0,0 +1,345 @@
+package org.veupathdb.service.eda.ds.nativeplot;
+
+import org.gusdb.fgputil.DelimitedDataParser;
+import org.veupathdb.service.eda.ds.nativeplot.CategoricalCounts.Table;
+import org.veupathdb.service.eda.ds.nativeplot.ContingencyStatistics.ChiSquared;
+import org.veupathdb.service.eda.ds.nativeplot.ContingencyStatistics.Estimate;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularStreamScanner;
+import org.veupathdb.service.eda.generated.model.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import static org.gusdb.fgputil.FormatUtil.TAB;
+
+/**
+ * Counts categorical plugin data streams with CategoricalCounts and builds bar plot and contingency table
+ * (mosaic) responses from them in the shape plot.data::bar and plot.data::mosaic give their own.
+ */
+public class NativeCategoricalPlots {
+
+  private static final double CONFIDENCE_LEVEL = 0.95;
+
+  // p-values of 2x2 statistics below this are reported only as being below it
+  private static final double P_VALUE_FLOOR = 0.0001;
+  private static final String BELOW_P_VALUE_FLOOR = "<0.0001";
+
+  /**
+   * Reads a tabular data stream (with a header) and counts its rows by x and group value within each panel.
+   *
+   * @param dataStream tabular data, including the x, group and facet variables
+   * @param columnNames finds the column name of a variable
+   * @param xVariable x-axis variable
+   * @param groupVariable overlay or y-axis variable, or null
+   * @param facetVariables facet variables; may be empty
+   * @param groupRecoder maps raw group values to those reported (see CategoricalCounts)
+   * @param groupIsAxis whether the group variable is a plot axis
+   */
+  public static CategoricalCounts count(InputStream dataStream, Function<VariableSpec, String> columnNames,
+                                        VariableSpec xVariable, VariableSpec groupVariable, List<VariableSpec> facetVariables,
+                                        UnaryOperator<String> groupRecoder, boolean groupIsAxis) throws IOException {
+    TabularStreamScanner scanner = new TabularStreamScanner(dataStream);
+    DelimitedDataParser parser = new DelimitedDataParser(scanner.readLine(), TAB, true);
+    Function<VariableSpec, Integer> indexOf = var -> parser.indexOfColumn(columnNames.apply(var)).orElseThrow();
+    CategoricalCounts counts = new CategoricalCounts(
+        indexOf.apply(xVariable),
+        groupVariable == null ? -1 : indexOf.apply(groupVariable),
+        facetVariables.stream().mapToInt(indexOf::apply).toArray(),
+        groupRecoder,
+        groupIsAxis);
+    counts.readAll(scanner);
+    return counts;
+  }
+
+  public static PlotConfig toPlotConfig(CategoricalCounts counts, List<VariableMapping> variables) {
+    PlotConfig config = new PlotConfigImpl();
+    config.setCompleteCasesAllVars(counts.getCompleteCases());
+    config.setCompleteCasesAxesVars(counts.getCompleteAxesCases());
+    config.setVariables(variables);
+    return config;
+  }
+
+  /**
+   * @param groupVariable overlay variable, or null
+   * @param facetVariables facet variables; may be empty
+   * @param proportions whether values are proportions of each overlay group's rows in the panel, not counts
+   * @return a series for each overlay group in each panel, holding its x values with rows
+   */
+  public static List<BarplotData> toBarplotData(Map<Strata, Table> tables, VariableSpec groupVariable,
+                                                List<VariableSpec> facetVariables, boolean proportions) {
+    List<BarplotData> data = new ArrayList<>();
+    for (Map.Entry<Strata, Table> panel : tables.entrySet()) {
+      Table table = panel.getValue();
+      for (int group = 0; group < table.getGroupValues().size(); group++) {
+        long groupTotal = table.getGroupTotal(group);
+        if (groupTotal == 0) {
+          continue;
+        }
+        List<String> labels = new ArrayList<>();
+        List<Number> values = new ArrayList<>();
+        for (int x = 0; x < table.getXValues().size(); x++) {
+          long count = table.getCount(x, group);
+          if (count > 0) {
+            labels.add(table.getXValues().get(x));
+            values.add(proportions ? (double)count / groupTotal : count);
+          }
+        }
+        BarplotData series = new BarplotDataImpl();
+        if (groupVariable != null) {
+          series.setOverlayVariableDetails(toStrataDetails(groupVariable, table.getGroupValues().get(group)));
+        }
+        if (!facetVariables.isEmpty()) {
+          series.setFacetVariableDetails(toFacetDetails(panel.getKey(), facetVariables));
+        }
+        series.setLabel(labels);
+        series.setValue(values);
+        data.add(series);
+      }
+    }
+    return data;
+  }
+
+  /**
+   * @return number of plotted rows in each overlay group of each panel
+   */
+  public static List<SampleSizeTable> toBarplotSampleSizeTable(Map<Strata, Table> tables, VariableSpec groupVariable,
+                                                               List<VariableSpec> facetVariables) {
+    List<SampleSizeTable> sampleSizes = new ArrayList<>();
+    for (Map.Entry<Strata, Table> panel : tables.entrySet()) {
+      Table table = panel.getValue();
+      for (int group = 0; group < table.getGroupValues().size(); group++) {
+        long groupTotal = table.getGroupTotal(group);
+        if (groupTotal == 0) {
+          continue;
+        }
+        SampleSizeTable row = new SampleSizeTableImpl();
+        if (groupVariable != null) {
+          row.setOverlayVariableDetails(toStrataDetails(groupVariable, table.getGroupValues().get(group)));
+        }
+        if (!facetVariables.isEmpty()) {
+          row.setFacetVariableDetails(toFacetDetails(panel.getKey(), facetVariables));
+        }
+        row.setSize(List.<Number>of(groupTotal));
+        sampleSizes.add(row);
+      }
+    }
+    return sampleSizes;
+  }
+
+  /**
+   * @return a table for each panel, holding the counts of each y value under each x value with rows
+   */
+  public static List<MosaicData> toMosaicData(Map<Strata, Table> tables, List<VariableSpec> facetVariables) {
+    List<MosaicData> data = new ArrayList<>();
+    for (Map.Entry<Strata, Table> panel : tables.entrySet()) {
+      Table table = panel.getValue();
+      List<Integer> xIndexes = nonEmptyX(table);
+      List<Integer> yIndexes = nonEmptyGroups(table);
+      List<String> yLabels = yIndexes.stream().map(table.getGroupValues()::get).toList();
+      List<String> xLabels = new ArrayList<>();
+      List<List<String>> yLabelsByX = new ArrayList<>();
+      List<List<Number>> values = new ArrayList<>();
+      for (int x : xIndexes) {
+        xLabels.add(table.getXValues().get(x));
+        yLabelsByX.add(yLabels);
+        values.add(yIndexes.stream().<Number>map(y -> table.getCount(x, y)).toList());
+      }
+      MosaicData panelData = new MosaicDataImpl();
+      if (!facetVariables.isEmpty()) {
+        panelData.setFacetVariableDetails(toFacetDetails(panel.getKey(), facetVariables));
+      }
+      panelData.setXLabel(xLabels);
+      panelData.setYLabel(yLabelsByX);
+      panelData.setValue(values);
+      data.add(panelData);
+    }
+    return data;
+  }
+
+  /**
+   * @return number of plotted rows in each panel
+   */
+  public static List<SampleSizeTable> toMosaicSampleSizeTable(Map<Strata, Table> tables, List<VariableSpec> facetVariables) {
+    List<SampleSizeTable> sampleSizes = new ArrayList<>();
+    for (Map.Entry<Strata, Table> panel : tables.entrySet()) {
+      SampleSizeTable row = new SampleSizeTableImpl();
+      if (!facetVariables.isEmpty()) {
+        row.setFacetVariableDetails(toFacetDetails(panel.getKey(), facetVariables));
+      }
+      row.setSize(List.<Number>of(panel.getValue().getTotal()));
+      sampleSizes.add(row);
+    }
+    return sampleSizes;
+  }
+
+  /**
+   * @return chi-squared test of each panel whose table has at least two rows and columns with counts
+   */
+  public static List<ContTableStatsTable> toContTableStatsTable(Map<Strata, Table> tables, List<VariableSpec> facetVariables) {
+    List<ContTableStatsTable> stats = new ArrayList<>();
+    for (Map.Entry<Strata, Table> panel : tables.entrySet()) {
+      ChiSquared chiSquared = ContingencyStatistics.chiSquared(panel.getValue().getCounts());
+      if (Double.isNaN(chiSquared.getStatistic())) {
+        continue;
+      }
+      ContTableStatsTable row = new ContTableStatsTableImpl();
+      if (!facetVariables.isEmpty()) {
+        row.setFacetVariableDetails(toFacetDetails(panel.getKey(), facetVariables));
+      }
+      row.setChisq(List.<Number>of(chiSquared.getStatistic()));
+      row.setDegreesFreedom(List.<Number>of(chiSquared.getDegreesOfFreedom()));
+      row.setPvalue(List.<Number>of(chiSquared.getPValue()));
+      stats.add(row);
+    }
+    return stats;
+  }
+
+  /**
+   * Computes the chi-squared test of each panel and, if requested and the panel's table is 2x2, Fisher's
+   * exact test, odds ratio and relative risk.  For the 2x2 statistics, exposure is the x reference value and
+   * being a case is the y reference value; each defaults to the first value in reporting order.  Statistics
+   * that cannot be estimated (e.g. odds ratios of tables with an empty cell) are left out.  The proportions
+   * plot.data also gives for 2x2 tables (prevalence, sensitivity, specificity and predictive values) are not
+   * computed, so TwoByTwoPlugin leaves its plots to plot.data.
+   *
+   * @param xReferenceValue x value taken as exposure, or null
+   * @param yReferenceValue y value taken as being a case, or null
+   * @param twoByTwoStatistics whether to compute the 2x2 statistics, or only the chi-squared test
+   */
+  public static List<TwoByTwoStatsTable> toTwoByTwoStatsTable(Map<Strata, Table> tables, List<VariableSpec> facetVariables,
+                                                              String xReferenceValue, String yReferenceValue,
+                                                              boolean twoByTwoStatistics) {
+    List<TwoByTwoStatsTable> stats = new ArrayList<>();
+    for (Map.Entry<Strata, Table> panel : tables.entrySet()) {
+      Table table = panel.getValue();
+      ChiSquared chiSquared = ContingencyStatistics.chiSquared(table.getCounts());
+      if (Double.isNaN(chiSquared.getStatistic())) {
+        continue;
+      }
+      TwoByTwoStatsTable row = new TwoByTwoStatsTableImpl();
+      if (!facetVariables.isEmpty()) {
+        row.setFacetVariableDetails(toFacetDetails(panel.getKey(), facetVariables));
+      }
+      row.setChisq(toStatistic(chiSquared.getStatistic(), chiSquared.getPValue()));
+
+      List<Integer> xIndexes = nonEmptyX(table);
+      List<Integer> yIndexes = nonEmptyGroups(table);
+      if (twoByTwoStatistics && xIndexes.size() == 2 && yIndexes.size() == 2) {
+        int exposed = referenceFirst(xIndexes, table.getXValues(), xReferenceValue);
+        int unexposed = xIndexes.get(0) == exposed ? xIndexes.get(1) : xIndexes.get(0);
+        int isCase = referenceFirst(yIndexes, table.getGroupValues(), yReferenceValue);
+        int notCase = yIndexes.get(0) == isCase ? yIndexes.get(1) : yIndexes.get(0);
+        long a = table.getCount(exposed, isCase);
+        long b = table.getCount(unexposed, isCase);
+        long c = table.getCount(exposed, notCase);
+        long d = table.getCount(unexposed, notCase);
+        Estimate fisher = ContingencyStatistics.fisher(a, b, c, d);
+        row.setFisher(toStatistic(fisher));
+        row.setOddsratio(toStatistic(ContingencyStatistics.oddsRatio(a, b, c, d)));
+        row.setRelativerisk(toStatistic(ContingencyStatistics.relativeRisk(a, b, c, d)));
+      }
+      stats.add(row);
+    }
+    return stats;
+  }
+
+  /**
+   * @param groupVariable overlay or y-axis variable, or null
+   * @return number of rows with a value for each plotted variable
+   */
+  public static List<VariableCompleteCases> toCompleteCasesTable(CategoricalCounts counts, VariableSpec xVariable,
+                                                                 VariableSpec groupVariable, List<VariableSpec> facetVariables) {
+    List<VariableCompleteCases> table = new ArrayList<>();
+    table.add(toCompleteCases(xVariable, counts.getNonMissingX()));
+    if (groupVariable != null) {
+      table.add(toCompleteCases(groupVariable, counts.getNonMissingGroup()));
+    }
+    for (int i = 0; i < facetVariables.size(); i++) {
+      table.add(toCompleteCases(facetVariables.get(i), counts.getNonMissingPanel(i)));
+    }
+    return table;
+  }
+
+  private static List<Integer> nonEmptyX(Table table) {
+    List<Integer> indexes = new ArrayList<>();
+    for (int x = 0; x < table.getXValues().size(); x++) {
+      for (int y = 0; y < table.getGroupValues().size(); y++) {
+        if (table.getCount(x, y) > 0) {
+          indexes.add(x);
+          break;
+        }
+      }
+    }
+    return indexes;
+  }
+
+  private static List<Integer> nonEmptyGroups(Table table) {
+    List<Integer> indexes = new ArrayList<>();
+    for (int y = 0; y < table.getGroupValues().size(); y++) {
+      if (table.getGroupTotal(y) > 0) {
+        indexes.add(y);
+      }
+    }
+    return indexes;
+  }
+
+  // index of the reference value among the passed indexes, or the first index if it is not among them
+  private static int referenceFirst(List<Integer> indexes, List<String> values, String referenceValue) {
+    return indexes.stream()
+        .filter(index -> values.get(index).equals(referenceValue))
+        .findFirst()
+        .orElse(indexes.get(0));
+  }
+
+  private static Statistic toStatistic(double value, double pValue) {
+    if (!Double.isFinite(value) || Double.isNaN(pValue)) {
+      return null;
+    }
+    Statistic statistic = new StatisticImpl();
+    statistic.setValue(value);
+    statistic.setPvalue(toPValue(pValue));
+    return statistic;
+  }
+
+  // as plot.data reports them: to two significant digits, or "<0.0001"
+  private static String toPValue(double pValue) {
+    return pValue < P_VALUE_FLOOR ? BELOW_P_VALUE_FLOOR : RCompat.toCharacter(RCompat.signif(pValue, 2));
+  }
+
+  private static Statistic toStatistic(Estimate estimate) {
+    Statistic statistic = toStatistic(estimate.getValue(), estimate.getPValue());
+    if (statistic != null && Double.isFinite(estimate.getLower()) && Double.isFinite(estimate.getUpper())) {
+      statistic.setConfidenceInterval(RCompat.toCharacter(estimate.getLower()) + " - " + RCompat.toCharacter(estimate.getUpper()));
+      statistic.setConfidenceLevel(CONFIDENCE_LEVEL);
+    }
+    return statistic;
+  }
+
+  private static VariableCompleteCases toCompleteCases(VariableSpec variable, long completeCases) {
+    VariableCompleteCases row = new VariableCompleteCasesImpl();
+    row.setVariableDetails(variable);
+    row.setCompleteCases(completeCases);
+    return row;
+  }
+
+  private static List<StrataVariableDetails> toFacetDetails(Strata panel, List<VariableSpec> facetVariables) {
+    List<StrataVariableDetails> details = new ArrayList<>();
+    for (int i = 0; i < facetVariables.size(); i++) {
+      details.add(toStrataDetails(facetVariables.get(i), panel.get(i)));
+    }
+    return details;
+  }
+
+  private static StrataVariableDetails toStrataDetails(VariableSpec variable, String value) {
+    StrataVariableDetails details = new StrataVariableDetailsImpl();
+    details.setEntityId(variable.getEntityId());
+    details.setVariableId(variable.getVariableId());
+    details.setValue(value);
+    return details;
+  }
+}
@@ -0,0 +1,193 @@
+package org.veupathdb.service.eda.ds.nativeplot;
+
+import org.gusdb.fgputil.DelimitedDataParser;
+import org.veupathdb.service.eda.ds.nativeplot.NumericHistogram.Bin;
+import org.veupathdb.service.eda.ds.nativeplot.NumericHistogram.BinSpecification;
+import org.veupathdb.service.eda.ds.nativeplot.NumericHistogram.Result;
+import org.veupathdb.service.eda.ds.nativeplot.NumericHistogram.Series;
+import org.veupathdb.service.eda.ds.nativeplot.NumericHistogram.Summary;
+import org.veupathdb.service.eda.ds.nativeplot.NumericHistogram.ValueType;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularStreamScanner;
+import org.veupathdb.service.eda.generated.model.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import static org.gusdb.fgputil.FormatUtil.TAB;
+
+/**
+ * Computes histograms of plugin data streams with a NumericHistogram and builds responses from them in the
+ * shape plot.data::histogram gives its own.
+ */
+public class NativeHistograms {
+
+  /**
+   * Histograms of dates, and those whose bin width plot.data must choose, are left to plot.data.
+   *
+   * @return whether a histogram of an x variable of the passed type, binned as passed, can be computed natively
+   */
+  public static boolean isSupported(String xVarType, BinSpec binSpec) {
+    return (xVarType.equals(APIVariableType.NUMBER.toString()) || xVarType.equals(APIVariableType.INTEGER.toString()))
+        && binSpec.getValue() != null;
+  }
+
+  /**
+   * Reads a tabular data stream (with a header) and bins its x values.
+   *
+   * @param dataStream tabular data, including the x and stratifying variables
+   * @param columnNames finds the column name of a variable
+   * @param xVariable x-axis variable
+   * @param xVarType type of the x-axis variable
+   * @param strataVariables stratifying variables (overlay, then facets); may be empty
+   * @param strataRecoders maps the raw values of each stratifying variable to those plotted (see NumericHistogram)
+   * @param binSpec bin width or number of bins; must have a value
+   * @param viewport range of x values to plot, or null for the range of the data
+   * @param valueSpec whether to report counts or proportions
+   */
+  public static Result compute(InputStream dataStream, Function<VariableSpec, String> columnNames,
+                               VariableSpec xVariable, String xVarType,
+                               List<VariableSpec> strataVariables, List<UnaryOperator<String>> strataRecoders,
+                               BinSpec binSpec, NumericViewport viewport, ValueSpec valueSpec) throws IOException {
+    TabularStreamScanner scanner = new TabularStreamScanner(dataStream);
+    DelimitedDataParser parser = new DelimitedDataParser(scanner.readLine(), TAB, true);
+    Function<VariableSpec, Integer> indexOf = var -> parser.indexOfColumn(columnNames.apply(var)).orElseThrow();
+    NumericHistogram histogram = new NumericHistogram(indexOf.apply(xVariable),
+        strataVariables.stream().mapToInt(indexOf::apply).toArray(), strataRecoders);
+    histogram.readAll(scanner);
+
+    boolean isNumBins = binSpec.getType() != null && "numBins".equals(binSpec.getType().getValue());
+    BinSpecification bins = isNumBins
+        ? BinSpecification.ofCount(binSpec.getValue().intValue())
+        : BinSpecification.ofWidth(binSpec.getValue().doubleValue());
+    return histogram.compute(
+        viewport == null ? null : Double.valueOf(viewport.getXMin()),
+        viewport == null ? null : Double.valueOf(viewport.getXMax()),
+        bins,
+        "proportion".equals(valueSpec.getValue()) ? ValueType.PROPORTION : ValueType.COUNT,
+        xVarType.equals(APIVariableType.INTEGER.toString()));
+  }
+
+  /**
+   * @param result binned data
+   * @param overlayVariable overlay variable, or null; if present, its values are the first of each strata
+   * @param facetVariables facet variables, whose values follow any overlay value in each strata
+   */
+  public static List<HistogramData> toHistogramData(Result result, VariableSpec overlayVariable, List<VariableSpec> facetVariables) {
+    List<HistogramData> data = new ArrayList<>();
+    for (Series series : result.getSeries()) {
+      HistogramData seriesData = new HistogramDataImpl();
+      setStrataDetails(series.getStrata(), overlayVariable, facetVariables,
+          seriesData::setOverlayVariableDetails, seriesData::setFacetVariableDetails);
+      List<Number> values = new ArrayList<>();
+      List<String> binStarts = new ArrayList<>();
+      List<String> binEnds = new ArrayList<>();
+      List<String> binLabels = new ArrayList<>();
+      for (Bin bin : series.getBins()) {
+        values.add(bin.getValue());
+        binStarts.add(RCompat.toCharacter(bin.getStart()));
+        binEnds.add(RCompat.toCharacter(bin.getEnd()));
+        binLabels.add(bin.getLabel());
+      }
+      seriesData.setValue(values);
+      seriesData.setBinStart(binStarts);
+      seriesData.setBinEnd(binEnds);
+      seriesData.setBinLabel(binLabels);
+      data.add(seriesData);
+    }
+    return data;
+  }
+
+  public static HistogramConfig toHistogramConfig(Result result, BinSpec binSpec, List<VariableMapping> variables) {
+    HistogramConfig config = new HistogramConfigImpl();
+    config.setCompleteCasesAllVars(result.getCompleteCasesAllVars());
+    config.setCompleteCasesAxesVars(result.getCompleteCasesAxesVars());
+    config.setVariables(variables);
+
+    BinSlider binSlider = new BinSliderImpl();
+    binSlider.setMin(result.getBinSliderMin());
+    binSlider.setMax(result.getBinSliderMax());
+    binSlider.setStep(result.getBinSliderStep());
+    config.setBinSlider(binSlider);
+    config.setBinSpec(binSpec);
+
+    Summary summary = result.getSummary();
+    if (summary != null) {
+      HistogramSummary summaryStats = new HistogramSummaryImpl();
+      summaryStats.setMin(RCompat.toCharacter(summary.getMin()));
+      summaryStats.setQ1(RCompat.toCharacter(summary.getQ1()));
+      summaryStats.setMedian(RCompat.toCharacter(summary.getMedian()));
+      summaryStats.setMean(RCompat.toCharacter(summary.getMean()));
+      summaryStats.setQ3(RCompat.toCharacter(summary.getQ3()));
+      summaryStats.setMax(RCompat.toCharacter(summary.getMax()));
+      config.setSummary(summaryStats);
+    }
+
+    NumericViewport viewport = new NumericViewportImpl();
+    viewport.setXMin(RCompat.toCharacter(result.getViewportMin()));
+    viewport.setXMax(RCompat.toCharacter(result.getViewportMax()));
+    config.setViewport(viewport);
+    return config;
+  }
+
+  public static List<SampleSizeTable> toSampleSizeTable(Result result, VariableSpec overlayVariable, List<VariableSpec> facetVariables) {
+    List<SampleSizeTable> table = new ArrayList<>();
+    for (Map.Entry<Strata, Long> sampleSize : result.getSampleSizes().entrySet()) {
+      SampleSizeTable row = new SampleSizeTableImpl();
+      setStrataDetails(sampleSize.getKey(), overlayVariable, facetVariables,
+          row::setOverlayVariableDetails, row::setFacetVariableDetails);
+      row.setSize(List.<Number>of(sampleSize.getValue()));
+      table.add(row);
+    }
+    return table;
+  }
+
+  /**
+   * @param xVariable x-axis variable
+   * @param strataVariables stratifying variables, in the order their columns were passed to the NumericHistogram
+   */
+  public static List<VariableCompleteCases> toCompleteCasesTable(Result result, VariableSpec xVariable, List<VariableSpec> strataVariables) {
+    List<VariableCompleteCases> table = new ArrayList<>();
+    table.add(toCompleteCases(xVariable, result.getNonMissingX()));
+    for (int i = 0; i < strataVariables.size(); i++) {
+      table.add(toCompleteCases(strataVariables.get(i), result.getNonMissingStrata(i)));
+    }
+    return table;
+  }
+
+  private static VariableCompleteCases toCompleteCases(VariableSpec variable, long completeCases) {
+    VariableCompleteCases row = new VariableCompleteCasesImpl();
+    row.setVariableDetails(variable);
+    row.setCompleteCases(completeCases);
+    return row;
+  }
+
+  private static void setStrataDetails(Strata strata, VariableSpec overlayVariable, List<VariableSpec> facetVariables,
+                                       Consumer<StrataVariableDetails> overlaySetter,
+                                       Consumer<List<StrataVariableDetails>> facetSetter) {
+    int index = 0;
+    if (overlayVariable != null) {
+      overlaySetter.accept(toStrataDetails(overlayVariable, strata.get(index++)));
+    }
+    if (!facetVariables.isEmpty()) {
+      List<StrataVariableDetails> facetDetails = new ArrayList<>();
+      for (VariableSpec facetVariable : facetVariables) {
+        facetDetails.add(toStrataDetails(facetVariable, strata.get(index++)));
+      }
+      facetSetter.accept(facetDetails);
+    }
+  }
+
+  private static StrataVariableDetails toStrataDetails(VariableSpec variable, String value) {
+    StrataVariableDetails details = new StrataVariableDetailsImpl();
+    details.setEntityId(variable.getEntityId());
+    details.setVariableId(variable.getVariableId());
+    details.setValue(value);
+    return details;
+  }
+}
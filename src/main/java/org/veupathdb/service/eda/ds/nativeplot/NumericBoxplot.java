@@ -0,0 +1,381 @@
+package org.veupathdb.service.eda.ds.nativeplot;
+
+import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.KllQuantileSketch;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularRow;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularStreamScanner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Streaming Java equivalent of plot.data::box: five-number summaries, fences, outliers and means of a numeric
+ * y variable for each x value, optionally stratified by overlay and facet variables.  Rows are read once and
+ * each group's y values are kept in a primitive buffer.
+ *
+ * Statistics follow plot.data: quartiles are R's default (type 7) quantiles, fences are the most extreme
+ * values within 1.5 times the interquartile range of the quartiles, and outliers are the values beyond the
+ * fences.  (boxplot.stats() instead measures from Tukey's hinges, so may find fewer outliers.)  Rows missing
+ * any plotted variable are left out, as plot.data does when missingness is not shown.  The reference fixtures
+ * under test resources /nativeplot pin these; their expected responses were derived by hand from plot.data's
+ * source until recorded from it (see record-fixtures.R).
+ *
+ * Groups with more values than the configured maximum are moved to a quantile sketch unless all values are
+ * to be reported.  Their quartiles are then approximate, and only the most extreme values at either end are
+ * kept to report as outliers.
+ */
+public class NumericBoxplot {
+
+  // rank error of the quartiles of groups too large to keep exactly
+  private static final double SKETCH_RANK_ERROR = 0.001;
+
+  // most extreme values kept at either end of groups too large to keep exactly
+  private static final int TAIL_CAPACITY = 1000;
+
+  private static final double FENCE_IQR_MULTIPLIER = 1.5;
+
+  /**
+   * Statistics of the y values of one x value in one strata.
+   */
+  public static class Box {
+
+    private final String label;
+    private final long count;
+    private final double q1;
+    private final double median;
+    private final double q3;
+    private final double lowerFence;
+    private final double upperFence;
+    private final double mean;
+    private final double[] outliers;
+    private final double[] rawData;
+
+    private Box(String label, long count, double q1, double median, double q3, double lowerFence,
+                double upperFence, double mean, double[] outliers, double[] rawData) {
+      this.label = label;
+      this.count = count;
+      this.q1 = q1;
+      this.median = median;
+      this.q3 = q3;
+      this.lowerFence = lowerFence;
+      this.upperFence = upperFence;
+      this.mean = mean;
+      this.outliers = outliers;
+      this.rawData = rawData;
+    }
+
+    public String getLabel() { return label; }
+    public long getCount() { return count; }
+    public double getQ1() { return q1; }
+    public double getMedian() { return median; }
+    public double getQ3() { return q3; }
+    public double getLowerFence() { return lowerFence; }
+    public double getUpperFence() { return upperFence; }
+    public double getMean() { return mean; }
+
+    /**
+     * @return values beyond the fences, in the order they were read
+     */
+    public double[] getOutliers() { return outliers; }
+
+    /**
+     * @return all values, in the order they were read, or null if they were not all kept
+     */
+    public double[] getRawData() { return rawData; }
+  }
+
+  /**
+   * Boxes of the rows in a single strata, one per x value.
+   */
+  public static class Series {
+
+    private final Strata strata;
+    private final List<Box> boxes;
+
+    private Series(Strata strata, List<Box> boxes) {
+      this.strata = strata;
+      this.boxes = boxes;
+    }
+
+    public Strata getStrata() { return strata; }
+    public List<Box> getBoxes() { return boxes; }
+  }
+
+  // y values of one x value in one strata
+  private static class Group {
+
+    private double[] values = new double[16];
+    private int size = 0;
+    private long count = 0;
+    private double sum = 0;
+
+    // set once the group outgrows the exact buffer; values then holds nothing
+    private KllQuantileSketch sketch;
+    private double[] lowTail;
+    private double[] highTail;
+    private int lowTailSize = 0;
+    private int highTailSize = 0;
+
+    void add(double value, int maxExactValues) {
+      count++;
+      sum += value;
+      if (sketch != null) {
+        addToSketch(value);
+        return;
+      }
+      if (size == values.length) {
+        if (maxExactValues > 0 && size >= maxExactValues) {
+          moveToSketch();
+          addToSketch(value);
+          return;
+        }
+        values = Arrays.copyOf(values, maxExactValues > 0 ? Math.min(size * 2, maxExactValues) : size * 2);
+      }
+      values[size++] = value;
+    }
+
+    private void moveToSketch() {
+      sketch = KllQuantileSketch.forRankError(SKETCH_RANK_ERROR);
+      lowTail = new double[TAIL_CAPACITY];
+      highTail = new double[TAIL_CAPACITY];
+      for (int i = 0; i < size; i++) {
+        addToSketch(values[i]);
+      }
+      values = null;
+      size = 0;
+    }
+
+    private void addToSketch(double value) {
+      sketch.add(value);
+      // low tail is kept in ascending order, high tail in descending order
+      lowTailSize = addToTail(lowTail, lowTailSize, value, true);
+      highTailSize = addToTail(highTail, highTailSize, value, false);
+    }
+
+    private static int addToTail(double[] tail, int tailSize, double value, boolean ascending) {
+      if (tailSize == tail.length) {
+        double last = tail[tailSize - 1];
+        if (ascending ? value >= last : value <= last) {
+          return tailSize;
+        }
+        tailSize--;
+      }
+      int position = tailSize;
+      while (position > 0 && (ascending ? tail[position - 1] > value : tail[position - 1] < value)) {
+        tail[position] = tail[position - 1];
+        position--;
+      }
+      tail[position] = value;
+      return tailSize + 1;
+    }
+
+    Box toBox(String label, boolean includeRawData) {
+      return sketch == null ? toExactBox(label, includeRawData) : toApproximateBox(label);
+    }
+
+    private Box toExactBox(String label, boolean includeRawData) {
+      double[] readOrder = Arrays.copyOf(values, size);
+      double[] sorted = readOrder.clone();
+      Arrays.sort(sorted);
+      double q1 = RCompat.quantile(sorted, 0.25);
+      double q3 = RCompat.quantile(sorted, 0.75);
+      double lowerBound = q1 - FENCE_IQR_MULTIPLIER * (q3 - q1);
+      double upperBound = q3 + FENCE_IQR_MULTIPLIER * (q3 - q1);
+      double lowerFence = sorted[size - 1];
+      double upperFence = sorted[0];
+      for (double value : sorted) {
+        if (value >= lowerBound && value <= upperBound) {
+          lowerFence = Math.min(lowerFence, value);
+          upperFence = Math.max(upperFence, value);
+        }
+      }
+      double[] outliers = Arrays.stream(readOrder).filter(value -> value < lowerBound || value > upperBound).toArray();
+      return new Box(label, count, q1, RCompat.quantile(sorted, 0.5), q3, lowerFence, upperFence,
+          sum / count, outliers, includeRawData ? readOrder : null);
+    }
+
+    private Box toApproximateBox(String label) {
+      double q1 = sketch.getQuantile(0.25);
+      double q3 = sketch.getQuantile(0.75);
+      double lowerBound = q1 - FENCE_IQR_MULTIPLIER * (q3 - q1);
+      double upperBound = q3 + FENCE_IQR_MULTIPLIER * (q3 - q1);
+      // if a whole tail lies beyond its bound, the fence is somewhere among the values not kept
+      double lowerFence = lowerBound;
+      List<Double> outliers = new ArrayList<>();
+      for (int i = 0; i < lowTailSize; i++) {
+        if (lowTail[i] < lowerBound) {
+          outliers.add(lowTail[i]);
+        }
+        else {
+          lowerFence = lowTail[i];
+          break;
+        }
+      }
+      double upperFence = upperBound;
+      for (int i = 0; i < highTailSize; i++) {
+        if (highTail[i] > upperBound) {
+          outliers.add(highTail[i]);
+        }
+        else {
+          upperFence = highTail[i];
+          break;
+        }
+      }
+      return new Box(label, count, q1, sketch.getQuantile(0.5), q3, lowerFence, upperFence, sum / count,
+          outliers.stream().mapToDouble(Double::doubleValue).toArray(), null);
+    }
+  }
+
+  private final int xColumn;
+  private final int yColumn;
+  private final int[] strataColumns;
+  private final List<UnaryOperator<String>> strataRecoders;
+  private final int maxExactValues;
+  private final boolean keepAllValues;
+  private final Long maxAxesCases;
+
+  private final Map<Strata, Map<String, Group>> groups = new HashMap<>();
+  private long completeCases = 0;
+  private long completeAxesCases = 0;
+  private final long[] nonMissingByColumn;
+
+  /**
+   * @param xColumn index of the x-axis column
+   * @param yColumn index of the (numeric) y-axis column
+   * @param strataColumns indexes of the stratifying columns (overlay, then facets); may be empty
+   * @param strataRecoders functions mapping each stratifying column's raw values to the values plotted (e.g.
+   * overlay bin labels), in the same order as the columns; a null result marks the value as missing
+   * @param maxExactValues number of values a group may hold before it is moved to a quantile sketch, or 0
+   * to keep all values of all groups
+   * @param keepAllValues whether all values are to be reported, so no group may be moved to a sketch
+   * @param maxAxesCases number of rows with both x and y values after which reading stops, or null
+   */
+  public NumericBoxplot(int xColumn, int yColumn, int[] strataColumns, List<UnaryOperator<String>> strataRecoders,
+                        int maxExactValues, boolean keepAllValues, Long maxAxesCases) {
+    if (strataRecoders.size() != strataColumns.length) {
+      throw new IllegalArgumentException("A recoder is required for each strata column.");
+    }
+    this.xColumn = xColumn;
+    this.yColumn = yColumn;
+    this.strataColumns = strataColumns;
+    this.strataRecoders = strataRecoders;
+    this.maxExactValues = keepAllValues ? 0 : maxExactValues;
+    this.keepAllValues = keepAllValues;
+    this.maxAxesCases = maxAxesCases;
+    this.nonMissingByColumn = new long[strataColumns.length + 2];
+  }
+
+  /**
+   * Reads all remaining rows of the passed scanner (whose header must already have been read), or until more
+   * rows with x and y values than allowed have been read.
+   */
+  public void readAll(TabularStreamScanner scanner) throws IOException {
+    while (!exceedsMaxAxesCases() && scanner.next()) {
+      add(scanner);
+    }
+  }
+
+  /**
+   * @return whether more rows with x and y values than allowed have been read
+   */
+  public boolean exceedsMaxAxesCases() {
+    return maxAxesCases != null && completeAxesCases > maxAxesCases;
+  }
+
+  public void add(TabularRow row) {
+    boolean axesComplete = true;
+    String x = null;
+    double y = 0;
+    if (row.isEmpty(xColumn)) {
+      axesComplete = false;
+    }
+    else {
+      nonMissingByColumn[0]++;
+      x = row.getString(xColumn);
+    }
+    if (row.isEmpty(yColumn)) {
+      axesComplete = false;
+    }
+    else {
+      nonMissingByColumn[1]++;
+      y = row.getDouble(yColumn);
+    }
+    boolean complete = axesComplete;
+    String[] strataValues = new String[strataColumns.length];
+    for (int i = 0; i < strataColumns.length; i++) {
+      if (row.isEmpty(strataColumns[i])) {
+        complete = false;
+        continue;
+      }
+      nonMissingByColumn[i + 2]++;
+      strataValues[i] = strataRecoders.get(i).apply(row.getString(strataColumns[i]));
+      if (strataValues[i] == null) {
+        complete = false;
+      }
+    }
+    if (axesComplete) {
+      completeAxesCases++;
+    }
+    if (complete) {
+      completeCases++;
+      groups.computeIfAbsent(new Strata(strataValues), strata -> new HashMap<>())
+          .computeIfAbsent(x, value -> new Group())
+          .add(y, maxExactValues);
+    }
+  }
+
+  /**
+   * Computes the boxes of the rows read so far.
+   *
+   * @param xVocabulary x values in the order they are reported; values not in it follow, in string order
+   * @return non-empty series in strata order
+   */
+  public List<Series> compute(List<String> xVocabulary) {
+    List<Series> series = new ArrayList<>();
+    for (Map.Entry<Strata, Map<String, Group>> strataGroups : new TreeMap<>(groups).entrySet()) {
+      List<Box> boxes = new ArrayList<>();
+      for (String x : orderValues(strataGroups.getValue().keySet(), xVocabulary)) {
+        boxes.add(strataGroups.getValue().get(x).toBox(x, keepAllValues));
+      }
+      series.add(new Series(strataGroups.getKey(), boxes));
+    }
+    return series;
+  }
+
+  private static List<String> orderValues(Iterable<String> values, List<String> vocabulary) {
+    List<String> ordered = new ArrayList<>();
+    List<String> others = new ArrayList<>();
+    for (String value : values) {
+      (vocabulary != null && vocabulary.contains(value) ? ordered : others).add(value);
+    }
+    if (vocabulary != null) {
+      ordered.sort((a, b) -> Integer.compare(vocabulary.indexOf(a), vocabulary.indexOf(b)));
+    }
+    others.sort(null);
+    ordered.addAll(others);
+    return ordered;
+  }
+
+  public long getCompleteCasesAllVars() { return completeCases; }
+  public long getCompleteCasesAxesVars() { return completeAxesCases; }
+
+  /**
+   * @return number of rows with a value for the x column
+   */
+  public long getNonMissingX() { return nonMissingByColumn[0]; }
+
+  /**
+   * @return number of rows with a value for the y column
+   */
+  public long getNonMissingY() { return nonMissingByColumn[1]; }
+
+  /**
+   * @return number of rows with a value for the strata column at the passed index
+   */
+  public long getNonMissingStrata(int index) { return nonMissingByColumn[index + 2]; }
+}
@@ -0,0 +1,392 @@
+package org.veupathdb.service.eda.ds.nativeplot;
+
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularRow;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularStreamScanner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Streaming Java equivalent of plot.data::histogram for a numeric x-axis variable, optionally stratified by
+ * overlay and facet variables.  Rows are read once; only each complete row's x value and strata are kept, so
+ * the bin width can be derived from the data when a number of bins is requested.
+ *
+ * Binning follows plot.data: rows outside the viewport (by default the range of the data) are left out, bins
+ * are aligned to the viewport minimum and closed on the left, except the last, which also holds the viewport
+ * maximum.  Only non-empty bins are reported.  Rows missing any plotted variable are left out entirely, as
+ * plot.data does when missingness is not shown.
+ */
+public class NumericHistogram {
+
+  public enum ValueType { COUNT, PROPORTION }
+
+  /**
+   * How the x-axis is divided into bins: either a fixed width, or a number of bins spanning the range of the
+   * data within the viewport.
+   */
+  public static class BinSpecification {
+
+    private final double width;
+    private final int count;
+
+    private BinSpecification(double width, int count) {
+      this.width = width;
+      this.count = count;
+    }
+
+    public static BinSpecification ofWidth(double width) {
+      return new BinSpecification(width, 0);
+    }
+
+    public static BinSpecification ofCount(int count) {
+      return new BinSpecification(0, count);
+    }
+  }
+
+  public static class Bin {
+
+    private final double start;
+    private final double end;
+    private final String label;
+    private final double value;
+
+    private Bin(double start, double end, String label, double value) {
+      this.start = start;
+      this.end = end;
+      this.label = label;
+      this.value = value;
+    }
+
+    public double getStart() { return start; }
+    public double getEnd() { return end; }
+    public String getLabel() { return label; }
+    public double getValue() { return value; }
+  }
+
+  /**
+   * Bins of the rows in a single strata.
+   */
+  public static class Series {
+
+    private final Strata strata;
+    private final List<Bin> bins;
+
+    private Series(Strata strata, List<Bin> bins) {
+      this.strata = strata;
+      this.bins = bins;
+    }
+
+    public Strata getStrata() { return strata; }
+    public List<Bin> getBins() { return bins; }
+  }
+
+  /**
+   * Summary statistics of the plotted x values, as computed by R's summary().
+   */
+  public static class Summary {
+
+    private final double[] values; // min, q1, median, mean, q3, max
+
+    private Summary(double[] sortedValues) {
+      double sum = 0;
+      for (double value : sortedValues) {
+        sum += value;
+      }
+      values = new double[] {
+          sortedValues[0],
+          RCompat.quantile(sortedValues, 0.25),
+          RCompat.quantile(sortedValues, 0.5),
+          sum / sortedValues.length,
+          RCompat.quantile(sortedValues, 0.75),
+          sortedValues[sortedValues.length - 1]
+      };
+    }
+
+    public double getMin() { return values[0]; }
+    public double getQ1() { return values[1]; }
+    public double getMedian() { return values[2]; }
+    public double getMean() { return values[3]; }
+    public double getQ3() { return values[4]; }
+    public double getMax() { return values[5]; }
+  }
+
+  public static class Result {
+
+    private final List<Series> series;
+    private final Summary summary;
+    private final double viewportMin;
+    private final double viewportMax;
+    private final double binWidth;
+    private final double[] binSlider; // min, max, step
+    private final long completeCasesAllVars;
+    private final long completeCasesAxesVars;
+    private final Map<Strata, Long> sampleSizes;
+    private final long[] nonMissingByColumn;
+
+    private Result(List<Series> series, Summary summary, double viewportMin, double viewportMax, double binWidth,
+                   double[] binSlider, long completeCasesAllVars, long completeCasesAxesVars,
+                   Map<Strata, Long> sampleSizes, long[] nonMissingByColumn) {
+      this.series = series;
+      this.summary = summary;
+      this.viewportMin = viewportMin;
+      this.viewportMax = viewportMax;
+      this.binWidth = binWidth;
+      this.binSlider = binSlider;
+      this.completeCasesAllVars = completeCasesAllVars;
+      this.completeCasesAxesVars = completeCasesAxesVars;
+      this.sampleSizes = sampleSizes;
+      this.nonMissingByColumn = nonMissingByColumn;
+    }
+
+    /**
+     * @return non-empty series in strata order
+     */
+    public List<Series> getSeries() { return series; }
+
+    /**
+     * @return summary of the plotted x values, or null if there are none
+     */
+    public Summary getSummary() { return summary; }
+
+    public double getViewportMin() { return viewportMin; }
+    public double getViewportMax() { return viewportMax; }
+    public double getBinWidth() { return binWidth; }
+    public double getBinSliderMin() { return binSlider[0]; }
+    public double getBinSliderMax() { return binSlider[1]; }
+    public double getBinSliderStep() { return binSlider[2]; }
+    public long getCompleteCasesAllVars() { return completeCasesAllVars; }
+    public long getCompleteCasesAxesVars() { return completeCasesAxesVars; }
+
+    /**
+     * @return number of plotted rows in each strata, in strata order
+     */
+    public Map<Strata, Long> getSampleSizes() { return sampleSizes; }
+
+    /**
+     * @return number of rows with a value for the x column
+     */
+    public long getNonMissingX() { return nonMissingByColumn[0]; }
+
+    /**
+     * @return number of rows with a value for the strata column at the passed index
+     */
+    public long getNonMissingStrata(int index) { return nonMissingByColumn[index + 1]; }
+  }
+
+  private final int xColumn;
+  private final int[] strataColumns;
+  private final List<UnaryOperator<String>> strataRecoders;
+
+  // complete rows read so far
+  private double[] xValues = new double[1024];
+  private int[] rowStrataIds = new int[1024];
+  private int numRows = 0;
+  private final Map<Strata, Integer> strataIds = new HashMap<>();
+  private final List<Strata> strataById = new ArrayList<>();
+
+  private final long[] nonMissingByColumn;
+
+  /**
+   * @param xColumn index of the x-axis column
+   * @param strataColumns indexes of the stratifying columns (overlay, then facets); may be empty
+   * @param strataRecoders functions mapping each stratifying column's raw values to the values plotted (e.g.
+   * overlay bin labels), in the same order as the columns; a null result marks the value as missing
+   */
+  public NumericHistogram(int xColumn, int[] strataColumns, List<UnaryOperator<String>> strataRecoders) {
+    if (strataRecoders.size() != strataColumns.length) {
+      throw new IllegalArgumentException("A recoder is required for each strata column.");
+    }
+    this.xColumn = xColumn;
+    this.strataColumns = strataColumns;
+    this.strataRecoders = strataRecoders;
+    this.nonMissingByColumn = new long[strataColumns.length + 1];
+  }
+
+  /**
+   * Reads all remaining rows of the passed scanner (whose header must already have been read).
+   */
+  public void readAll(TabularStreamScanner scanner) throws IOException {
+    while (scanner.next()) {
+      add(scanner);
+    }
+  }
+
+  public void add(TabularRow row) {
+    boolean complete = true;
+    double x = 0;
+    if (row.isEmpty(xColumn)) {
+      complete = false;
+    }
+    else {
+      nonMissingByColumn[0]++;
+      x = row.getDouble(xColumn);
+    }
+    String[] strataValues = new String[strataColumns.length];
+    for (int i = 0; i < strataColumns.length; i++) {
+      if (row.isEmpty(strataColumns[i])) {
+        complete = false;
+        continue;
+      }
+      nonMissingByColumn[i + 1]++;
+      strataValues[i] = strataRecoders.get(i).apply(row.getString(strataColumns[i]));
+      if (strataValues[i] == null) {
+        complete = false;
+      }
+    }
+    if (complete) {
+      addComplete(x, new Strata(strataValues));
+    }
+  }
+
+  private void addComplete(double x, Strata strata) {
+    if (numRows == xValues.length) {
+      xValues = Arrays.copyOf(xValues, numRows * 2);
+      rowStrataIds = Arrays.copyOf(rowStrataIds, numRows * 2);
+    }
+    Integer strataId = strataIds.get(strata);
+    if (strataId == null) {
+      strataId = strataById.size();
+      strataIds.put(strata, strataId);
+      strataById.add(strata);
+    }
+    xValues[numRows] = x;
+    rowStrataIds[numRows] = strataId;
+    numRows++;
+  }
+
+  /**
+   * Bins the rows read so far.
+   *
+   * @param viewportMin lower bound of the plotted x range, or null for the minimum of the data
+   * @param viewportMax upper bound of the plotted x range, or null for the maximum of the data
+   * @param binSpecification bin width or number of bins
+   * @param valueType whether bins hold counts or proportions of their series' rows in the viewport
+   * @param integerValued whether the x variable is an integer, so bin slider values are whole numbers
+   */
+  public Result compute(Double viewportMin, Double viewportMax, BinSpecification binSpecification,
+                        ValueType valueType, boolean integerValued) {
+    double[] sortedX = Arrays.copyOf(xValues, numRows);
+    Arrays.sort(sortedX);
+    Summary summary = numRows == 0 ? null : new Summary(sortedX);
+    double vMin = viewportMin != null ? viewportMin : numRows == 0 ? 0 : sortedX[0];
+    double vMax = viewportMax != null ? viewportMax : numRows == 0 ? 0 : sortedX[numRows - 1];
+
+    // range of the data within the viewport, from which bin widths and the bin slider are derived
+    int firstInViewport = lowerBound(sortedX, vMin);
+    int endInViewport = upperBound(sortedX, vMax);
+    double dataRange = endInViewport > firstInViewport ? sortedX[endInViewport - 1] - sortedX[firstInViewport] : 0;
+
+    double binWidth = binSpecification.count > 0 ? dataRange / binSpecification.count : binSpecification.width;
+    if (!(binWidth > 0)) {
+      // no spread to divide; a single bin spans the viewport
+      binWidth = vMax > vMin ? vMax - vMin : 1;
+    }
+    int numBins = Math.max(1, (int)Math.ceil((vMax - vMin) / binWidth));
+
+    // count rows by strata and bin
+    long[][] counts = new long[strataById.size()][];
+    long[] seriesTotals = new long[strataById.size()];
+    for (int row = 0; row < numRows; row++) {
+      double x = xValues[row];
+      if (x < vMin || x > vMax) {
+        continue;
+      }
+      int bin = Math.min(numBins - 1, (int)Math.floor((x - vMin) / binWidth));
+      int strataId = rowStrataIds[row];
+      if (counts[strataId] == null) {
+        counts[strataId] = new long[numBins];
+      }
+      counts[strataId][bin]++;
+      seriesTotals[strataId]++;
+    }
+
+    List<Series> series = new ArrayList<>();
+    for (Map.Entry<Strata, Integer> entry : new TreeMap<>(strataIds).entrySet()) {
+      long[] strataCounts = counts[entry.getValue()];
+      if (strataCounts == null) {
+        continue;
+      }
+      List<Bin> bins = new ArrayList<>();
+      for (int bin = 0; bin < numBins; bin++) {
+        if (strataCounts[bin] > 0) {
+          double start = vMin + bin * binWidth;
+          double end = start + binWidth;
+          double value = valueType == ValueType.COUNT
+              ? strataCounts[bin]
+              : (double)strataCounts[bin] / seriesTotals[entry.getValue()];
+          bins.add(new Bin(start, end, binLabel(start, end, bin == numBins - 1), value));
+        }
+      }
+      series.add(new Series(entry.getKey(), Collections.unmodifiableList(bins)));
+    }
+
+    Map<Strata, Long> sampleSizes = new TreeMap<>();
+    for (int row = 0; row < numRows; row++) {
+      sampleSizes.merge(strataById.get(rowStrataIds[row]), 1L, Long::sum);
+    }
+
+    return new Result(series, summary, vMin, vMax, binWidth,
+        binSlider(sortedX, firstInViewport, endInViewport, dataRange, integerValued),
+        numRows, nonMissingByColumn[0], sampleSizes, nonMissingByColumn.clone());
+  }
+
+  private static String binLabel(double start, double end, boolean isLast) {
+    return "[" + RCompat.toCharacter(start) + " - " + RCompat.toCharacter(end) + (isLast ? "]" : ")");
+  }
+
+  // bin widths offered by the client's slider: from a thousandth to half of the data range, rounded to the
+  // average number of digits in the data
+  private static double[] binSlider(double[] sortedX, int from, int to, double dataRange, boolean integerValued) {
+    if (integerValued) {
+      double max = Math.max(1, Math.ceil(dataRange / 2));
+      return new double[] { 1, max, 1 };
+    }
+    long digits = 0;
+    for (int i = from; i < to; i++) {
+      digits += RCompat.toCharacter(sortedX[i]).chars().filter(Character::isDigit).count();
+    }
+    int avgDigits = to > from ? (int)(digits / (to - from)) : 0;
+    double min = RCompat.round(dataRange / 1000, avgDigits);
+    double max = RCompat.round(dataRange / 2, avgDigits);
+    return new double[] { min, max, min };
+  }
+
+  // index of the first value not less than the passed one
+  private static int lowerBound(double[] sorted, double value) {
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sorted[mid] < value) {
+        low = mid + 1;
+      }
+      else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  // index of the first value greater than the passed one
+  private static int upperBound(double[] sorted, double value) {
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sorted[mid] <= value) {
+        low = mid + 1;
+      }
+      else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
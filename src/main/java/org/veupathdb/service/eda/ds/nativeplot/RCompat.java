@@ -0,0 +1,161 @@
+package org.veupathdb.service.eda.ds.nativeplot;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Java equivalents of the few R functions whose exact output the native plot engines must reproduce, so that
+ * their responses match those plot.data produces.
+ */
+public class RCompat {
+
+  private static final MathContext FIFTEEN_DIGITS = new MathContext(15);
+
+  // uniroot()'s default tolerance and iteration limit
+  private static final double UNIROOT_TOLERANCE = Math.pow(Math.ulp(1.0), 0.25);
+  private static final int UNIROOT_MAX_ITERATIONS = 1000;
+
+  /**
+   * Formats a number the way R's as.character() does: at most 15 significant digits without trailing zeros,
+   * in fixed notation unless scientific notation is shorter (e.g. "0.3", "12", "1e+05", "1e-04", "0.00012").
+   */
+  public static String toCharacter(double value) {
+    if (Double.isNaN(value)) {
+      return "NaN";
+    }
+    if (Double.isInfinite(value)) {
+      return value > 0 ? "Inf" : "-Inf";
+    }
+    if (value == 0) {
+      return "0";
+    }
+    BigDecimal rounded = new BigDecimal(value).round(FIFTEEN_DIGITS).stripTrailingZeros();
+    int exponent = rounded.precision() - rounded.scale() - 1;
+    String fixed = rounded.toPlainString();
+    String scientific = rounded.movePointLeft(exponent).toPlainString() +
+        "e" + (exponent < 0 ? "-" : "+") + (Math.abs(exponent) < 10 ? "0" : "") + Math.abs(exponent);
+    return fixed.length() <= scientific.length() ? fixed : scientific;
+  }
+
+  /**
+   * Computes a quantile the way R's quantile() does by default (type 7): linear interpolation between the
+   * closest ranks, at position 1 + (n - 1) * p.
+   *
+   * @param sortedValues values in ascending order; must not be empty
+   * @param probability probability in [0, 1]
+   */
+  public static double quantile(double[] sortedValues, double probability) {
+    double position = (sortedValues.length - 1) * probability;
+    int lower = (int)Math.floor(position);
+    int upper = Math.min(lower + 1, sortedValues.length - 1);
+    double fraction = position - lower;
+    return sortedValues[lower] + fraction * (sortedValues[upper] - sortedValues[lower]);
+  }
+
+  /**
+   * Rounds the way R's round() does for non-negative digit counts (halves to even, as IEC 60559 requires).
+   */
+  public static double round(double value, int digits) {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      return value;
+    }
+    return new BigDecimal(value).setScale(digits, RoundingMode.HALF_EVEN).doubleValue();
+  }
+
+  /**
+   * Rounds to significant digits the way R's signif() does (halves to even).
+   */
+  public static double signif(double value, int digits) {
+    if (Double.isNaN(value) || Double.isInfinite(value) || value == 0) {
+      return value;
+    }
+    return new BigDecimal(value).round(new MathContext(digits, RoundingMode.HALF_EVEN)).doubleValue();
+  }
+
+  /**
+   * Finds a root of a function the way R's uniroot() does with its default tolerance: by Brent's method, as
+   * R's zeroin.  Results that R only finds to within its (loose) tolerance are therefore reproduced exactly,
+   * not merely approximated.
+   *
+   * @param function function whose values at the bounds have opposite signs
+   * @param lower lower bound of the interval searched
+   * @param upper upper bound of the interval searched
+   */
+  public static double uniroot(DoubleUnaryOperator function, double lower, double upper) {
+    double a = lower;
+    double b = upper;
+    double fa = function.applyAsDouble(a);
+    double fb = function.applyAsDouble(b);
+    double c = a;
+    double fc = fa;
+    if (fa == 0) {
+      return a;
+    }
+    if (fb == 0) {
+      return b;
+    }
+    for (int iteration = 0; iteration <= UNIROOT_MAX_ITERATIONS; iteration++) {
+      double previousStep = b - a;
+      if (Math.abs(fc) < Math.abs(fb)) {
+        // make b the best approximation
+        a = b;
+        b = c;
+        c = a;
+        fa = fb;
+        fb = fc;
+        fc = fa;
+      }
+      double tolerance = 2 * Math.ulp(1.0) * Math.abs(b) + UNIROOT_TOLERANCE / 2;
+      double step = (c - b) / 2;
+      if (Math.abs(step) <= tolerance || fb == 0) {
+        return b;
+      }
+
+      // try interpolating if the previous step was large enough and in the right direction
+      if (Math.abs(previousStep) >= tolerance && Math.abs(fa) > Math.abs(fb)) {
+        double p;
+        double q;
+        double cb = c - b;
+        if (a == c) {
+          // linear interpolation
+          double t1 = fb / fa;
+          p = cb * t1;
+          q = 1 - t1;
+        }
+        else {
+          // inverse quadratic interpolation
+          double t1 = fb / fc;
+          double t2 = fb / fa;
+          q = fa / fc;
+          p = t2 * (cb * q * (q - t1) - (b - a) * (t1 - 1));
+          q = (q - 1) * (t1 - 1) * (t2 - 1);
+        }
+        if (p > 0) {
+          q = -q;
+        }
+        else {
+          p = -p;
+        }
+        if (p < (0.75 * cb * q - Math.abs(tolerance * q) / 2) && p < Math.abs(previousStep * q / 2)) {
+          step = p / q;
+        }
+      }
+
+      if (Math.abs(step) < tolerance) {
+        step = step > 0 ? tolerance : -tolerance;
+      }
+      a = b;
+      fa = fb;
+      b += step;
+      fb = function.applyAsDouble(b);
+      if ((fb > 0 && fc > 0) || (fb < 0 && fc < 0)) {
+        // keep the root between b and c
+        c = a;
+        fc = fa;
+      }
+    }
+    return b;
+  }
+}
@@ -0,0 +1,50 @@
+package org.veupathdb.service.eda.ds.nativeplot;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Values of a row's stratifying variables (overlay, then facets), identifying the series or panel the row is
+ * plotted in.  Plots without stratifying variables have a single, empty strata.  Ordered by value, first
+ * variable first, which is the order native engines write series in.
+ */
+public final class Strata implements Comparable<Strata> {
+
+  private final String[] values;
+
+  public Strata(String... values) {
+    this.values = values;
+  }
+
+  public int size() {
+    return values.length;
+  }
+
+  public String get(int index) {
+    return values[index];
+  }
+
+  public List<String> getValues() {
+    return List.of(values);
+  }
+
+  @Override
+  public int compareTo(Strata other) {
+    return Arrays.compare(values, other.values);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof Strata other && Arrays.equals(values, other.values);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(values);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(values);
+  }
+}
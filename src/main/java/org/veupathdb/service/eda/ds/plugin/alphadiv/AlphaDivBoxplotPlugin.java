@@ -9,16 +9,22 @@ import org.veupathdb.service.eda.common.plugin.util.RServeClient;
 import org.veupathdb.service.eda.ds.Resources;
 import org.veupathdb.service.eda.ds.metadata.AppsMetadata;
 import org.veupathdb.service.eda.ds.core.AbstractPlugin;
+import org.veupathdb.service.eda.ds.nativeplot.NativeBoxplots;
+import org.veupathdb.service.eda.ds.nativeplot.NumericBoxplot;
 import org.veupathdb.service.eda.generated.model.*;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
-import static org.veupathdb.service.eda.common.plugin.util.RServeClient.useRConnectionWithRemoteFiles;
 
 public class AlphaDivBoxplotPlugin extends AbstractPlugin<AlphaDivBoxplotPostRequest, BoxplotWith1ComputeSpec, AlphaDivComputeConfig> {
 
@@ -102,6 +108,14 @@ public class AlphaDivBoxplotPlugin extends AbstractPlugin<AlphaDivBoxplotPostReq
     VariableSpec computedVarSpec = metadata.getVariables().stream()
         .filter(var -> var.getPlotReference().getValue().equals("yAxis"))
         .findFirst().orElseThrow().getVariableSpec();
+
+    // unlike BoxplotPlugin, statistical tests are computed unless computeStats is FALSE, and are left to plot.data
+    if (Resources.NATIVE_BOXPLOT_ENABLED && deprecatedShowMissingness.equals("noVariables")
+        && spec.getXAxisVariable() != null && spec.getComputeStats() != null
+        && NativeBoxplots.isSupported(spec.getComputeStats())) {
+      writeNativeResults(out, dataStreams.get(DEFAULT_SINGLE_STREAM_NAME), varMap, metadata, computedVarSpec);
+      return;
+    }
     
     useRConnectionWithRemoteFiles(Resources.RSERVE_URL, dataStreams, connection -> {
       // TODO this needs to add the computed vars now as well
@@ -124,4 +138,41 @@ public class AlphaDivBoxplotPlugin extends AbstractPlugin<AlphaDivBoxplotPostReq
       RServeClient.streamResult(connection, command, out);
     });
   }
+
+  // equivalent of plot.data::box without statistical tests, computed without R in a single pass
+  private void writeNativeResults(OutputStream out, InputStream dataStream, Map<String, VariableSpec> varMap,
+                                  ComputedVariableMetadata metadata, VariableSpec computedVarSpec) throws IOException {
+    BoxplotWith1ComputeSpec spec = getPluginSpec();
+    PluginUtil util = getUtil();
+    VariableSpec overlayVariable = spec.getOverlayVariable();
+    List<VariableSpec> facetVariables = spec.getFacetVariable() == null
+        ? Collections.emptyList()
+        : spec.getFacetVariable().stream().filter(Objects::nonNull).collect(Collectors.toList());
+    List<VariableSpec> strataVariables = new ArrayList<>();
+    if (overlayVariable != null) {
+      strataVariables.add(overlayVariable);
+    }
+    strataVariables.addAll(facetVariables);
+    boolean allPoints = spec.getPoints().getValue().equals("all");
+    boolean mean = spec.getMean() != null && Boolean.parseBoolean(spec.getMean().getValue());
+
+    NumericBoxplot boxplot = NativeBoxplots.read(dataStream, util::toColNameOrEmpty,
+        spec.getXAxisVariable(), computedVarSpec, strataVariables,
+        Collections.nCopies(strataVariables.size(), UnaryOperator.identity()),
+        Resources.NATIVE_BOXPLOT_MAX_EXACT_VALUES, allPoints, null);
+    List<NumericBoxplot.Series> series = boxplot.compute(util.getVocabulary(spec.getXAxisVariable()));
+
+    // computed variables follow the native ones, as veupathUtils::merge orders them
+    List<VariableMapping> variables = new ArrayList<>(getVariableMappings(varMap));
+    variables.addAll(metadata.getVariables());
+
+    Boxplot plot = new BoxplotImpl();
+    plot.setData(NativeBoxplots.toBoxplotData(series, overlayVariable, facetVariables, allPoints, mean));
+    plot.setConfig(NativeBoxplots.toPlotConfig(boxplot, variables));
+    BoxplotPostResponse response = new BoxplotPostResponseImpl();
+    response.setBoxplot(plot);
+    response.setSampleSizeTable(NativeBoxplots.toSampleSizeTable(series, spec.getXAxisVariable(), overlayVariable, facetVariables));
+    response.setCompleteCasesTable(NativeBoxplots.toCompleteCasesTable(boxplot, spec.getXAxisVariable(), computedVarSpec, strataVariables));
+    writeJsonResponse(out, response);
+  }
 }
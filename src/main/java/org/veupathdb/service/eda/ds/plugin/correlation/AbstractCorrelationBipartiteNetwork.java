@@ -9,7 +9,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-import org.gusdb.fgputil.json.JsonUtil;
 import org.gusdb.fgputil.validation.ValidationException;
 import org.veupathdb.service.eda.common.client.spec.StreamSpec;
 import org.veupathdb.service.eda.ds.core.AbstractPlugin;
@@ -149,8 +148,7 @@ public abstract class AbstractCorrelationBipartiteNetwork<T extends DataPluginRe
     response.setSignificanceThreshold(pValueThreshold);
     response.setCorrelationCoefThreshold(correlationCoefThreshold);
 
-    JsonUtil.Jackson.writeValue(out, response);
-    out.flush();
+    writeJsonResponse(out, response);
 
   }
 }
@@ -20,7 +20,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import static org.veupathdb.service.eda.common.plugin.util.RServeClient.useRConnectionWithRemoteFiles;
 
 public class CorrelationAssaySelfUnipartitenetworkPlugin extends AbstractPlugin<CorrelationAssaySelfUnipartitenetworkPostRequest, CorrelationNetworkSpec, CorrelationAssaySelfConfig> {
   
@@ -1,27 +1,29 @@
 package org.veupathdb.service.eda.ds.plugin.pass;
 
 import org.gusdb.fgputil.validation.ValidationException;
-import org.json.JSONObject;
 import org.veupathdb.service.eda.common.client.spec.StreamSpec;
 import org.veupathdb.service.eda.common.plugin.constraint.ConstraintSpec;
 import org.veupathdb.service.eda.common.plugin.constraint.DataElementSet;
 import org.veupathdb.service.eda.common.plugin.util.PluginUtil;
 import org.veupathdb.service.eda.ds.Resources;
 import org.veupathdb.service.eda.ds.core.AbstractEmptyComputePlugin;
-import org.veupathdb.service.eda.generated.model.BarplotPostRequest;
-import org.veupathdb.service.eda.generated.model.BarplotSpec;
-import org.veupathdb.service.eda.generated.model.VariableSpec;
+import org.veupathdb.service.eda.ds.nativeplot.CategoricalCounts;
+import org.veupathdb.service.eda.ds.nativeplot.NativeCategoricalPlots;
+import org.veupathdb.service.eda.ds.nativeplot.Strata;
+import org.veupathdb.service.eda.generated.model.*;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 import static org.veupathdb.service.eda.common.plugin.util.RServeClient.streamResult;
-import static org.veupathdb.service.eda.common.plugin.util.RServeClient.useRConnectionWithRemoteFiles;
 import static org.veupathdb.service.eda.ds.metadata.AppsMetadata.CLINEPI_PROJECT;
 import static org.veupathdb.service.eda.ds.metadata.AppsMetadata.MICROBIOME_PROJECT;
 
@@ -92,106 +94,60 @@ public class BarplotPlugin extends AbstractEmptyComputePlugin<BarplotPostRequest
   protected void writeResults(OutputStream out, Map<String, InputStream> dataStreams) throws IOException {
     BarplotSpec spec = getPluginSpec();
     PluginUtil util = getUtil();
-    
-    boolean simpleBar = true;
-    // TODO consider adding facets to simpleBar ?
-    if (spec.getFacetVariable() != null
-         || !spec.getValueSpec().getValue().equals("count")
-         || dataStreams.size() != 1) {
-      simpleBar = false;
-    }
-    
-    //until i figure out the sort issue
-    simpleBar = false;
-    if (simpleBar) {
-      int rowCount = 0;
-      Scanner s = new Scanner(dataStreams.get(DEFAULT_SINGLE_STREAM_NAME)).useDelimiter("\n");
-      
-      Integer groupVarIndex = null;
-      int xVarIndex = 0;
-      String xVar = util.toColNameOrEmpty(getReferenceMetadata()
-          .getVariable(spec.getXAxisVariable()).orElseThrow());
-      if (spec.getOverlayVariable() != null) {
-        String groupVar = util.toColNameOrEmpty(spec.getOverlayVariable());
-        // expect two cols ordered by overlayVar and then xAxisVar
-        // TODO will be ordered by entity id
-        String[] header = s.nextLine().split("\t");
-        groupVarIndex = 0;
-        xVarIndex = 1;
-        if (!header[0].equals(groupVar)) {
-          groupVarIndex = 1;
-          xVarIndex = 0;
-        }
-      }
-
-      // read the header
-      String[] row = s.nextLine().split("\t");
-      String currentXCategory = row[xVarIndex];
-      String currentGroup = null;
-      if (groupVarIndex != null) {
-        currentGroup = row[groupVarIndex];
-      }
-      rowCount = 1;
-  
-      while(s.hasNextLine()) {
-        row = s.nextLine().split("\t");
-        String xCategory = row[xVarIndex];
-        String group = null;
-        boolean increment = false;
-        if (groupVarIndex != null) {
-          group = row[groupVarIndex];
-          if (group.equals(currentGroup) && xCategory.equals(currentXCategory)) {
-            increment = true;
-          }
-        } else {
-          if (xCategory.equals(currentXCategory)) {
-            increment = true;
-          }
-        }
-        if (increment) {
-          rowCount++;
-        } else {
-          JSONObject barRow = new JSONObject();
-          if (currentGroup != null) {
-            barRow.put("group", currentGroup);
-          }
-          barRow.put("label", currentXCategory); 
-          barRow.put("value", rowCount);
-          out.write(barRow.toString().getBytes());
-          currentGroup = group;
-          currentXCategory = xCategory;
-          rowCount = 1;
-        }
-      }
-      
-      s.close();
-      out.flush();
-    }
-    else {
-      String showMissingness = spec.getShowMissingness() != null ? spec.getShowMissingness().getValue() : "noVariables";
-      String deprecatedShowMissingness = showMissingness.equals("FALSE") ? "noVariables" : showMissingness.equals("TRUE") ? "strataVariables" : showMissingness;
-      String barMode = spec.getBarMode().getValue();
-
-      Map<String, VariableSpec> varMap = new HashMap<>();
-      varMap.put("xAxis", spec.getXAxisVariable());
-      varMap.put("overlay", spec.getOverlayVariable());
-      varMap.put("facet1", util.getVariableSpecFromList(spec.getFacetVariable(), 0));
-      varMap.put("facet2", util.getVariableSpecFromList(spec.getFacetVariable(), 1));
-      
-      useRConnectionWithRemoteFiles(Resources.RSERVE_URL, dataStreams, connection -> {
-        connection.voidEval(util.getVoidEvalFreadCommand(DEFAULT_SINGLE_STREAM_NAME,
-            spec.getXAxisVariable(),
-            spec.getOverlayVariable(),
-            util.getVariableSpecFromList(spec.getFacetVariable(), 0),
-            util.getVariableSpecFromList(spec.getFacetVariable(), 1)));
-        connection.voidEval(getVoidEvalVariableMetadataList(varMap));
-        String cmd =
-            "plot.data::bar(" + DEFAULT_SINGLE_STREAM_NAME + ", variables, '" +
-                spec.getValueSpec().getValue() + "', '" +
-                barMode + "', NULL, TRUE, TRUE, '" +
-                deprecatedShowMissingness + "')";
-        streamResult(connection, cmd, out);
-      });
+    String showMissingness = spec.getShowMissingness() != null ? spec.getShowMissingness().getValue() : "noVariables";
+    String deprecatedShowMissingness = showMissingness.equals("FALSE") ? "noVariables" : showMissingness.equals("TRUE") ? "strataVariables" : showMissingness;
+    String barMode = spec.getBarMode().getValue();
+
+    Map<String, VariableSpec> varMap = new HashMap<>();
+    varMap.put("xAxis", spec.getXAxisVariable());
+    varMap.put("overlay", spec.getOverlayVariable());
+    varMap.put("facet1", util.getVariableSpecFromList(spec.getFacetVariable(), 0));
+    varMap.put("facet2", util.getVariableSpecFromList(spec.getFacetVariable(), 1));
+
+    if (Resources.NATIVE_CATEGORICAL_PLOTS_ENABLED && deprecatedShowMissingness.equals("noVariables")) {
+      writeNativeResults(out, dataStreams.get(DEFAULT_SINGLE_STREAM_NAME), varMap);
+      return;
     }
+
+    useRConnectionWithRemoteFiles(Resources.RSERVE_URL, dataStreams, connection -> {
+      connection.voidEval(util.getVoidEvalFreadCommand(DEFAULT_SINGLE_STREAM_NAME,
+          spec.getXAxisVariable(),
+          spec.getOverlayVariable(),
+          util.getVariableSpecFromList(spec.getFacetVariable(), 0),
+          util.getVariableSpecFromList(spec.getFacetVariable(), 1)));
+      connection.voidEval(getVoidEvalVariableMetadataList(varMap));
+      String cmd =
+          "plot.data::bar(" + DEFAULT_SINGLE_STREAM_NAME + ", variables, '" +
+              spec.getValueSpec().getValue() + "', '" +
+              barMode + "', NULL, TRUE, TRUE, '" +
+              deprecatedShowMissingness + "')";
+      streamResult(connection, cmd, out);
+    });
+  }
+
+  // equivalent of plot.data::bar, computed without R in a single pass that does not depend on row order
+  private void writeNativeResults(OutputStream out, InputStream dataStream, Map<String, VariableSpec> varMap) throws IOException {
+    BarplotSpec spec = getPluginSpec();
+    PluginUtil util = getUtil();
+    VariableSpec overlayVariable = spec.getOverlayVariable();
+    List<VariableSpec> facetVariables = spec.getFacetVariable() == null
+        ? Collections.emptyList()
+        : spec.getFacetVariable().stream().filter(Objects::nonNull).collect(Collectors.toList());
+
+    CategoricalCounts counts = NativeCategoricalPlots.count(dataStream, util::toColNameOrEmpty,
+        spec.getXAxisVariable(), overlayVariable, facetVariables, UnaryOperator.identity(), false);
+    Map<Strata, CategoricalCounts.Table> tables = counts.getTables(
+        util.getVocabulary(spec.getXAxisVariable()),
+        overlayVariable == null ? null : util.getVocabulary(overlayVariable));
+    boolean proportions = spec.getValueSpec().getValue().equals("proportion");
+
+    Barplot barplot = new BarplotImpl();
+    barplot.setData(NativeCategoricalPlots.toBarplotData(tables, overlayVariable, facetVariables, proportions));
+    barplot.setConfig(NativeCategoricalPlots.toPlotConfig(counts, getVariableMappings(varMap)));
+    BarplotPostResponse response = new BarplotPostResponseImpl();
+    response.setBarplot(barplot);
+    response.setSampleSizeTable(NativeCategoricalPlots.toBarplotSampleSizeTable(tables, overlayVariable, facetVariables));
+    response.setCompleteCasesTable(NativeCategoricalPlots.toCompleteCasesTable(counts, spec.getXAxisVariable(), overlayVariable, facetVariables));
+    writeJsonResponse(out, response);
   }
 }
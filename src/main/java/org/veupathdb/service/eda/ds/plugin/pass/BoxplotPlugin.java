@@ -1,25 +1,31 @@
 package org.veupathdb.service.eda.ds.plugin.pass;
 
+import jakarta.ws.rs.BadRequestException;
 import org.gusdb.fgputil.validation.ValidationException;
 import org.veupathdb.service.eda.common.client.spec.StreamSpec;
 import org.veupathdb.service.eda.common.plugin.constraint.ConstraintSpec;
 import org.veupathdb.service.eda.common.plugin.constraint.DataElementSet;
 import org.veupathdb.service.eda.common.plugin.util.PluginUtil;
-import org.veupathdb.service.eda.common.plugin.util.RFileSetProcessor;
 import org.veupathdb.service.eda.ds.Resources;
 import org.veupathdb.service.eda.ds.core.AbstractEmptyComputePlugin;
+import org.veupathdb.service.eda.ds.core.RFileSet;
+import org.veupathdb.service.eda.ds.nativeplot.NativeBoxplots;
+import org.veupathdb.service.eda.ds.nativeplot.NumericBoxplot;
 import org.veupathdb.service.eda.generated.model.*;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 import static org.veupathdb.service.eda.common.plugin.util.RServeClient.streamResult;
-import static org.veupathdb.service.eda.common.plugin.util.RServeClient.useRConnectionWithProcessedRemoteFiles;
 import static org.veupathdb.service.eda.ds.metadata.AppsMetadata.CLINEPI_PROJECT;
 
 public class BoxplotPlugin extends AbstractEmptyComputePlugin<BoxplotPostRequest, BoxplotSpec> {
@@ -102,12 +108,18 @@ public class BoxplotPlugin extends AbstractEmptyComputePlugin<BoxplotPostRequest
     String computeStats = spec.getComputeStats() != null ? spec.getComputeStats().getValue() : "FALSE";
     String showMean = spec.getMean() != null ? spec.getMean().getValue() : "FALSE";
     String showPoints = spec.getPoints().getValue();
-    
+
+    if (Resources.NATIVE_BOXPLOT_ENABLED && deprecatedShowMissingness.equals("noVariables")
+        && NativeBoxplots.isSupported(spec.getComputeStats())) {
+      writeNativeResults(out, dataStreams.get(DEFAULT_SINGLE_STREAM_NAME), varMap);
+      return;
+    }
+
     List<String> nonStrataVarColNames = new ArrayList<>();
     nonStrataVarColNames.add(util.toColNameOrEmpty(spec.getXAxisVariable()));
     nonStrataVarColNames.add(util.toColNameOrEmpty(spec.getYAxisVariable()));
 
-    RFileSetProcessor filesProcessor = new RFileSetProcessor(dataStreams)
+    RFileSet filesProcessor = new RFileSet(dataStreams)
       .add(DEFAULT_SINGLE_STREAM_NAME, 
         spec.getMaxAllowedDataPoints(), 
         deprecatedShowMissingness, 
@@ -132,4 +144,39 @@ public class BoxplotPlugin extends AbstractEmptyComputePlugin<BoxplotPostRequest
       streamResult(connection, cmd, out);
     });
   }
+
+  // equivalent of plot.data::box without statistical tests, computed without R in a single pass
+  private void writeNativeResults(OutputStream out, InputStream dataStream, Map<String, VariableSpec> varMap) throws IOException {
+    BoxplotSpec spec = getPluginSpec();
+    PluginUtil util = getUtil();
+    VariableSpec overlayVariable = spec.getOverlayVariable();
+    List<VariableSpec> facetVariables = spec.getFacetVariable() == null
+        ? Collections.emptyList()
+        : spec.getFacetVariable().stream().filter(Objects::nonNull).collect(Collectors.toList());
+    List<VariableSpec> strataVariables = new ArrayList<>();
+    if (overlayVariable != null) {
+      strataVariables.add(overlayVariable);
+    }
+    strataVariables.addAll(facetVariables);
+    boolean allPoints = spec.getPoints().getValue().equals("all");
+    boolean mean = spec.getMean() != null && Boolean.parseBoolean(spec.getMean().getValue());
+
+    NumericBoxplot boxplot = NativeBoxplots.read(dataStream, util::toColNameOrEmpty,
+        spec.getXAxisVariable(), spec.getYAxisVariable(), strataVariables,
+        Collections.nCopies(strataVariables.size(), UnaryOperator.identity()),
+        Resources.NATIVE_BOXPLOT_MAX_EXACT_VALUES, allPoints, spec.getMaxAllowedDataPoints());
+    if (boxplot.exceedsMaxAxesCases()) {
+      throw new BadRequestException("Box plot has more than the " + spec.getMaxAllowedDataPoints() + " data points allowed.");
+    }
+    List<NumericBoxplot.Series> series = boxplot.compute(util.getVocabulary(spec.getXAxisVariable()));
+
+    Boxplot plot = new BoxplotImpl();
+    plot.setData(NativeBoxplots.toBoxplotData(series, overlayVariable, facetVariables, allPoints, mean));
+    plot.setConfig(NativeBoxplots.toPlotConfig(boxplot, getVariableMappings(varMap)));
+    BoxplotPostResponse response = new BoxplotPostResponseImpl();
+    response.setBoxplot(plot);
+    response.setSampleSizeTable(NativeBoxplots.toSampleSizeTable(series, spec.getXAxisVariable(), overlayVariable, facetVariables));
+    response.setCompleteCasesTable(NativeBoxplots.toCompleteCasesTable(boxplot, spec.getXAxisVariable(), spec.getYAxisVariable(), strataVariables));
+    writeJsonResponse(out, response);
+  }
 }
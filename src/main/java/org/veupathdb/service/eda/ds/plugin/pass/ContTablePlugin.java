@@ -7,17 +7,23 @@ import org.veupathdb.service.eda.common.plugin.constraint.DataElementSet;
 import org.veupathdb.service.eda.common.plugin.util.PluginUtil;
 import org.veupathdb.service.eda.ds.Resources;
 import org.veupathdb.service.eda.ds.core.AbstractEmptyComputePlugin;
+import org.veupathdb.service.eda.ds.nativeplot.CategoricalCounts;
+import org.veupathdb.service.eda.ds.nativeplot.NativeCategoricalPlots;
+import org.veupathdb.service.eda.ds.nativeplot.Strata;
 import org.veupathdb.service.eda.generated.model.*;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 import static org.veupathdb.service.eda.common.plugin.util.RServeClient.streamResult;
-import static org.veupathdb.service.eda.common.plugin.util.RServeClient.useRConnectionWithRemoteFiles;
 import static org.veupathdb.service.eda.ds.metadata.AppsMetadata.CLINEPI_PROJECT;
 
 public class ContTablePlugin extends AbstractEmptyComputePlugin<MosaicPostRequest, MosaicSpec> {
@@ -90,7 +96,12 @@ public class ContTablePlugin extends AbstractEmptyComputePlugin<MosaicPostReques
     varMap.put("facet2", util.getVariableSpecFromList(spec.getFacetVariable(), 1));
     String showMissingness = spec.getShowMissingness() != null ? spec.getShowMissingness().getValue() : "noVariables";
     String deprecatedShowMissingness = showMissingness.equals("FALSE") ? "noVariables" : showMissingness.equals("TRUE") ? "strataVariables" : showMissingness;
-    
+
+    if (Resources.NATIVE_CATEGORICAL_PLOTS_ENABLED && deprecatedShowMissingness.equals("noVariables")) {
+      writeNativeResults(out, dataStreams.get(DEFAULT_SINGLE_STREAM_NAME), varMap);
+      return;
+    }
+
     useRConnectionWithRemoteFiles(Resources.RSERVE_URL, dataStreams, connection -> {
       connection.voidEval(util.getVoidEvalFreadCommand(DEFAULT_SINGLE_STREAM_NAME,
           spec.getXAxisVariable(),
@@ -102,4 +113,29 @@ public class ContTablePlugin extends AbstractEmptyComputePlugin<MosaicPostReques
       streamResult(connection, cmd, out);
     });
   }
+
+  // equivalent of plot.data::mosaic with the chi-squared test, computed without R in a single pass
+  private void writeNativeResults(OutputStream out, InputStream dataStream, Map<String, VariableSpec> varMap) throws IOException {
+    MosaicSpec spec = getPluginSpec();
+    PluginUtil util = getUtil();
+    List<VariableSpec> facetVariables = spec.getFacetVariable() == null
+        ? Collections.emptyList()
+        : spec.getFacetVariable().stream().filter(Objects::nonNull).collect(Collectors.toList());
+
+    CategoricalCounts counts = NativeCategoricalPlots.count(dataStream, util::toColNameOrEmpty,
+        spec.getXAxisVariable(), spec.getYAxisVariable(), facetVariables, UnaryOperator.identity(), true);
+    Map<Strata, CategoricalCounts.Table> tables = counts.getTables(
+        util.getVocabulary(spec.getXAxisVariable()),
+        util.getVocabulary(spec.getYAxisVariable()));
+
+    Mosaic mosaic = new MosaicImpl();
+    mosaic.setData(NativeCategoricalPlots.toMosaicData(tables, facetVariables));
+    mosaic.setConfig(NativeCategoricalPlots.toPlotConfig(counts, getVariableMappings(varMap)));
+    ContTablePostResponse response = new ContTablePostResponseImpl();
+    response.setMosaic(mosaic);
+    response.setSampleSizeTable(NativeCategoricalPlots.toMosaicSampleSizeTable(tables, facetVariables));
+    response.setStatsTable(NativeCategoricalPlots.toContTableStatsTable(tables, facetVariables));
+    response.setCompleteCasesTable(NativeCategoricalPlots.toCompleteCasesTable(counts, spec.getXAxisVariable(), spec.getYAxisVariable(), facetVariables));
+    writeJsonResponse(out, response);
+  }
 }
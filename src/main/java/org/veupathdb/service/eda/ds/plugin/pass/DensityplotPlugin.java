@@ -5,19 +5,18 @@ import org.veupathdb.service.eda.common.client.spec.StreamSpec;
 import org.veupathdb.service.eda.common.plugin.constraint.ConstraintSpec;
 import org.veupathdb.service.eda.common.plugin.constraint.DataElementSet;
 import org.veupathdb.service.eda.common.plugin.util.PluginUtil;
-import org.veupathdb.service.eda.ds.Resources;
 import org.veupathdb.service.eda.ds.core.AbstractEmptyComputePlugin;
 import org.veupathdb.service.eda.generated.model.*;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import static org.veupathdb.service.eda.common.plugin.util.RServeClient.streamResult;
-import static org.veupathdb.service.eda.common.plugin.util.RServeClient.useRConnectionWithRemoteFiles;
 import static org.veupathdb.service.eda.ds.metadata.AppsMetadata.CLINEPI_PROJECT;
 import static org.veupathdb.service.eda.ds.metadata.AppsMetadata.MICROBIOME_PROJECT;
 
@@ -93,12 +92,12 @@ public class DensityplotPlugin extends AbstractEmptyComputePlugin<DensityplotPos
     String showMissingness = spec.getShowMissingness() != null ? spec.getShowMissingness().getValue() : "noVariables";
     String deprecatedShowMissingness = showMissingness.equals("FALSE") ? "noVariables" : showMissingness.equals("TRUE") ? "strataVariables" : showMissingness;
     
-    useRConnectionWithRemoteFiles(Resources.RSERVE_URL, dataStreams, connection -> {
-      connection.voidEval(util.getVoidEvalFreadCommand(DEFAULT_SINGLE_STREAM_NAME,
-          spec.getXAxisVariable(),
-          spec.getOverlayVariable(),
-          util.getVariableSpecFromList(spec.getFacetVariable(), 0),
-          util.getVariableSpecFromList(spec.getFacetVariable(), 1)));
+    List<VariableSpec> inputVarSpecs = Arrays.asList(
+        spec.getXAxisVariable(),
+        spec.getOverlayVariable(),
+        util.getVariableSpecFromList(spec.getFacetVariable(), 0),
+        util.getVariableSpecFromList(spec.getFacetVariable(), 1));
+    useRConnectionWithDataTables(dataStreams, Map.of(DEFAULT_SINGLE_STREAM_NAME, inputVarSpecs), connection -> {
       connection.voidEval(getVoidEvalVariableMetadataList(varMap));
       String cmd = "plot.data::scattergl(" + DEFAULT_SINGLE_STREAM_NAME + ", variables, 'density','" + deprecatedShowMissingness + "')";
       streamResult(connection, cmd, out);
@@ -7,17 +7,23 @@ import org.veupathdb.service.eda.common.plugin.constraint.DataElementSet;
 import org.veupathdb.service.eda.common.plugin.util.PluginUtil;
 import org.veupathdb.service.eda.ds.Resources;
 import org.veupathdb.service.eda.ds.core.AbstractEmptyComputePlugin;
+import org.veupathdb.service.eda.ds.nativeplot.NativeHistograms;
+import org.veupathdb.service.eda.ds.nativeplot.NumericHistogram;
 import org.veupathdb.service.eda.generated.model.*;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.veupathdb.service.eda.common.plugin.util.RServeClient.streamResult;
-import static org.veupathdb.service.eda.common.plugin.util.RServeClient.useRConnectionWithRemoteFiles;
 import static org.veupathdb.service.eda.ds.metadata.AppsMetadata.CLINEPI_PROJECT;
 import static org.veupathdb.service.eda.ds.metadata.AppsMetadata.MICROBIOME_PROJECT;
 
@@ -99,6 +105,13 @@ public class HistogramPlugin extends AbstractEmptyComputePlugin<HistogramPostReq
     String xVar = util.toColNameOrEmpty(spec.getXAxisVariable());
     String xVarType = util.getVariableType(spec.getXAxisVariable());
 
+    if (Resources.NATIVE_HISTOGRAM_ENABLED && deprecatedShowMissingness.equals("noVariables")
+        && NativeHistograms.isSupported(xVarType, spec.getBinSpec())) {
+      validateBinSpec(spec.getBinSpec(), xVarType);
+      writeNativeResults(out, dataStreams.get(DEFAULT_SINGLE_STREAM_NAME), varMap, xVarType);
+      return;
+    }
+
     useRConnectionWithRemoteFiles(Resources.RSERVE_URL, dataStreams, connection -> {
       connection.voidEval(util.getVoidEvalFreadCommand(DEFAULT_SINGLE_STREAM_NAME,
           spec.getXAxisVariable(),
@@ -148,4 +161,28 @@ public class HistogramPlugin extends AbstractEmptyComputePlugin<HistogramPostReq
       streamResult(connection, cmd, out);
     });
   }
+
+  // equivalent of plot.data::histogram for numeric x-axis variables, computed without R
+  private void writeNativeResults(OutputStream out, InputStream dataStream, Map<String, VariableSpec> varMap, String xVarType) throws IOException {
+    HistogramSpec spec = getPluginSpec();
+    List<VariableSpec> facetVariables = spec.getFacetVariable() == null
+        ? Collections.emptyList()
+        : spec.getFacetVariable().stream().filter(Objects::nonNull).collect(Collectors.toList());
+    List<VariableSpec> strataVariables = Stream.concat(
+        Stream.ofNullable(spec.getOverlayVariable()), facetVariables.stream()).collect(Collectors.toList());
+    List<UnaryOperator<String>> strataRecoders = Collections.nCopies(strataVariables.size(), UnaryOperator.identity());
+
+    NumericHistogram.Result result = NativeHistograms.compute(dataStream, getUtil()::toColNameOrEmpty,
+        spec.getXAxisVariable(), xVarType, strataVariables, strataRecoders,
+        spec.getBinSpec(), spec.getViewport(), spec.getValueSpec());
+
+    Histogram histogram = new HistogramImpl();
+    histogram.setData(NativeHistograms.toHistogramData(result, spec.getOverlayVariable(), facetVariables));
+    histogram.setConfig(NativeHistograms.toHistogramConfig(result, spec.getBinSpec(), getVariableMappings(varMap)));
+    HistogramPostResponse response = new HistogramPostResponseImpl();
+    response.setHistogram(histogram);
+    response.setSampleSizeTable(NativeHistograms.toSampleSizeTable(result, spec.getOverlayVariable(), facetVariables));
+    response.setCompleteCasesTable(NativeHistograms.toCompleteCasesTable(result, spec.getXAxisVariable(), strataVariables));
+    writeJsonResponse(out, response);
+  }
 }
@@ -20,7 +20,6 @@ import java.util.Map;
 
 import static org.veupathdb.service.eda.common.plugin.util.PluginUtil.singleQuote;
 import static org.veupathdb.service.eda.common.plugin.util.RServeClient.streamResult;
-import static org.veupathdb.service.eda.common.plugin.util.RServeClient.useRConnectionWithRemoteFiles;
 
 public class MapMarkersOverlayPlugin extends AbstractEmptyComputePlugin<MapMarkersOverlayPostRequest, MapMarkersOverlaySpec> {
 
@@ -3,18 +3,16 @@ package org.veupathdb.service.eda.ds.plugin.pass;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.gusdb.fgputil.DelimitedDataParser;
-import org.gusdb.fgputil.geo.GeographyUtil.GeographicPoint;
 import org.gusdb.fgputil.geo.LatLonAverager;
 import org.gusdb.fgputil.validation.ValidationException;
-import org.json.JSONObject;
 import org.veupathdb.service.eda.common.client.spec.StreamSpec;
 import org.veupathdb.service.eda.common.plugin.constraint.ConstraintSpec;
 import org.veupathdb.service.eda.common.plugin.constraint.DataElementSet;
 import org.veupathdb.service.eda.ds.core.AbstractEmptyComputePlugin;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.MarkerResponseWriter;
 import org.veupathdb.service.eda.generated.model.*;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +39,11 @@ public class MapPlugin extends AbstractEmptyComputePlugin<MapPostRequest, MapSpe
     return List.of(CLINEPI_PROJECT);
   }
 
+  @Override
+  public boolean hasBinaryResponseFormats() {
+    return true;
+  }
+
   @Override
   protected ClassGroup getTypeParameterClasses() {
     return new EmptyComputeClassGroup(MapPostRequest.class, MapSpec.class);
@@ -141,31 +144,20 @@ public class MapPlugin extends AbstractEmptyComputePlugin<MapPostRequest, MapSpe
     }
 
     LOG.debug("Writing aggregated results for " + entityRecordsWithGeoVar + " records");
-    // begin output object and single property containing array of map elements
-    out.write("{\"mapElements\":[".getBytes(StandardCharsets.UTF_8));
-    boolean first = true;
-    for (String key : aggregator.keySet()) {
-      // write commas between elements
-      if (first) first = false; else out.write(',');
-      GeoVarData data = aggregator.get(key);
-      GeographicPoint avgLatLon = data.latLonAvg.getCurrentAverage();
-      out.write(new JSONObject()
-        .put("geoAggregateValue", key)
-        .put("entityCount", data.count)
-        .put("avgLat", avgLatLon.getLatitude())
-        .put("avgLon", avgLatLon.getLongitude())
-        .put("minLat", data.minLat)
-        .put("minLon", data.minLon)
-        .put("maxLat", data.maxLat)
-        .put("maxLon", data.maxLon)
-        .toString()
-        .getBytes(StandardCharsets.UTF_8)
-      );
-    }
-    // add config and close
-    String config = "],\"config\":{\"completeCasesGeoVar\":" + entityRecordsWithGeoVar + "}}";
-    out.write(config.getBytes());
-    out.flush();
+    final long completeCasesGeoVar = entityRecordsWithGeoVar;
+    writeStreamingResponse(out, generator -> {
+      MarkerResponseWriter writer = new MarkerResponseWriter(generator, "mapElements");
+      for (Map.Entry<String, GeoVarData> element : aggregator.entrySet()) {
+        GeoVarData data = element.getValue();
+        writer.writeMarker(element.getKey(), data.count, data.latLonAvg.getCurrentAverage(),
+            data.minLat, data.minLon, data.maxLat, data.maxLon, null);
+      }
+      // add config and close
+      writer.finishMarkers().writeObjectFieldStart("config");
+      generator.writeNumberField("completeCasesGeoVar", completeCasesGeoVar);
+      generator.writeEndObject();
+      writer.finish();
+    });
   }
   private static class ParsedGeolocationViewport {
     private final double xMin;
@@ -18,7 +18,6 @@ import java.util.Map;
 
 import static org.veupathdb.service.eda.common.plugin.util.PluginUtil.singleQuote;
 import static org.veupathdb.service.eda.common.plugin.util.RServeClient.streamResult;
-import static org.veupathdb.service.eda.common.plugin.util.RServeClient.useRConnectionWithRemoteFiles;
 import static org.veupathdb.service.eda.ds.metadata.AppsMetadata.CLINEPI_PROJECT;
 
 public class TwoByTwoPlugin extends AbstractEmptyComputePlugin<TwoByTwoPostRequest, TwoByTwoSpec> {
@@ -96,6 +95,8 @@ public class TwoByTwoPlugin extends AbstractEmptyComputePlugin<TwoByTwoPostReque
     String colRefValue = spec.getXAxisReferenceValue() == null ? "NA_character_" : singleQuote(spec.getXAxisReferenceValue());
     String rowRefValue = spec.getYAxisReferenceValue() == null ? "NA_character_" : singleQuote(spec.getYAxisReferenceValue());
 
+    // not computed natively (see NATIVE_CATEGORICAL_PLOTS_ENABLED): the 2x2 statistics plot.data gives include
+    // proportions (prevalence, sensitivity, specificity and predictive values) NativeCategoricalPlots lacks
     useRConnectionWithRemoteFiles(Resources.RSERVE_URL, dataStreams, connection -> {
       connection.voidEval(util.getVoidEvalFreadCommand(DEFAULT_SINGLE_STREAM_NAME,
           spec.getXAxisVariable(),
@@ -1,6 +1,5 @@
 package org.veupathdb.service.eda.ds.plugin.sample;
 
-import org.gusdb.fgputil.json.JsonUtil;
 import org.gusdb.fgputil.validation.ValidationException;
 import org.veupathdb.service.eda.common.client.spec.StreamSpec;
 import org.veupathdb.service.eda.ds.core.AbstractEmptyComputePlugin;
@@ -35,7 +34,7 @@ public class CategoricalDistributionPlugin extends AbstractEmptyComputePlugin<Ca
     CategoricalDistributionPostResponse response = new CategoricalDistributionPostResponseImpl();
     response.setCountDistribution(toBinList(getCategoricalCountDistribution(_pluginSpec)));
     response.setProportionDistribution(toBinList(getCategoricalProportionDistribution(_pluginSpec)));
-    JsonUtil.Jackson.writeValue(out, response);
+    writeJsonResponse(out, response);
   }
 
   private static List<CategoricalDistributionBin> toBinList(Map<String, ? extends Number> distributionResponse) {
@@ -9,6 +9,8 @@ import org.veupathdb.service.eda.common.model.EntityDef;
 import org.veupathdb.service.eda.common.model.VariableDef;
 import org.veupathdb.service.eda.common.model.VariableSource;
 import org.veupathdb.service.eda.ds.core.AbstractEmptyComputePlugin;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularStreamScanner;
+import org.veupathdb.service.eda.ds.utils.TabularStreamJoin;
 import org.veupathdb.service.eda.generated.model.MultiStreamPostRequest;
 import org.veupathdb.service.eda.generated.model.MultiStreamSpec;
 
@@ -16,11 +18,9 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.stream.Collectors;
 
 import static org.gusdb.fgputil.FormatUtil.*;
-import static org.gusdb.fgputil.functional.Functions.getMapFromKeys;
 
 public class MultiStreamPlugin extends AbstractEmptyComputePlugin<MultiStreamPostRequest, MultiStreamSpec> {
 
@@ -76,22 +76,24 @@ public class MultiStreamPlugin extends AbstractEmptyComputePlugin<MultiStreamPos
     try (Writer writer = new BufferedWriter(new OutputStreamWriter(out))) {
       // write header
       writer.write(idColumn + TAB + join(dataStreams.keySet(), TAB) + NL);
-      Map<String, Scanner> scannerMap = getMapFromKeys(dataStreams.keySet(),
-          key -> new Scanner(dataStreams.get(key)));
-      Map<String, DelimitedDataParser> parserMap = getMapFromKeys(dataStreams.keySet(),
-          key -> new DelimitedDataParser(scannerMap.get(key).nextLine(), TAB, true));
-      Scanner firstScanner = scannerMap.values().iterator().next();
-      while(firstScanner.hasNextLine()) {
-        boolean isFirst = true;
-        for (String streamName : scannerMap.keySet()) {
-          Map<String,String> row = parserMap.get(streamName)
-              .parseLine(scannerMap.get(streamName).nextLine());
-          if (isFirst) {
-            writer.write(row.get(idColumn));
-            isFirst = false;
-          }
+      List<String> streamNames = new ArrayList<>(dataStreams.keySet());
+      List<TabularStreamScanner> scanners = new ArrayList<>();
+      int[] idIndexes = new int[streamNames.size()];
+      int[] valueIndexes = new int[streamNames.size()];
+      for (int i = 0; i < streamNames.size(); i++) {
+        TabularStreamScanner scanner = new TabularStreamScanner(dataStreams.get(streamNames.get(i)));
+        DelimitedDataParser parser = new DelimitedDataParser(scanner.readLine(), TAB, true);
+        idIndexes[i] = parser.indexOfColumn(idColumn).orElseThrow();
+        valueIndexes[i] = parser.indexOfColumn(streamNames.get(i)).orElseThrow();
+        scanners.add(scanner);
+      }
+      // rows of the streams are matched on entity ID
+      TabularStreamJoin rows = new TabularStreamJoin(scanners, idIndexes);
+      while (rows.next()) {
+        writer.write(rows.getKey());
+        for (int i = 0; i < streamNames.size(); i++) {
           writer.write(TAB);
-          writer.write(row.get(streamName));
+          writer.write(rows.getRow(i).getString(valueIndexes[i]));
         }
         writer.write(NL);
       }
@@ -2,11 +2,8 @@ package org.veupathdb.service.eda.ds.plugin.sample;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.gusdb.fgputil.EncryptionUtil;
 import org.gusdb.fgputil.Timer;
 import org.gusdb.fgputil.Wrapper;
-import org.gusdb.fgputil.cache.ManagedMap;
-import org.gusdb.fgputil.cache.ValueProductionException;
 import org.gusdb.fgputil.json.JsonUtil;
 import org.gusdb.fgputil.validation.ValidationException;
 import org.veupathdb.service.eda.common.client.spec.StreamSpec;
@@ -17,21 +14,16 @@ import org.veupathdb.service.eda.generated.model.*;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.Collections;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Scanner;
 
 public class RecordCountPlugin extends AbstractEmptyComputePlugin<RecordCountPostRequest, RecordCountSpec> {
 
   private static final Logger LOG = LogManager.getLogger(RecordCountPlugin.class);
 
-  private static final ManagedMap<String,RecordCountPostResponse> RESULT_CACHE =
-      new ManagedMap<>(5000, 2000);
-
-  private String _cacheKey;
-  private RecordCountPostResponse _cachedResponse;
-
   @Override
   public String getDisplayName() {
     return "Record Count";
@@ -54,17 +46,14 @@ public class RecordCountPlugin extends AbstractEmptyComputePlugin<RecordCountPos
   }
 
   @Override
-  protected List<StreamSpec> getRequestedStreams(RecordCountSpec pluginSpec) {
-    String entityId = pluginSpec.getEntityId();
-    _cacheKey = EncryptionUtil.md5(
-        JsonUtil.serializeObject(getSubsetFilters()) +
-        "|" + getReferenceMetadata().getStudyId() + "|" + entityId
-    );
-    _cachedResponse = RESULT_CACHE.get(_cacheKey);
-    LOG.info("Did I find a cached response? " + (_cachedResponse != null));
+  protected Optional<Duration> getResponseCacheTtl() {
+    return Optional.of(Duration.ofHours(24));
+  }
 
+  @Override
+  protected List<StreamSpec> getRequestedStreams(RecordCountSpec pluginSpec) {
     // only need one stream for the requested entity and no vars (IDs included automatically)
-    return _cachedResponse != null ? Collections.emptyList() : List.of(
+    return List.of(
       new StreamSpec(pluginSpec.getEntityId(), pluginSpec.getEntityId())
         // add first var in entity to work around no-vars bug in subsetting service
         .addVar(getReferenceMetadata().getEntity(pluginSpec.getEntityId()).orElseThrow().getVariables().stream()
@@ -74,29 +63,19 @@ public class RecordCountPlugin extends AbstractEmptyComputePlugin<RecordCountPos
 
   @Override
   protected void writeResults(OutputStream out, Map<String, InputStream> dataStreams) throws IOException {
-    if (_cachedResponse == null) {
-      LOG.info("Result not in cache; calculating");
-      try {
-        _cachedResponse = RESULT_CACHE.getValue(_cacheKey, key -> {
-          Timer t = new Timer();
-          long subsettingRowCount = getSubsetCount(_pluginSpec.getEntityId());
-          LOG.info("Retrieved record count from subsetting (" + subsettingRowCount + ") in " + t.getElapsedStringAndRestart());
-          Wrapper<Long> rowCount = new Wrapper<>(0L);
-          new Scanner(dataStreams.get(getPluginSpec().getEntityId()))
-              .useDelimiter("\n")
-              .forEachRemaining(str -> rowCount.set(rowCount.get() + 1));
-          long recordCount = rowCount.get() - 1; // subtract 1 for header row
-          RecordCountPostResponse value = new RecordCountPostResponseImpl();
-          value.setRecordCount((int)recordCount);
-          LOG.info("Calculated record count result to add to cache (" + recordCount + ") in " + t.getElapsedString());
-          return value;
-        });
-      }
-      catch (ValueProductionException e) {
-        throw new RuntimeException("Could not generate entity count", e);
-      }
-    }
-    out.write(JsonUtil.serializeObject(_cachedResponse).getBytes());
+    LOG.info("Result not in cache; calculating");
+    Timer t = new Timer();
+    long subsettingRowCount = getSubsetCount(_pluginSpec.getEntityId());
+    LOG.info("Retrieved record count from subsetting (" + subsettingRowCount + ") in " + t.getElapsedStringAndRestart());
+    Wrapper<Long> rowCount = new Wrapper<>(0L);
+    new Scanner(dataStreams.get(getPluginSpec().getEntityId()))
+        .useDelimiter("\n")
+        .forEachRemaining(str -> rowCount.set(rowCount.get() + 1));
+    long recordCount = rowCount.get() - 1; // subtract 1 for header row
+    RecordCountPostResponse response = new RecordCountPostResponseImpl();
+    response.setRecordCount((int)recordCount);
+    LOG.info("Calculated record count result to add to cache (" + recordCount + ") in " + t.getElapsedString());
+    out.write(JsonUtil.serializeObject(response).getBytes());
     out.flush();
   }
 }
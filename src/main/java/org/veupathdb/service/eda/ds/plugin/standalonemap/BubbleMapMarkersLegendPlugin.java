@@ -1,7 +1,6 @@
 package org.veupathdb.service.eda.ds.plugin.standalonemap;
 
 import org.gusdb.fgputil.DelimitedDataParser;
-import org.gusdb.fgputil.json.JsonUtil;
 import org.gusdb.fgputil.validation.ValidationException;
 import org.veupathdb.service.eda.common.client.spec.StreamSpec;
 import org.veupathdb.service.eda.common.plugin.constraint.ConstraintSpec;
@@ -10,6 +9,7 @@ import org.veupathdb.service.eda.ds.core.AbstractEmptyComputePlugin;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.CountAggregator;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.QuantitativeAggregateConfiguration;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.MarkerAggregator;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularStreamScanner;
 import org.veupathdb.service.eda.generated.model.APIVariableType;
 import org.veupathdb.service.eda.generated.model.OverlayLegendConfig;
 import org.veupathdb.service.eda.generated.model.SizeLegendConfig;
@@ -19,11 +19,8 @@ import org.veupathdb.service.eda.generated.model.StandaloneMapBubblesLegendPostR
 import org.veupathdb.service.eda.generated.model.StandaloneMapBubblesLegendSpec;
 import org.veupathdb.service.eda.generated.model.VariableSpec;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -108,10 +105,9 @@ public class BubbleMapMarkersLegendPlugin extends AbstractEmptyComputePlugin<Sta
 
   @Override
   protected void writeResults(OutputStream out, Map<String, InputStream> dataStreams) throws IOException {
-    // create scanner and line parser
-    InputStreamReader isReader = new InputStreamReader(new BufferedInputStream(dataStreams.get(DEFAULT_SINGLE_STREAM_NAME)));
-    BufferedReader reader = new BufferedReader(isReader);
-    DelimitedDataParser parser = new DelimitedDataParser(reader.readLine(), TAB, true);
+    // create scanner and header parser
+    TabularStreamScanner scanner = new TabularStreamScanner(dataStreams.get(DEFAULT_SINGLE_STREAM_NAME));
+    DelimitedDataParser parser = new DelimitedDataParser(scanner.readLine(), TAB, true);
 
     // establish column header indexes
     StandaloneMapBubblesLegendSpec spec = getPluginSpec();
@@ -123,29 +119,24 @@ public class BubbleMapMarkersLegendPlugin extends AbstractEmptyComputePlugin<Sta
 
     final Map<String, MarkerAggregator<Double>> colorAggregators = new HashMap<>();
     final Map<String, MarkerAggregator<Integer>> countAggregators = new HashMap<>();
-    String nextLine = reader.readLine();
-
-    while (nextLine != null) {
-      String[] row = parser.parseLineToArray(nextLine);
 
+    while (scanner.next()) {
       // Check that color config is present and geo aggregate variable is present
-      if (spec.getColorLegendConfig() != null && !(row[mostGranularGeoIndex] == null || row[mostGranularGeoIndex].isEmpty())) {
-        colorAggregators.putIfAbsent(row[mostGranularGeoIndex], _colorSpecification.getAverageAggregatorProvider(colorIndex));
-        colorAggregators.get(row[mostGranularGeoIndex]).addValue(row);
+      if (spec.getColorLegendConfig() != null && !scanner.isEmpty(mostGranularGeoIndex)) {
+        colorAggregators.computeIfAbsent(scanner.getString(mostGranularGeoIndex),
+            geoVal -> _colorSpecification.getAverageAggregatorProvider(colorIndex)).addValue(scanner);
       }
 
       // Check that size config is present and geo aggregate variable is present
-      if (spec.getSizeConfig() != null && !(row[leastGranularGeoIndex] == null || row[leastGranularGeoIndex].isEmpty())) {
-        countAggregators.putIfAbsent(row[leastGranularGeoIndex], new CountAggregator());
-        countAggregators.get(row[leastGranularGeoIndex]).addValue(null);
+      if (spec.getSizeConfig() != null && !scanner.isEmpty(leastGranularGeoIndex)) {
+        countAggregators.computeIfAbsent(scanner.getString(leastGranularGeoIndex),
+            geoVal -> new CountAggregator()).addValue(scanner);
       }
-      nextLine = reader.readLine();
     }
 
     // Construct response, serialize and flush output
     final StandaloneMapBubblesLegendPostResponse response = constructResponse(colorAggregators, countAggregators);
-    JsonUtil.Jackson.writeValue(out, response);
-    out.flush();
+    writeJsonResponse(out, response);
   }
 
   private StandaloneMapBubblesLegendPostResponse constructResponse(Map<String, MarkerAggregator<Double>> colorAggregators,
@@ -1,35 +1,29 @@
 package org.veupathdb.service.eda.ds.plugin.standalonemap;
 
 import org.gusdb.fgputil.DelimitedDataParser;
-import org.gusdb.fgputil.geo.GeographyUtil.GeographicPoint;
-import org.gusdb.fgputil.json.JsonUtil;
 import org.gusdb.fgputil.validation.ValidationException;
 import org.veupathdb.service.eda.common.client.spec.StreamSpec;
 import org.veupathdb.service.eda.common.plugin.constraint.ConstraintSpec;
 import org.veupathdb.service.eda.common.plugin.constraint.DataElementSet;
+import org.veupathdb.service.eda.ds.Resources;
 import org.veupathdb.service.eda.ds.core.AbstractEmptyComputePlugin;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.GeolocationViewport;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.MarkerAggregator;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.QuantitativeAggregateConfiguration;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.MapMarkerRowProcessor;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.MarkerData;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.MarkerResponseWriter;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularStreamScanner;
 import org.veupathdb.service.eda.generated.model.APIVariableType;
-import org.veupathdb.service.eda.generated.model.ColoredMapElementInfo;
-import org.veupathdb.service.eda.generated.model.ColoredMapElementInfoImpl;
 import org.veupathdb.service.eda.generated.model.QuantitativeOverlayConfig;
 import org.veupathdb.service.eda.generated.model.StandaloneMapBubblesPostRequest;
-import org.veupathdb.service.eda.generated.model.StandaloneMapBubblesPostResponse;
-import org.veupathdb.service.eda.generated.model.StandaloneMapBubblesPostResponseImpl;
 import org.veupathdb.service.eda.generated.model.StandaloneMapBubblesSpec;
 import org.veupathdb.service.eda.generated.model.VariableSpec;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -41,19 +35,31 @@ import static org.veupathdb.service.eda.ds.metadata.AppsMetadata.VECTORBASE_PROJ
 
 public class BubbleMapMarkersPlugin extends AbstractEmptyComputePlugin<StandaloneMapBubblesPostRequest, StandaloneMapBubblesSpec> {
   private QuantitativeAggregateConfiguration _overlaySpecification = null;
+  private String _markerIndexKey;
+  private List<VariableSpec> _geoAggregateVariables;
+  private MapMarkerIndexCache.CachedIndex<Double> _markerIndex;
 
   @Override
   public List<String> getProjects() {
     return List.of(VECTORBASE_PROJECT);
   }
 
+  @Override
+  public boolean hasBinaryResponseFormats() {
+    return true;
+  }
+
   @Override
   public ConstraintSpec getConstraintSpec() {
     return new ConstraintSpec()
-      .dependencyOrder(List.of("overlayVariable"), List.of("geoAggregateVariable", "latitudeVariable", "longitudeVariable"))
+      .dependencyOrder(List.of("overlayVariable"), List.of("geoAggregateVariable", "geoAggregateVariables", "latitudeVariable", "longitudeVariable"))
       .pattern()
         .element("geoAggregateVariable")
           .types(APIVariableType.STRING)
+        .element("geoAggregateVariables")
+          .required(false)
+          .maxVars(12) // one per geohash precision
+          .types(APIVariableType.STRING)
         .element("latitudeVariable")
           .types(APIVariableType.NUMBER)
         .element("longitudeVariable")
@@ -72,6 +78,7 @@ public class BubbleMapMarkersPlugin extends AbstractEmptyComputePlugin<Standalon
     validateInputs(new DataElementSet()
       .entity(pluginSpec.getOutputEntityId())
       .var("geoAggregateVariable", pluginSpec.getGeoAggregateVariable())
+      .var("geoAggregateVariables", pluginSpec.getGeoAggregateVariables())
       .var("latitudeVariable", pluginSpec.getLatitudeVariable())
       .var("longitudeVariable", pluginSpec.getLongitudeVariable())
       .var("overlayVariable", Optional.ofNullable(pluginSpec.getOverlayConfig())
@@ -95,9 +102,15 @@ public class BubbleMapMarkersPlugin extends AbstractEmptyComputePlugin<Standalon
 
   @Override
   protected List<StreamSpec> getRequestedStreams(StandaloneMapBubblesSpec pluginSpec) {
-    return List.of(
+    _geoAggregateVariables = MapMarkerIndexCache.getGeoAggregateVariables(pluginSpec.getGeoAggregateVariable(),
+        pluginSpec.getGeoAggregateVariables(), getUtil()::toColNameOrEmpty);
+    _markerIndexKey = MapMarkerIndexCache.getKey(getClass(), _referenceMetadata.getStudyId(),
+        getSubsetFilters(), getDerivedVariableSpecs(), pluginSpec);
+    _markerIndex = MapMarkerIndexCache.<Double>get(_markerIndexKey,
+        getUtil().toColNameOrEmpty(pluginSpec.getGeoAggregateVariable())).orElse(null);
+    return _markerIndex != null ? Collections.emptyList() : List.of(
       new StreamSpec(DEFAULT_SINGLE_STREAM_NAME, pluginSpec.getOutputEntityId())
-        .addVar(pluginSpec.getGeoAggregateVariable())
+        .addVars(_geoAggregateVariables)
         .addVar(pluginSpec.getLatitudeVariable())
         .addVar(pluginSpec.getLongitudeVariable())
         .addVar(Optional.ofNullable(pluginSpec.getOverlayConfig())
@@ -107,15 +120,43 @@ public class BubbleMapMarkersPlugin extends AbstractEmptyComputePlugin<Standalon
 
   @Override
   protected void writeResults(OutputStream out, Map<String, InputStream> dataStreams) throws IOException {
-    // create scanner and line parser
-    InputStreamReader isReader = new InputStreamReader(new BufferedInputStream(dataStreams.get(DEFAULT_SINGLE_STREAM_NAME)));
-    BufferedReader reader = new BufferedReader(isReader);
-    DelimitedDataParser parser = new DelimitedDataParser(reader.readLine(), TAB, true);
+    StandaloneMapBubblesSpec spec = getPluginSpec();
+    Optional<QuantitativeAggregateConfiguration> overlayConfig = Optional.ofNullable(_overlaySpecification);
+
+    // get map markers config
+    GeolocationViewport viewport = GeolocationViewport.fromApiViewport(spec.getViewport());
+
+    // aggregate stats into a map from aggregate value to stats object, from the cached index if available
+    Map<String, MarkerData<Double>> aggregatedDataByGeoVal = _markerIndex != null
+        ? _markerIndex.query(viewport, getUtil().toColNameOrEmpty(spec.getGeoAggregateVariable()))
+        : aggregateMarkers(dataStreams.get(DEFAULT_SINGLE_STREAM_NAME), viewport);
+
+    // write markers as they are read from the aggregation map
+    writeStreamingResponse(out, generator -> {
+      MarkerResponseWriter writer = new MarkerResponseWriter(generator, "mapElements");
+      for (Map.Entry<String, MarkerData<Double>> marker : aggregatedDataByGeoVal.entrySet()) {
+        MarkerAggregator<Double> aggregator = marker.getValue().getMarkerAggregator();
+        Double aggregation = aggregator == null ? null : aggregator.finish();
+        // only output marker data where there are overlay values (issue #334)
+        if (aggregation != null) {
+          String overlayValue = overlayConfig.map(oc -> oc.serializeAverage(aggregation)).orElse(null);
+          writer.writeMarker(marker.getKey(), marker.getValue(), overlayValue == null ? null
+              : overlayGenerator -> overlayGenerator.writeStringField("overlayValue", overlayValue));
+        }
+      }
+      writer.finish();
+    });
+  }
+
+  private Map<String, MarkerData<Double>> aggregateMarkers(InputStream dataStream, GeolocationViewport viewport) throws IOException {
+    // create scanner and header parser
+    TabularStreamScanner scanner = new TabularStreamScanner(dataStream);
+    DelimitedDataParser parser = new DelimitedDataParser(scanner.readLine(), TAB, true);
 
     // establish column header indexes
     StandaloneMapBubblesSpec spec = getPluginSpec();
     Function<VariableSpec, Integer> indexOf = var -> parser.indexOfColumn(getUtil().toColNameOrEmpty(var)).orElseThrow();
-    int geoVarIndex  = indexOf.apply(spec.getGeoAggregateVariable());
+    int[] geoVarIndexes = _geoAggregateVariables.stream().mapToInt(indexOf::apply).toArray();
     int latIndex     = indexOf.apply(spec.getLatitudeVariable());
     int lonIndex     = indexOf.apply(spec.getLongitudeVariable());
     Optional<QuantitativeAggregateConfiguration> overlayConfig = Optional.ofNullable(_overlaySpecification);
@@ -124,44 +165,17 @@ public class BubbleMapMarkersPlugin extends AbstractEmptyComputePlugin<Standalon
         .map(indexOf)
         .orElse(null);
 
-    // get map markers config
-    GeolocationViewport viewport = GeolocationViewport.fromApiViewport(spec.getViewport());
-
-    MapMarkerRowProcessor<Double> processor = new MapMarkerRowProcessor<>(geoVarIndex, latIndex, lonIndex);
+    MapMarkerRowProcessor<Double> processor = new MapMarkerRowProcessor<>(geoVarIndexes, latIndex, lonIndex);
 
     Supplier<MarkerAggregator<Double>> markerAggregatorSupplier = () -> overlayConfig
         .map(aggregateConfig -> aggregateConfig.getAverageAggregatorProvider(overlayIndex))
         .orElse(null);
 
-    // loop through rows of data stream, aggregating stats into a map from aggregate value to stats object
-    Map<String, MarkerData<Double>> aggregatedDataByGeoVal = processor.process(reader, parser, viewport, markerAggregatorSupplier);
-
-    List<ColoredMapElementInfo> output = new ArrayList<>();
-    for (String key : aggregatedDataByGeoVal.keySet()) {
-      ColoredMapElementInfo mapEle = new ColoredMapElementInfoImpl();
-      MarkerData<Double> data = aggregatedDataByGeoVal.get(key);
-      GeographicPoint avgLatLon = data.getLatLonAvg().getCurrentAverage();
-      mapEle.setGeoAggregateValue(key);
-      mapEle.setEntityCount(data.getCount());
-      mapEle.setAvgLat(avgLatLon.getLatitude());
-      mapEle.setAvgLon(avgLatLon.getLongitude());
-      mapEle.setMinLat(data.getMinLat());
-      mapEle.setMaxLat(data.getMaxLat());
-      mapEle.setMinLon(data.getMinLon());
-      mapEle.setMaxLon(data.getMaxLon());
-      MarkerAggregator<Double> aggregator = data.getMarkerAggregator();
-      if (aggregator != null) {
-        Double aggregation = aggregator.finish();
-        if (aggregation != null) {
-          mapEle.setOverlayValue(overlayConfig.map(oc -> oc.serializeAverage(aggregation)).orElse(null));
-	  // only output marker data where there are overlay values (issue #334)
-	  output.add(mapEle);
-	}
-      }
-    }
-    StandaloneMapBubblesPostResponse response = new StandaloneMapBubblesPostResponseImpl();
-    response.setMapElements(output);
-    JsonUtil.Jackson.writeValue(out, response);
-    out.flush();
+    // loop through rows of data stream, aggregating stats and indexing them for later viewports
+    MapMarkerRowProcessor.IndexedResult<Double> result = processor.processAndIndex(scanner, viewport,
+        markerAggregatorSupplier, Resources.MAP_MARKER_AGGREGATION_THREADS, MapMarkerIndexCache.getMaxIndexedPartials());
+    result.getIndex().ifPresent(index -> MapMarkerIndexCache.put(_markerIndexKey,
+        _geoAggregateVariables.stream().map(getUtil()::toColNameOrEmpty).toList(), index));
+    return result.getMarkers();
   }
 }
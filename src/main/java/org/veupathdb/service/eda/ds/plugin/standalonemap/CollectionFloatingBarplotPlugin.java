@@ -19,7 +19,6 @@ import java.util.List;
 import java.util.Map;
 
 import static org.veupathdb.service.eda.common.plugin.util.RServeClient.streamResult;
-import static org.veupathdb.service.eda.common.plugin.util.RServeClient.useRConnectionWithRemoteFiles;
 import static org.veupathdb.service.eda.ds.metadata.AppsMetadata.VECTORBASE_PROJECT;
 
 public class CollectionFloatingBarplotPlugin extends AbstractEmptyComputePlugin<CollectionFloatingBarplotPostRequest, CollectionFloatingBarplotSpec> {
@@ -6,9 +6,9 @@ import org.veupathdb.service.eda.common.client.spec.StreamSpec;
 import org.veupathdb.service.eda.common.plugin.constraint.ConstraintSpec;
 import org.veupathdb.service.eda.common.plugin.constraint.DataElementSet;
 import org.veupathdb.service.eda.common.plugin.util.PluginUtil;
-import org.veupathdb.service.eda.common.plugin.util.RFileSetProcessor;
 import org.veupathdb.service.eda.ds.Resources;
 import org.veupathdb.service.eda.ds.core.AbstractEmptyComputePlugin;
+import org.veupathdb.service.eda.ds.core.RFileSet;
 import org.veupathdb.service.eda.ds.utils.ValidationUtils;
 import org.veupathdb.service.eda.generated.model.*;
 
@@ -21,7 +21,6 @@ import java.util.List;
 import java.util.Map;
 
 import static org.veupathdb.service.eda.common.plugin.util.RServeClient.streamResult;
-import static org.veupathdb.service.eda.common.plugin.util.RServeClient.useRConnectionWithProcessedRemoteFiles;
 import static org.veupathdb.service.eda.ds.metadata.AppsMetadata.VECTORBASE_PROJECT;
 
 public class CollectionFloatingBoxplotPlugin extends AbstractEmptyComputePlugin<CollectionFloatingBoxplotPostRequest, CollectionFloatingBoxplotSpec> {
@@ -103,7 +102,7 @@ public class CollectionFloatingBoxplotPlugin extends AbstractEmptyComputePlugin<
     //nonStrataVarColNames.add(util.toColNameOrEmpty(spec.getYAxisVariable()));
 
     // TODO we have this and the inpute fxn below. how do they relate?
-    RFileSetProcessor filesProcessor = new RFileSetProcessor(dataStreams)
+    RFileSet filesProcessor = new RFileSet(dataStreams)
       .add(DEFAULT_SINGLE_STREAM_NAME, 
         spec.getMaxAllowedDataPoints(), 
         "noVariables", 
@@ -116,6 +115,7 @@ public class CollectionFloatingBoxplotPlugin extends AbstractEmptyComputePlugin<
     Map<String, InputStream> studyVocabs = getVocabByRootEntity(dataSpecsWithStudyDependentVocabs);
     dataStreams.putAll(studyVocabs);
 
+    // not computed natively (see NativeBoxplots): each selected member of the collection gets its own box
     useRConnectionWithProcessedRemoteFiles(Resources.RSERVE_URL, filesProcessor, connection -> {
       String inputData = getRInputDataWithImputedZeroesAsString(DEFAULT_SINGLE_STREAM_NAME, varMap, outputEntityId, "variables");
       connection.voidEval(getVoidEvalDynamicDataMetadataListWithStudyDependentVocabs(varMap, outputEntityId));
@@ -1,10 +1,11 @@
 package org.veupathdb.service.eda.ds.plugin.standalonemap;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.gusdb.fgputil.DelimitedDataParser;
-import org.gusdb.fgputil.json.JsonUtil;
 import org.gusdb.fgputil.validation.ValidationException;
 import org.veupathdb.service.eda.common.client.spec.StreamSpec;
 import org.veupathdb.service.eda.common.plugin.constraint.ConstraintSpec;
+import org.veupathdb.service.eda.ds.Resources;
 import org.veupathdb.service.eda.ds.core.AbstractEmptyComputePlugin;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.AveragesWithConfidence;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.CollectionAveragesWithConfidenceAggregator;
@@ -12,16 +13,19 @@ import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.MarkerAggreg
 import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.GeolocationViewport;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.MapMarkerRowProcessor;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.MarkerData;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.MarkerResponseWriter;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.QuantitativeAggregateConfiguration;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularStreamScanner;
 import org.veupathdb.service.eda.ds.utils.ValidationUtils;
 import org.veupathdb.service.eda.generated.model.*;
 
 import java.io.*;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 import static org.gusdb.fgputil.FormatUtil.TAB;
 import static org.veupathdb.service.eda.ds.metadata.AppsMetadata.VECTORBASE_PROJECT;
@@ -29,12 +33,20 @@ import static org.veupathdb.service.eda.ds.metadata.AppsMetadata.VECTORBASE_PROJ
 public class CollectionMapMarkersPlugin extends AbstractEmptyComputePlugin<StandaloneCollectionMapMarkerPostRequest, StandaloneCollectionMapMarkerSpec> {
 
   private QuantitativeAggregateConfiguration _aggregateConfig;
+  private String _markerIndexKey;
+  private List<VariableSpec> _geoAggregateVariables;
+  private MapMarkerIndexCache.CachedIndex<Map<String, AveragesWithConfidence>> _markerIndex;
 
   @Override
   public List<String> getProjects() {
     return List.of(VECTORBASE_PROJECT);
   }
 
+  @Override
+  public boolean hasBinaryResponseFormats() {
+    return true;
+  }
+
   @Override
   public ConstraintSpec getConstraintSpec() {
     return new ConstraintSpec()
@@ -76,65 +88,88 @@ public class CollectionMapMarkersPlugin extends AbstractEmptyComputePlugin<Stand
 
   @Override
   protected List<StreamSpec> getRequestedStreams(StandaloneCollectionMapMarkerSpec pluginSpec) {
+    _geoAggregateVariables = MapMarkerIndexCache.getGeoAggregateVariables(pluginSpec.getGeoAggregateVariable(),
+        pluginSpec.getGeoAggregateVariables(), getUtil()::toColNameOrEmpty);
+    _markerIndexKey = MapMarkerIndexCache.getKey(getClass(), _referenceMetadata.getStudyId(),
+        getSubsetFilters(), getDerivedVariableSpecs(), pluginSpec);
+    _markerIndex = MapMarkerIndexCache.<Map<String, AveragesWithConfidence>>get(_markerIndexKey,
+        getUtil().toColNameOrEmpty(pluginSpec.getGeoAggregateVariable())).orElse(null);
+    if (_markerIndex != null) {
+      return Collections.emptyList();
+    }
     StreamSpec streamSpec = new StreamSpec(DEFAULT_SINGLE_STREAM_NAME, pluginSpec.getOutputEntityId());
     streamSpec.addVars(pluginSpec.getCollection().getSelectedMembers());
+    streamSpec.addVars(_geoAggregateVariables);
     return List.of(streamSpec);
   }
 
   @Override
   protected void writeResults(OutputStream out, Map<String, InputStream> dataStreams) throws IOException {
-    InputStreamReader isReader = new InputStreamReader(new BufferedInputStream(dataStreams.get(DEFAULT_SINGLE_STREAM_NAME)));
-    BufferedReader reader = new BufferedReader(isReader);
-    DelimitedDataParser parser = new DelimitedDataParser(reader.readLine(), TAB, true);
+    StandaloneCollectionMapMarkerSpec spec = getPluginSpec();
+    GeolocationViewport viewport = GeolocationViewport.fromApiViewport(spec.getViewport());
+
+    // For each marker, aggregate all data into a Map of collection member ID to stats, from the cached index if available
+    Map<String, MarkerData<Map<String, AveragesWithConfidence>>> markerDataById = _markerIndex != null
+        ? _markerIndex.query(viewport, getUtil().toColNameOrEmpty(spec.getGeoAggregateVariable()))
+        : aggregateMarkers(dataStreams.get(DEFAULT_SINGLE_STREAM_NAME), viewport);
+
+    // Write markers as they are read from the aggregation map; collection markers have no geoAggregateValue
+    writeStreamingResponse(out, generator -> {
+      MarkerResponseWriter writer = new MarkerResponseWriter(generator, "markers");
+      for (Map.Entry<String, MarkerData<Map<String, AveragesWithConfidence>>> marker : markerDataById.entrySet()) {
+        writer.writeMarker(null, marker.getValue(), valuesGenerator ->
+            writeValues(valuesGenerator, marker.getValue().getMarkerAggregator().finish().values(), marker.getKey()));
+      }
+      writer.finish();
+    });
+  }
+
+  private Map<String, MarkerData<Map<String, AveragesWithConfidence>>> aggregateMarkers(
+      InputStream dataStream, GeolocationViewport viewport) throws IOException {
+    TabularStreamScanner scanner = new TabularStreamScanner(dataStream);
+    DelimitedDataParser parser = new DelimitedDataParser(scanner.readLine(), TAB, true);
 
     StandaloneCollectionMapMarkerSpec spec = getPluginSpec();
     Function<String, Integer> indexOf = var -> parser.indexOfColumn(var).orElseThrow();
-    Function<Integer, String> indexToVarId = index -> parser.getColumnNames().get(index);
     List<String> memberVarColNames = spec.getCollection().getSelectedMembers().stream()
         .map(getUtil()::toColNameOrEmpty)
         .toList();
 
     // For each marker, aggregate all data into a Map of collection member ID to stats containing averages and confidence intervals
-    final Supplier<MarkerAggregator<Map<String, AveragesWithConfidence>>> aggSupplier = () -> new CollectionAveragesWithConfidenceAggregator(indexToVarId,
-        indexOf, memberVarColNames, _aggregateConfig);
+    // (the supplier is kept by the cached index, so it must not hold on to this plugin)
+    final QuantitativeAggregateConfiguration aggregateConfig = _aggregateConfig;
+    final Supplier<MarkerAggregator<Map<String, AveragesWithConfidence>>> aggSupplier = () -> new CollectionAveragesWithConfidenceAggregator(indexOf,
+        memberVarColNames, aggregateConfig);
 
     // Establish column header indexes
-    int geoVarIndex = indexOf.apply(getUtil().toColNameOrEmpty(spec.getGeoAggregateVariable()));
+    int[] geoVarIndexes = _geoAggregateVariables.stream()
+        .mapToInt(var -> indexOf.apply(getUtil().toColNameOrEmpty(var)))
+        .toArray();
     int latIndex = indexOf.apply(getUtil().toColNameOrEmpty(spec.getLatitudeVariable()));
     int lonIndex = indexOf.apply(getUtil().toColNameOrEmpty(spec.getLongitudeVariable()));
 
-    GeolocationViewport viewport = GeolocationViewport.fromApiViewport(spec.getViewport());
-    MapMarkerRowProcessor<Map<String, AveragesWithConfidence>> processor = new MapMarkerRowProcessor<>(geoVarIndex, latIndex, lonIndex);
-    Map<String, MarkerData<Map<String, AveragesWithConfidence>>> markerDataById = processor.process(reader, parser, viewport, aggSupplier);
-
-    // Construct response, serialize and flush output
-    final StandaloneCollectionMapMarkerPostResponse response = new StandaloneCollectionMapMarkerPostResponseImpl();
-    response.setMarkers(markerDataById.entrySet().stream().map(entry -> {
-      final CollectionMapMarkerElement ele = new CollectionMapMarkerElementImpl();
-      ele.setAvgLat(entry.getValue().getLatLonAvg().getCurrentAverage().getLatitude());
-      ele.setAvgLon(entry.getValue().getLatLonAvg().getCurrentAverage().getLongitude());
-      ele.setMaxLat(entry.getValue().getMaxLat());
-      ele.setMaxLon(entry.getValue().getMaxLon());
-      ele.setEntityCount(ele.getEntityCount());
-      ele.setValues(entry.getValue().getMarkerAggregator().finish().values().stream()
-          .map(markerAggregate -> translateToOutput(markerAggregate, entry.getKey()))
-          .collect(Collectors.toList()));
-      return ele;
-    }).collect(Collectors.toList()));
-
-    JsonUtil.Jackson.writeValue(out, response);
-    out.flush();
+    MapMarkerRowProcessor<Map<String, AveragesWithConfidence>> processor = new MapMarkerRowProcessor<>(geoVarIndexes, latIndex, lonIndex);
+    MapMarkerRowProcessor.IndexedResult<Map<String, AveragesWithConfidence>> result = processor.processAndIndex(scanner, viewport,
+        aggSupplier, Resources.MAP_MARKER_AGGREGATION_THREADS, MapMarkerIndexCache.getMaxIndexedPartials());
+    result.getIndex().ifPresent(index -> MapMarkerIndexCache.put(_markerIndexKey,
+        _geoAggregateVariables.stream().map(getUtil()::toColNameOrEmpty).toList(), index));
+    return result.getMarkers();
   }
 
-  private CollectionMemberAggregate translateToOutput(AveragesWithConfidence averagesWithConfidence, String variableId) {
-    final CollectionMemberAggregate collectionMemberResult = new CollectionMemberAggregateImpl();
-    collectionMemberResult.setValue(averagesWithConfidence.getAverage());
-    collectionMemberResult.setN(averagesWithConfidence.getN());
-    collectionMemberResult.setVariableId(variableId);
-    final NumberRange range = new NumberRangeImpl();
-    range.setMin(averagesWithConfidence.getIntervalLowerBound());
-    range.setMax(averagesWithConfidence.getIntervalUpperBound());
-    collectionMemberResult.setConfidenceInterval(range);
-    return collectionMemberResult;
+  // writes the values of a marker, as CollectionMemberAggregate objects
+  private static void writeValues(JsonGenerator generator, Collection<AveragesWithConfidence> averages, String variableId) throws IOException {
+    generator.writeArrayFieldStart("values");
+    for (AveragesWithConfidence averagesWithConfidence : averages) {
+      generator.writeStartObject();
+      generator.writeStringField("variableId", variableId);
+      generator.writeNumberField("value", averagesWithConfidence.getAverage());
+      generator.writeObjectFieldStart("confidenceInterval");
+      MarkerResponseWriter.writeOptionalNumberField(generator, "min", averagesWithConfidence.getIntervalLowerBound());
+      MarkerResponseWriter.writeOptionalNumberField(generator, "max", averagesWithConfidence.getIntervalUpperBound());
+      generator.writeEndObject();
+      generator.writeNumberField("n", averagesWithConfidence.getN());
+      generator.writeEndObject();
+    }
+    generator.writeEndArray();
   }
 }
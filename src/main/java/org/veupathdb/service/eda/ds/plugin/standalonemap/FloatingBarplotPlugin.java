@@ -8,6 +8,9 @@ import org.veupathdb.service.eda.common.plugin.constraint.DataElementSet;
 import org.veupathdb.service.eda.common.plugin.util.PluginUtil;
 import org.veupathdb.service.eda.ds.Resources;
 import org.veupathdb.service.eda.ds.core.AbstractEmptyComputePlugin;
+import org.veupathdb.service.eda.ds.nativeplot.CategoricalCounts;
+import org.veupathdb.service.eda.ds.nativeplot.NativeCategoricalPlots;
+import org.veupathdb.service.eda.ds.nativeplot.Strata;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.OverlaySpecification;
 import org.veupathdb.service.eda.generated.model.*;
 
@@ -15,14 +18,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collector;
 
 import static org.veupathdb.service.eda.common.plugin.util.RServeClient.streamResult;
-import static org.veupathdb.service.eda.common.plugin.util.RServeClient.useRConnectionWithRemoteFiles;
 import static org.veupathdb.service.eda.ds.metadata.AppsMetadata.VECTORBASE_PROJECT;
 
 public class FloatingBarplotPlugin extends AbstractEmptyComputePlugin<FloatingBarplotPostRequest, FloatingBarplotSpec> {
@@ -112,6 +116,15 @@ public class FloatingBarplotPlugin extends AbstractEmptyComputePlugin<FloatingBa
 
     // TODO can we make this automagical? override useRConnectionWithRemoteFiles ? i wasnt clear how..
     List<DynamicDataSpec> dataSpecsWithStudyDependentVocabs = getDynamicDataSpecsWithStudyDependentVocabs(outputEntityId);
+
+    // the native path imputes no zeroes, so is only used when no variable needs them
+    if (Resources.NATIVE_CATEGORICAL_PLOTS_ENABLED && dataSpecsWithStudyDependentVocabs.isEmpty()
+        && !Boolean.parseBoolean(util.getVariableImputeZero(spec.getXAxisVariable()))
+        && (overlayVariable == null || !Boolean.parseBoolean(util.getVariableImputeZero(overlayVariable)))) {
+      writeNativeResults(out, dataStreams.get(DEFAULT_SINGLE_STREAM_NAME), varMap);
+      return;
+    }
+
     Map<String, InputStream> studyVocabs = getVocabByRootEntity(dataSpecsWithStudyDependentVocabs);
     dataStreams.putAll(studyVocabs);
  
@@ -132,4 +145,35 @@ public class FloatingBarplotPlugin extends AbstractEmptyComputePlugin<FloatingBa
       streamResult(connection, cmd, out);
     });
   }
+
+  // equivalent of plot.data::bar, computed without R in a single pass that does not depend on row order
+  private void writeNativeResults(OutputStream out, InputStream dataStream, Map<String, VariableSpec> varMap) throws IOException {
+    FloatingBarplotSpec spec = getPluginSpec();
+    PluginUtil util = getUtil();
+    VariableSpec overlayVariable = varMap.get("overlay");
+    // as in plot.data, overlay values outside all of the requested bins are treated as missing
+    UnaryOperator<String> overlayRecoder = value -> {
+      try {
+        return _overlaySpecification.recode(value);
+      }
+      catch (IllegalArgumentException e) {
+        return null;
+      }
+    };
+
+    CategoricalCounts counts = NativeCategoricalPlots.count(dataStream, util::toColNameOrEmpty,
+        spec.getXAxisVariable(), overlayVariable, Collections.emptyList(),
+        overlayVariable == null ? UnaryOperator.identity() : overlayRecoder, false);
+    Map<Strata, CategoricalCounts.Table> tables = counts.getTables(
+        util.getVocabulary(spec.getXAxisVariable()),
+        overlayVariable == null ? null : _overlaySpecification.getLabels());
+    boolean proportions = spec.getValueSpec().getValue().equals("proportion");
+
+    FloatingBarplot barplot = new FloatingBarplotImpl();
+    barplot.setData(NativeCategoricalPlots.toBarplotData(tables, overlayVariable, Collections.emptyList(), proportions));
+    barplot.setVariables(getVariableMappings(varMap));
+    FloatingBarplotPostResponse response = new FloatingBarplotPostResponseImpl();
+    response.setBarplot(barplot);
+    writeJsonResponse(out, response);
+  }
 }
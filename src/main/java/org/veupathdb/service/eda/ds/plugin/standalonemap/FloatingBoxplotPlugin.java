@@ -1,14 +1,17 @@
 package org.veupathdb.service.eda.ds.plugin.standalonemap;
 
+import jakarta.ws.rs.BadRequestException;
 import org.gusdb.fgputil.ListBuilder;
 import org.gusdb.fgputil.validation.ValidationException;
 import org.veupathdb.service.eda.common.client.spec.StreamSpec;
 import org.veupathdb.service.eda.common.plugin.constraint.ConstraintSpec;
 import org.veupathdb.service.eda.common.plugin.constraint.DataElementSet;
 import org.veupathdb.service.eda.common.plugin.util.PluginUtil;
-import org.veupathdb.service.eda.common.plugin.util.RFileSetProcessor;
 import org.veupathdb.service.eda.ds.Resources;
 import org.veupathdb.service.eda.ds.core.AbstractEmptyComputePlugin;
+import org.veupathdb.service.eda.ds.core.RFileSet;
+import org.veupathdb.service.eda.ds.nativeplot.NativeBoxplots;
+import org.veupathdb.service.eda.ds.nativeplot.NumericBoxplot;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.OverlaySpecification;
 import org.veupathdb.service.eda.generated.model.*;
 
@@ -16,13 +19,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
 
 import static org.veupathdb.service.eda.common.plugin.util.RServeClient.streamResult;
-import static org.veupathdb.service.eda.common.plugin.util.RServeClient.useRConnectionWithProcessedRemoteFiles;
 import static org.veupathdb.service.eda.ds.metadata.AppsMetadata.VECTORBASE_PROJECT;
 
 public class FloatingBoxplotPlugin extends AbstractEmptyComputePlugin<FloatingBoxplotPostRequest, FloatingBoxplotSpec> {
@@ -115,10 +119,18 @@ public class FloatingBoxplotPlugin extends AbstractEmptyComputePlugin<FloatingBo
     nonStrataVarColNames.add(util.toColNameOrEmpty(spec.getYAxisVariable()));
 
     List<DynamicDataSpec> dataSpecsWithStudyDependentVocabs = getDynamicDataSpecsWithStudyDependentVocabs(outputEntityId);
+
+    // the native path imputes no zeroes, so is only used when no variable needs them
+    if (Resources.NATIVE_BOXPLOT_ENABLED && dataSpecsWithStudyDependentVocabs.isEmpty()
+        && varMap.values().stream().noneMatch(var -> var != null && Boolean.parseBoolean(util.getVariableImputeZero(var)))) {
+      writeNativeResults(out, dataStreams.get(DEFAULT_SINGLE_STREAM_NAME), varMap);
+      return;
+    }
+
     Map<String, InputStream> studyVocabs = getVocabByRootEntity(dataSpecsWithStudyDependentVocabs);
     dataStreams.putAll(studyVocabs);
 
-    RFileSetProcessor filesProcessor = new RFileSetProcessor(dataStreams)
+    RFileSet filesProcessor = new RFileSet(dataStreams)
       .add(DEFAULT_SINGLE_STREAM_NAME, 
         spec.getMaxAllowedDataPoints(), 
         "noVariables", 
@@ -145,4 +157,36 @@ public class FloatingBoxplotPlugin extends AbstractEmptyComputePlugin<FloatingBo
       streamResult(connection, cmd, out);
     });
   }
+
+  // equivalent of plot.data::box with outliers and means, computed without R in a single pass
+  private void writeNativeResults(OutputStream out, InputStream dataStream, Map<String, VariableSpec> varMap) throws IOException {
+    FloatingBoxplotSpec spec = getPluginSpec();
+    VariableSpec overlayVariable = varMap.get("overlay");
+    List<VariableSpec> strataVariables = overlayVariable == null ? Collections.emptyList() : List.of(overlayVariable);
+    // as in plot.data, overlay values outside all of the requested bins are treated as missing
+    UnaryOperator<String> overlayRecoder = value -> {
+      try {
+        return _overlaySpecification.recode(value);
+      }
+      catch (IllegalArgumentException e) {
+        return null;
+      }
+    };
+    List<UnaryOperator<String>> strataRecoders = overlayVariable == null ? Collections.emptyList() : List.of(overlayRecoder);
+
+    NumericBoxplot boxplot = NativeBoxplots.read(dataStream, getUtil()::toColNameOrEmpty,
+        spec.getXAxisVariable(), spec.getYAxisVariable(), strataVariables, strataRecoders,
+        Resources.NATIVE_BOXPLOT_MAX_EXACT_VALUES, false, spec.getMaxAllowedDataPoints());
+    if (boxplot.exceedsMaxAxesCases()) {
+      throw new BadRequestException("Box plot has more than the " + spec.getMaxAllowedDataPoints() + " data points allowed.");
+    }
+    List<NumericBoxplot.Series> series = boxplot.compute(getUtil().getVocabulary(spec.getXAxisVariable()));
+
+    FloatingBoxplot plot = new FloatingBoxplotImpl();
+    plot.setData(NativeBoxplots.toBoxplotData(series, overlayVariable, Collections.emptyList(), false, true));
+    plot.setVariables(getVariableMappings(varMap));
+    FloatingBoxplotPostResponse response = new FloatingBoxplotPostResponseImpl();
+    response.setBoxplot(plot);
+    writeJsonResponse(out, response);
+  }
 }
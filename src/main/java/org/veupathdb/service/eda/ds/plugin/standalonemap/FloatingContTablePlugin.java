@@ -8,18 +8,22 @@ import org.veupathdb.service.eda.common.plugin.constraint.DataElementSet;
 import org.veupathdb.service.eda.common.plugin.util.PluginUtil;
 import org.veupathdb.service.eda.ds.Resources;
 import org.veupathdb.service.eda.ds.core.AbstractEmptyComputePlugin;
+import org.veupathdb.service.eda.ds.nativeplot.CategoricalCounts;
+import org.veupathdb.service.eda.ds.nativeplot.NativeCategoricalPlots;
+import org.veupathdb.service.eda.ds.nativeplot.Strata;
 import org.veupathdb.service.eda.generated.model.*;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 
 import static org.veupathdb.service.eda.common.plugin.util.RServeClient.streamResult;
-import static org.veupathdb.service.eda.common.plugin.util.RServeClient.useRConnectionWithRemoteFiles;
 import static org.veupathdb.service.eda.ds.metadata.AppsMetadata.VECTORBASE_PROJECT;
 
 public class FloatingContTablePlugin extends AbstractEmptyComputePlugin<FloatingContTablePostRequest, FloatingContTableSpec> {
@@ -90,6 +94,15 @@ public class FloatingContTablePlugin extends AbstractEmptyComputePlugin<Floating
     varMap.put("yAxis", spec.getYAxisVariable());
    
     List<DynamicDataSpec> dataSpecsWithStudyDependentVocabs = getDynamicDataSpecsWithStudyDependentVocabs(outputEntityId);
+
+    // the native path imputes no zeroes, so is only used when no variable needs them
+    if (Resources.NATIVE_CATEGORICAL_PLOTS_ENABLED && dataSpecsWithStudyDependentVocabs.isEmpty()
+        && !Boolean.parseBoolean(util.getVariableImputeZero(spec.getXAxisVariable()))
+        && !Boolean.parseBoolean(util.getVariableImputeZero(spec.getYAxisVariable()))) {
+      writeNativeResults(out, dataStreams.get(DEFAULT_SINGLE_STREAM_NAME), varMap);
+      return;
+    }
+
     Map<String, InputStream> studyVocabs = getVocabByRootEntity(dataSpecsWithStudyDependentVocabs);
     dataStreams.putAll(studyVocabs);
 
@@ -108,4 +121,24 @@ public class FloatingContTablePlugin extends AbstractEmptyComputePlugin<Floating
       streamResult(connection, cmd, out);
     });
   }
+
+  // equivalent of plot.data::mosaic with the chi-squared test, computed without R in a single pass
+  private void writeNativeResults(OutputStream out, InputStream dataStream, Map<String, VariableSpec> varMap) throws IOException {
+    FloatingContTableSpec spec = getPluginSpec();
+    PluginUtil util = getUtil();
+
+    CategoricalCounts counts = NativeCategoricalPlots.count(dataStream, util::toColNameOrEmpty,
+        spec.getXAxisVariable(), spec.getYAxisVariable(), Collections.emptyList(), UnaryOperator.identity(), true);
+    Map<Strata, CategoricalCounts.Table> tables = counts.getTables(
+        util.getVocabulary(spec.getXAxisVariable()),
+        util.getVocabulary(spec.getYAxisVariable()));
+
+    FloatingContTable mosaic = new FloatingContTableImpl();
+    mosaic.setData(NativeCategoricalPlots.toMosaicData(tables, Collections.emptyList()));
+    mosaic.setVariables(getVariableMappings(varMap));
+    FloatingContTablePostResponse response = new FloatingContTablePostResponseImpl();
+    response.setMosaic(mosaic);
+    response.setStatsTable(NativeCategoricalPlots.toTwoByTwoStatsTable(tables, Collections.emptyList(), null, null, false));
+    writeJsonResponse(out, response);
+  }
 }
@@ -10,6 +10,8 @@ import org.veupathdb.service.eda.common.plugin.constraint.DataElementSet;
 import org.veupathdb.service.eda.common.plugin.util.PluginUtil;
 import org.veupathdb.service.eda.ds.Resources;
 import org.veupathdb.service.eda.ds.core.AbstractEmptyComputePlugin;
+import org.veupathdb.service.eda.ds.nativeplot.NativeHistograms;
+import org.veupathdb.service.eda.ds.nativeplot.NumericHistogram;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.OverlaySpecification;
 import org.veupathdb.service.eda.generated.model.*;
 
@@ -17,13 +19,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
 
 import static org.veupathdb.service.eda.common.plugin.util.RServeClient.streamResult;
-import static org.veupathdb.service.eda.common.plugin.util.RServeClient.useRConnectionWithRemoteFiles;
 import static org.veupathdb.service.eda.ds.metadata.AppsMetadata.VECTORBASE_PROJECT;
 
 public class FloatingHistogramPlugin extends AbstractEmptyComputePlugin<FloatingHistogramPostRequest, FloatingHistogramSpec> {
@@ -114,6 +117,17 @@ public class FloatingHistogramPlugin extends AbstractEmptyComputePlugin<Floating
     String overlayValues = _overlaySpecification == null ? "NULL" : _overlaySpecification.getRBinListAsString();
 
     List<DynamicDataSpec> dataSpecsWithStudyDependentVocabs = getDynamicDataSpecsWithStudyDependentVocabs(outputEntityId);
+
+    // zeroes are imputed in R, so histograms of variables needing them are left to plot.data
+    if (Resources.NATIVE_HISTOGRAM_ENABLED && dataSpecsWithStudyDependentVocabs.isEmpty()
+        && !Boolean.parseBoolean(util.getVariableImputeZero(spec.getXAxisVariable()))
+        && (overlayVariable == null || !Boolean.parseBoolean(util.getVariableImputeZero(overlayVariable)))
+        && NativeHistograms.isSupported(xVarType, spec.getBinSpec())) {
+      validateBinSpec(spec.getBinSpec(), xVarType);
+      writeNativeResults(out, dataStreams.get(DEFAULT_SINGLE_STREAM_NAME), varMap, xVarType);
+      return;
+    }
+
     Map<String, InputStream> studyVocabs = getVocabByRootEntity(dataSpecsWithStudyDependentVocabs);
     dataStreams.putAll(studyVocabs);
 
@@ -169,4 +183,32 @@ public class FloatingHistogramPlugin extends AbstractEmptyComputePlugin<Floating
       streamResult(connection, cmd, out);
     });
   }
+
+  // equivalent of plot.data::histogram for numeric x-axis variables, computed without R
+  private void writeNativeResults(OutputStream out, InputStream dataStream, Map<String, VariableSpec> varMap, String xVarType) throws IOException {
+    FloatingHistogramSpec spec = getPluginSpec();
+    VariableSpec overlayVariable = varMap.get("overlay");
+    List<VariableSpec> strataVariables = overlayVariable == null ? Collections.emptyList() : List.of(overlayVariable);
+    // as in plot.data, overlay values outside all of the requested bins are treated as missing
+    UnaryOperator<String> overlayRecoder = value -> {
+      try {
+        return _overlaySpecification.recode(value);
+      }
+      catch (IllegalArgumentException e) {
+        return null;
+      }
+    };
+    List<UnaryOperator<String>> strataRecoders = overlayVariable == null ? Collections.emptyList() : List.of(overlayRecoder);
+
+    NumericHistogram.Result result = NativeHistograms.compute(dataStream, getUtil()::toColNameOrEmpty,
+        spec.getXAxisVariable(), xVarType, strataVariables, strataRecoders,
+        spec.getBinSpec(), spec.getViewport(), spec.getValueSpec());
+
+    FloatingHistogram histogram = new FloatingHistogramImpl();
+    histogram.setData(NativeHistograms.toHistogramData(result, overlayVariable, Collections.emptyList()));
+    histogram.setVariables(getVariableMappings(varMap));
+    FloatingHistogramPostResponse response = new FloatingHistogramPostResponseImpl();
+    response.setHistogram(histogram);
+    writeJsonResponse(out, response);
+  }
 }
@@ -0,0 +1,142 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap;
+
+import org.gusdb.fgputil.EncryptionUtil;
+import org.gusdb.fgputil.json.JsonUtil;
+import org.json.JSONObject;
+import org.veupathdb.service.eda.ds.Resources;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.GeolocationViewport;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.MarkerData;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.SpatialMarkerIndex;
+import org.veupathdb.service.eda.ds.utils.ExpiringLruCache;
+import org.veupathdb.service.eda.generated.model.APIFilter;
+import org.veupathdb.service.eda.generated.model.DerivedVariableSpec;
+import org.veupathdb.service.eda.generated.model.VariableSpec;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Process-wide cache of spatial marker indexes.  Map clients request markers again each time the user pans or
+ * zooms, changing only the viewport and, with the zoom level, the geo aggregate variable.  An index of the
+ * whole data stream, built over the requested geo variable and any additional ones the client asks for,
+ * answers those requests by merging pre-aggregated partials, without streaming the data again.
+ *
+ * Indexes are keyed by everything that determines the data and its aggregation (plugin, study, subset
+ * filters, derived variables and the plugin spec minus its viewport and geo variables), and are evicted by
+ * estimated memory footprint.
+ */
+public class MapMarkerIndexCache {
+
+  // spec properties that only select what is read from an index, so are left out of its key
+  private static final String[] QUERY_PROPERTIES = { "viewport", "geoAggregateVariable", "geoAggregateVariables" };
+
+  /**
+   * A cached index along with the geo variables (as column names) it can be queried by, in level order.
+   */
+  public static class CachedIndex<T> {
+
+    private final List<String> _geoVariableColumns;
+    private final SpatialMarkerIndex<T> _index;
+
+    private CachedIndex(List<String> geoVariableColumns, SpatialMarkerIndex<T> index) {
+      _geoVariableColumns = List.copyOf(geoVariableColumns);
+      _index = index;
+    }
+
+    public boolean hasGeoVariable(String geoVariableColumn) {
+      return _geoVariableColumns.contains(geoVariableColumn);
+    }
+
+    /**
+     * @return new markers within the passed viewport, aggregated by the passed geo variable
+     */
+    public Map<String, MarkerData<T>> query(GeolocationViewport viewport, String geoVariableColumn) {
+      int level = _geoVariableColumns.indexOf(geoVariableColumn);
+      if (level < 0) {
+        throw new IllegalArgumentException("Marker index does not cover geo variable " + geoVariableColumn);
+      }
+      return _index.query(viewport, level);
+    }
+  }
+
+  private static final ExpiringLruCache<String, CachedIndex<?>> CACHE = new ExpiringLruCache<>(
+      "map-marker-index",
+      Resources.MAP_MARKER_INDEX_CACHE_MAX_MB * 1024L * 1024L,
+      Duration.ofMinutes(Resources.MAP_MARKER_INDEX_CACHE_TTL_MINUTES),
+      cached -> cached._index.estimateFootprint());
+
+  /**
+   * @return cache key for the data and aggregation requested by a map marker plugin, independent of viewport
+   * and geo aggregate variable
+   */
+  public static String getKey(Class<?> pluginClass,
+                              String studyId,
+                              List<APIFilter> subsetFilters,
+                              List<DerivedVariableSpec> derivedVariableSpecs,
+                              Object pluginSpec) {
+    JSONObject specWithoutQuery = new JSONObject(JsonUtil.serializeObject(pluginSpec));
+    for (String property : QUERY_PROPERTIES) {
+      specWithoutQuery.remove(property);
+    }
+    return EncryptionUtil.md5(
+        pluginClass.getName() + "|" + studyId + "|" +
+        JsonUtil.serializeObject(subsetFilters) + "|" +
+        JsonUtil.serializeObject(derivedVariableSpecs) + "|" +
+        specWithoutQuery
+    );
+  }
+
+  /**
+   * Returns the cached index for the passed key if it covers the passed geo variable.  The caller must ask for
+   * the same marker type the index was built with, which holds as long as keys come from {@link #getKey}.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> Optional<CachedIndex<T>> get(String key, String geoVariableColumn) {
+    return CACHE.getIfPresent(key)
+        .filter(cached -> cached.hasGeoVariable(geoVariableColumn))
+        .map(cached -> (CachedIndex<T>) cached);
+  }
+
+  /**
+   * Caches an index, replacing any existing one for the key.
+   *
+   * @param geoVariableColumns column names of the geo variables the index was built with, in level order
+   */
+  public static void put(String key, List<String> geoVariableColumns, SpatialMarkerIndex<?> index) {
+    CACHE.put(key, new CachedIndex<>(geoVariableColumns, index));
+  }
+
+  /**
+   * @return maximum number of partial markers an index may hold; requests needing more are not indexed
+   */
+  public static int getMaxIndexedPartials() {
+    return Resources.MAP_MARKER_INDEX_MAX_PARTIALS;
+  }
+
+  /**
+   * Lists the geo variables to aggregate in a single pass: the requested one (by which markers are returned)
+   * first, then any additional ones, skipping duplicates.
+   */
+  public static List<VariableSpec> getGeoAggregateVariables(VariableSpec geoAggregateVariable,
+                                                            List<VariableSpec> additionalGeoAggregateVariables,
+                                                            Function<VariableSpec, String> toColumnName) {
+    List<VariableSpec> geoVariables = new ArrayList<>();
+    Set<String> columns = new HashSet<>();
+    geoVariables.add(geoAggregateVariable);
+    columns.add(toColumnName.apply(geoAggregateVariable));
+    if (additionalGeoAggregateVariables != null) {
+      for (VariableSpec geoVariable : additionalGeoAggregateVariables) {
+        if (columns.add(toColumnName.apply(geoVariable))) {
+          geoVariables.add(geoVariable);
+        }
+      }
+    }
+    return geoVariables;
+  }
+}
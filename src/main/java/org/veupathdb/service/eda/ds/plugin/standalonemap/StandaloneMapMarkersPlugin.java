@@ -1,27 +1,28 @@
 package org.veupathdb.service.eda.ds.plugin.standalonemap;
 
 import java.io.*;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.gusdb.fgputil.DelimitedDataParser;
-import org.gusdb.fgputil.geo.GeographyUtil.GeographicPoint;
-import org.gusdb.fgputil.json.JsonUtil;
 import org.gusdb.fgputil.validation.ValidationException;
 import org.veupathdb.service.eda.common.client.spec.StreamSpec;
 import org.veupathdb.service.eda.common.plugin.constraint.ConstraintSpec;
 import org.veupathdb.service.eda.common.plugin.constraint.DataElementSet;
+import org.veupathdb.service.eda.ds.Resources;
 import org.veupathdb.service.eda.ds.core.AbstractEmptyComputePlugin;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.MarkerAggregator;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.QualitativeOverlayAggregator;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.MapMarkerRowProcessor;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.MarkerData;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.MarkerResponseWriter;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.OverlaySpecification;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularStreamScanner;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.GeolocationViewport;
 import org.veupathdb.service.eda.generated.model.*;
 
@@ -30,19 +31,31 @@ import static org.veupathdb.service.eda.ds.metadata.AppsMetadata.VECTORBASE_PROJ
 
 public class StandaloneMapMarkersPlugin extends AbstractEmptyComputePlugin<StandaloneMapMarkersPostRequest, StandaloneMapMarkersSpec> {
   private OverlaySpecification _overlaySpecification = null;
+  private String _markerIndexKey;
+  private List<VariableSpec> _geoAggregateVariables;
+  private MapMarkerIndexCache.CachedIndex<Map<String, QualitativeOverlayAggregator.CategoricalOverlayData>> _markerIndex;
 
   @Override
   public List<String> getProjects() {
     return List.of(VECTORBASE_PROJECT);
   }
 
+  @Override
+  public boolean hasBinaryResponseFormats() {
+    return true;
+  }
+
   @Override
   public ConstraintSpec getConstraintSpec() {
     return new ConstraintSpec()
-      .dependencyOrder(List.of("overlayVariable"), List.of("geoAggregateVariable", "latitudeVariable", "longitudeVariable"))
+      .dependencyOrder(List.of("overlayVariable"), List.of("geoAggregateVariable", "geoAggregateVariables", "latitudeVariable", "longitudeVariable"))
       .pattern()
         .element("geoAggregateVariable")
           .types(APIVariableType.STRING)
+        .element("geoAggregateVariables")
+          .required(false)
+          .maxVars(12) // one per geohash precision
+          .types(APIVariableType.STRING)
         .element("latitudeVariable")
           .types(APIVariableType.NUMBER)
         .element("longitudeVariable")
@@ -61,6 +74,7 @@ public class StandaloneMapMarkersPlugin extends AbstractEmptyComputePlugin<Stand
     validateInputs(new DataElementSet()
       .entity(pluginSpec.getOutputEntityId())
       .var("geoAggregateVariable", pluginSpec.getGeoAggregateVariable())
+      .var("geoAggregateVariables", pluginSpec.getGeoAggregateVariables())
       .var("latitudeVariable", pluginSpec.getLatitudeVariable())
       .var("longitudeVariable", pluginSpec.getLongitudeVariable())
       .var("overlayVariable", Optional.ofNullable(pluginSpec.getOverlayConfig())
@@ -77,9 +91,15 @@ public class StandaloneMapMarkersPlugin extends AbstractEmptyComputePlugin<Stand
 
   @Override
   protected List<StreamSpec> getRequestedStreams(StandaloneMapMarkersSpec pluginSpec) {
-    return List.of(
+    _geoAggregateVariables = MapMarkerIndexCache.getGeoAggregateVariables(pluginSpec.getGeoAggregateVariable(),
+        pluginSpec.getGeoAggregateVariables(), getUtil()::toColNameOrEmpty);
+    _markerIndexKey = MapMarkerIndexCache.getKey(getClass(), _referenceMetadata.getStudyId(),
+        getSubsetFilters(), getDerivedVariableSpecs(), pluginSpec);
+    _markerIndex = MapMarkerIndexCache.<Map<String, QualitativeOverlayAggregator.CategoricalOverlayData>>get(_markerIndexKey,
+        getUtil().toColNameOrEmpty(pluginSpec.getGeoAggregateVariable())).orElse(null);
+    return _markerIndex != null ? Collections.emptyList() : List.of(
       new StreamSpec(DEFAULT_SINGLE_STREAM_NAME, pluginSpec.getOutputEntityId())
-        .addVar(pluginSpec.getGeoAggregateVariable())
+        .addVars(_geoAggregateVariables)
         .addVar(pluginSpec.getLatitudeVariable())
         .addVar(pluginSpec.getLongitudeVariable())
         .addVar(Optional.ofNullable(pluginSpec.getOverlayConfig())
@@ -89,16 +109,40 @@ public class StandaloneMapMarkersPlugin extends AbstractEmptyComputePlugin<Stand
 
   @Override
   protected void writeResults(OutputStream out, Map<String, InputStream> dataStreams) throws IOException {
+    StandaloneMapMarkersSpec spec = getPluginSpec();
+
+    // get map markers config
+    String valueSpec = spec.getValueSpec().getValue();
+    GeolocationViewport viewport = GeolocationViewport.fromApiViewport(spec.getViewport());
+
+    // aggregate stats into a map from aggregate value to stats object, from the cached index if available
+    Map<String, MarkerData<Map<String, QualitativeOverlayAggregator.CategoricalOverlayData>>> aggregator = _markerIndex != null
+        ? _markerIndex.query(viewport, getUtil().toColNameOrEmpty(spec.getGeoAggregateVariable()))
+        : aggregateMarkers(dataStreams.get(DEFAULT_SINGLE_STREAM_NAME), viewport);
+
+    // write markers as they are read from the aggregation map
+    writeStreamingResponse(out, generator -> {
+      MarkerResponseWriter writer = new MarkerResponseWriter(generator, "mapElements");
+      for (Map.Entry<String, MarkerData<Map<String, QualitativeOverlayAggregator.CategoricalOverlayData>>> marker : aggregator.entrySet()) {
+        MarkerAggregator<Map<String, QualitativeOverlayAggregator.CategoricalOverlayData>> markerAggregator = marker.getValue().getMarkerAggregator();
+        writer.writeMarker(marker.getKey(), marker.getValue(), markerAggregator == null ? null
+            : overlayGenerator -> writeOverlayValues(overlayGenerator, markerAggregator, valueSpec));
+      }
+      writer.finish();
+    });
+  }
+
+  private Map<String, MarkerData<Map<String, QualitativeOverlayAggregator.CategoricalOverlayData>>> aggregateMarkers(
+      InputStream dataStream, GeolocationViewport viewport) throws IOException {
 
-    // create scanner and line parser
-    InputStreamReader isReader = new InputStreamReader(new BufferedInputStream(dataStreams.get(DEFAULT_SINGLE_STREAM_NAME)));
-    BufferedReader reader = new BufferedReader(isReader);
-    DelimitedDataParser parser = new DelimitedDataParser(reader.readLine(), TAB, true);
+    // create scanner and header parser
+    TabularStreamScanner scanner = new TabularStreamScanner(dataStream);
+    DelimitedDataParser parser = new DelimitedDataParser(scanner.readLine(), TAB, true);
 
     // establish column header indexes
     StandaloneMapMarkersSpec spec = getPluginSpec();
     Function<VariableSpec,Integer> indexOf = var -> parser.indexOfColumn(getUtil().toColNameOrEmpty(var)).orElseThrow();
-    int geoVarIndex  = indexOf.apply(spec.getGeoAggregateVariable());
+    int[] geoVarIndexes = _geoAggregateVariables.stream().mapToInt(indexOf::apply).toArray();
     int latIndex     = indexOf.apply(spec.getLatitudeVariable());
     int lonIndex     = indexOf.apply(spec.getLongitudeVariable());
     Optional<OverlaySpecification> overlayConfig = Optional.ofNullable(_overlaySpecification);
@@ -107,52 +151,34 @@ public class StandaloneMapMarkersPlugin extends AbstractEmptyComputePlugin<Stand
         .map(indexOf)
         .orElse(null);
 
-    // get map markers config
-    String valueSpec = spec.getValueSpec().getValue();
-    GeolocationViewport viewport = GeolocationViewport.fromApiViewport(spec.getViewport());
-
-    // loop through rows of data stream, aggregating stats into a map from aggregate value to stats object
-    MapMarkerRowProcessor<Map<String, QualitativeOverlayAggregator.CategoricalOverlayData>> processor = new MapMarkerRowProcessor<>(geoVarIndex, latIndex, lonIndex);
+    // loop through rows of data stream, aggregating stats and indexing them for later viewports
+    MapMarkerRowProcessor<Map<String, QualitativeOverlayAggregator.CategoricalOverlayData>> processor = new MapMarkerRowProcessor<>(geoVarIndexes, latIndex, lonIndex);
 
     Supplier<MarkerAggregator<Map<String, QualitativeOverlayAggregator.CategoricalOverlayData>>> aggregatorSupplier = () ->
         new QualitativeOverlayAggregator(overlayConfig.map(OverlaySpecification::getOverlayRecoder).orElse(null), overlayIndex);
 
-    Map<String, MarkerData<Map<String, QualitativeOverlayAggregator.CategoricalOverlayData>>> aggregator = processor.process(
-        reader, parser, viewport, aggregatorSupplier);
-
-    List<StandaloneMapElementInfo> output = new ArrayList<>();
-    for (String key : aggregator.keySet()) {
-      StandaloneMapElementInfo mapEle = new StandaloneMapElementInfoImpl();
-      MarkerData<Map<String, QualitativeOverlayAggregator.CategoricalOverlayData>> data = aggregator.get(key);
-      GeographicPoint avgLatLon = data.getLatLonAvg().getCurrentAverage();
-      mapEle.setGeoAggregateValue(key);
-      mapEle.setEntityCount(data.getCount());
-      mapEle.setAvgLat(avgLatLon.getLatitude());
-      mapEle.setAvgLon(avgLatLon.getLongitude());
-      mapEle.setMinLat(data.getMinLat());
-      mapEle.setMaxLat(data.getMaxLat());
-      mapEle.setMinLon(data.getMinLon());
-      mapEle.setMaxLon(data.getMaxLon());
-      if (data.getMarkerAggregator() != null) {
-        mapEle.setOverlayValues(convertAggregator(data.getMarkerAggregator(), valueSpec));
-      }
-      output.add(mapEle);
-    }
-    StandaloneMapMarkersPostResponse response = new StandaloneMapMarkersPostResponseImpl();
-    response.setMapElements(output);
-    JsonUtil.Jackson.writeValue(out, response);
-    out.flush();
+    MapMarkerRowProcessor.IndexedResult<Map<String, QualitativeOverlayAggregator.CategoricalOverlayData>> result = processor.processAndIndex(
+        scanner, viewport, aggregatorSupplier, Resources.MAP_MARKER_AGGREGATION_THREADS, MapMarkerIndexCache.getMaxIndexedPartials());
+    result.getIndex().ifPresent(index -> MapMarkerIndexCache.put(_markerIndexKey,
+        _geoAggregateVariables.stream().map(getUtil()::toColNameOrEmpty).toList(), index));
+    return result.getMarkers();
   }
 
-  private List<LegacyLabeledRangeWithCountAndValue> convertAggregator(MarkerAggregator<Map<String, QualitativeOverlayAggregator.CategoricalOverlayData>> aggregator, String valueSpec) {
-    return aggregator.finish().entrySet().stream()
-        .map(entry -> {
-          LegacyLabeledRangeWithCountAndValue bin = new LegacyLabeledRangeWithCountAndValueImpl();
-          bin.setValue(valueSpec.equals(ValueSpec.PROPORTION.getValue()) ? entry.getValue().getProportion() : entry.getValue().getCount());
-          bin.setBinLabel(entry.getKey());
-          bin.setCount(entry.getValue().getCount());
-          return bin;
-        })
-        .collect(Collectors.toList());
+  // writes the overlayValues of a marker, as LegacyLabeledRangeWithCountAndValue objects
+  private static void writeOverlayValues(JsonGenerator generator, MarkerAggregator<Map<String, QualitativeOverlayAggregator.CategoricalOverlayData>> aggregator, String valueSpec) throws IOException {
+    generator.writeArrayFieldStart("overlayValues");
+    for (Map.Entry<String, QualitativeOverlayAggregator.CategoricalOverlayData> entry : aggregator.finish().entrySet()) {
+      generator.writeStartObject();
+      generator.writeStringField("binLabel", entry.getKey());
+      if (valueSpec.equals(ValueSpec.PROPORTION.getValue())) {
+        generator.writeNumberField("value", entry.getValue().getProportion());
+      }
+      else {
+        generator.writeNumberField("value", entry.getValue().getCount());
+      }
+      generator.writeNumberField("count", entry.getValue().getCount());
+      generator.writeEndObject();
+    }
+    generator.writeEndArray();
   }
 }
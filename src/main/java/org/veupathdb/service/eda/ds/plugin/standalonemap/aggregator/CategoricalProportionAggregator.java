@@ -3,12 +3,12 @@ package org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator;
 import com.google.common.collect.Sets;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularRow;
 import org.veupathdb.service.eda.generated.model.CategoricalAggregationConfig;
 
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
@@ -38,22 +38,31 @@ public class CategoricalProportionAggregator implements MarkerAggregator<Double>
   }
 
   @Override
-  public void addValue(String[] s) {
-    if (s == null) {
+  public void addValue(TabularRow row) {
+    if (row == null) {
       return;
     }
-    if (numeratorMatchSet.contains(s[index])) {
+    final String value = row.isEmpty(index) ? null : row.getString(index);
+    if (numeratorMatchSet.contains(value)) {
       numNumeratorMatches++;
     }
-    if (distinctDenominatorValues.contains(s[index])) {
+    if (distinctDenominatorValues.contains(value)) {
       distinctDenominatorMatchCount++;
     }
     numNonNullMatches++;
   }
 
   @Override
-  public boolean appliesTo(String[] rec) {
-    return rec[index] != null && !rec[index].isEmpty();
+  public boolean appliesTo(TabularRow row) {
+    return !row.isEmpty(index);
+  }
+
+  @Override
+  public void merge(MarkerAggregator<Double> other) {
+    CategoricalProportionAggregator otherProportion = (CategoricalProportionAggregator) other;
+    numNumeratorMatches += otherProportion.numNumeratorMatches;
+    distinctDenominatorMatchCount += otherProportion.distinctDenominatorMatchCount;
+    numNonNullMatches += otherProportion.numNonNullMatches;
   }
 
   @Override
@@ -120,7 +129,7 @@ public class CategoricalProportionAggregator implements MarkerAggregator<Double>
     }
 
     @Override
-    public MarkerAggregator<Double> create(int index, Function<String, Double> valueQuantifier) {
+    public MarkerAggregator<Double> create(int index, ValueQuantifier valueQuantifier) {
       return new CategoricalProportionAggregator(numeratorMatchSet,
           distinctDenominatorValues,
           negationMode,
@@ -128,7 +137,7 @@ public class CategoricalProportionAggregator implements MarkerAggregator<Double>
     }
 
     @Override
-    public MarkerAggregator<AveragesWithConfidence> createWithConfidence(int index, Function<String, Double> valueQuantifier) {
+    public MarkerAggregator<AveragesWithConfidence> createWithConfidence(int index, ValueQuantifier valueQuantifier) {
       return new ProportionWithConfidenceAggregator(index,
           categoricalConfig.getNumeratorValues(),
           categoricalConfig.getDenominatorValues(),
@@ -1,6 +1,5 @@
 package org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator;
 
-import java.util.function.Function;
 import java.util.stream.Stream;
 
 /**
@@ -10,24 +9,24 @@ public enum ContinuousAggregators {
   Mean(org.veupathdb.service.eda.generated.model.Aggregator.MEAN.getValue(),
       new ContinuousAggregatorFactory() {
         @Override
-        public MeanAggregator create(int index, Function<String, Double> valueQuantifier) {
+        public MeanAggregator create(int index, ValueQuantifier valueQuantifier) {
           return new MeanAggregator(index, valueQuantifier);
         }
 
         @Override
-        public MarkerAggregator<AveragesWithConfidence> createWithConfidence(int index, Function<String, Double> valueQuantifier) {
+        public MarkerAggregator<AveragesWithConfidence> createWithConfidence(int index, ValueQuantifier valueQuantifier) {
           return new MeanWithConfidenceAggregator(index, valueQuantifier);
         }
       }),
   Median(org.veupathdb.service.eda.generated.model.Aggregator.MEDIAN.getValue(),
       new ContinuousAggregatorFactory() {
         @Override
-        public MedianAggregator create(int index, Function<String, Double> valueQuantifier) {
+        public MedianAggregator create(int index, ValueQuantifier valueQuantifier) {
           return new MedianAggregator(index, valueQuantifier);
         }
 
         @Override
-        public MarkerAggregator<AveragesWithConfidence> createWithConfidence(int index, Function<String, Double> valueQuantifier) {
+        public MarkerAggregator<AveragesWithConfidence> createWithConfidence(int index, ValueQuantifier valueQuantifier) {
           return new MedianWithConfidenceAggregator(index, valueQuantifier);
         }
       });
@@ -45,7 +44,7 @@ public enum ContinuousAggregators {
     return factory;
   }
 
-  public MarkerAggregator<AveragesWithConfidence> getAverageWithConfidenceAggregator(int index, Function<String, Double> variableValueQuantifier) {
+  public MarkerAggregator<AveragesWithConfidence> getAverageWithConfidenceAggregator(int index, ValueQuantifier variableValueQuantifier) {
     return factory.createWithConfidence(index, variableValueQuantifier);
   }
 
@@ -57,7 +56,7 @@ public enum ContinuousAggregators {
   }
 
   public interface ContinuousAggregatorFactory {
-    MarkerAggregator<Double> create(int index, Function<String, Double> valueQuantifier);
-    MarkerAggregator<AveragesWithConfidence> createWithConfidence(int index, Function<String, Double> valueQuantifier);
+    MarkerAggregator<Double> create(int index, ValueQuantifier valueQuantifier);
+    MarkerAggregator<AveragesWithConfidence> createWithConfidence(int index, ValueQuantifier valueQuantifier);
   }
 }
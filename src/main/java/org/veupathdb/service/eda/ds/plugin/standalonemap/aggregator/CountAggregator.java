@@ -1,18 +1,25 @@
 package org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator;
 
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularRow;
+
 public class CountAggregator implements MarkerAggregator<Integer> {
   private int count = 0;
 
   @Override
-  public void addValue(String[] ignored) {
+  public void addValue(TabularRow ignored) {
     count++;
   }
 
   @Override
-  public boolean appliesTo(String[] rec) {
+  public boolean appliesTo(TabularRow row) {
     return true;
   }
 
+  @Override
+  public void merge(MarkerAggregator<Integer> other) {
+    count += ((CountAggregator) other).count;
+  }
+
   @Override
   public Integer finish() {
     return count;
@@ -0,0 +1,99 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator;
+
+import java.util.Arrays;
+
+/**
+ * Quantile sketch that keeps every value in a primitive array and finds values by rank with quickselect, so
+ * results are exact and no full sort is needed.
+ */
+public class ExactQuantileSketch implements QuantileSketch {
+
+  private double[] values = new double[16];
+  private int size = 0;
+
+  @Override
+  public void add(double value) {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, size * 2);
+    }
+    values[size++] = value;
+  }
+
+  @Override
+  public void merge(QuantileSketch other) {
+    if (!(other instanceof ExactQuantileSketch otherExact)) {
+      throw new IllegalArgumentException("Cannot merge " + other.getClass().getSimpleName() + " into exact quantile sketch.");
+    }
+    if (size + otherExact.size > values.length) {
+      values = Arrays.copyOf(values, Math.max(values.length * 2, size + otherExact.size));
+    }
+    System.arraycopy(otherExact.values, 0, values, size, otherExact.size);
+    size += otherExact.size;
+  }
+
+  @Override
+  public long getCount() {
+    return size;
+  }
+
+  @Override
+  public long estimateFootprint() {
+    return 32 + 8L * values.length;
+  }
+
+  @Override
+  public double getValueAtRank(long rank) {
+    if (rank < 0 || rank >= size) {
+      throw new IndexOutOfBoundsException("Rank " + rank + " requested from sketch of " + size + " values.");
+    }
+    return select((int) rank);
+  }
+
+  /*
+   * Partially reorders the values so that the value of the passed rank is in place, with smaller values before
+   * it and larger values after it.  Uses three-way partitioning since data often contains many duplicates.
+   */
+  private double select(int rank) {
+    int low = 0;
+    int high = size - 1;
+    while (low < high) {
+      double pivot = medianOfThree(values[low], values[low + (high - low) / 2], values[high]);
+      // partition into [low, lt) < pivot, [lt, gt] == pivot, (gt, high] > pivot
+      int lt = low;
+      int gt = high;
+      int i = low;
+      while (i <= gt) {
+        double value = values[i];
+        if (value < pivot) {
+          swap(lt++, i++);
+        }
+        else if (value > pivot) {
+          swap(i, gt--);
+        }
+        else {
+          i++;
+        }
+      }
+      if (rank < lt) {
+        high = lt - 1;
+      }
+      else if (rank > gt) {
+        low = gt + 1;
+      }
+      else {
+        return pivot;
+      }
+    }
+    return values[rank];
+  }
+
+  private static double medianOfThree(double a, double b, double c) {
+    return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+  }
+
+  private void swap(int i, int j) {
+    double tmp = values[i];
+    values[i] = values[j];
+    values[j] = tmp;
+  }
+}
@@ -0,0 +1,220 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Approximate quantile sketch with bounded memory, after Karnin, Lang and Liberty ("Optimal Quantile
+ * Approximation in Streams", 2016).  Values are kept in levels, where each value in level h stands for 2^h
+ * values of the stream.  When the sketch is full, the lowest full level is compacted: it is sorted and every
+ * other value (starting at a random offset) is promoted to the next level, halving its size while
+ * preserving its total weight.  Level capacities shrink geometrically towards the lowest level, so memory
+ * is O(k) regardless of stream length, and the rank error of any query is roughly
+ * {@link #getNormalizedRankError(int)} of the count with high probability.
+ */
+public class KllQuantileSketch implements QuantileSketch {
+
+  private static final double CAPACITY_DECAY = 2.0 / 3.0;
+  private static final int MIN_LEVEL_CAPACITY = 8;
+
+  private final int k;
+  // values in each level; levels[h] holds values of weight 2^h
+  private double[][] levels = new double[0][];
+  private int[] levelSizes = new int[0];
+  private int numLevels = 0;
+  private int numRetained = 0;
+  private int totalCapacity = 0;
+  private long count = 0;
+
+  // sorted view of all retained values and their cumulative weights, built on demand for queries
+  private double[] sortedValues;
+  private long[] cumulativeWeights;
+
+  /**
+   * @param k accuracy parameter; larger values mean more memory and a smaller rank error
+   */
+  public KllQuantileSketch(int k) {
+    if (k < MIN_LEVEL_CAPACITY) {
+      throw new IllegalArgumentException("KLL sketch accuracy parameter must be at least " + MIN_LEVEL_CAPACITY);
+    }
+    this.k = k;
+    addLevel();
+  }
+
+  /**
+   * @param rankError desired rank error as a fraction of the count, e.g. 0.01
+   * @return sketch whose rank error is at most the passed fraction of the count (with high probability)
+   */
+  public static KllQuantileSketch forRankError(double rankError) {
+    if (rankError <= 0 || rankError >= 1) {
+      throw new IllegalArgumentException("Rank error must be between 0 and 1, exclusive.");
+    }
+    // inverse of getNormalizedRankError()
+    int k = (int) Math.ceil(Math.pow(2.296 / rankError, 1 / 0.9723));
+    return new KllQuantileSketch(Math.max(k, MIN_LEVEL_CAPACITY));
+  }
+
+  /**
+   * Returns the rank error, as a fraction of the count, that a sketch with the passed accuracy parameter
+   * stays within for 99% of queries.  Empirical fit published with the Apache DataSketches KLL implementation.
+   */
+  public static double getNormalizedRankError(int k) {
+    return 2.296 / Math.pow(k, 0.9723);
+  }
+
+  @Override
+  public void add(double value) {
+    appendToLevel(0, value);
+    count++;
+    sortedValues = null;
+    if (numRetained >= totalCapacity) {
+      compress();
+    }
+  }
+
+  @Override
+  public void merge(QuantileSketch other) {
+    if (!(other instanceof KllQuantileSketch otherKll) || otherKll.k != k) {
+      throw new IllegalArgumentException("Can only merge KLL sketches with the same accuracy parameter.");
+    }
+    for (int h = 0; h < otherKll.numLevels; h++) {
+      while (numLevels <= h) {
+        addLevel();
+      }
+      for (int i = 0; i < otherKll.levelSizes[h]; i++) {
+        appendToLevel(h, otherKll.levels[h][i]);
+      }
+    }
+    count += otherKll.count;
+    sortedValues = null;
+    compress();
+  }
+
+  @Override
+  public long getCount() {
+    return count;
+  }
+
+  @Override
+  public long estimateFootprint() {
+    long footprint = 64;
+    for (int h = 0; h < numLevels; h++) {
+      footprint += 16 + 8L * levels[h].length;
+    }
+    if (sortedValues != null) {
+      footprint += 16L * sortedValues.length;
+    }
+    return footprint;
+  }
+
+  @Override
+  public double getValueAtRank(long rank) {
+    if (rank < 0 || rank >= count) {
+      throw new IndexOutOfBoundsException("Rank " + rank + " requested from sketch of " + count + " values.");
+    }
+    if (sortedValues == null) {
+      buildSortedView();
+    }
+    // find the first retained value whose cumulative weight covers the requested rank
+    int low = 0;
+    int high = cumulativeWeights.length - 1;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (cumulativeWeights[mid] > rank) {
+        high = mid;
+      }
+      else {
+        low = mid + 1;
+      }
+    }
+    return sortedValues[low];
+  }
+
+  /**
+   * @return number of values currently retained by the sketch
+   */
+  public int getNumRetained() {
+    return numRetained;
+  }
+
+  private void compress() {
+    while (numRetained >= totalCapacity) {
+      // compact the lowest level that is at capacity; since the sketch is full, there must be one
+      int h = 0;
+      while (levelSizes[h] < getLevelCapacity(h)) {
+        h++;
+      }
+      if (h == numLevels - 1) {
+        addLevel();
+      }
+      compactLevel(h);
+    }
+  }
+
+  private void compactLevel(int h) {
+    double[] level = levels[h];
+    int size = levelSizes[h];
+    Arrays.sort(level, 0, size);
+    // with an odd number of values, one stays behind at this level
+    int numCompacted = size - (size % 2);
+    int offset = ThreadLocalRandom.current().nextBoolean() ? 1 : 0;
+    for (int i = offset; i < numCompacted; i += 2) {
+      appendToLevel(h + 1, level[i]);
+    }
+    if (numCompacted < size) {
+      level[0] = level[size - 1];
+    }
+    levelSizes[h] = size - numCompacted;
+    numRetained -= numCompacted;
+  }
+
+  private void appendToLevel(int h, double value) {
+    if (levelSizes[h] == levels[h].length) {
+      levels[h] = Arrays.copyOf(levels[h], levelSizes[h] * 2);
+    }
+    levels[h][levelSizes[h]++] = value;
+    numRetained++;
+  }
+
+  private void addLevel() {
+    levels = Arrays.copyOf(levels, numLevels + 1);
+    levelSizes = Arrays.copyOf(levelSizes, numLevels + 1);
+    levels[numLevels] = new double[MIN_LEVEL_CAPACITY];
+    numLevels++;
+    // capacities depend on the number of levels
+    totalCapacity = 0;
+    for (int h = 0; h < numLevels; h++) {
+      totalCapacity += getLevelCapacity(h);
+    }
+  }
+
+  private int getLevelCapacity(int h) {
+    int depth = numLevels - 1 - h;
+    return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+  }
+
+  private void buildSortedView() {
+    // sort values along with their weights, which differ by level
+    double[] values = new double[numRetained];
+    long[] weights = new long[numRetained];
+    Integer[] order = new Integer[numRetained];
+    int i = 0;
+    for (int h = 0; h < numLevels; h++) {
+      for (int j = 0; j < levelSizes[h]; j++) {
+        values[i] = levels[h][j];
+        weights[i] = 1L << h;
+        order[i] = i;
+        i++;
+      }
+    }
+    Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+    sortedValues = new double[numRetained];
+    cumulativeWeights = new long[numRetained];
+    long cumulativeWeight = 0;
+    for (int j = 0; j < numRetained; j++) {
+      sortedValues[j] = values[order[j]];
+      cumulativeWeight += weights[order[j]];
+      cumulativeWeights[j] = cumulativeWeight;
+    }
+  }
+}
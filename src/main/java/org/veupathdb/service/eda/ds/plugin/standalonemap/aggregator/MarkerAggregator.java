@@ -1,21 +1,54 @@
 package org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator;
 
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularRow;
+
 public interface MarkerAggregator<T> {
 
   /**
-   * Add a variable value to incorporate into aggregated result.
+   * Add a record to incorporate into aggregated result.  The row may be a flyweight over a reused buffer, so
+   * implementations must copy out anything they need to keep.
    */
-  void addValue(String[] rec);
+  void addValue(TabularRow row);
 
   /**
-   * Returns true if
-   * @param rec
-   * @return
+   * Returns true if the passed record holds a value this aggregator can incorporate.
+   *
+   * @param row record to check
+   * @return true if this aggregator applies to the record
    */
-  boolean appliesTo(String[] rec);
+  boolean appliesTo(TabularRow row);
 
   /**
    * @return result of aggregated variable values.
    */
   T finish();
+
+  /**
+   * Incorporates the values added to another aggregator into this one, e.g. to combine partial results
+   * computed over separate parts of a data stream.  The other aggregator must have been created the same
+   * way as this one.
+   */
+  void merge(MarkerAggregator<T> other);
+
+  /**
+   * @return rough estimate of the memory, in bytes, held by this aggregator, e.g. to bound caches of
+   * partially aggregated markers.  Aggregators whose state grows with the number of values should override.
+   */
+  default long estimateFootprint() {
+    return 64;
+  }
+
+  /**
+   * Add an already-parsed record to incorporate into aggregated result.
+   */
+  default void addValue(String[] rec) {
+    addValue(rec == null ? null : TabularRow.of(rec));
+  }
+
+  /**
+   * Returns true if the passed already-parsed record holds a value this aggregator can incorporate.
+   */
+  default boolean appliesTo(String[] rec) {
+    return appliesTo(TabularRow.of(rec));
+  }
 }
@@ -1,31 +1,25 @@
 package org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator;
 
-import java.util.function.Function;
-
-public class MeanAggregator implements MarkerAggregator {
+public class MeanAggregator extends NumericColumnAggregator<Double> {
 
   private double sum = 0;
   private int n = 0;
-  private final int index;
-  private final Function<String, Double> variableValueQuantifier;
 
-  public MeanAggregator(int index, Function<String, Double> variableValueQuantifier) {
-    this.index = index;
-    this.variableValueQuantifier = variableValueQuantifier;
+  public MeanAggregator(int index, ValueQuantifier variableValueQuantifier) {
+    super(index, variableValueQuantifier);
   }
 
   @Override
-  public void addValue(String[] arr) {
-    if (arr[index] == null || arr[index].isEmpty()) {
-      return;
-    }
-    sum += variableValueQuantifier.apply(arr[index]);
+  public void addValue(double value) {
+    sum += value;
     n += 1;
   }
 
   @Override
-  public boolean appliesTo(String[] rec) {
-    return rec[index] != null && !rec[index].isEmpty();
+  public void merge(MarkerAggregator<Double> other) {
+    MeanAggregator otherMean = (MeanAggregator) other;
+    sum += otherMean.sum;
+    n += otherMean.n;
   }
 
   @Override
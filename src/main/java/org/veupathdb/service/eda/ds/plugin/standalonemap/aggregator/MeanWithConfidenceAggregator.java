@@ -1,42 +1,31 @@
 package org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator;
 
-
-import java.util.function.Function;
-
 /**
  * Marker aggregator for mean/median and standard deviation. Computes online by keeping track of sum, sum of squares and
  * sample count.
  */
-public class MeanWithConfidenceAggregator implements MarkerAggregator<AveragesWithConfidence> {
+public class MeanWithConfidenceAggregator extends NumericColumnAggregator<AveragesWithConfidence> {
   private double sum = 0;
   private double sumOfSquares = 0;
   private int n = 0;
-  private final int index;
-  private final Function<String, Double> variableValueQuantifier;
 
-  public MeanWithConfidenceAggregator(int index, Function<String, Double> variableValueQuantifier) {
-    this.index = index;
-    this.variableValueQuantifier = variableValueQuantifier;
+  public MeanWithConfidenceAggregator(int index, ValueQuantifier variableValueQuantifier) {
+    super(index, variableValueQuantifier);
   }
 
   @Override
-  public void addValue(String[] arr) {
-    if (arr[index] == null || arr[index].isEmpty()) {
-      return;
-    }
-    Double value = variableValueQuantifier.apply(arr[index]);
-    // Value can be null if variable value quantifier doesn't produce an applicable result.
-    if (value == null) {
-      return;
-    }
+  public void addValue(double value) {
     sum += value;
     sumOfSquares += value * value;
     n += 1;
   }
 
   @Override
-  public boolean appliesTo(String[] rec) {
-    return rec[index] != null && !rec[index].isEmpty();
+  public void merge(MarkerAggregator<AveragesWithConfidence> other) {
+    MeanWithConfidenceAggregator otherMean = (MeanWithConfidenceAggregator) other;
+    sum += otherMean.sum;
+    sumOfSquares += otherMean.sumOfSquares;
+    n += otherMean.n;
   }
 
   @Override
@@ -1,64 +1,59 @@
 package org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.function.Function;
-
 /**
- * Marker aggregator that keeps track of all values in-memory in order to compute the median and confidence interval.
- *
- * Note that this will be memory inefficient for large datasets. We may want to give an option to approximate
- * median for large datasets to avoid loading too much into memory.
+ * Marker aggregator for the median and its confidence interval, backed by a quantile sketch.  With an exact
+ * sketch all values are kept in memory (as primitives); an approximate sketch bounds memory per marker, in
+ * which case the median and interval bounds are within the sketch's rank error.
  */
-public class MedianWithConfidenceAggregator implements MarkerAggregator<AveragesWithConfidence> {
+public class MedianWithConfidenceAggregator extends NumericColumnAggregator<AveragesWithConfidence> {
+
+  private final QuantileSketch sketch;
 
-  private final List<Double> values = new ArrayList<>();
-  private final int index;
-  private final Function<String, Double> valueQuantifier;
+  public MedianWithConfidenceAggregator(int index, ValueQuantifier valueQuantifier) {
+    this(index, valueQuantifier, QuantileSketchConfig.getMedianConfig());
+  }
 
-  public MedianWithConfidenceAggregator(int index, Function<String, Double> valueQuantifier) {
-    this.index = index;
-    this.valueQuantifier = valueQuantifier;
+  public MedianWithConfidenceAggregator(int index, ValueQuantifier valueQuantifier, QuantileSketchConfig sketchConfig) {
+    super(index, valueQuantifier);
+    this.sketch = sketchConfig.newSketch();
   }
 
   @Override
-  public void addValue(String[] arr) {
-    if (arr[index] == null || arr[index].isEmpty()) {
-      return;
-    }
-    values.add(valueQuantifier.apply(arr[index]));
+  public void addValue(double value) {
+    sketch.add(value);
+  }
+
+  @Override
+  public void merge(MarkerAggregator<AveragesWithConfidence> other) {
+    sketch.merge(((MedianWithConfidenceAggregator) other).sketch);
   }
 
   @Override
-  public boolean appliesTo(String[] rec) {
-    return rec[index] != null && !rec[index].isEmpty();
+  public long estimateFootprint() {
+    return 32 + sketch.estimateFootprint();
   }
 
   @Override
   public AveragesWithConfidence finish() {
-    Collections.sort(values);
-    // Compute the lower/upper confidence interval:
+    final long n = sketch.getCount();
+    if (n == 0) {
+      return new AveragesWithConfidence(Double.NaN, null, null, 0);
+    }
+    // Compute the lower/upper confidence interval ranks:
     // nq +/– z * sqrt( nq(1-q) ) where q is the quantile of interest (0.5 for median)
-    double lowerIndex = values.size() * 0.5 - 1.96 * Math.sqrt(values.size() * 0.5 * 0.5);
-    double upperIndex = values.size() * 0.5 + 1.96 * Math.sqrt(values.size() * 0.5 * 0.5);
+    double lowerIndex = n * 0.5 - 1.96 * Math.sqrt(n * 0.5 * 0.5);
+    double upperIndex = n * 0.5 + 1.96 * Math.sqrt(n * 0.5 * 0.5);
+    long lowerRank = (long) Math.ceil(lowerIndex);
+    long upperRank = (long) Math.ceil(upperIndex);
     Double lowerBound;
     Double upperBound;
-    if (lowerIndex < 0 || upperIndex >= values.size()) {
+    if (lowerIndex < 0 || upperRank >= n) {
       upperBound = null;
       lowerBound = null;
     } else {
-      upperBound = values.get((int) Math.ceil(upperIndex));
-      lowerBound = values.get((int) Math.ceil(lowerIndex));
-    }
-    double medianIndex = values.size() / 2.0;
-    int lowerMedianIndex = (int) Math.ceil(medianIndex);
-    int upperMedianIndex = (int) Math.floor(medianIndex);
-    if (lowerMedianIndex == upperMedianIndex) {
-      return new AveragesWithConfidence(values.get(upperMedianIndex), lowerBound, upperBound, values.size());
-    } else {
-      return new AveragesWithConfidence(values.get(upperMedianIndex) + values.get(lowerMedianIndex) / 2.0,
-          lowerBound, upperBound, values.size());
+      upperBound = sketch.getValueAtRank(upperRank);
+      lowerBound = sketch.getValueAtRank(lowerRank);
     }
+    return new AveragesWithConfidence(sketch.getQuantile(0.5), lowerBound, upperBound, (int) n);
   }
 }
@@ -0,0 +1,44 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator;
+
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularRow;
+
+/**
+ * Base class for aggregators over the numeric values of a single column.  Rows are quantified into primitive
+ * doubles and passed to {@link #addValue(double)}, which callers that already hold numeric values may also
+ * call directly.
+ *
+ * @param <T> Type of the aggregated result
+ */
+public abstract class NumericColumnAggregator<T> implements MarkerAggregator<T> {
+
+  protected final int index;
+  protected final ValueQuantifier valueQuantifier;
+
+  protected NumericColumnAggregator(int index, ValueQuantifier valueQuantifier) {
+    this.index = index;
+    this.valueQuantifier = valueQuantifier;
+  }
+
+  /**
+   * Add a numeric value to incorporate into aggregated result.
+   */
+  public abstract void addValue(double value);
+
+  @Override
+  public void addValue(TabularRow row) {
+    if (row.isEmpty(index)) {
+      return;
+    }
+    double value = valueQuantifier.quantify(row, index);
+    // Value can be NaN if variable value quantifier doesn't produce an applicable result.
+    if (Double.isNaN(value)) {
+      return;
+    }
+    addValue(value);
+  }
+
+  @Override
+  public boolean appliesTo(TabularRow row) {
+    return !row.isEmpty(index);
+  }
+}
@@ -1,6 +1,7 @@
 package org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator;
 
 
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularRow;
 import org.veupathdb.service.eda.ds.utils.StatUtils;
 
 import java.util.List;
@@ -31,23 +32,38 @@ public class ProportionWithConfidenceAggregator implements MarkerAggregator<Aver
   }
 
   @Override
-  public void addValue(String[] arr) {
-    if (arr[index] == null || arr[index].isEmpty()) {
+  public void addValue(TabularRow row) {
+    if (row.isEmpty(index)) {
       return;
     }
-    if (numeratorAlwaysOne || numeratorValues.contains(arr[index])) {
+    if (numeratorAlwaysOne) {
+      numeratorMatches++;
+      denominatorMatches++;
+      n++;
+      return;
+    }
+    final String value = row.getString(index);
+    if (numeratorValues.contains(value)) {
       numeratorMatches++;
       denominatorMatches++;
       n++;
       return;
     }
 
-    if (denominatorAlwaysOne || denominatorValues.contains(arr[index])) {
+    if (denominatorAlwaysOne || denominatorValues.contains(value)) {
       n++;
       denominatorMatches++;
     }
   }
 
+  @Override
+  public void merge(MarkerAggregator<AveragesWithConfidence> other) {
+    ProportionWithConfidenceAggregator otherProportion = (ProportionWithConfidenceAggregator) other;
+    numeratorMatches += otherProportion.numeratorMatches;
+    denominatorMatches += otherProportion.denominatorMatches;
+    n += otherProportion.n;
+  }
+
   @Override
   public AveragesWithConfidence finish() {
     final double proportion = (double) numeratorMatches / denominatorMatches;
@@ -63,8 +79,8 @@ public class ProportionWithConfidenceAggregator implements MarkerAggregator<Aver
   }
 
   @Override
-  public boolean appliesTo(String[] rec) {
-    return rec[index] != null && !rec[index].isEmpty();
+  public boolean appliesTo(TabularRow row) {
+    return !row.isEmpty(index);
   }
 
   public int getN() {
@@ -1,47 +1,74 @@
 package org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator;
 
 import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.OverlayRecoder;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularRow;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * Overlay aggregator for categorical variables on the standalone map marker.
  */
 public class QualitativeOverlayAggregator implements MarkerAggregator<Map<String, QualitativeOverlayAggregator.CategoricalOverlayData>> {
   private final OverlayRecoder overlayRecoder;
-  private final Map<String, Integer> count = new HashMap<>();
+  // count of values recoded to each overlay value or bin, by ordinal
+  private final int[] count;
   private final int index;
   private int n = 0;
 
   public QualitativeOverlayAggregator(OverlayRecoder overlayRecoder, int index) {
     this.overlayRecoder = overlayRecoder;
+    this.count = new int[overlayRecoder.getLabels().size()];
     this.index = index;
   }
 
   @Override
-  public void addValue(String[] arr) {
-    if (arr[index] == null || arr[index].isEmpty()) {
+  public void addValue(TabularRow row) {
+    if (row.isEmpty(index)) {
       return;
     }
     // Recode the variable from its raw value. This might be quantizing a continuous or a pass-through function for categoricals.
-    final String overlayValue = overlayRecoder.recode(arr[index]);
-    int newCount = count.getOrDefault(overlayValue, 0);
+    final int overlayOrdinal = overlayRecoder.recodeToOrdinal(row, index);
+    // Values outside all of a continuous overlay's bins are treated as missing.
+    if (overlayOrdinal == OverlayRecoder.NO_BIN) {
+      return;
+    }
     // Keep track of counts for each overlay var as well as total entity count.
-    count.put(overlayValue, newCount + 1);
+    count[overlayOrdinal]++;
     n++;
   }
 
   @Override
-  public boolean appliesTo(String[] rec) {
-    return rec[index] != null && !rec[index].isEmpty();
+  public boolean appliesTo(TabularRow row) {
+    return !row.isEmpty(index);
+  }
+
+  @Override
+  public void merge(MarkerAggregator<Map<String, CategoricalOverlayData>> other) {
+    QualitativeOverlayAggregator otherOverlay = (QualitativeOverlayAggregator) other;
+    for (int i = 0; i < count.length; i++) {
+      count[i] += otherOverlay.count[i];
+    }
+    n += otherOverlay.n;
+  }
+
+  @Override
+  public long estimateFootprint() {
+    return 64 + 4L * count.length;
   }
 
   @Override
   public Map<String, CategoricalOverlayData> finish() {
-    return count.entrySet().stream()
-        .collect(Collectors.toMap(Map.Entry::getKey, e -> new CategoricalOverlayData(e.getValue(), (double) e.getValue() / n)));
+    // overlay values or bins with any values, in the order requested
+    List<String> labels = overlayRecoder.getLabels();
+    Map<String, CategoricalOverlayData> overlayData = new LinkedHashMap<>();
+    for (int i = 0; i < count.length; i++) {
+      if (count[i] > 0) {
+        overlayData.put(labels.get(i), new CategoricalOverlayData(count[i], (double) count[i] / n));
+      }
+    }
+    return overlayData;
   }
 
   public static class CategoricalOverlayData {
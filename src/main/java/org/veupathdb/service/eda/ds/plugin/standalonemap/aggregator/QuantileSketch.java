@@ -0,0 +1,61 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator;
+
+/**
+ * Summary of a stream of numeric values from which quantiles can be computed.  Sketches built over separate
+ * parts of a stream can be merged.
+ */
+public interface QuantileSketch {
+
+  /**
+   * Add a value to the sketch.
+   */
+  void add(double value);
+
+  /**
+   * Incorporates the values added to another sketch into this one.  The other sketch must have been created
+   * with the same configuration as this one.
+   */
+  void merge(QuantileSketch other);
+
+  /**
+   * @return number of values added to this sketch (including merged sketches)
+   */
+  long getCount();
+
+  /**
+   * @return rough estimate of the memory, in bytes, held by this sketch
+   */
+  long estimateFootprint();
+
+  /**
+   * Returns the value at the passed rank, i.e. the value that would be at the passed (zero-based) index if
+   * all values added were sorted.  Approximate sketches return a value whose true rank is within the
+   * sketch's error bound of the requested rank.
+   *
+   * @param rank zero-based rank, from 0 to count - 1
+   * @return value at the passed rank
+   */
+  double getValueAtRank(long rank);
+
+  /**
+   * Returns the passed quantile, interpolating between the two nearest ranks (R's default, "type 7"), so e.g.
+   * the 0.5 quantile of an even number of values is the mean of the two middle values.
+   *
+   * @param quantile quantile between 0 and 1
+   * @return value of the passed quantile
+   */
+  default double getQuantile(double quantile) {
+    long count = getCount();
+    if (count == 0) {
+      throw new IllegalStateException("Cannot compute quantile of an empty sketch.");
+    }
+    double position = (count - 1) * quantile;
+    long lowerRank = (long) Math.floor(position);
+    double lowerValue = getValueAtRank(lowerRank);
+    double fraction = position - lowerRank;
+    if (fraction == 0) {
+      return lowerValue;
+    }
+    return lowerValue + fraction * (getValueAtRank(lowerRank + 1) - lowerValue);
+  }
+}
@@ -0,0 +1,68 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator;
+
+/**
+ * Determines which kind of quantile sketch backs median aggregations.  Exact sketches keep every value;
+ * approximate sketches use bounded memory per marker at the cost of a configurable rank error.
+ */
+public class QuantileSketchConfig {
+
+  public enum Mode {
+    EXACT,
+    APPROXIMATE
+  }
+
+  public static final QuantileSketchConfig EXACT = new QuantileSketchConfig(Mode.EXACT, 0);
+
+  // configuration used by median aggregators; set on startup from the service environment
+  private static volatile QuantileSketchConfig medianConfig = EXACT;
+
+  private final Mode mode;
+  private final double rankError;
+
+  /**
+   * @param mode whether to compute exact or approximate quantiles
+   * @param rankError for approximate mode, maximum rank error as a fraction of the count, e.g. 0.01
+   */
+  public QuantileSketchConfig(Mode mode, double rankError) {
+    if (mode == Mode.APPROXIMATE && (rankError <= 0 || rankError >= 1)) {
+      throw new IllegalArgumentException("Approximate quantile rank error must be between 0 and 1, exclusive.");
+    }
+    this.mode = mode;
+    this.rankError = rankError;
+  }
+
+  /**
+   * Parses a configuration from environment values.
+   *
+   * @param mode "exact" or "approximate" (case-insensitive)
+   * @param rankError rank error for approximate mode
+   */
+  public static QuantileSketchConfig parse(String mode, double rankError) {
+    return new QuantileSketchConfig(Mode.valueOf(mode.trim().toUpperCase()), rankError);
+  }
+
+  public static QuantileSketchConfig getMedianConfig() {
+    return medianConfig;
+  }
+
+  public static void setMedianConfig(QuantileSketchConfig config) {
+    medianConfig = config;
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  public double getRankError() {
+    return rankError;
+  }
+
+  /**
+   * @return a new, empty sketch of the configured kind
+   */
+  public QuantileSketch newSketch() {
+    return mode == Mode.EXACT
+        ? new ExactQuantileSketch()
+        : KllQuantileSketch.forRankError(rankError);
+  }
+}
@@ -0,0 +1,40 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator;
+
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularRow;
+
+import java.util.function.Function;
+
+/**
+ * Converts raw variable values into numbers that can be aggregated (e.g. dates into epoch millis).  May
+ * return null if a value has no applicable numeric representation.
+ */
+@FunctionalInterface
+public interface ValueQuantifier extends Function<String, Double> {
+
+  /**
+   * Quantifier for plain numeric variables; parses values directly from the row without creating Strings.
+   */
+  ValueQuantifier NUMERIC = new ValueQuantifier() {
+    @Override
+    public Double apply(String s) {
+      return Double.valueOf(s);
+    }
+
+    @Override
+    public double quantify(TabularRow row, int column) {
+      return row.getDouble(column);
+    }
+  };
+
+  /**
+   * Quantifies the value in the passed column of a row.
+   *
+   * @param row row containing the value; the column must not be empty
+   * @param column index of the column to quantify
+   * @return numeric value, or NaN if the value has no applicable numeric representation
+   */
+  default double quantify(TabularRow row, int column) {
+    Double value = apply(row.getString(column));
+    return value == null ? Double.NaN : value;
+  }
+}
@@ -0,0 +1,67 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Bins of a continuous overlay compiled for lookup by binary search.  Bins are sorted by their lower edge into
+ * primitive arrays, with whether each is closed on the left (its label starts with "[") resolved up front;
+ * all bins are closed on the right.  Bins must not overlap except at their edges, where a value on a shared
+ * edge falls in the first bin requested that contains it.
+ */
+public class BinRangeIndex {
+  private final double[] mins;
+  private final double[] maxes;
+  private final boolean[] closedMins;
+  // ordinal of each sorted bin in the requested order
+  private final int[] ordinals;
+
+  public BinRangeIndex(List<NormalizedBinRange> binRanges) {
+    Integer[] order = IntStream.range(0, binRanges.size()).boxed().toArray(Integer[]::new);
+    Arrays.sort(order, Comparator.comparingDouble(i -> binRanges.get(i).getMin()));
+    mins = new double[order.length];
+    maxes = new double[order.length];
+    closedMins = new boolean[order.length];
+    ordinals = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      NormalizedBinRange bin = binRanges.get(order[i]);
+      mins[i] = bin.getMin();
+      maxes[i] = bin.getMax();
+      closedMins[i] = bin.getLabel().startsWith("[");
+      ordinals[i] = order[i];
+    }
+  }
+
+  /**
+   * @param value value to look up
+   * @return ordinal (index in the requested order) of the bin containing the value, or OverlayRecoder.NO_BIN
+   * if it is in none of them
+   */
+  public int ordinalOf(double value) {
+    // last bin starting at or before the value; NaN is in no bin
+    int low = 0;
+    int high = mins.length - 1;
+    int last = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (mins[mid] <= value) {
+        last = mid;
+        low = mid + 1;
+      }
+      else {
+        high = mid - 1;
+      }
+    }
+    // bins don't overlap, so their upper edges ascend too and only those ending at or after the value (almost
+    // always just the last, or the one before on a shared edge) may contain it
+    int found = OverlayRecoder.NO_BIN;
+    for (int i = last; i >= 0 && maxes[i] >= value; i--) {
+      if ((closedMins[i] || mins[i] < value) && (found == OverlayRecoder.NO_BIN || ordinals[i] < found)) {
+        found = ordinals[i];
+      }
+    }
+    return found;
+  }
+}
@@ -0,0 +1,26 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+/**
+ * Hashing of ranges of bytes, for tables looked up straight from the buffers of rows (see LabelDictionary and
+ * GeoKeyInterner).
+ */
+final class ByteSlices {
+
+  private ByteSlices() {}
+
+  // FNV-1a over the bytes, from a seeded basis, with a final avalanche so the low bits used as slots vary
+  static int hash(byte[] bytes, int start, int end, int seed) {
+    int hash = 0x811c9dc5 ^ (seed * 0x9e3779b9);
+    for (int i = start; i < end; i++) {
+      hash = (hash ^ bytes[i]) * 0x01000193;
+    }
+    return avalanche(hash);
+  }
+
+  static int avalanche(int hash) {
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    return hash;
+  }
+}
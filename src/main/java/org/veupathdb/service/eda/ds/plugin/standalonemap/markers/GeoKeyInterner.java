@@ -0,0 +1,124 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Interns geo values (e.g. geohashes) as dense int ids, assigned in order of first appearance, so markers can
+ * be kept in arrays indexed by id.  Values are looked up straight from the bytes of a row (see
+ * {@link TabularRow#internKey(int, GeoKeyInterner)}) in an open-addressing table, and only decoded into
+ * Strings once per distinct value, when asked for.  Not thread-safe.
+ */
+public class GeoKeyInterner {
+
+  /**
+   * Id standing for a missing value.
+   */
+  public static final int MISSING = -1;
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  // interned values, concatenated, with each id's range in the parallel arrays
+  private byte[] arena = new byte[INITIAL_CAPACITY * 8];
+  private int arenaSize = 0;
+  private int[] starts = new int[INITIAL_CAPACITY];
+  private int[] lengths = new int[INITIAL_CAPACITY];
+  private int[] hashes = new int[INITIAL_CAPACITY];
+  private String[] decoded = new String[INITIAL_CAPACITY];
+  private int size = 0;
+
+  // id by slot, MISSING where empty; at most half full
+  private int[] slots = newSlots(INITIAL_CAPACITY * 2);
+  private int mask = INITIAL_CAPACITY * 2 - 1;
+
+  /**
+   * @return id of the value held, UTF-8 encoded, in the passed range of bytes, interning it if new
+   */
+  public int intern(byte[] bytes, int start, int end) {
+    int hash = ByteSlices.hash(bytes, start, end, 0);
+    int slot = hash & mask;
+    int id;
+    while ((id = slots[slot]) != MISSING) {
+      if (hashes[id] == hash && Arrays.equals(arena, starts[id], starts[id] + lengths[id], bytes, start, end)) {
+        return id;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return add(bytes, start, end, hash, slot);
+  }
+
+  /**
+   * @return id of the passed value, interning it if new
+   */
+  public int intern(String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    int id = intern(bytes, 0, bytes.length);
+    if (decoded[id] == null) {
+      decoded[id] = value;
+    }
+    return id;
+  }
+
+  /**
+   * @return value with the passed id
+   */
+  public String getKey(int id) {
+    if (decoded[id] == null) {
+      decoded[id] = new String(arena, starts[id], lengths[id], StandardCharsets.UTF_8);
+    }
+    return decoded[id];
+  }
+
+  /**
+   * @return number of distinct values interned; ids run from 0 to one less than this
+   */
+  public int size() {
+    return size;
+  }
+
+  private int add(byte[] bytes, int start, int end, int hash, int slot) {
+    int id = size++;
+    if (id == starts.length) {
+      int capacity = starts.length * 2;
+      starts = Arrays.copyOf(starts, capacity);
+      lengths = Arrays.copyOf(lengths, capacity);
+      hashes = Arrays.copyOf(hashes, capacity);
+      decoded = Arrays.copyOf(decoded, capacity);
+    }
+    int length = end - start;
+    if (arenaSize + length > arena.length) {
+      arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + length));
+    }
+    System.arraycopy(bytes, start, arena, arenaSize, length);
+    starts[id] = arenaSize;
+    lengths[id] = length;
+    hashes[id] = hash;
+    arenaSize += length;
+
+    if (size * 2 > slots.length) {
+      rehash(slots.length * 2);
+    }
+    else {
+      slots[slot] = id;
+    }
+    return id;
+  }
+
+  private void rehash(int capacity) {
+    slots = newSlots(capacity);
+    mask = capacity - 1;
+    for (int id = 0; id < size; id++) {
+      int slot = hashes[id] & mask;
+      while (slots[slot] != MISSING) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = id;
+    }
+  }
+
+  private static int[] newSlots(int capacity) {
+    int[] slots = new int[capacity];
+    Arrays.fill(slots, MISSING);
+    return slots;
+  }
+}
@@ -26,6 +26,14 @@ public class GeolocationViewport {
     );
   }
 
+  public double getMinLatitude() {
+    return xMin;
+  }
+
+  public double getMaxLatitude() {
+    return xMax;
+  }
+
   public Boolean containsCoordinates(double latitude, double longitude) {
     if (latitude < xMin || latitude > xMax) {
       return false;
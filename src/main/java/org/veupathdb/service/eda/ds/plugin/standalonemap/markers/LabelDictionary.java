@@ -0,0 +1,115 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary resolving values to the ordinals of a fixed set of labels (e.g. a categorical overlay's values),
+ * built once so values can be looked up straight from the bytes of a row (see
+ * {@link TabularRow#getOrdinal(int, LabelDictionary)}) without decoding them into Strings.  The byte table's
+ * hash seed is chosen so each label has a slot of its own, making nearly every lookup a single hash and
+ * comparison; should no seed separate them in a table of a few times their number, colliding labels fall back
+ * to the next free slot.
+ */
+public class LabelDictionary {
+
+  public static final int NOT_FOUND = -1;
+
+  private static final int SEEDS_PER_SIZE = 64;
+  private static final int MAX_SIZE_DOUBLINGS = 2;
+  // beyond this many labels a collision-free seed is too unlikely to search for
+  private static final int MAX_PERFECT_LABELS = 256;
+
+  private final Map<String, Integer> ordinals = new HashMap<>();
+  private final byte[][] slotKeys;
+  private final int[] slotOrdinals;
+  private final int mask;
+  private final int seed;
+
+  /**
+   * @param labels labels, by ordinal; later duplicates of a label are ignored
+   */
+  public LabelDictionary(List<String> labels) {
+    byte[][] keys = new byte[labels.size()][];
+    for (int i = 0; i < labels.size(); i++) {
+      if (ordinals.putIfAbsent(labels.get(i), i) == null) {
+        keys[i] = labels.get(i).getBytes(StandardCharsets.UTF_8);
+      }
+    }
+
+    // at most half full, so probes for values not in the dictionary end quickly; the few values of an overlay
+    // find a seed placing each in a slot of its own within a few doublings, large vocabularies rarely do
+    int minSize = Integer.highestOneBit(Math.max(2, ordinals.size() * 2 - 1)) << 1;
+    int size = minSize;
+    int chosenSeed = 0;
+    int doublings = ordinals.size() <= MAX_PERFECT_LABELS ? MAX_SIZE_DOUBLINGS : -1;
+    search:
+    for (int doubling = 0; doubling <= doublings; doubling++, size <<= 1) {
+      for (int candidate = 1; candidate <= SEEDS_PER_SIZE; candidate++) {
+        if (isPerfect(keys, size - 1, candidate)) {
+          chosenSeed = candidate;
+          break search;
+        }
+      }
+    }
+    if (chosenSeed == 0) {
+      size = minSize;
+      chosenSeed = 1;
+    }
+    mask = size - 1;
+    seed = chosenSeed;
+    slotKeys = new byte[size][];
+    slotOrdinals = new int[size];
+    Arrays.fill(slotOrdinals, NOT_FOUND);
+    for (int ordinal = 0; ordinal < keys.length; ordinal++) {
+      if (keys[ordinal] != null) {
+        int slot = ByteSlices.hash(keys[ordinal], 0, keys[ordinal].length, seed) & mask;
+        while (slotOrdinals[slot] != NOT_FOUND) {
+          slot = (slot + 1) & mask;
+        }
+        slotKeys[slot] = keys[ordinal];
+        slotOrdinals[slot] = ordinal;
+      }
+    }
+  }
+
+  /**
+   * @return ordinal of the passed value, or NOT_FOUND if it is not one of the labels
+   */
+  public int ordinalOf(String value) {
+    return ordinals.getOrDefault(value, NOT_FOUND);
+  }
+
+  /**
+   * @return ordinal of the value held, UTF-8 encoded, in the passed range of bytes, or NOT_FOUND if it is not
+   * one of the labels
+   */
+  public int ordinalOf(byte[] bytes, int start, int end) {
+    int slot = ByteSlices.hash(bytes, start, end, seed) & mask;
+    while (slotOrdinals[slot] != NOT_FOUND) {
+      byte[] key = slotKeys[slot];
+      if (Arrays.equals(key, 0, key.length, bytes, start, end)) {
+        return slotOrdinals[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return NOT_FOUND;
+  }
+
+  private static boolean isPerfect(byte[][] keys, int mask, int seed) {
+    boolean[] used = new boolean[mask + 1];
+    for (byte[] key : keys) {
+      if (key != null) {
+        int slot = ByteSlices.hash(key, 0, key.length, seed) & mask;
+        if (used[slot]) {
+          return false;
+        }
+        used[slot] = true;
+      }
+    }
+    return true;
+  }
+}
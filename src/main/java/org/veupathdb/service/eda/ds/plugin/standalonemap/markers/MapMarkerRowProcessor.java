@@ -2,56 +2,425 @@ package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
 
 import org.gusdb.fgputil.DelimitedDataParser;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.MarkerAggregator;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.SpatialMarkerIndex.PartialKey;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * Component responsible for iterating over data stream and aggregating map marker data per geo variable.
+ *
+ * Markers are aggregated by the primary (first) geo variable.  Further geo variables, typically the geohash
+ * components for other zoom levels, are only used when indexing: the index then holds partials per combination
+ * of geo values, so markers for any of the levels can be derived from it by merging, without another pass.
+ *
  * @param <T> Type to output as result of aggregation of marker data.
  */
 public class MapMarkerRowProcessor<T> {
+  // size of the row blocks handed to workers in parallel mode
+  private static final int BLOCK_SIZE = 1024 * 1024;
+  // marks the end of the row blocks for a worker
+  private static final byte[] END_OF_BLOCKS = new byte[0];
+
+  private final int[] geoVarIndexes;
   private final int geoVarIndex;
   private final int latIndex;
   private final int lonIndex;
 
   public MapMarkerRowProcessor(int geoVarIndex, int latIndex, int lonIndex) {
-    this.geoVarIndex = geoVarIndex;
+    this(new int[] { geoVarIndex }, latIndex, lonIndex);
+  }
+
+  /**
+   * @param geoVarIndexes column indexes of the geo variables; markers are aggregated by the first, and indexes
+   * built by {@link #processAndIndex} can be queried at every level
+   */
+  public MapMarkerRowProcessor(int[] geoVarIndexes, int latIndex, int lonIndex) {
+    this.geoVarIndexes = geoVarIndexes.clone();
+    this.geoVarIndex = geoVarIndexes[0];
     this.latIndex = latIndex;
     this.lonIndex = lonIndex;
   }
 
+  /**
+   * Result of {@link #processAndIndex}: the markers for the requested viewport and, unless the data held too
+   * many distinct locations, an index from which markers for any other viewport can be computed.
+   */
+  public static class IndexedResult<T> {
+
+    private final Map<String, MarkerData<T>> markers;
+    private final SpatialMarkerIndex<T> index;
+
+    private IndexedResult(Map<String, MarkerData<T>> markers, SpatialMarkerIndex<T> index) {
+      this.markers = markers;
+      this.index = index;
+    }
+
+    public Map<String, MarkerData<T>> getMarkers() {
+      return markers;
+    }
+
+    public Optional<SpatialMarkerIndex<T>> getIndex() {
+      return Optional.ofNullable(index);
+    }
+  }
+
+  /**
+   * Aggregates the rows remaining in the passed scanner (i.e. after the header has been read).  Only the geo,
+   * lat/lon and aggregated columns are decoded; coordinates are parsed directly from the stream bytes.
+   */
+  public Map<String, MarkerData<T>> process(TabularStreamScanner scanner,
+                                            GeolocationViewport viewport,
+                                            Supplier<MarkerAggregator<T>> aggregatorSupplier) throws IOException {
+    return process(scanner, viewport, aggregatorSupplier, 1);
+  }
+
+  /**
+   * Aggregates the rows remaining in the passed scanner using the passed number of worker threads.  The calling
+   * thread reads the stream in blocks of whole rows and hands them to the workers, each of which aggregates its
+   * rows into its own markers; the partial markers are merged once the stream is exhausted.  Aggregators
+   * produced by the passed supplier must therefore support merging, and the supplier must be safe to call from
+   * multiple threads.
+   *
+   * Workers run on the shared {@link MarkerWorkerPool}, so the threads aggregating markers are bounded across
+   * all requests rather than per request.
+   *
+   * @param parallelism number of worker threads, at most the shared pool's; if 1 or less, rows are aggregated
+   * on the calling thread
+   */
+  public Map<String, MarkerData<T>> process(TabularStreamScanner scanner,
+                                            GeolocationViewport viewport,
+                                            Supplier<MarkerAggregator<T>> aggregatorSupplier,
+                                            int parallelism) throws IOException {
+    return aggregate(scanner, viewport, aggregatorSupplier, parallelism, 0).getMarkers();
+  }
+
+  /**
+   * Aggregates the rows remaining in the passed scanner as {@link #process(TabularStreamScanner,
+   * GeolocationViewport, Supplier, int)} does, additionally building a {@link SpatialMarkerIndex} of the whole
+   * stream so that later requests for other viewports over the same data need not read it again.
+   *
+   * The index holds a partial marker per distinct (geo values, latitude, longitude).  If more than the passed
+   * number of partials would be needed, indexing is abandoned part way: partials outside the viewport are
+   * discarded and the remaining rows are aggregated for the viewport only, so memory use stays bounded.
+   *
+   * @param maxIndexedPartials maximum number of partial markers to index
+   */
+  public IndexedResult<T> processAndIndex(TabularStreamScanner scanner,
+                                          GeolocationViewport viewport,
+                                          Supplier<MarkerAggregator<T>> aggregatorSupplier,
+                                          int parallelism,
+                                          int maxIndexedPartials) throws IOException {
+    return aggregate(scanner, viewport, aggregatorSupplier, parallelism, maxIndexedPartials);
+  }
+
+  private IndexedResult<T> aggregate(TabularStreamScanner scanner,
+                                     GeolocationViewport viewport,
+                                     Supplier<MarkerAggregator<T>> aggregatorSupplier,
+                                     int parallelism,
+                                     int maxIndexedPartials) throws IOException {
+    final AtomicBoolean indexAbandoned = new AtomicBoolean(maxIndexedPartials <= 0);
+    final MarkerWorkerPool workerPool = parallelism <= 1 ? null : MarkerWorkerPool.getShared();
+    final List<Accumulator> accumulators;
+    if (workerPool == null || workerPool.getThreads() <= 1) {
+      Accumulator accumulator = new Accumulator(viewport, aggregatorSupplier, maxIndexedPartials, indexAbandoned);
+      while (scanner.next()) {
+        accumulator.addRow(scanner);
+      }
+      accumulators = List.of(accumulator);
+    }
+    else {
+      accumulators = aggregateInParallel(scanner, viewport, aggregatorSupplier, workerPool.getExecutor(),
+          Math.min(parallelism, workerPool.getThreads()), maxIndexedPartials, indexAbandoned);
+    }
+
+    if (!indexAbandoned.get()) {
+      final Map<PartialKey, MarkerData<T>> partials = new HashMap<>();
+      for (Accumulator accumulator : accumulators) {
+        mergeInto(partials, accumulator.getPartials());
+      }
+      if (partials.size() <= maxIndexedPartials) {
+        SpatialMarkerIndex<T> index = new SpatialMarkerIndex<>(partials, aggregatorSupplier);
+        return new IndexedResult<>(index.query(viewport), index);
+      }
+      // too many partials once combined; use them for this viewport only
+      final Map<String, MarkerData<T>> aggregatedDataByGeoVal = new HashMap<>();
+      addPartialsInViewport(partials, viewport, aggregatedDataByGeoVal);
+      return new IndexedResult<>(withoutEmptyMarkers(aggregatedDataByGeoVal), null);
+    }
+
+    final Map<String, MarkerData<T>> aggregatedDataByGeoVal = new HashMap<>();
+    for (Accumulator accumulator : accumulators) {
+      accumulator.abandonIndex();
+      mergeInto(aggregatedDataByGeoVal, accumulator.getMarkers());
+    }
+    return new IndexedResult<>(withoutEmptyMarkers(aggregatedDataByGeoVal), null);
+  }
+
+  private List<Accumulator> aggregateInParallel(TabularStreamScanner scanner,
+                                                GeolocationViewport viewport,
+                                                Supplier<MarkerAggregator<T>> aggregatorSupplier,
+                                                ExecutorService workers,
+                                                int parallelism,
+                                                int maxIndexedPartials,
+                                                AtomicBoolean indexAbandoned) throws IOException {
+    final BlockingQueue<byte[]> blocks = new ArrayBlockingQueue<>(parallelism * 2);
+    final AtomicReference<Throwable> workerFailure = new AtomicReference<>();
+    // workers waiting for a pool thread only hold up this request: the blocks they will take are read by the
+    //   calling thread, which never waits on the pool
+    final List<Future<Accumulator>> partials = new ArrayList<>();
+    try {
+      for (int i = 0; i < parallelism; i++) {
+        Accumulator accumulator = new Accumulator(viewport, aggregatorSupplier, maxIndexedPartials, indexAbandoned);
+        partials.add(workers.submit(() -> aggregateBlocks(scanner, blocks, accumulator, workerFailure)));
+      }
+
+      // stop reading early if a worker has failed, but always let every worker finish
+      byte[] block;
+      while (workerFailure.get() == null && (block = scanner.nextBlock(BLOCK_SIZE)) != null) {
+        blocks.put(block);
+      }
+      for (int i = 0; i < parallelism; i++) {
+        blocks.put(END_OF_BLOCKS);
+      }
+
+      final List<Accumulator> partialResults = new ArrayList<>();
+      for (Future<Accumulator> partial : partials) {
+        partialResults.add(partial.get());
+      }
+      rethrow(workerFailure.get());
+      return partialResults;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while aggregating map markers", e);
+    }
+    catch (ExecutionException e) {
+      rethrow(e.getCause());
+      throw new IllegalStateException(e);
+    }
+    finally {
+      // the pool is shared, so stop this request's workers (if the stream failed) rather than the pool
+      partials.forEach(partial -> partial.cancel(true));
+    }
+  }
+
+  // workers only fail with unchecked exceptions
+  private static void rethrow(Throwable workerFailure) {
+    if (workerFailure instanceof RuntimeException e) {
+      throw e;
+    }
+    if (workerFailure instanceof Error e) {
+      throw e;
+    }
+  }
+
+  private Accumulator aggregateBlocks(TabularStreamScanner scanner,
+                                      BlockingQueue<byte[]> blocks,
+                                      Accumulator accumulator,
+                                      AtomicReference<Throwable> failure) throws InterruptedException {
+    byte[] block;
+    while ((block = blocks.take()) != END_OF_BLOCKS) {
+      // after a failure (in any worker), keep draining blocks so the reading thread never blocks
+      if (failure.get() != null) {
+        continue;
+      }
+      try {
+        TabularStreamScanner blockScanner = scanner.newBlockScanner(block);
+        while (blockScanner.next()) {
+          accumulator.addRow(blockScanner);
+        }
+      }
+      catch (RuntimeException | Error e) {
+        failure.compareAndSet(null, e);
+      }
+      catch (IOException e) {
+        // block scanners read from memory, so should never get here
+        failure.compareAndSet(null, new UncheckedIOException(e));
+      }
+    }
+    return accumulator;
+  }
+
   public Map<String, MarkerData<T>> process(BufferedReader reader,
                                             DelimitedDataParser parser,
                                             GeolocationViewport viewport,
                                             Supplier<MarkerAggregator<T>> aggregatorSupplier) throws IOException {
-    final Map<String, MarkerData<T>> aggregatedDataByGeoVal = new HashMap<>();
+    final Accumulator accumulator = new Accumulator(viewport, aggregatorSupplier, 0, new AtomicBoolean(true));
     String nextLine = reader.readLine();
 
     while (nextLine != null) {
-      String[] row = parser.parseLineToArray(nextLine);
+      accumulator.addRow(TabularRow.of(parser.parseLineToArray(nextLine)));
+      nextLine = reader.readLine();
+    }
 
+    return withoutEmptyMarkers(accumulator.getMarkers());
+  }
+
+  /**
+   * Aggregates rows for a single thread.  While indexing, rows are aggregated into partial markers by geo value
+   * and exact location, regardless of the viewport; once indexing is abandoned (by this or any other
+   * accumulator sharing the flag), the partials within the viewport are folded into per-geo value markers and
+   * further rows are aggregated directly into those.
+   *
+   * Geo values are interned as ids straight from the row bytes, and markers and partials kept as columns by
+   * id, so a row allocates nothing; markers are only materialized, by geo value, once the rows are done.
+   */
+  private class Accumulator {
+
+    private final GeolocationViewport viewport;
+    private final int maxIndexedPartials;
+    private final AtomicBoolean indexAbandoned;
+    private final GeoKeyInterner geoKeys = new GeoKeyInterner();
+    private final MarkerColumns<T> markers; // by geo value id
+    private final int[] rowGeoIds = new int[geoVarIndexes.length];
+    private PartialKeyTable partialKeys; // null once indexing is abandoned
+    private MarkerColumns<T> partials; // by partial key id; null once indexing is abandoned
+
+    Accumulator(GeolocationViewport viewport,
+                Supplier<MarkerAggregator<T>> aggregatorSupplier,
+                int maxIndexedPartials,
+                AtomicBoolean indexAbandoned) {
+      this.viewport = viewport;
+      this.maxIndexedPartials = maxIndexedPartials;
+      this.indexAbandoned = indexAbandoned;
+      this.markers = new MarkerColumns<>(aggregatorSupplier);
+      if (!indexAbandoned.get()) {
+        this.partialKeys = new PartialKeyTable(geoVarIndexes.length);
+        this.partials = new MarkerColumns<>(aggregatorSupplier);
+      }
+    }
+
+    void addRow(TabularRow row) {
+      if (partials != null && indexAbandoned.get()) {
+        abandonIndex();
+      }
       // entity records counts not impacted by viewport
-      if (!(row[geoVarIndex] == null || row[geoVarIndex].isEmpty() ||
-          row[latIndex] == null || row[latIndex].isEmpty() ||
-          row[lonIndex] == null || row[lonIndex].isEmpty())) {
+      if (row.isEmpty(latIndex) || row.isEmpty(lonIndex) || (partials == null && row.isEmpty(geoVarIndex))) {
+        return;
+      }
 
-        double latitude = Double.parseDouble(row[latIndex]);
-        double longitude = Double.parseDouble(row[lonIndex]);
+      if (partials != null) {
+        // rows only count at the levels for which they have a geo value
+        boolean hasGeoValue = false;
+        for (int level = 0; level < geoVarIndexes.length; level++) {
+          if (row.isEmpty(geoVarIndexes[level])) {
+            rowGeoIds[level] = GeoKeyInterner.MISSING;
+          }
+          else {
+            rowGeoIds[level] = row.internKey(geoVarIndexes[level], geoKeys);
+            hasGeoValue = true;
+          }
+        }
+        if (!hasGeoValue) {
+          return;
+        }
+        double latitude = row.getDouble(latIndex);
+        double longitude = row.getDouble(lonIndex);
+        partials.addRow(partialKeys.intern(rowGeoIds, latitude, longitude), latitude, longitude, row);
+        if (partialKeys.size() > maxIndexedPartials) {
+          indexAbandoned.set(true);
+          abandonIndex();
+        }
+      }
+      else {
+        double latitude = row.getDouble(latIndex);
+        double longitude = row.getDouble(lonIndex);
+        if (!viewport.containsCoordinates(latitude, longitude)) {
+          return;
+        }
+        // overlayValue here could be a raw numeric value as well
+        markers.addRow(row.internKey(geoVarIndex, geoKeys), latitude, longitude, row);
+      }
+    }
 
-        if (viewport.containsCoordinates(latitude, longitude)) {
-          aggregatedDataByGeoVal.putIfAbsent(row[geoVarIndex], new MarkerData<>(aggregatorSupplier.get()));
-          // overlayValue here could be a raw numeric value as well
-          aggregatedDataByGeoVal.get(row[geoVarIndex]).addRow(latitude, longitude, row);
+    void abandonIndex() {
+      if (partials != null) {
+        // folds the partials within the viewport into markers by primary geo value
+        for (int partial = 0; partial < partialKeys.size(); partial++) {
+          int geoId = partialKeys.getGeoId(partial, 0);
+          if (geoId != GeoKeyInterner.MISSING && partials.isPresent(partial)
+              && viewport.containsCoordinates(partialKeys.getLatitude(partial), partialKeys.getLongitude(partial))) {
+            markers.merge(geoId, partials, partial);
+          }
         }
+        partialKeys = null;
+        partials = null;
       }
-      nextLine = reader.readLine();
     }
 
+    Map<String, MarkerData<T>> getMarkers() {
+      final Map<String, MarkerData<T>> markersByGeoVal = new HashMap<>();
+      for (int geoId = 0; geoId < geoKeys.size(); geoId++) {
+        if (markers.isPresent(geoId)) {
+          markersByGeoVal.put(geoKeys.getKey(geoId), markers.toMarkerData(geoId));
+        }
+      }
+      return markersByGeoVal;
+    }
+
+    Map<PartialKey, MarkerData<T>> getPartials() {
+      final Map<PartialKey, MarkerData<T>> partialsByKey = new HashMap<>();
+      for (int partial = 0; partial < partialKeys.size(); partial++) {
+        String[] geoValues = new String[geoVarIndexes.length];
+        for (int level = 0; level < geoValues.length; level++) {
+          int geoId = partialKeys.getGeoId(partial, level);
+          geoValues[level] = geoId == GeoKeyInterner.MISSING ? null : geoKeys.getKey(geoId);
+        }
+        partialsByKey.put(new PartialKey(geoValues, partialKeys.getLatitude(partial), partialKeys.getLongitude(partial)),
+            partials.toMarkerData(partial));
+      }
+      return partialsByKey;
+    }
+  }
+
+  // merges markers into the target map by key; the source markers are adopted, not copied
+  private static <K, T> void mergeInto(Map<K, MarkerData<T>> target, Map<K, MarkerData<T>> source) {
+    source.forEach((key, markerData) -> {
+      MarkerData<T> existing = target.get(key);
+      if (existing == null) {
+        target.put(key, markerData);
+      }
+      else {
+        existing.merge(markerData);
+      }
+    });
+  }
+
+  // folds the partials within the viewport into markers by primary geo value; the partials are adopted, not copied
+  private static <T> void addPartialsInViewport(Map<PartialKey, MarkerData<T>> partials,
+                                                GeolocationViewport viewport,
+                                                Map<String, MarkerData<T>> aggregatedDataByGeoVal) {
+    partials.forEach((key, partial) -> {
+      String geoVal = key.geoValues[0];
+      if (geoVal != null && viewport.containsCoordinates(key.latitude, key.longitude)) {
+        MarkerData<T> existing = aggregatedDataByGeoVal.get(geoVal);
+        if (existing == null) {
+          aggregatedDataByGeoVal.put(geoVal, partial);
+        }
+        else {
+          existing.merge(partial);
+        }
+      }
+    });
+  }
+
+  private Map<String, MarkerData<T>> withoutEmptyMarkers(Map<String, MarkerData<T>> aggregatedDataByGeoVal) {
     return aggregatedDataByGeoVal.entrySet().stream()
         .filter(e -> !e.getValue().isEmpty())
         .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
@@ -0,0 +1,130 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.MarkerAggregator;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * State of a set of markers identified by dense int ids (e.g. interned geo values), held as parallel primitive
+ * arrays rather than a MarkerData object per marker, so aggregating a row touches a few array slots and
+ * allocates nothing.  A marker exists once a row has been added to it or a marker merged into it, and is
+ * materialized as MarkerData only when asked for.  Not thread-safe.
+ *
+ * @param <T> Type to output as result of aggregation of marker data.
+ */
+class MarkerColumns<T> {
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  private final Supplier<MarkerAggregator<T>> aggregatorSupplier;
+  private boolean[] present = new boolean[INITIAL_CAPACITY];
+  private long[] counts = new long[INITIAL_CAPACITY];
+  // sums of the points' unit vectors, as MergeableLatLonAverager keeps them, those of a marker starting at
+  //   its id times MergeableLatLonAverager.VECTOR_SIZE
+  private double[] vectorSums = new double[INITIAL_CAPACITY * MergeableLatLonAverager.VECTOR_SIZE];
+  private double[] minLats = new double[INITIAL_CAPACITY];
+  private double[] maxLats = new double[INITIAL_CAPACITY];
+  private double[] minLons = new double[INITIAL_CAPACITY];
+  private double[] maxLons = new double[INITIAL_CAPACITY];
+  private Object[] aggregators = new Object[INITIAL_CAPACITY];
+
+  MarkerColumns(Supplier<MarkerAggregator<T>> aggregatorSupplier) {
+    this.aggregatorSupplier = aggregatorSupplier;
+  }
+
+  /**
+   * Adds a row to the marker with the passed id, creating the marker if need be.  Rows the marker's aggregator
+   * does not apply to are left out.
+   */
+  void addRow(int id, double lat, double lon, TabularRow row) {
+    if (!isPresent(id)) {
+      create(id, aggregatorSupplier.get());
+    }
+    MarkerAggregator<T> aggregator = getAggregator(id);
+    if (aggregator == null || aggregator.appliesTo(row)) {
+      counts[id]++;
+      MergeableLatLonAverager.addUnitVector(lat, lon, vectorSums, vectorOffset(id));
+      minLats[id] = Math.min(minLats[id], lat);
+      minLons[id] = Math.min(minLons[id], lon);
+      maxLats[id] = Math.max(maxLats[id], lat);
+      maxLons[id] = Math.max(maxLons[id], lon);
+      if (aggregator != null) {
+        aggregator.addValue(row);
+      }
+    }
+  }
+
+  /**
+   * Incorporates a marker of other columns into the marker with the passed id.  If that marker does not exist
+   * yet, it adopts the other marker's aggregator rather than copying it, so the other columns must not be used
+   * afterwards.
+   */
+  void merge(int id, MarkerColumns<T> other, int otherId) {
+    if (!isPresent(id)) {
+      create(id, other.getAggregator(otherId));
+      counts[id] = other.counts[otherId];
+      MergeableLatLonAverager.addVector(vectorSums, vectorOffset(id), other.vectorSums, vectorOffset(otherId));
+      minLats[id] = other.minLats[otherId];
+      maxLats[id] = other.maxLats[otherId];
+      minLons[id] = other.minLons[otherId];
+      maxLons[id] = other.maxLons[otherId];
+      return;
+    }
+    counts[id] += other.counts[otherId];
+    MergeableLatLonAverager.addVector(vectorSums, vectorOffset(id), other.vectorSums, vectorOffset(otherId));
+    minLats[id] = Math.min(minLats[id], other.minLats[otherId]);
+    minLons[id] = Math.min(minLons[id], other.minLons[otherId]);
+    maxLats[id] = Math.max(maxLats[id], other.maxLats[otherId]);
+    maxLons[id] = Math.max(maxLons[id], other.maxLons[otherId]);
+    MarkerAggregator<T> aggregator = getAggregator(id);
+    if (aggregator != null) {
+      aggregator.merge(other.getAggregator(otherId));
+    }
+  }
+
+  boolean isPresent(int id) {
+    return id < present.length && present[id];
+  }
+
+  /**
+   * @return new MarkerData holding the state of the (present) marker with the passed id
+   */
+  MarkerData<T> toMarkerData(int id) {
+    return new MarkerData<>(getAggregator(id), counts[id],
+        new MergeableLatLonAverager(vectorSums, vectorOffset(id), counts[id]),
+        minLats[id], maxLats[id], minLons[id], maxLons[id]);
+  }
+
+  private static int vectorOffset(int id) {
+    return id * MergeableLatLonAverager.VECTOR_SIZE;
+  }
+
+  @SuppressWarnings("unchecked")
+  private MarkerAggregator<T> getAggregator(int id) {
+    return (MarkerAggregator<T>) aggregators[id];
+  }
+
+  private void create(int id, MarkerAggregator<T> aggregator) {
+    if (id >= present.length) {
+      grow(Math.max(present.length * 2, Integer.highestOneBit(id) << 1));
+    }
+    present[id] = true;
+    aggregators[id] = aggregator;
+    minLats[id] = 90;
+    maxLats[id] = -90;
+    minLons[id] = 180;
+    maxLons[id] = -180;
+  }
+
+  private void grow(int capacity) {
+    present = Arrays.copyOf(present, capacity);
+    counts = Arrays.copyOf(counts, capacity);
+    vectorSums = Arrays.copyOf(vectorSums, capacity * MergeableLatLonAverager.VECTOR_SIZE);
+    minLats = Arrays.copyOf(minLats, capacity);
+    maxLats = Arrays.copyOf(maxLats, capacity);
+    minLons = Arrays.copyOf(minLons, capacity);
+    maxLons = Arrays.copyOf(maxLons, capacity);
+    aggregators = Arrays.copyOf(aggregators, capacity);
+  }
+}
@@ -1,12 +1,11 @@
 package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
 
-import org.gusdb.fgputil.geo.LatLonAverager;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.MarkerAggregator;
 
 public class MarkerData<T> {
 
   long count = 0;
-  LatLonAverager latLonAvg = new LatLonAverager();
+  MergeableLatLonAverager latLonAvg = new MergeableLatLonAverager();
   double minLat = 90;
   double maxLat = -90;
   double minLon = 180;
@@ -17,7 +16,19 @@ public class MarkerData<T> {
     this.markerAggregator = markerAggregator;
   }
 
-  public LatLonAverager getLatLonAvg() {
+  // materializes a marker aggregated elsewhere (see MarkerColumns)
+  MarkerData(MarkerAggregator<T> markerAggregator, long count, MergeableLatLonAverager latLonAvg,
+             double minLat, double maxLat, double minLon, double maxLon) {
+    this.markerAggregator = markerAggregator;
+    this.count = count;
+    this.latLonAvg = latLonAvg;
+    this.minLat = minLat;
+    this.maxLat = maxLat;
+    this.minLon = minLon;
+    this.maxLon = maxLon;
+  }
+
+  public MergeableLatLonAverager getLatLonAvg() {
     return latLonAvg;
   }
 
@@ -49,17 +60,26 @@ public class MarkerData<T> {
     return markerAggregator;
   }
 
-  public void addRow(double lat, double lon, String[] row) {
-    if (markerAggregator == null || markerAggregator.appliesTo(row)) {
-      count++;
-      latLonAvg.addDataPoint(lat, lon);
-      minLat = Math.min(minLat, lat);
-      minLon = Math.min(minLon, lon);
-      maxLat = Math.max(maxLat, lat);
-      maxLon = Math.max(maxLon, lon);
-      if (markerAggregator != null) {
-        markerAggregator.addValue(row);
-      }
+  /**
+   * @return rough estimate of the memory, in bytes, held by this marker and its aggregator
+   */
+  public long estimateFootprint() {
+    return 128 + (markerAggregator == null ? 0 : markerAggregator.estimateFootprint());
+  }
+
+  /**
+   * Incorporates the rows added to another marker into this one.  Both markers must have been created with
+   * aggregators from the same supplier.
+   */
+  public void merge(MarkerData<T> other) {
+    count += other.count;
+    latLonAvg.merge(other.latLonAvg);
+    minLat = Math.min(minLat, other.minLat);
+    minLon = Math.min(minLon, other.minLon);
+    maxLat = Math.max(maxLat, other.maxLat);
+    maxLon = Math.max(maxLon, other.maxLon);
+    if (markerAggregator != null) {
+      markerAggregator.merge(other.markerAggregator);
     }
   }
 }
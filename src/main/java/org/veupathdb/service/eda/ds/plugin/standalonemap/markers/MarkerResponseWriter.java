@@ -0,0 +1,115 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.gusdb.fgputil.geo.GeographyUtil.GeographicPoint;
+
+import java.io.IOException;
+
+/**
+ * Writes a map marker response (an object holding an array of markers) to a Jackson generator one marker at a
+ * time, so markers can be written as they are read from the aggregation map rather than first converted into a
+ * list of response objects.  Fields are written only if they have a value, as the generated model classes
+ * would serialize them; the fields of a marker's overlay follow its location fields.
+ *
+ * The generator may write any format Jackson supports (e.g. JSON, CBOR or Smile).
+ */
+public class MarkerResponseWriter {
+
+  /**
+   * Writes the fields of a marker's overlay (or other plugin-specific fields) into the marker's object.
+   */
+  @FunctionalInterface
+  public interface FieldWriter {
+    void writeFields(JsonGenerator generator) throws IOException;
+  }
+
+  private final JsonGenerator generator;
+  private boolean markersFinished = false;
+
+  /**
+   * Starts the response object and its array of markers.
+   *
+   * @param generator generator to write the response to
+   * @param markersField name of the response's array of markers
+   */
+  public MarkerResponseWriter(JsonGenerator generator, String markersField) throws IOException {
+    this.generator = generator;
+    generator.writeStartObject();
+    generator.writeArrayFieldStart(markersField);
+  }
+
+  /**
+   * Writes a marker aggregated from rows.
+   *
+   * @param geoAggregateValue value of the geo aggregate variable of the marker, or null to leave it out
+   * @param data aggregated location of the marker
+   * @param overlay writer of the marker's overlay fields, or null if it has none
+   */
+  public void writeMarker(String geoAggregateValue, MarkerData<?> data, FieldWriter overlay) throws IOException {
+    writeMarker(geoAggregateValue, data.getCount(), data.getLatLonAvg().getCurrentAverage(),
+        data.getMinLat(), data.getMinLon(), data.getMaxLat(), data.getMaxLon(), overlay);
+  }
+
+  /**
+   * Writes a marker.
+   *
+   * @param geoAggregateValue value of the geo aggregate variable of the marker, or null to leave it out
+   * @param entityCount number of entities in the marker
+   * @param avgLatLon average location of the marker's entities
+   * @param minLat minimum latitude of the marker's entities
+   * @param minLon minimum longitude of the marker's entities
+   * @param maxLat maximum latitude of the marker's entities
+   * @param maxLon maximum longitude of the marker's entities
+   * @param overlay writer of the marker's overlay fields, or null if it has none
+   */
+  public void writeMarker(String geoAggregateValue, long entityCount, GeographicPoint avgLatLon,
+      double minLat, double minLon, double maxLat, double maxLon, FieldWriter overlay) throws IOException {
+    generator.writeStartObject();
+    if (geoAggregateValue != null) {
+      generator.writeStringField("geoAggregateValue", geoAggregateValue);
+    }
+    generator.writeNumberField("entityCount", entityCount);
+    generator.writeNumberField("avgLat", avgLatLon.getLatitude());
+    generator.writeNumberField("avgLon", avgLatLon.getLongitude());
+    generator.writeNumberField("minLat", minLat);
+    generator.writeNumberField("minLon", minLon);
+    generator.writeNumberField("maxLat", maxLat);
+    generator.writeNumberField("maxLon", maxLon);
+    if (overlay != null) {
+      overlay.writeFields(generator);
+    }
+    generator.writeEndObject();
+  }
+
+  /**
+   * Ends the array of markers.  Further fields of the response object may then be written to the returned
+   * generator.
+   *
+   * @return the generator the response is written to
+   */
+  public JsonGenerator finishMarkers() throws IOException {
+    if (!markersFinished) {
+      generator.writeEndArray();
+      markersFinished = true;
+    }
+    return generator;
+  }
+
+  /**
+   * Ends the array of markers (if not yet ended) and the response object, and flushes the generator.
+   */
+  public void finish() throws IOException {
+    finishMarkers();
+    generator.writeEndObject();
+    generator.flush();
+  }
+
+  /**
+   * Writes a numeric field if it has a value.
+   */
+  public static void writeOptionalNumberField(JsonGenerator generator, String name, Double value) throws IOException {
+    if (value != null) {
+      generator.writeNumberField(name, value);
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pool of platform threads aggregating map marker rows in parallel (see MapMarkerRowProcessor).  A single pool
+ * is shared by all requests, so the number of threads aggregating markers is bounded however many requests
+ * are in flight: each request gets at most as many workers as the pool has threads, and workers of concurrent
+ * requests queue for a free thread.
+ */
+public class MarkerWorkerPool {
+
+  private static volatile MarkerWorkerPool shared;
+
+  private final int threads;
+  private final ExecutorService executor;
+
+  /**
+   * @param threads number of threads in the pool
+   */
+  public MarkerWorkerPool(int threads) {
+    this.threads = Math.max(1, threads);
+    this.executor = Executors.newFixedThreadPool(this.threads,
+        Thread.ofPlatform().name("map-marker-worker-", 0).daemon().factory());
+  }
+
+  /**
+   * @return the pool shared by all requests; one thread per processor unless configured otherwise
+   */
+  public static MarkerWorkerPool getShared() {
+    MarkerWorkerPool pool = shared;
+    if (pool == null) {
+      synchronized (MarkerWorkerPool.class) {
+        if (shared == null) {
+          shared = new MarkerWorkerPool(Runtime.getRuntime().availableProcessors());
+        }
+        pool = shared;
+      }
+    }
+    return pool;
+  }
+
+  /**
+   * Replaces the shared pool with one of the passed number of threads.  Meant to be called once, at startup.
+   */
+  public static synchronized void setSharedThreads(int threads) {
+    MarkerWorkerPool previous = shared;
+    shared = new MarkerWorkerPool(threads);
+    if (previous != null) {
+      previous.executor.shutdown();
+    }
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  ExecutorService getExecutor() {
+    return executor;
+  }
+}
@@ -0,0 +1,70 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import org.gusdb.fgputil.geo.GeographyUtil.GeographicPoint;
+
+/**
+ * Averages geographic points by summing their positions as unit vectors in 3D space (so points on either side
+ * of the antimeridian average correctly) and converting the mean vector back to latitude/longitude.  Unlike
+ * the FgpUtil LatLonAverager, partial averages computed over separate sets of points can be merged.
+ */
+public class MergeableLatLonAverager {
+
+  // number of values in a sum of unit vectors (x, y and z)
+  static final int VECTOR_SIZE = 3;
+
+  private final double[] sums = new double[VECTOR_SIZE];
+  private long count = 0;
+
+  public MergeableLatLonAverager() {
+  }
+
+  // resumes from sums of unit vectors kept elsewhere (see MarkerColumns)
+  MergeableLatLonAverager(double[] vectorSums, int offset, long count) {
+    addVector(sums, 0, vectorSums, offset);
+    this.count = count;
+  }
+
+  /**
+   * Adds the unit vector of a point to the sum held in the passed array, starting at the passed offset.  Both
+   * averagers and MarkerColumns (which keeps the sums of many markers in one array) add points this way.
+   */
+  static void addUnitVector(double latitude, double longitude, double[] vectorSums, int offset) {
+    double latRadians = Math.toRadians(latitude);
+    double lonRadians = Math.toRadians(longitude);
+    double cosLat = Math.cos(latRadians);
+    vectorSums[offset] += cosLat * Math.cos(lonRadians);
+    vectorSums[offset + 1] += cosLat * Math.sin(lonRadians);
+    vectorSums[offset + 2] += Math.sin(latRadians);
+  }
+
+  /**
+   * Adds one sum of unit vectors to another, each held in an array starting at the passed offset.
+   */
+  static void addVector(double[] vectorSums, int offset, double[] otherSums, int otherOffset) {
+    for (int i = 0; i < VECTOR_SIZE; i++) {
+      vectorSums[offset + i] += otherSums[otherOffset + i];
+    }
+  }
+
+  public void addDataPoint(double latitude, double longitude) {
+    addUnitVector(latitude, longitude, sums, 0);
+    count++;
+  }
+
+  /**
+   * Incorporates the points added to another averager into this one.
+   */
+  public void merge(MergeableLatLonAverager other) {
+    addVector(sums, 0, other.sums, 0);
+    count += other.count;
+  }
+
+  public GeographicPoint getCurrentAverage() {
+    double x = sums[0] / count;
+    double y = sums[1] / count;
+    double z = sums[2] / count;
+    double latitude = Math.toDegrees(Math.atan2(z, Math.sqrt(x * x + y * y)));
+    double longitude = Math.toDegrees(Math.atan2(y, x));
+    return new GeographicPoint(latitude, longitude);
+  }
+}
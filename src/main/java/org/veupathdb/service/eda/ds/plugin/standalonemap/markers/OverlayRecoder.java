@@ -1,5 +1,44 @@
 package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
 
+import java.util.List;
+
+/**
+ * Recodes raw overlay variable values into the overlay values or bins of an overlay, identified by their
+ * ordinal (index into the recoder's labels) so aggregators can count into arrays.
+ */
 public interface OverlayRecoder {
-  String recode(String s);
+
+  /**
+   * Ordinal of values falling in none of a continuous overlay's bins.
+   */
+  int NO_BIN = -1;
+
+  /**
+   * @param s raw value, not empty
+   * @return ordinal of the overlay value or bin the passed value falls in, or NO_BIN if none
+   */
+  int recodeToOrdinal(String s);
+
+  /**
+   * @param row row holding the raw value
+   * @param column column of the raw value, not empty
+   * @return ordinal of the overlay value or bin the value falls in, or NO_BIN if none
+   */
+  default int recodeToOrdinal(TabularRow row, int column) {
+    return recodeToOrdinal(row.getString(column));
+  }
+
+  /**
+   * @return labels of the overlay values or bins, by ordinal
+   */
+  List<String> getLabels();
+
+  /**
+   * @param s raw value, not empty
+   * @return label of the overlay value or bin the passed value falls in, or null if none
+   */
+  default String recode(String s) {
+    int ordinal = recodeToOrdinal(s);
+    return ordinal == NO_BIN ? null : getLabels().get(ordinal);
+  }
 }
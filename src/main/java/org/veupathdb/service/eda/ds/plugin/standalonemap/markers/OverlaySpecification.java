@@ -9,16 +9,21 @@ import org.veupathdb.service.eda.generated.model.VariableSpec;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
 
 import static org.veupathdb.service.eda.generated.model.OverlayType.CATEGORICAL;
 
 public class OverlaySpecification {
+  // overlay value to which values not among those requested are recoded
+  private static final String UNSELECTED = "__UNSELECTED__";
+
   private final List<String> labels;
   private final List<NormalizedBinRange> binRanges;
   private final VariableSpec overlayVariable;
@@ -40,15 +45,17 @@ public class OverlaySpecification {
           .map(NormalizedBinRange::getLabel)
           .collect(Collectors.toList());
     }
-    if (variableType.equalsIgnoreCase(APIVariableType.NUMBER.getValue())
+    if (binRanges == null) {
+      overlayRecoder = new LabelRecoder(labels);
+    } else if (variableType.equalsIgnoreCase(APIVariableType.NUMBER.getValue())
         || variableType.equalsIgnoreCase(APIVariableType.LONGITUDE.getValue())) {
-      overlayRecoder = input -> recodeNumeric(Double.parseDouble(input));
+      overlayRecoder = new BinRecoder(binRanges, labels, Double::parseDouble);
     } else if (variableType.equalsIgnoreCase(APIVariableType.INTEGER.getValue())) {
-      overlayRecoder = input -> recodeNumeric(Integer.parseInt(input));
+      overlayRecoder = new BinRecoder(binRanges, labels, Integer::parseInt);
     } else if (variableType.equalsIgnoreCase(APIVariableType.DATE.getValue())) {
-      overlayRecoder = input -> recodeNumeric(LocalDateTime.parse(input).toInstant(ZoneOffset.UTC).toEpochMilli());
+      overlayRecoder = new BinRecoder(binRanges, labels, input -> LocalDateTime.parse(input).toInstant(ZoneOffset.UTC).toEpochMilli());
     } else {
-      overlayRecoder = input -> labels.contains(input) ? input : "__UNSELECTED__";
+      overlayRecoder = new LabelRecoder(labels);
     }
   }
 
@@ -75,6 +82,13 @@ public class OverlaySpecification {
     return rBinList + "))";
   }
 
+  /**
+   * @return labels of the overlay values or bins, in the order requested
+   */
+  public List<String> getLabels() {
+    return labels;
+  }
+
   public VariableSpec getOverlayVariable() {
     return overlayVariable;
   }
@@ -83,6 +97,10 @@ public class OverlaySpecification {
     return overlayRecoder;
   }
 
+  /**
+   * @return label of the overlay value or bin the passed value falls in, or null if it is missing or (for
+   * continuous overlays) outside all of the bins
+   */
   public String recode(String s) {
     if (s == null || s.isEmpty()) {
       return null;
@@ -135,14 +153,62 @@ public class OverlaySpecification {
     }
   }
 
-  private String recodeNumeric(double varValue) {
-    // Binary search?
-    return binRanges.stream()
-        .filter(bin -> bin.getLabel().startsWith("[") ? 
-                       bin.getMin() <= varValue && bin.getMax() >= varValue :
-                       bin.getMin() < varValue && bin.getMax() >= varValue)
-        .findFirst()
-        .orElseThrow(() -> new IllegalArgumentException("The variable value " + varValue + " is not in any specified bin range."))
-        .getLabel();
+  // recodes values of the requested overlay values to themselves and any others to UNSELECTED, by way of a
+  // dictionary resolving them to ordinals without decoding them where the row allows
+  private static class LabelRecoder implements OverlayRecoder {
+    private final List<String> labels;
+    private final LabelDictionary dictionary;
+    private final int unselectedOrdinal;
+
+    LabelRecoder(List<String> overlayValues) {
+      labels = new ArrayList<>(overlayValues);
+      if (!labels.contains(UNSELECTED)) {
+        labels.add(UNSELECTED);
+      }
+      dictionary = new LabelDictionary(labels);
+      unselectedOrdinal = dictionary.ordinalOf(UNSELECTED);
+    }
+
+    @Override
+    public int recodeToOrdinal(String s) {
+      return orUnselected(dictionary.ordinalOf(s));
+    }
+
+    @Override
+    public int recodeToOrdinal(TabularRow row, int column) {
+      return orUnselected(row.getOrdinal(column, dictionary));
+    }
+
+    @Override
+    public List<String> getLabels() {
+      return labels;
+    }
+
+    private int orUnselected(int ordinal) {
+      return ordinal == LabelDictionary.NOT_FOUND ? unselectedOrdinal : ordinal;
+    }
+  }
+
+  // recodes numeric values, parsed to the scale of the bin edges, to the bin they fall in
+  private static class BinRecoder implements OverlayRecoder {
+    private final BinRangeIndex bins;
+    private final List<String> labels;
+    private final ToDoubleFunction<String> parser;
+
+    BinRecoder(List<NormalizedBinRange> binRanges, List<String> labels, ToDoubleFunction<String> parser) {
+      this.bins = new BinRangeIndex(binRanges);
+      this.labels = labels;
+      this.parser = parser;
+    }
+
+    @Override
+    public int recodeToOrdinal(String s) {
+      return bins.ordinalOf(parser.applyAsDouble(s));
+    }
+
+    @Override
+    public List<String> getLabels() {
+      return labels;
+    }
   }
 }
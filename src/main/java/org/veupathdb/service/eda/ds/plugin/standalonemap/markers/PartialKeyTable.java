@@ -0,0 +1,123 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import java.util.Arrays;
+
+/**
+ * Interns the keys of partial markers, i.e. (interned geo value ids by level, latitude, longitude), as dense
+ * int ids in an open-addressing table, with the keys held in parallel primitive arrays so rows can be matched
+ * to their partial without allocating.  Coordinates match as Double.compare does.  Not thread-safe.
+ */
+class PartialKeyTable {
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  private final int levels;
+  private int[] geoIds; // by partial, then level
+  private long[] latitudeBits;
+  private long[] longitudeBits;
+  private int[] hashes;
+  private int size = 0;
+
+  // id by slot, -1 where empty; at most half full
+  private int[] slots;
+  private int mask;
+
+  /**
+   * @param levels number of geo values in each key
+   */
+  PartialKeyTable(int levels) {
+    this.levels = levels;
+    this.geoIds = new int[INITIAL_CAPACITY * levels];
+    this.latitudeBits = new long[INITIAL_CAPACITY];
+    this.longitudeBits = new long[INITIAL_CAPACITY];
+    this.hashes = new int[INITIAL_CAPACITY];
+    this.slots = newSlots(INITIAL_CAPACITY * 2);
+    this.mask = INITIAL_CAPACITY * 2 - 1;
+  }
+
+  /**
+   * @param rowGeoIds geo value ids by level (GeoKeyInterner.MISSING where missing); copied if the key is new
+   * @return id of the key, interning it if new
+   */
+  int intern(int[] rowGeoIds, double latitude, double longitude) {
+    long latBits = Double.doubleToLongBits(latitude);
+    long lonBits = Double.doubleToLongBits(longitude);
+    int hash = hash(rowGeoIds, latBits, lonBits);
+    int slot = hash & mask;
+    int id;
+    while ((id = slots[slot]) != -1) {
+      if (hashes[id] == hash && latitudeBits[id] == latBits && longitudeBits[id] == lonBits
+          && Arrays.equals(geoIds, id * levels, (id + 1) * levels, rowGeoIds, 0, levels)) {
+        return id;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    id = size++;
+    if (id == hashes.length) {
+      int capacity = hashes.length * 2;
+      geoIds = Arrays.copyOf(geoIds, capacity * levels);
+      latitudeBits = Arrays.copyOf(latitudeBits, capacity);
+      longitudeBits = Arrays.copyOf(longitudeBits, capacity);
+      hashes = Arrays.copyOf(hashes, capacity);
+    }
+    System.arraycopy(rowGeoIds, 0, geoIds, id * levels, levels);
+    latitudeBits[id] = latBits;
+    longitudeBits[id] = lonBits;
+    hashes[id] = hash;
+    if (size * 2 > slots.length) {
+      rehash(slots.length * 2);
+    }
+    else {
+      slots[slot] = id;
+    }
+    return id;
+  }
+
+  /**
+   * @return number of distinct keys interned; ids run from 0 to one less than this
+   */
+  int size() {
+    return size;
+  }
+
+  int getGeoId(int id, int level) {
+    return geoIds[id * levels + level];
+  }
+
+  double getLatitude(int id) {
+    return Double.longBitsToDouble(latitudeBits[id]);
+  }
+
+  double getLongitude(int id) {
+    return Double.longBitsToDouble(longitudeBits[id]);
+  }
+
+  private int hash(int[] rowGeoIds, long latBits, long lonBits) {
+    int hash = 1;
+    for (int level = 0; level < levels; level++) {
+      hash = 31 * hash + rowGeoIds[level];
+    }
+    hash = 31 * hash + Long.hashCode(latBits);
+    hash = 31 * hash + Long.hashCode(lonBits);
+    return ByteSlices.avalanche(hash);
+  }
+
+  private void rehash(int capacity) {
+    slots = newSlots(capacity);
+    mask = capacity - 1;
+    for (int id = 0; id < size; id++) {
+      int slot = hashes[id] & mask;
+      while (slots[slot] != -1) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = id;
+    }
+  }
+
+  private static int[] newSlots(int capacity) {
+    int[] slots = new int[capacity];
+    Arrays.fill(slots, -1);
+    return slots;
+  }
+}
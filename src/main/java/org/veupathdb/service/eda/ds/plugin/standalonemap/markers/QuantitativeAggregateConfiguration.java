@@ -4,6 +4,7 @@ import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.AveragesWith
 import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.CategoricalProportionAggregator;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.ContinuousAggregators;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.MarkerAggregator;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.ValueQuantifier;
 import org.veupathdb.service.eda.generated.model.APIVariableDataShape;
 import org.veupathdb.service.eda.generated.model.APIVariableType;
 import org.veupathdb.service.eda.generated.model.CategoricalAggregationConfig;
@@ -14,7 +15,6 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
-import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static org.veupathdb.service.eda.generated.model.OverlayType.CATEGORICAL;
@@ -22,7 +22,7 @@ import static org.veupathdb.service.eda.generated.model.OverlayType.CATEGORICAL;
 public class QuantitativeAggregateConfiguration {
   private final ContinuousAggregators.ContinuousAggregatorFactory aggregatorSupplier;
 
-  private Function<String, Double> variableValueQuantifier;
+  private ValueQuantifier variableValueQuantifier;
   private String variableType;
 
   /**
@@ -42,7 +42,7 @@ public class QuantitativeAggregateConfiguration {
       if (!categoricalConfig.getDenominatorValues().containsAll(categoricalConfig.getNumeratorValues())) {
         throw new IllegalArgumentException("CategoricalQuantitativeOverlay numerator values must be a subset of denominator values.");
       }
-      variableValueQuantifier = Double::valueOf;
+      variableValueQuantifier = ValueQuantifier.NUMERIC;
       aggregatorSupplier = new CategoricalProportionAggregator.CategoricalProportionAggregatorFactory(categoricalConfig, vocabSupplier);
     } else {
       if (!varShape.equalsIgnoreCase(APIVariableDataShape.CONTINUOUS.getValue())) {
@@ -52,7 +52,7 @@ public class QuantitativeAggregateConfiguration {
       if (variableType.equalsIgnoreCase(APIVariableType.DATE.getValue())) {
         variableValueQuantifier = s -> (double) LocalDateTime.parse(s).toInstant(ZoneOffset.UTC).toEpochMilli();
       } else {
-        variableValueQuantifier = Double::valueOf;
+        variableValueQuantifier = ValueQuantifier.NUMERIC;
       }
       aggregatorSupplier = continuousAgg.getAggregatorFactory();
     }
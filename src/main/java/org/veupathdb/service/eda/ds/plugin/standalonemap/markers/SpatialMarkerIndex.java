@@ -0,0 +1,183 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.MarkerAggregator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Viewport-independent summary of a map marker data stream: the stream's rows pre-aggregated into partial
+ * markers, one per distinct (geo values, latitude, longitude), ordered by latitude.  A viewport either contains
+ * a coordinate or it does not, so merging the partials inside a viewport yields exactly the markers that
+ * aggregating the stream with that viewport would; once built, the index answers any viewport without
+ * reading the data again.
+ *
+ * Partials carry a value for each geo variable (level) the index was built with, so markers for a coarser
+ * level are derived by merging the partials of its finer buckets, again without reading the data.
+ *
+ * Partials are never modified after construction (queries merge them into new markers), so an index may be
+ * shared and queried by several threads at once.
+ *
+ * @param <T> Type to output as result of aggregation of marker data.
+ */
+public class SpatialMarkerIndex<T> {
+
+  // estimated memory held per partial beyond its marker data: key, array slots and map entry overhead
+  private static final long BYTES_PER_PARTIAL = 96;
+
+  /**
+   * Identifies the rows aggregated into a single partial marker.
+   */
+  static final class PartialKey {
+
+    final String[] geoValues; // by level; null where the row has no value for a level
+    final double latitude;
+    final double longitude;
+
+    PartialKey(String[] geoValues, double latitude, double longitude) {
+      this.geoValues = geoValues;
+      this.latitude = latitude;
+      this.longitude = longitude;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof PartialKey other)) {
+        return false;
+      }
+      return Double.compare(latitude, other.latitude) == 0
+          && Double.compare(longitude, other.longitude) == 0
+          && Arrays.equals(geoValues, other.geoValues);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = Arrays.hashCode(geoValues);
+      result = 31 * result + Double.hashCode(latitude);
+      return 31 * result + Double.hashCode(longitude);
+    }
+  }
+
+  private final double[] latitudes; // ascending
+  private final double[] longitudes;
+  private final String[][] geoValues; // by partial, then level
+  private final List<MarkerData<T>> partials;
+  private final Supplier<MarkerAggregator<T>> aggregatorSupplier;
+  private final long footprint;
+
+  /**
+   * @param partialsByKey partial markers; empty partials are dropped
+   * @param aggregatorSupplier supplier of the aggregators the partials were built with, used to create the
+   * markers returned by queries
+   */
+  SpatialMarkerIndex(Map<PartialKey, MarkerData<T>> partialsByKey, Supplier<MarkerAggregator<T>> aggregatorSupplier) {
+    List<Map.Entry<PartialKey, MarkerData<T>>> entries = new ArrayList<>(partialsByKey.size());
+    for (Map.Entry<PartialKey, MarkerData<T>> entry : partialsByKey.entrySet()) {
+      if (!entry.getValue().isEmpty()) {
+        entries.add(entry);
+      }
+    }
+    entries.sort(Comparator.comparingDouble(entry -> entry.getKey().latitude));
+
+    this.latitudes = new double[entries.size()];
+    this.longitudes = new double[entries.size()];
+    this.geoValues = new String[entries.size()][];
+    this.partials = new ArrayList<>(entries.size());
+    // coarse geo values are shared by many partials; keep a single copy of each
+    final Map<String, String> canonicalGeoValues = new HashMap<>();
+    long bytes = 0;
+    for (int i = 0; i < entries.size(); i++) {
+      PartialKey key = entries.get(i).getKey();
+      MarkerData<T> partial = entries.get(i).getValue();
+      latitudes[i] = key.latitude;
+      longitudes[i] = key.longitude;
+      geoValues[i] = key.geoValues;
+      partials.add(partial);
+      bytes += BYTES_PER_PARTIAL + 8L * key.geoValues.length + partial.estimateFootprint();
+      for (int level = 0; level < key.geoValues.length; level++) {
+        String geoValue = key.geoValues[level];
+        if (geoValue != null) {
+          String canonical = canonicalGeoValues.putIfAbsent(geoValue, geoValue);
+          if (canonical == null) {
+            bytes += 40 + 2L * geoValue.length();
+          }
+          else {
+            key.geoValues[level] = canonical;
+          }
+        }
+      }
+    }
+    this.aggregatorSupplier = aggregatorSupplier;
+    this.footprint = bytes;
+  }
+
+  /**
+   * @return number of partial markers in this index
+   */
+  public int size() {
+    return partials.size();
+  }
+
+  /**
+   * @return rough estimate of the memory, in bytes, held by this index
+   */
+  public long estimateFootprint() {
+    return footprint;
+  }
+
+  /**
+   * Aggregates the markers within the passed viewport by the primary (first) geo variable.
+   *
+   * @param viewport viewport to aggregate markers for
+   * @return new (non-empty) markers for the viewport, by geo value
+   */
+  public Map<String, MarkerData<T>> query(GeolocationViewport viewport) {
+    return query(viewport, 0);
+  }
+
+  /**
+   * Aggregates the markers within the passed viewport by the geo variable at the passed level.  Only the
+   * partials within the viewport's latitude range are visited.
+   *
+   * @param viewport viewport to aggregate markers for
+   * @param level index of the geo variable, in the order the index was built with
+   * @return new (non-empty) markers for the viewport, by geo value
+   */
+  public Map<String, MarkerData<T>> query(GeolocationViewport viewport, int level) {
+    final Map<String, MarkerData<T>> aggregatedDataByGeoVal = new HashMap<>();
+    final double maxLatitude = viewport.getMaxLatitude();
+    for (int i = firstIndexAtOrAbove(viewport.getMinLatitude()); i < latitudes.length && latitudes[i] <= maxLatitude; i++) {
+      String geoVal = geoValues[i][level];
+      if (geoVal != null && viewport.containsCoordinates(latitudes[i], longitudes[i])) {
+        MarkerData<T> markerData = aggregatedDataByGeoVal.get(geoVal);
+        if (markerData == null) {
+          markerData = new MarkerData<>(aggregatorSupplier.get());
+          aggregatedDataByGeoVal.put(geoVal, markerData);
+        }
+        markerData.merge(partials.get(i));
+      }
+    }
+    return aggregatedDataByGeoVal;
+  }
+
+  // binary search for the first partial whose latitude is not below the passed one
+  private int firstIndexAtOrAbove(double latitude) {
+    int low = 0;
+    int high = latitudes.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (latitudes[mid] < latitude) {
+        low = mid + 1;
+      }
+      else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
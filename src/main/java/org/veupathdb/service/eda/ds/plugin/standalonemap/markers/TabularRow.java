@@ -0,0 +1,65 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+/**
+ * Read-only view of a single row of tabular data, addressed by column index.  Implementations may be
+ * flyweights over a reused buffer (see {@link TabularStreamScanner}), so a row must not be retained once
+ * its producer has moved on to the next row.
+ */
+public interface TabularRow {
+
+  /**
+   * @return true if the passed column is missing or holds an empty value
+   */
+  boolean isEmpty(int column);
+
+  /**
+   * @return value of the passed column as a string
+   */
+  String getString(int column);
+
+  /**
+   * @return value of the passed column parsed as a double
+   * @throws NumberFormatException if the value is not a number
+   */
+  double getDouble(int column);
+
+  /**
+   * @return ordinal of the passed column's value in the passed dictionary, or LabelDictionary.NOT_FOUND if it
+   * is not there
+   */
+  default int getOrdinal(int column, LabelDictionary dictionary) {
+    return dictionary.ordinalOf(getString(column));
+  }
+
+  /**
+   * @return id of the passed column's value in the passed interner, interning it if new
+   */
+  default int internKey(int column, GeoKeyInterner interner) {
+    return interner.intern(getString(column));
+  }
+
+  /**
+   * Wraps an already-parsed row.
+   *
+   * @param values row values, indexed by column
+   * @return row view of the passed values
+   */
+  static TabularRow of(String[] values) {
+    return new TabularRow() {
+      @Override
+      public boolean isEmpty(int column) {
+        return column >= values.length || values[column] == null || values[column].isEmpty();
+      }
+
+      @Override
+      public String getString(int column) {
+        return values[column];
+      }
+
+      @Override
+      public double getDouble(int column) {
+        return Double.parseDouble(values[column]);
+      }
+    };
+  }
+}
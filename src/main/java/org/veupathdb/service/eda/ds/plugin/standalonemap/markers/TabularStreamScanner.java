@@ -0,0 +1,300 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Allocation-light scanner over a delimited (by default tab-delimited) data stream.  Reads bytes straight
+ * from the input stream into a reusable buffer and, for each row, only records where each column starts and
+ * ends.  Column values are decoded on demand, so columns that are never asked for cost nothing beyond finding
+ * their delimiters, and numeric columns can be parsed into doubles without building intermediate Strings.
+ *
+ * The scanner itself is the {@link TabularRow} view of the current row; its contents change on each call to
+ * {@link #next()}.  Blank lines are skipped.  Not thread-safe.
+ */
+public class TabularStreamScanner implements TabularRow {
+
+  private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+  private static final byte NEWLINE = '\n';
+  private static final byte CARRIAGE_RETURN = '\r';
+
+  // values with at most this many significant digits fit exactly in a double's mantissa
+  private static final int MAX_FAST_PATH_DIGITS = 15;
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private final InputStream in;
+  private final byte delimiter;
+
+  private byte[] buffer;
+  private int position = 0; // start of unconsumed data
+  private int limit;        // end of valid data
+  private boolean endOfStream;
+
+  // boundaries of the columns of the current row, as offsets into the buffer
+  private int[] columnStarts = new int[16];
+  private int[] columnEnds = new int[16];
+  private int numColumns = 0;
+
+  public TabularStreamScanner(InputStream in) {
+    this(in, (byte)'\t');
+  }
+
+  public TabularStreamScanner(InputStream in, byte delimiter) {
+    this.in = in;
+    this.delimiter = delimiter;
+    this.buffer = new byte[INITIAL_BUFFER_SIZE];
+    this.limit = 0;
+    this.endOfStream = false;
+  }
+
+  // scans rows from an in-memory block of complete lines
+  private TabularStreamScanner(byte[] block, byte delimiter) {
+    this.in = null;
+    this.delimiter = delimiter;
+    this.buffer = block;
+    this.limit = block.length;
+    this.endOfStream = true;
+  }
+
+  /**
+   * Reads a block of whole lines from the stream, of roughly the passed size (more if a single line is
+   * longer), so that the rows in it can be scanned elsewhere, e.g. on another thread using
+   * {@link #newBlockScanner(byte[])}.
+   *
+   * @param targetSize desired number of bytes in the block
+   * @return block of complete lines, or null if the end of the stream has been reached
+   */
+  public byte[] nextBlock(int targetSize) throws IOException {
+    while (true) {
+      while (limit - position < targetSize && !endOfStream) {
+        fillBuffer();
+      }
+      int end = limit;
+      if (!endOfStream) {
+        // cut the block after the last complete line
+        while (end > position && buffer[end - 1] != NEWLINE) {
+          end--;
+        }
+      }
+      if (end > position) {
+        byte[] block = Arrays.copyOfRange(buffer, position, end);
+        position = end;
+        return block;
+      }
+      if (endOfStream) {
+        return null;
+      }
+      // no complete line in the data read so far; read further
+      targetSize = limit - position + 1;
+    }
+  }
+
+  /**
+   * @param block block of lines returned by {@link #nextBlock(int)}
+   * @return a scanner over the rows in the passed block, using this scanner's delimiter
+   */
+  public TabularStreamScanner newBlockScanner(byte[] block) {
+    return new TabularStreamScanner(block, delimiter);
+  }
+
+  /**
+   * Reads the next line as a single string (e.g. a header line) without splitting it into columns.
+   *
+   * @return the next line, or null if the end of the stream has been reached
+   */
+  public String readLine() throws IOException {
+    int lineEnd = findLineEnd();
+    if (lineEnd < 0) {
+      return null;
+    }
+    String line = new String(buffer, position, trimCarriageReturn(position, lineEnd) - position, StandardCharsets.UTF_8);
+    position = Math.min(lineEnd + 1, limit);
+    return line;
+  }
+
+  /**
+   * Advances to the next non-blank row.
+   *
+   * @return true if a row was read, false if the end of the stream has been reached
+   */
+  public boolean next() throws IOException {
+    while (true) {
+      int lineEnd = findLineEnd();
+      if (lineEnd < 0) {
+        numColumns = 0;
+        return false;
+      }
+      int contentEnd = trimCarriageReturn(position, lineEnd);
+      if (contentEnd > position) {
+        splitColumns(position, contentEnd);
+        position = Math.min(lineEnd + 1, limit);
+        return true;
+      }
+      // skip blank line
+      position = Math.min(lineEnd + 1, limit);
+    }
+  }
+
+  @Override
+  public boolean isEmpty(int column) {
+    return column >= numColumns || columnStarts[column] == columnEnds[column];
+  }
+
+  @Override
+  public String getString(int column) {
+    checkColumn(column);
+    return new String(buffer, columnStarts[column], columnEnds[column] - columnStarts[column], StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public double getDouble(int column) {
+    checkColumn(column);
+    return parseDouble(buffer, columnStarts[column], columnEnds[column]);
+  }
+
+  @Override
+  public int getOrdinal(int column, LabelDictionary dictionary) {
+    checkColumn(column);
+    return dictionary.ordinalOf(buffer, columnStarts[column], columnEnds[column]);
+  }
+
+  @Override
+  public int internKey(int column, GeoKeyInterner interner) {
+    checkColumn(column);
+    return interner.intern(buffer, columnStarts[column], columnEnds[column]);
+  }
+
+  /**
+   * Parses a decimal number from the passed byte range.  Plain decimals with at most 15 significant digits
+   * (which covers coordinates and nearly all measured values) are converted directly from the bytes; the
+   * result is exact because both the digits and the power of ten are exactly representable, so a single
+   * division rounds correctly.  Anything else (exponents, NaN, longer values) falls back to
+   * Double.parseDouble for identical results.
+   */
+  static double parseDouble(byte[] bytes, int start, int end) {
+    int i = start;
+    boolean negative = false;
+    if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+      negative = bytes[i] == '-';
+      i++;
+    }
+    long mantissa = 0;
+    boolean seenDigit = false;
+    int numDigits = 0;
+    int numFractionDigits = 0;
+    boolean seenPoint = false;
+    for (; i < end; i++) {
+      byte b = bytes[i];
+      if (b >= '0' && b <= '9') {
+        seenDigit = true;
+        if (mantissa != 0 || b != '0') {
+          numDigits++;
+        }
+        if (numDigits > MAX_FAST_PATH_DIGITS) {
+          return parseDoubleSlowly(bytes, start, end);
+        }
+        mantissa = mantissa * 10 + (b - '0');
+        if (seenPoint) {
+          numFractionDigits++;
+        }
+      }
+      else if (b == '.' && !seenPoint) {
+        seenPoint = true;
+      }
+      else {
+        return parseDoubleSlowly(bytes, start, end);
+      }
+    }
+    if (!seenDigit || numFractionDigits >= POWERS_OF_TEN.length) {
+      return parseDoubleSlowly(bytes, start, end);
+    }
+    double value = numFractionDigits == 0 ? mantissa : mantissa / POWERS_OF_TEN[numFractionDigits];
+    return negative ? -value : value;
+  }
+
+  private static double parseDoubleSlowly(byte[] bytes, int start, int end) {
+    return Double.parseDouble(new String(bytes, start, end - start, StandardCharsets.US_ASCII));
+  }
+
+  private void checkColumn(int column) {
+    if (column >= numColumns) {
+      throw new IndexOutOfBoundsException("Column " + column + " requested but current row only has " + numColumns + " columns.");
+    }
+  }
+
+  private void splitColumns(int start, int end) {
+    numColumns = 0;
+    int columnStart = start;
+    for (int i = start; i < end; i++) {
+      if (buffer[i] == delimiter) {
+        addColumn(columnStart, i);
+        columnStart = i + 1;
+      }
+    }
+    addColumn(columnStart, end);
+  }
+
+  private void addColumn(int start, int end) {
+    if (numColumns == columnStarts.length) {
+      columnStarts = Arrays.copyOf(columnStarts, numColumns * 2);
+      columnEnds = Arrays.copyOf(columnEnds, numColumns * 2);
+    }
+    columnStarts[numColumns] = start;
+    columnEnds[numColumns] = end;
+    numColumns++;
+  }
+
+  private int trimCarriageReturn(int start, int end) {
+    return end > start && buffer[end - 1] == CARRIAGE_RETURN ? end - 1 : end;
+  }
+
+  /**
+   * Finds the end (index of the newline, or of the end of data for an unterminated last line) of the line
+   * beginning at the current position, reading more data as needed.  May move the unconsumed data to the
+   * start of the buffer, so positions are only valid until the next call.
+   *
+   * @return index of the end of the line, or -1 if no data remains
+   */
+  private int findLineEnd() throws IOException {
+    int searchFrom = position;
+    while (true) {
+      for (int i = searchFrom; i < limit; i++) {
+        if (buffer[i] == NEWLINE) {
+          return i;
+        }
+      }
+      if (endOfStream) {
+        return position < limit ? limit : -1;
+      }
+      // everything up to the current limit has been searched; account for data shifting to buffer start
+      int searched = limit - position;
+      fillBuffer();
+      searchFrom = position + searched;
+    }
+  }
+
+  // moves unconsumed data to the start of the buffer (growing it if full) and reads more data after it
+  private void fillBuffer() throws IOException {
+    int remaining = limit - position;
+    if (position > 0) {
+      System.arraycopy(buffer, position, buffer, 0, remaining);
+      position = 0;
+      limit = remaining;
+    }
+    if (limit == buffer.length) {
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    }
+    int numRead = in.read(buffer, limit, buffer.length - limit);
+    if (numRead < 0) {
+      endOfStream = true;
+    }
+    else {
+      limit += numRead;
+    }
+  }
+}
@@ -4,11 +4,16 @@ import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.ServerErrorException;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.Response;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.glassfish.jersey.server.CloseableService;
 import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ManagedAsync;
+import org.gusdb.fgputil.EncryptionUtil;
 import org.gusdb.fgputil.functional.FunctionalInterfaces.SupplierWithException;
+import org.gusdb.fgputil.json.JsonUtil;
 import org.gusdb.fgputil.validation.ValidationException;
 import org.veupathdb.lib.container.jaxrs.providers.UserProvider;
 import org.veupathdb.lib.container.jaxrs.server.annotations.Authenticated;
@@ -18,6 +23,10 @@ import org.veupathdb.service.eda.common.client.NonEmptyResultStream.EmptyResultE
 import org.veupathdb.service.eda.ds.Resources;
 import org.veupathdb.service.eda.ds.metadata.AppsMetadata;
 import org.veupathdb.service.eda.ds.core.AbstractPlugin;
+import org.veupathdb.service.eda.ds.core.Downstream;
+import org.veupathdb.service.eda.ds.core.RequestStages;
+import org.veupathdb.service.eda.ds.core.ResponseEncoding;
+import org.veupathdb.service.eda.ds.core.ResponseFormat;
 import org.veupathdb.service.eda.ds.plugin.differentialabundance.DifferentialAbundanceVolcanoplotPlugin;
 import org.veupathdb.service.eda.ds.plugin.betadiv.BetaDivScatterplotPlugin;
 import org.veupathdb.service.eda.ds.plugin.correlation.correlationassayassay.CorrelationAssayAssayBipartitenetworkPlugin;
@@ -30,11 +39,15 @@ import org.veupathdb.service.eda.ds.plugin.abundance.AbundanceScatterplotPlugin;
 import org.veupathdb.service.eda.ds.plugin.pass.*;
 import org.veupathdb.service.eda.ds.plugin.sample.*;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.*;
+import org.veupathdb.service.eda.ds.utils.RequestCoalescer;
+import org.veupathdb.service.eda.ds.utils.RequestCoalescer.CoalescedResponse;
 import org.veupathdb.service.eda.generated.model.*;
 import org.veupathdb.service.eda.generated.resources.Apps;
 
 import java.io.OutputStream;
+import java.time.Duration;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 @Authenticated(allowGuests = true)
@@ -42,116 +55,142 @@ public class AppsService implements Apps {
 
   private static final Logger LOG = LogManager.getLogger(AppsService.class);
 
+  // shares the response of a plugin request with identical requests arriving while it is being computed
+  private static final RequestCoalescer COALESCER = new RequestCoalescer("plugin-requests",
+      Resources.REQUEST_COALESCING_MAX_BUFFER_MB * 1024L * 1024L,
+      Duration.ofSeconds(Resources.REQUEST_COALESCING_WAIT_SECONDS));
+
   @Context
   private ContainerRequest _request;
 
+  @Context
+  private CloseableService _closeables;
+
   @Override
   public GetAppsResponse getApps() {
     return GetAppsResponse.respond200WithApplicationJson(AppsMetadata.APPS);
   }
 
+  @ManagedAsync
   @Override
   public PostAppsStandaloneMapVisualizationsMapMarkersResponse postAppsStandaloneMapVisualizationsMapMarkers(StandaloneMapMarkersPostRequest entity) {
     return wrapPlugin(() -> PostAppsStandaloneMapVisualizationsMapMarkersResponse.respond200WithApplicationJson(
         new StandaloneMapMarkersPostResponseStream(processRequest(new StandaloneMapMarkersPlugin(), entity))));
   }
 
+  @ManagedAsync
   @Override
   public PostAppsStandaloneMapVisualizationsMapMarkersBubblesResponse postAppsStandaloneMapVisualizationsMapMarkersBubbles(StandaloneMapBubblesPostRequest entity) {
     return wrapPlugin(() -> PostAppsStandaloneMapVisualizationsMapMarkersBubblesResponse.respond200WithApplicationJson(
         new StandaloneMapBubblesPostResponseStream(processRequest(new BubbleMapMarkersPlugin(), entity))));
   }
 
+  @ManagedAsync
   @Override
   public PostAppsStandaloneMapVisualizationsMapMarkersBubblesLegendResponse postAppsStandaloneMapVisualizationsMapMarkersBubblesLegend(StandaloneMapBubblesLegendPostRequest entity) {
     return wrapPlugin(() -> PostAppsStandaloneMapVisualizationsMapMarkersBubblesLegendResponse.respond200WithApplicationJson(
         new StandaloneMapBubblesLegendPostResponseStream(processRequest(new BubbleMapMarkersLegendPlugin(), entity))));
   }
 
+  @ManagedAsync
   @Override
   public PostAppsStandaloneMapVisualizationsMapMarkersCollectionsResponse postAppsStandaloneMapVisualizationsMapMarkersCollections(StandaloneCollectionMapMarkerPostRequest entity) {
     return wrapPlugin(() -> PostAppsStandaloneMapVisualizationsMapMarkersCollectionsResponse.respond200WithApplicationJson(
         new StandaloneCollectionMapMarkerPostResponseStream(processRequest(new CollectionMapMarkersPlugin(), entity))));
   }
 
+  @ManagedAsync
   @Override
   public PostAppsStandaloneMapContinuousCollectionsVisualizationsTimeseriesResponse postAppsStandaloneMapContinuousCollectionsVisualizationsTimeseries(CollectionFloatingLineplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsStandaloneMapContinuousCollectionsVisualizationsTimeseriesResponse.respond200WithApplicationJson(
         new FloatingLineplotPostResponseStream(processRequest(new CollectionFloatingTimeSeriesPlugin(), entity))));
   }
 
+  @ManagedAsync
   @Override
   public PostAppsStandaloneMapContinuousCollectionsVisualizationsLineplotResponse postAppsStandaloneMapContinuousCollectionsVisualizationsLineplot(CollectionFloatingLineplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsStandaloneMapContinuousCollectionsVisualizationsLineplotResponse.respond200WithApplicationJson(
         new FloatingLineplotPostResponseStream(processRequest(new CollectionFloatingLineplotPlugin(), entity))));
   }
 
+  @ManagedAsync
   @Override
   public PostAppsStandaloneMapContinuousCollectionsVisualizationsHistogramResponse postAppsStandaloneMapContinuousCollectionsVisualizationsHistogram(CollectionFloatingHistogramPostRequest entity) {
     return wrapPlugin(() -> PostAppsStandaloneMapContinuousCollectionsVisualizationsHistogramResponse.respond200WithApplicationJson(
         new FloatingHistogramPostResponseStream(processRequest(new CollectionFloatingHistogramPlugin(), entity))));
   }
 
+  @ManagedAsync
   @Override
   public PostAppsStandaloneMapContinuousCollectionsVisualizationsBoxplotResponse postAppsStandaloneMapContinuousCollectionsVisualizationsBoxplot(CollectionFloatingBoxplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsStandaloneMapContinuousCollectionsVisualizationsBoxplotResponse.respond200WithApplicationJson(
         new FloatingBoxplotPostResponseStream(processRequest(new CollectionFloatingBoxplotPlugin(), entity))));
   }
 
+  @ManagedAsync
   @Override
   public PostAppsStandaloneMapCategoricalCollectionsVisualizationsBarplotResponse postAppsStandaloneMapCategoricalCollectionsVisualizationsBarplot(CollectionFloatingBarplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsStandaloneMapCategoricalCollectionsVisualizationsBarplotResponse.respond200WithApplicationJson(
         new FloatingBarplotPostResponseStream(processRequest(new CollectionFloatingBarplotPlugin(), entity))));
   }
 
+  @ManagedAsync
   @Override
   public PostAppsStandaloneMapCategoricalCollectionsVisualizationsLineplotResponse postAppsStandaloneMapCategoricalCollectionsVisualizationsLineplot(CollectionFloatingLineplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsStandaloneMapCategoricalCollectionsVisualizationsLineplotResponse.respond200WithApplicationJson(
         new FloatingLineplotPostResponseStream(processRequest(new CollectionFloatingLineplotPlugin(), entity))));
   }
 
+  @ManagedAsync
   @Override
   public PostAppsStandaloneMapCategoricalCollectionsVisualizationsConttableResponse postAppsStandaloneMapCategoricalCollectionsVisualizationsConttable(CollectionFloatingContTablePostRequest entity) {
     return wrapPlugin(() -> PostAppsStandaloneMapCategoricalCollectionsVisualizationsConttableResponse.respond200WithApplicationJson(
         new FloatingContTablePostResponseStream(processRequest(new CollectionFloatingContTablePlugin(), entity))));
   }
 
+  @ManagedAsync
   @Override
   public PostAppsStandaloneMapXyrelationshipsVisualizationsTimeseriesResponse postAppsStandaloneMapXyrelationshipsVisualizationsTimeseries(FloatingLineplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsStandaloneMapXyrelationshipsVisualizationsTimeseriesResponse.respond200WithApplicationJson(
         new FloatingLineplotPostResponseStream(processRequest(new FloatingTimeSeriesPlugin(), entity))));
   }
 
+  @ManagedAsync
   @Override
   public PostAppsStandaloneMapXyrelationshipsVisualizationsScatterplotResponse postAppsStandaloneMapXyrelationshipsVisualizationsScatterplot(FloatingScatterplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsStandaloneMapXyrelationshipsVisualizationsScatterplotResponse.respond200WithApplicationJson(
         new FloatingScatterplotPostResponseStream(processRequest(new FloatingScatterplotPlugin(), entity))));
   }
 
+  @ManagedAsync
   @Override
   public PostAppsStandaloneMapXyrelationshipsVisualizationsLineplotResponse postAppsStandaloneMapXyrelationshipsVisualizationsLineplot(FloatingLineplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsStandaloneMapXyrelationshipsVisualizationsLineplotResponse.respond200WithApplicationJson(
         new FloatingLineplotPostResponseStream(processRequest(new FloatingLineplotPlugin(), entity))));
   }
 
+  @ManagedAsync
   @Override
   public PostAppsStandaloneMapDistributionsVisualizationsHistogramResponse postAppsStandaloneMapDistributionsVisualizationsHistogram(FloatingHistogramPostRequest entity) {
     return wrapPlugin(() -> PostAppsStandaloneMapDistributionsVisualizationsHistogramResponse.respond200WithApplicationJson(
         new FloatingHistogramPostResponseStream(processRequest(new FloatingHistogramPlugin(), entity))));
   }
 
+  @ManagedAsync
   @Override
   public PostAppsStandaloneMapDistributionsVisualizationsBoxplotResponse postAppsStandaloneMapDistributionsVisualizationsBoxplot(FloatingBoxplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsStandaloneMapDistributionsVisualizationsBoxplotResponse.respond200WithApplicationJson(
         new FloatingBoxplotPostResponseStream(processRequest(new FloatingBoxplotPlugin(), entity))));
   }
 
+  @ManagedAsync
   @Override
   public PostAppsStandaloneMapCountsandproportionsVisualizationsBarplotResponse postAppsStandaloneMapCountsandproportionsVisualizationsBarplot(FloatingBarplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsStandaloneMapCountsandproportionsVisualizationsBarplotResponse.respond200WithApplicationJson(
         new FloatingBarplotPostResponseStream(processRequest(new FloatingBarplotPlugin(), entity))));
   }
 
+  @ManagedAsync
   @Override
   public PostAppsStandaloneMapCountsandproportionsVisualizationsConttableResponse postAppsStandaloneMapCountsandproportionsVisualizationsConttable(FloatingContTablePostRequest entity) {
     return wrapPlugin(() -> PostAppsStandaloneMapCountsandproportionsVisualizationsConttableResponse.respond200WithApplicationJson(
@@ -177,23 +216,63 @@ public class AppsService implements Apps {
     }
   }
 
-  private static <T extends DataPluginRequestBase> Consumer<OutputStream> processRequest(AbstractPlugin<T,?,?> plugin, T entity, ContainerRequest request) throws ValidationException {
+  private static <T extends DataPluginRequestBase> Consumer<OutputStream> processRequest(AbstractPlugin<T,?,?> plugin, T entity, ContainerRequest request, CloseableService closeables) throws ValidationException {
     String appName = request.getUriInfo().getPathSegments().get(1).getPath();
-    return processRequest(plugin, entity, appName, request);
+    return processRequest(plugin, entity, appName, request, closeables);
   }
 
-  static <T extends DataPluginRequestBase> Consumer<OutputStream> processRequest(AbstractPlugin<T,?,?> plugin, T entity, String appName, ContainerRequest request) throws ValidationException {
+  /**
+   * @param closeables closed once the request completes, whether or not its response was written
+   */
+  static <T extends DataPluginRequestBase> Consumer<OutputStream> processRequest(AbstractPlugin<T,?,?> plugin, T entity, String appName, ContainerRequest request, CloseableService closeables) throws ValidationException {
     Entry<String,String> authHeader = UserProvider.getSubmittedAuth(request).orElseThrow();
-    StudyAccess.confirmPermission(authHeader, Resources.DATASET_ACCESS_SERVICE_URL,
-        entity.getStudyId(), StudyAccess::allowVisualizations);
-    return plugin.processRequest(appName, entity, authHeader);
+    if (plugin.hasBinaryResponseFormats()) {
+      // the filter sets the response's Content-Type to match
+      request.setProperty(ResponseFormat.REQUEST_PROPERTY,
+          plugin.negotiateResponseFormat(request.getAcceptableMediaTypes()));
+    }
+    if (Resources.RESPONSE_COMPRESSION_ENABLED) {
+      // the response is compressed as it is written by ResponseCompressionInterceptor
+      request.setProperty(ResponseEncoding.REQUEST_PROPERTY,
+          ResponseEncoding.negotiate(request.getHeaderString(HttpHeaders.ACCEPT_ENCODING)));
+    }
+    CompletableFuture<Void> permission = RequestStages.start(plugin.getClass().getSimpleName(), "study_access",
+        () -> Downstream.DATASET_ACCESS.call(() -> {
+          StudyAccess.confirmPermission(authHeader, Resources.DATASET_ACCESS_SERVICE_URL,
+              entity.getStudyId(), StudyAccess::allowVisualizations);
+          return null;
+        }));
+    if (Resources.REQUEST_COALESCING_MAX_BUFFER_MB <= 0) {
+      // permission is checked while the plugin sets up, and before it opens any data streams; a denial is
+      //   reported ahead of any failure of the plugin
+      try {
+        return plugin.processRequest(appName, entity, authHeader, permission);
+      }
+      catch (ValidationException | RuntimeException e) {
+        RequestStages.await(permission);
+        throw e;
+      }
+    }
+    // permission is confirmed before this request may lead identical ones, which a denied leader would hold up;
+    //   since it is checked per request, the response of the identical request may be shared across users
+    RequestStages.await(permission);
+    String coalescingKey = EncryptionUtil.md5(
+        request.getUriInfo().getPath() + "|" + plugin.getClass().getName() + "|" + plugin.getResponseFormat() + "|" +
+        JsonUtil.serializeObject(entity));
+    CoalescedResponse response = COALESCER.process(coalescingKey,
+        () -> plugin.processRequest(appName, entity, authHeader, permission));
+    // if this request fails or its client goes away before the response is written, identical requests waiting
+    //   on it are released when it completes rather than waiting out the coalescing limit
+    closeables.add(response::abandon);
+    return response;
   }
 
   private <T extends DataPluginRequestBase> Consumer<OutputStream> processRequest(AbstractPlugin<T,?,?> plugin, T entity) throws ValidationException {
-    return processRequest(plugin, entity, _request);
+    return processRequest(plugin, entity, _request, _closeables);
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsPassVisualizationsMapMarkersResponse postAppsPassVisualizationsMapMarkers(MapPostRequest entity) {
     return wrapPlugin(() -> PostAppsPassVisualizationsMapMarkersResponse.respond200WithApplicationJson(
@@ -201,6 +280,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsPassVisualizationsTableResponse postAppsPassVisualizationsTable(TablePostRequest entity) {
     return wrapPlugin(() -> PostAppsPassVisualizationsTableResponse.respond200WithApplicationJson(
@@ -208,6 +288,7 @@ public class AppsService implements Apps {
   }
   
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsPassVisualizationsScatterplotResponse postAppsPassVisualizationsScatterplot(ScatterplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsPassVisualizationsScatterplotResponse.respond200WithApplicationJson(
@@ -215,6 +296,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsPassVisualizationsDensityplotResponse postAppsPassVisualizationsDensityplot(DensityplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsPassVisualizationsDensityplotResponse.respond200WithApplicationJson(
@@ -222,6 +304,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsPassVisualizationsLineplotResponse postAppsPassVisualizationsLineplot(LineplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsPassVisualizationsLineplotResponse.respond200WithApplicationJson(
@@ -229,6 +312,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsPassVisualizationsTimeseriesResponse postAppsPassVisualizationsTimeseries(LineplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsPassVisualizationsTimeseriesResponse.respond200WithApplicationJson(
@@ -236,6 +320,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsPassVisualizationsHistogramResponse postAppsPassVisualizationsHistogram(HistogramPostRequest entity) {
     return wrapPlugin(() -> PostAppsPassVisualizationsHistogramResponse.respond200WithApplicationJson(
@@ -243,6 +328,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsPassVisualizationsBarplotResponse postAppsPassVisualizationsBarplot(BarplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsPassVisualizationsBarplotResponse.respond200WithApplicationJson(
@@ -250,6 +336,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsPassVisualizationsMapMarkersOverlayResponse postAppsPassVisualizationsMapMarkersOverlay(MapMarkersOverlayPostRequest entity) {
     return wrapPlugin(() -> PostAppsPassVisualizationsMapMarkersOverlayResponse.respond200WithApplicationJson(
@@ -257,6 +344,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsPassVisualizationsBoxplotResponse postAppsPassVisualizationsBoxplot(BoxplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsPassVisualizationsBoxplotResponse.respond200WithApplicationJson(
@@ -264,6 +352,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsPassVisualizationsHeatmapResponse postAppsPassVisualizationsHeatmap(HeatmapPostRequest entity) {
     return wrapPlugin(() -> PostAppsPassVisualizationsHeatmapResponse.respond200WithApplicationJson(
@@ -271,6 +360,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsPassVisualizationsTwobytwoResponse postAppsPassVisualizationsTwobytwo(TwoByTwoPostRequest entity) {
     return wrapPlugin(() -> PostAppsPassVisualizationsTwobytwoResponse.respond200WithApplicationJson(
@@ -278,6 +368,7 @@ public class AppsService implements Apps {
   }
   
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsPassVisualizationsConttableResponse postAppsPassVisualizationsConttable(MosaicPostRequest entity) {
     return wrapPlugin(() -> PostAppsPassVisualizationsConttableResponse.respond200WithApplicationJson(
@@ -285,6 +376,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsSampleVisualizationsRecordCountResponse postAppsSampleVisualizationsRecordCount(RecordCountPostRequest entity) {
     return wrapPlugin(() -> PostAppsSampleVisualizationsRecordCountResponse.respond200WithApplicationJson(
@@ -292,6 +384,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsSampleVisualizationsMultiStreamResponse postAppsSampleVisualizationsMultiStream(MultiStreamPostRequest entity) {
     return wrapPlugin(() -> PostAppsSampleVisualizationsMultiStreamResponse.respond200WithTextPlain(
@@ -299,18 +392,21 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsSampleVisualizationsCollectionsTestResponse postAppsSampleVisualizationsCollectionsTest(TestCollectionsPostRequest entity) {
     return wrapPlugin(() -> PostAppsSampleVisualizationsCollectionsTestResponse.respond200WithTextPlain(
         new EntityTabularPostResponseStream(processRequest(new TestCollectionPlugin(), entity))));
   }
 
+  @ManagedAsync
   @Override
   public PostAppsSampleVisualizationsCategoricalDistributionResponse postAppsSampleVisualizationsCategoricalDistribution(CategoricalDistributionPostRequest entity) {
     return wrapPlugin(() -> PostAppsSampleVisualizationsCategoricalDistributionResponse.respond200WithApplicationJson(
         new CategoricalDistributionPostResponseStream(processRequest(new CategoricalDistributionPlugin(), entity))));
   }
 
+  @ManagedAsync
   @Override
   public PostAppsSamplewithcomputeVisualizationsVizWithComputeResponse postAppsSamplewithcomputeVisualizationsVizWithCompute(ExampleComputeVizPostRequest entity) {
     return wrapPlugin(() -> PostAppsSamplewithcomputeVisualizationsVizWithComputeResponse.respond200WithApplicationJson(
@@ -318,6 +414,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsAlphadivVisualizationsBoxplotResponse postAppsAlphadivVisualizationsBoxplot(AlphaDivBoxplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsAlphadivVisualizationsBoxplotResponse.respond200WithApplicationJson(
@@ -325,6 +422,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsAlphadivVisualizationsScatterplotResponse postAppsAlphadivVisualizationsScatterplot(AlphaDivScatterplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsAlphadivVisualizationsScatterplotResponse.respond200WithApplicationJson(
@@ -332,6 +430,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsBetadivVisualizationsScatterplotResponse postAppsBetadivVisualizationsScatterplot(BetaDivScatterplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsBetadivVisualizationsScatterplotResponse.respond200WithApplicationJson(
@@ -339,6 +438,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsDifferentialabundanceVisualizationsVolcanoplotResponse postAppsDifferentialabundanceVisualizationsVolcanoplot(DifferentialAbundanceVolcanoplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsDifferentialabundanceVisualizationsVolcanoplotResponse.respond200WithApplicationJson(
@@ -346,6 +446,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsCorrelationassaymetadataVisualizationsBipartitenetworkResponse postAppsCorrelationassaymetadataVisualizationsBipartitenetwork(CorrelationAssayMetadataBipartitenetworkPostRequest entity) {
     return wrapPlugin(() -> PostAppsCorrelationassaymetadataVisualizationsBipartitenetworkResponse.respond200WithApplicationJson(
@@ -353,6 +454,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsCorrelationassayassayVisualizationsBipartitenetworkResponse postAppsCorrelationassayassayVisualizationsBipartitenetwork(CorrelationAssayAssayBipartitenetworkPostRequest entity) {
     return wrapPlugin(() -> PostAppsCorrelationassayassayVisualizationsBipartitenetworkResponse.respond200WithApplicationJson(
@@ -360,6 +462,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsCorrelationassayselfVisualizationsUnipartitenetworkResponse postAppsCorrelationassayselfVisualizationsUnipartitenetwork(CorrelationAssaySelfUnipartitenetworkPostRequest entity) {
     return wrapPlugin(() -> PostAppsCorrelationassayselfVisualizationsUnipartitenetworkResponse.respond200WithApplicationJson(
@@ -367,6 +470,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsAbundanceVisualizationsBoxplotResponse postAppsAbundanceVisualizationsBoxplot(AbundanceBoxplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsAbundanceVisualizationsBoxplotResponse.respond200WithApplicationJson(
@@ -374,6 +478,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsAbundanceVisualizationsScatterplotResponse postAppsAbundanceVisualizationsScatterplot(AbundanceScatterplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsAbundanceVisualizationsScatterplotResponse.respond200WithApplicationJson(
@@ -381,6 +486,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsDistributionsVisualizationsBoxplotResponse postAppsDistributionsVisualizationsBoxplot(BoxplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsDistributionsVisualizationsBoxplotResponse.respond200WithApplicationJson(
@@ -388,6 +494,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsDistributionsVisualizationsHistogramResponse postAppsDistributionsVisualizationsHistogram(HistogramPostRequest entity) {
     return wrapPlugin(() -> PostAppsDistributionsVisualizationsHistogramResponse.respond200WithApplicationJson(
@@ -395,6 +502,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsCountsandproportionsVisualizationsBarplotResponse postAppsCountsandproportionsVisualizationsBarplot(BarplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsCountsandproportionsVisualizationsBarplotResponse.respond200WithApplicationJson(
@@ -402,6 +510,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsCountsandproportionsVisualizationsTwobytwoResponse postAppsCountsandproportionsVisualizationsTwobytwo(TwoByTwoPostRequest entity) {
     return wrapPlugin(() -> PostAppsCountsandproportionsVisualizationsTwobytwoResponse.respond200WithApplicationJson(
@@ -409,6 +518,7 @@ public class AppsService implements Apps {
   }
   
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsCountsandproportionsVisualizationsConttableResponse postAppsCountsandproportionsVisualizationsConttable(MosaicPostRequest entity) {
     return wrapPlugin(() -> PostAppsCountsandproportionsVisualizationsConttableResponse.respond200WithApplicationJson(
@@ -416,6 +526,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsXyrelationshipsVisualizationsLineplotResponse postAppsXyrelationshipsVisualizationsLineplot(LineplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsXyrelationshipsVisualizationsLineplotResponse.respond200WithApplicationJson(
@@ -423,6 +534,7 @@ public class AppsService implements Apps {
   }
 
   @DisableJackson
+  @ManagedAsync
   @Override
   public PostAppsXyrelationshipsVisualizationsScatterplotResponse postAppsXyrelationshipsVisualizationsScatterplot(ScatterplotPostRequest entity) {
     return wrapPlugin(() -> PostAppsXyrelationshipsVisualizationsScatterplotResponse.respond200WithApplicationJson(
@@ -1,6 +1,7 @@
 package org.veupathdb.service.eda.ds.service;
 
 import jakarta.ws.rs.core.Context;
+import org.glassfish.jersey.server.CloseableService;
 import org.glassfish.jersey.server.ContainerRequest;
 import org.veupathdb.lib.container.jaxrs.server.annotations.Authenticated;
 import org.veupathdb.lib.container.jaxrs.server.annotations.DisableJackson;
@@ -18,10 +19,13 @@ public class FilterAwareMetadataService implements FilterAwareMetadataContinuous
   @Context
   private ContainerRequest _request;
 
+  @Context
+  private CloseableService _closeables;
+
   @DisableJackson
   @Override
   public PostFilterAwareMetadataContinuousVariableResponse postFilterAwareMetadataContinuousVariable(ContinuousVariableMetadataPostRequest entity) {
     return wrapPlugin(() -> PostFilterAwareMetadataContinuousVariableResponse.respond200WithApplicationJson(
-        new ContinuousVariableMetadataPostResponseStream(processRequest(new ContinuousVariablePlugin(), entity, null, _request))));
+        new ContinuousVariableMetadataPostResponseStream(processRequest(new ContinuousVariablePlugin(), entity, null, _request, _closeables))));
   }
 }
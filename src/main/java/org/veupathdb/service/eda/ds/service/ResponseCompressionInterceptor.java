@@ -0,0 +1,89 @@
+package org.veupathdb.service.eda.ds.service;
+
+import io.prometheus.client.Counter;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.veupathdb.service.eda.ds.Resources;
+import org.veupathdb.service.eda.ds.core.ResponseEncoding;
+import org.veupathdb.service.eda.ds.utils.AsyncOutputStream;
+import org.veupathdb.service.eda.ds.utils.CompressingOutputStream;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compresses plugin responses in the encoding negotiated for them (see ResponseEncoding) as they are streamed,
+ * once they reach RESPONSE_COMPRESSION_MIN_BYTES.  Compressed output is handed to a background task writing it
+ * to the client, so compression of the rest of the response continues while earlier chunks are in flight.
+ */
+@Provider
+public class ResponseCompressionInterceptor implements WriterInterceptor {
+
+  private static final Logger LOG = LogManager.getLogger(ResponseCompressionInterceptor.class);
+
+  private static final Counter UNCOMPRESSED_BYTES = Counter.build()
+      .name("eda_data_response_uncompressed_bytes_total")
+      .help("Bytes of responses eligible for compression, before compression.")
+      .labelNames("encoding")
+      .register();
+
+  private static final Counter COMPRESSED_BYTES = Counter.build()
+      .name("eda_data_response_compressed_bytes_total")
+      .help("Bytes of responses eligible for compression, as sent (compressed if at least the minimum size).")
+      .labelNames("encoding")
+      .register();
+
+  // a virtual thread per response, since each only blocks on writing to its client
+  private static final ExecutorService TRANSFER_THREADS =
+      Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("response-transfer-", 0).factory());
+
+  @Override
+  public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+    if (!(context.getProperty(ResponseEncoding.REQUEST_PROPERTY) instanceof ResponseEncoding encoding)) {
+      context.proceed();
+      return;
+    }
+    context.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (encoding == ResponseEncoding.IDENTITY) {
+      context.proceed();
+      return;
+    }
+
+    AsyncOutputStream transfer = new AsyncOutputStream(context.getOutputStream(),
+        Resources.RESPONSE_TRANSFER_CHUNK_KB * 1024, Resources.RESPONSE_TRANSFER_MAX_CHUNKS, TRANSFER_THREADS);
+    CompressingOutputStream out = new CompressingOutputStream(transfer, Resources.RESPONSE_COMPRESSION_MIN_BYTES,
+        encoding::wrap, () -> {
+          context.getHeaders().putSingle(HttpHeaders.CONTENT_ENCODING, encoding.getName());
+          context.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+        });
+    context.setOutputStream(out);
+
+    boolean written = false;
+    try {
+      context.proceed();
+      written = true;
+    }
+    finally {
+      // finish the output and wait for it to be sent, even if the response failed part way, so the transfer
+      //   task ends; a failure to send it is only reported if it is the first
+      try {
+        out.close();
+      }
+      catch (IOException e) {
+        if (written) {
+          throw e;
+        }
+        LOG.debug("Unable to finish response after failure to write it", e);
+      }
+      String label = out.isCompressed() ? encoding.getName() : ResponseEncoding.IDENTITY.getName();
+      UNCOMPRESSED_BYTES.labels(label).inc(out.getBytesWritten());
+      COMPRESSED_BYTES.labels(label).inc(out.getTargetBytesWritten());
+      LOG.debug("Sent " + out.getTargetBytesWritten() + " bytes of a " + out.getBytesWritten() + " byte response as " + label);
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package org.veupathdb.service.eda.ds.service;
+
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.ext.Provider;
+import org.veupathdb.service.eda.ds.core.ResponseFormat;
+
+/**
+ * Sets the Content-Type of responses written in a binary format negotiated by the plugin serving the request
+ * (see ResponseFormat), since the generated endpoints always declare application/json, and marks responses
+ * whose format was negotiated as varying by Accept header.
+ */
+@Provider
+public class ResponseFormatFilter implements ContainerResponseFilter {
+
+  @Override
+  public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+    if (request.getProperty(ResponseFormat.REQUEST_PROPERTY) instanceof ResponseFormat format) {
+      response.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+      if (format != ResponseFormat.JSON && response.getStatus() == 200) {
+        response.getHeaders().putSingle(HttpHeaders.CONTENT_TYPE, format.getMediaType());
+      }
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package org.veupathdb.service.eda.ds.service;
+
+import jakarta.ws.rs.ext.Provider;
+import org.glassfish.jersey.server.ManagedAsyncExecutor;
+import org.glassfish.jersey.spi.ExecutorServiceProvider;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the {@link org.glassfish.jersey.server.ManagedAsync} resource methods (the plugin endpoints of
+ * AppsService) on a virtual thread per request, rather than on the container's bounded pool of worker threads.
+ * The request is handed off as soon as it is matched, so plugin setup and the writing of its response, along
+ * with all the blocking calls they make, happen on the virtual thread.  The number of requests in progress is
+ * then bounded only by the limits on downstream calls (see Downstream) and the Rserve connection pool.
+ */
+@Provider
+@ManagedAsyncExecutor
+public class VirtualThreadRequestExecutor implements ExecutorServiceProvider {
+
+  @Override
+  public ExecutorService getExecutorService() {
+    return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("plugin-request-", 0).factory());
+  }
+
+  @Override
+  public void dispose(ExecutorService executorService) {
+    executorService.shutdown();
+  }
+}
@@ -0,0 +1,153 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Hands what is written to it to a background task that writes it to another stream in large chunks, so the
+ * writer (e.g. one compressing a response) carries on while earlier chunks are in flight to the client.  At
+ * most max chunks are queued; a writer getting ahead of the target waits for one to be written.
+ *
+ * flush() queues a flush of the target rather than waiting for it.  close() waits for all queued chunks to be
+ * written and the target flushed, rethrowing any failure to write them, but does not close the target; a
+ * failure is also reported by the first write after it.  Not thread-safe.
+ */
+public class AsyncOutputStream extends OutputStream {
+
+  private record Chunk(byte[] bytes, int length) {}
+
+  private static final Chunk FLUSH = new Chunk(new byte[0], 0);
+  private static final Chunk END = new Chunk(new byte[0], 0);
+
+  private final int _chunkSize;
+  private final BlockingQueue<Chunk> _queue;
+  private final CompletableFuture<Void> _transfer = new CompletableFuture<>();
+  private volatile Exception _failure;
+  private byte[] _buffer;
+  private int _count = 0;
+  private boolean _closed = false;
+
+  /**
+   * Starts the task writing to the passed stream on the passed executor.
+   *
+   * @param target stream to write to
+   * @param chunkSize number of bytes written to the target at a time (fewer when flushed or closed)
+   * @param maxChunks number of chunks queued ahead of the target
+   * @param executor runs the write task
+   */
+  public AsyncOutputStream(OutputStream target, int chunkSize, int maxChunks, Executor executor) {
+    _chunkSize = chunkSize;
+    _queue = new ArrayBlockingQueue<>(maxChunks);
+    _buffer = new byte[chunkSize];
+    executor.execute(() -> transfer(target));
+  }
+
+  private void transfer(OutputStream target) {
+    try {
+      for (Chunk chunk = _queue.take(); chunk != END; chunk = _queue.take()) {
+        if (chunk == FLUSH) {
+          target.flush();
+        }
+        else {
+          target.write(chunk.bytes(), 0, chunk.length());
+        }
+      }
+      target.flush();
+      _transfer.complete(null);
+    }
+    catch (InterruptedException e) {
+      fail(new InterruptedIOException("Interrupted while writing output"));
+    }
+    catch (Exception e) {
+      fail(e);
+    }
+  }
+
+  private void fail(Exception failure) {
+    _failure = failure;
+    _transfer.completeExceptionally(failure);
+    // the writer checks for failure before queueing each chunk, so this frees it if it is waiting on a full queue
+    _queue.clear();
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    if (_count == _chunkSize) {
+      queueBuffer();
+    }
+    _buffer[_count++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+    while (length > 0) {
+      if (_count == _chunkSize) {
+        queueBuffer();
+      }
+      int copied = Math.min(length, _chunkSize - _count);
+      System.arraycopy(bytes, offset, _buffer, _count, copied);
+      _count += copied;
+      offset += copied;
+      length -= copied;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (_count > 0) {
+      queueBuffer();
+    }
+    queue(FLUSH);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (_closed) {
+      return;
+    }
+    _closed = true;
+    if (_count > 0) {
+      queueBuffer();
+    }
+    queue(END);
+    try {
+      _transfer.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for output to be written");
+    }
+    catch (ExecutionException e) {
+      throw toIOException(e.getCause());
+    }
+  }
+
+  private void queueBuffer() throws IOException {
+    queue(new Chunk(_buffer, _count));
+    _buffer = new byte[_chunkSize];
+    _count = 0;
+  }
+
+  private void queue(Chunk chunk) throws IOException {
+    if (_failure != null) {
+      throw toIOException(_failure);
+    }
+    try {
+      _queue.put(chunk);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while queueing output");
+    }
+  }
+
+  private static IOException toIOException(Throwable failure) {
+    return failure instanceof IOException ioException ? ioException : new IOException("Unable to write output", failure);
+  }
+}
@@ -0,0 +1,283 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularStreamScanner;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts a tabular (TSV) data stream into a typed, columnar binary file that R reads with a few readBin()
+ * calls (see {@link #R_READER_DEFINITION}), sparing R the parsing fread() would do.  Only the selected columns
+ * are kept, each parsed once as it is read:
+ *
+ * <ul>
+ *   <li>numbers as IEEE-754 doubles; integer columns as R integers, unless a value is not a whole number in
+ *       integer range, in which case the column is written as doubles</li>
+ *   <li>dates (the date part of ISO-8601 values) as days since the epoch, read into R Dates</li>
+ *   <li>strings dictionary-encoded, as a vector of distinct values and an integer code per row</li>
+ * </ul>
+ *
+ * Missing values are written as R's integer and double NA bit patterns, so R reads them as NA directly.
+ *
+ * File layout (little-endian): magic "EDACOL01", int32 column count, int32 row count, then per column a
+ * NUL-terminated UTF-8 name, an int32 type code and the column's values: row count doubles (type 0), int32s
+ * (type 1), int32 epoch days (type 2), or an int32 value count, that many NUL-terminated UTF-8 values and row
+ * count int32 one-based codes (type 3).
+ */
+public class ColumnarEncoder {
+
+  public enum ColumnType { DOUBLE, INTEGER, DATE, STRING }
+
+  private static final byte[] MAGIC = "EDACOL01".getBytes(StandardCharsets.US_ASCII);
+
+  private static final int TYPE_DOUBLE = 0;
+  private static final int TYPE_INTEGER = 1;
+  private static final int TYPE_DATE = 2;
+  private static final int TYPE_STRING = 3;
+
+  // R's NA_integer_ is the smallest int; NA_real_ is a NaN with payload 1954
+  private static final int R_NA_INTEGER = Integer.MIN_VALUE;
+  private static final long R_NA_REAL_BITS = 0x7FF00000000007A2L;
+
+  /**
+   * Defines readEdaColumnar(file) in an R session, which reads a file written by this class into a data.table.
+   */
+  public static final String R_READER_DEFINITION =
+      "readEdaColumnar <- function(file) {" +
+      " con <- file(file, 'rb'); on.exit(close(con));" +
+      " if (!identical(readChar(con, 8, useBytes=TRUE), 'EDACOL01')) stop('Not a columnar data file: ', file);" +
+      " readInts <- function(n) readBin(con, 'integer', n, size=4, endian='little');" +
+      " readStrings <- function(n) { s <- readBin(con, 'character', n); Encoding(s) <- 'UTF-8'; s };" +
+      " dims <- readInts(2);" +
+      " columns <- vector('list', dims[1]);" +
+      " for (i in seq_len(dims[1])) {" +
+      "  name <- readStrings(1);" +
+      "  type <- readInts(1);" +
+      "  columns[[i]] <- switch(type + 1," +
+      "   readBin(con, 'double', dims[2], size=8, endian='little')," +
+      "   readInts(dims[2])," +
+      "   structure(as.double(readInts(dims[2])), class='Date')," +
+      "   { values <- readStrings(readInts(1)); values[readInts(dims[2])] });" +
+      "  names(columns)[i] <- name" +
+      " };" +
+      " data.table::setDT(columns)[]" +
+      "}";
+
+  /**
+   * @param fileName name of a file written by this class, and of the R variable to read it into
+   * @return R command reading the file into a data.table (once R_READER_DEFINITION has been evaluated)
+   */
+  public static String getRReadCommand(String fileName) {
+    return fileName + " <- readEdaColumnar('" + fileName + "')";
+  }
+
+  private static abstract class Column {
+
+    final String name;
+
+    Column(String name) {
+      this.name = name;
+    }
+
+    abstract void add(String value, int row);
+
+    abstract int getTypeCode();
+
+    abstract void writeValues(DataOutputStream out, int numRows) throws IOException;
+  }
+
+  private static class NumberColumn extends Column {
+
+    private double[] values = new double[1024];
+    private boolean[] missing = new boolean[1024];
+    private boolean wholeNumbers;
+
+    NumberColumn(String name, boolean integers) {
+      super(name);
+      wholeNumbers = integers;
+    }
+
+    @Override
+    void add(String value, int row) {
+      if (row == values.length) {
+        values = Arrays.copyOf(values, row * 2);
+        missing = Arrays.copyOf(missing, row * 2);
+      }
+      if (value.isEmpty()) {
+        missing[row] = true;
+        return;
+      }
+      double number = Double.parseDouble(value);
+      values[row] = number;
+      if (wholeNumbers && (number != Math.rint(number) || number <= R_NA_INTEGER || number > Integer.MAX_VALUE
+          || value.indexOf('.') >= 0 || value.indexOf('e') >= 0 || value.indexOf('E') >= 0)) {
+        wholeNumbers = false;
+      }
+    }
+
+    @Override
+    int getTypeCode() { return wholeNumbers ? TYPE_INTEGER : TYPE_DOUBLE; }
+
+    @Override
+    void writeValues(DataOutputStream out, int numRows) throws IOException {
+      ByteBuffer buffer = ByteBuffer.allocate(numRows * (wholeNumbers ? 4 : 8)).order(ByteOrder.LITTLE_ENDIAN);
+      for (int row = 0; row < numRows; row++) {
+        if (wholeNumbers) {
+          buffer.putInt(missing[row] ? R_NA_INTEGER : (int) values[row]);
+        }
+        else {
+          buffer.putLong(missing[row] ? R_NA_REAL_BITS : Double.doubleToRawLongBits(values[row]));
+        }
+      }
+      out.write(buffer.array());
+    }
+  }
+
+  private static class DateColumn extends Column {
+
+    private int[] days = new int[1024];
+
+    DateColumn(String name) { super(name); }
+
+    @Override
+    void add(String value, int row) {
+      if (row == days.length) {
+        days = Arrays.copyOf(days, row * 2);
+      }
+      days[row] = value.isEmpty() ? R_NA_INTEGER
+          : (int) LocalDate.parse(value.length() > 10 ? value.substring(0, 10) : value).toEpochDay();
+    }
+
+    @Override
+    int getTypeCode() { return TYPE_DATE; }
+
+    @Override
+    void writeValues(DataOutputStream out, int numRows) throws IOException {
+      writeInts(out, days, numRows);
+    }
+  }
+
+  private static class StringColumn extends Column {
+
+    private int[] codes = new int[1024];
+    private final Map<String, Integer> codesByValue = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    StringColumn(String name) { super(name); }
+
+    @Override
+    void add(String value, int row) {
+      if (row == codes.length) {
+        codes = Arrays.copyOf(codes, row * 2);
+      }
+      if (value.isEmpty()) {
+        codes[row] = R_NA_INTEGER;
+        return;
+      }
+      Integer code = codesByValue.get(value);
+      if (code == null) {
+        values.add(value);
+        code = values.size(); // one-based, as R indexes
+        codesByValue.put(value, code);
+      }
+      codes[row] = code;
+    }
+
+    @Override
+    int getTypeCode() { return TYPE_STRING; }
+
+    @Override
+    void writeValues(DataOutputStream out, int numRows) throws IOException {
+      writeInts(out, new int[] { values.size() }, 1);
+      for (String value : values) {
+        writeString(out, value);
+      }
+      writeInts(out, codes, numRows);
+    }
+  }
+
+  private final LinkedHashMap<String, ColumnType> _columnTypes;
+
+  /**
+   * @param columnTypes types of the columns to keep, by column name, in the order they are to be written
+   */
+  public ColumnarEncoder(LinkedHashMap<String, ColumnType> columnTypes) {
+    _columnTypes = columnTypes;
+  }
+
+  /**
+   * Reads the passed tabular stream (with a header row) to its end and writes the selected columns to the
+   * passed output.  Does not close either stream.
+   *
+   * @throws IllegalArgumentException if a selected column is missing or a value cannot be parsed as its type
+   */
+  public void encode(InputStream tabularData, OutputStream out) throws IOException {
+    TabularStreamScanner scanner = new TabularStreamScanner(tabularData);
+    String header = scanner.readLine();
+    List<String> headerNames = header == null ? List.of() : Arrays.asList(header.split("\t", -1));
+    Column[] columns = new Column[_columnTypes.size()];
+    int[] indexes = new int[columns.length];
+    int i = 0;
+    for (Map.Entry<String, ColumnType> columnType : _columnTypes.entrySet()) {
+      indexes[i] = headerNames.indexOf(columnType.getKey());
+      if (indexes[i] < 0) {
+        throw new IllegalArgumentException("Column " + columnType.getKey() + " is not in the data stream.");
+      }
+      columns[i++] = switch (columnType.getValue()) {
+        case DOUBLE -> new NumberColumn(columnType.getKey(), false);
+        case INTEGER -> new NumberColumn(columnType.getKey(), true);
+        case DATE -> new DateColumn(columnType.getKey());
+        case STRING -> new StringColumn(columnType.getKey());
+      };
+    }
+
+    int numRows = 0;
+    while (scanner.next()) {
+      for (int c = 0; c < columns.length; c++) {
+        String value = scanner.getString(indexes[c]);
+        try {
+          columns[c].add(value, numRows);
+        }
+        catch (RuntimeException e) {
+          throw new IllegalArgumentException("Invalid value '" + value + "' in column " + columns[c].name, e);
+        }
+      }
+      numRows++;
+    }
+
+    DataOutputStream data = new DataOutputStream(out);
+    data.write(MAGIC);
+    writeInts(data, new int[] { columns.length, numRows }, 2);
+    for (Column column : columns) {
+      writeString(data, column.name);
+      writeInts(data, new int[] { column.getTypeCode() }, 1);
+      column.writeValues(data, numRows);
+    }
+    data.flush();
+  }
+
+  private static void writeInts(DataOutputStream out, int[] values, int count) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(count * 4).order(ByteOrder.LITTLE_ENDIAN);
+    for (int i = 0; i < count; i++) {
+      buffer.putInt(values[i]);
+    }
+    out.write(buffer.array());
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    out.write(value.getBytes(StandardCharsets.UTF_8));
+    out.write(0);
+  }
+}
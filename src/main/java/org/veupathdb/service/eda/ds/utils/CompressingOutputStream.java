@@ -0,0 +1,137 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compresses what is written to it once it amounts to at least a threshold number of bytes; smaller outputs,
+ * which gain little from compression, are written as is.  Output is held back until the threshold is reached
+ * or the stream is closed, so the caller learns whether it is compressed (e.g. to set a Content-Encoding
+ * header) before anything is written to the target; flushes before then have no effect.
+ *
+ * Closing the stream finishes the compressed output and closes the target.  Not thread-safe.
+ */
+public class CompressingOutputStream extends OutputStream {
+
+  /**
+   * Wraps a stream in one compressing what is written to it.
+   */
+  @FunctionalInterface
+  public interface Compressor {
+    OutputStream wrap(OutputStream out) throws IOException;
+  }
+
+  private final CountingOutputStream _target;
+  private final int _threshold;
+  private final Compressor _compressor;
+  private final Runnable _onCompress;
+  private ByteArrayOutputStream _pending = new ByteArrayOutputStream();
+  private OutputStream _out;
+  private long _bytesWritten = 0;
+  private boolean _closed = false;
+
+  /**
+   * @param target stream to write the (possibly compressed) output to
+   * @param threshold number of bytes from which output is compressed
+   * @param compressor wraps the target in a compressing stream
+   * @param onCompress called once the output is known to be compressed, before anything is written to the target
+   */
+  public CompressingOutputStream(OutputStream target, int threshold, Compressor compressor, Runnable onCompress) {
+    _target = new CountingOutputStream(target);
+    _threshold = threshold;
+    _compressor = compressor;
+    _onCompress = onCompress;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    if (_out != null) {
+      _bytesWritten++;
+      _out.write(b);
+    }
+    else {
+      write(new byte[] { (byte) b }, 0, 1);
+    }
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+    _bytesWritten += length;
+    if (_out != null) {
+      _out.write(bytes, offset, length);
+      return;
+    }
+    _pending.write(bytes, offset, length);
+    if (_pending.size() >= _threshold) {
+      _onCompress.run();
+      _out = _compressor.wrap(_target);
+      _pending.writeTo(_out);
+      _pending = null;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (_out != null) {
+      _out.flush();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (_closed) {
+      return;
+    }
+    _closed = true;
+    if (_out == null) {
+      _out = _target;
+      _pending.writeTo(_out);
+      _pending = null;
+    }
+    _out.close();
+  }
+
+  /**
+   * @return whether the output is compressed; final once the threshold is reached or the stream is closed
+   */
+  public boolean isCompressed() {
+    return _out != null && _out != _target;
+  }
+
+  /**
+   * @return number of bytes written to this stream
+   */
+  public long getBytesWritten() {
+    return _bytesWritten;
+  }
+
+  /**
+   * @return number of bytes written to the target so far (after compression, if compressed)
+   */
+  public long getTargetBytesWritten() {
+    return _target._count;
+  }
+
+  private static class CountingOutputStream extends FilterOutputStream {
+
+    private long _count = 0;
+
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      _count++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      out.write(bytes, offset, length);
+      _count += length;
+    }
+  }
+}
@@ -0,0 +1,283 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded pool of reusable connections.  At most a fixed number of connections are in use at once; further
+ * callers queue (fairly) for up to an acquire timeout.  Released connections are reset and kept idle for
+ * reuse, most recently used first, until they have been idle longer than the idle timeout; expired connections
+ * are closed by a background reaper, so idle connections are released even when the pool sees no traffic.
+ * Idle connections are health checked before reuse, and a connection whose user failed is closed rather than
+ * reused, since its state is unknown.
+ *
+ * Acquire wait times, use times and failures (labeled by stage: open, health_check, use, reset) are exported
+ * to Prometheus, labeled by pool name.
+ *
+ * @param <C> connection type
+ */
+public class ConnectionPool<C> {
+
+  private static final Logger LOG = LogManager.getLogger(ConnectionPool.class);
+
+  private static final Histogram WAIT_DURATION = Histogram.build()
+      .name("eda_data_connection_pool_wait_seconds")
+      .help("Time spent waiting to acquire a pooled connection, including opening a new one.")
+      .labelNames("pool")
+      .register();
+
+  private static final Histogram USE_DURATION = Histogram.build()
+      .name("eda_data_connection_pool_use_seconds")
+      .help("Time pooled connections are in use per acquisition.")
+      .labelNames("pool")
+      .register();
+
+  private static final Counter FAILURES = Counter.build()
+      .name("eda_data_connection_pool_failures_total")
+      .help("Failures involving pooled connections, by pool and stage.")
+      .labelNames("pool", "stage")
+      .register();
+
+  // closes expired idle connections of all pools; closing only blocks on the connection, so one thread suffices
+  private static final ScheduledExecutorService REAPER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "connection-pool-reaper");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  // shortest interval between reaper runs, however short the idle timeout
+  private static final long MIN_REAP_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  /**
+   * Manages the life cycle of the connections in a pool.
+   */
+  public interface ConnectionLifecycle<C> {
+
+    /**
+     * @return a new connection, ready for use
+     */
+    C open() throws Exception;
+
+    /**
+     * @return whether an idle connection can still be used
+     */
+    boolean isHealthy(C connection);
+
+    /**
+     * Clears any state left by a user of the connection so it can be handed to the next one.
+     */
+    void reset(C connection) throws Exception;
+
+    void close(C connection);
+  }
+
+  /**
+   * Does work with a pooled connection.
+   */
+  @FunctionalInterface
+  public interface ConnectionUser<C> {
+    void use(C connection) throws Exception;
+  }
+
+  private static class IdleConnection<C> {
+
+    private final C _connection;
+    private final long _idleSince = System.nanoTime();
+
+    private IdleConnection(C connection) {
+      _connection = connection;
+    }
+  }
+
+  private final String _name;
+  private final ConnectionLifecycle<C> _lifecycle;
+  private final long _maxIdleNanos;
+  private final long _acquireTimeoutNanos;
+  private final Semaphore _permits;
+  private final ScheduledFuture<?> _reaper;
+
+  // guards the idle connections
+  private final ReentrantLock _lock = new ReentrantLock();
+  private final Deque<IdleConnection<C>> _idle = new ArrayDeque<>(); // most recently released first
+  private boolean _closed = false;
+
+  /**
+   * @param name name of this pool, used to label its metrics
+   * @param lifecycle opens, checks, resets and closes connections
+   * @param maxConnections maximum number of connections in use at once
+   * @param maxIdle how long a connection may stay idle before it is closed
+   * @param acquireTimeout how long a caller waits for a connection before failing
+   */
+  public ConnectionPool(String name, ConnectionLifecycle<C> lifecycle, int maxConnections, Duration maxIdle, Duration acquireTimeout) {
+    _name = name;
+    _lifecycle = lifecycle;
+    _maxIdleNanos = maxIdle.toNanos();
+    _acquireTimeoutNanos = acquireTimeout.toNanos();
+    _permits = new Semaphore(maxConnections, true);
+    // connections are closed at most half an idle timeout late
+    long reapInterval = Math.max(_maxIdleNanos / 2, MIN_REAP_INTERVAL_NANOS);
+    _reaper = REAPER.scheduleWithFixedDelay(this::closeExpired, reapInterval, reapInterval, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Runs the passed user with a pooled connection, waiting for one to become available if the maximum number
+   * are already in use.
+   *
+   * @param user work to do with the connection
+   * @throws Exception if no connection could be acquired or opened, or if the user failed
+   */
+  public void use(ConnectionUser<C> user) throws Exception {
+    Histogram.Timer waitTimer = WAIT_DURATION.labels(_name).startTimer();
+    if (!_permits.tryAcquire(_acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+      waitTimer.observeDuration();
+      throw new IllegalStateException("Timed out waiting for a connection from pool '" + _name + "'.");
+    }
+    try {
+      C connection = acquire();
+      waitTimer.observeDuration();
+      Histogram.Timer useTimer = USE_DURATION.labels(_name).startTimer();
+      try {
+        user.use(connection);
+      }
+      catch (Throwable e) {
+        // connection may be left mid-operation; do not hand it to anyone else
+        FAILURES.labels(_name, "use").inc();
+        _lifecycle.close(connection);
+        throw e;
+      }
+      finally {
+        useTimer.observeDuration();
+      }
+      release(connection);
+    }
+    finally {
+      _permits.release();
+    }
+  }
+
+  /**
+   * Stops the reaper and closes all idle connections.  Connections in use are closed as they are released.
+   */
+  public void close() {
+    _reaper.cancel(false);
+    List<C> idle = new ArrayList<>();
+    _lock.lock();
+    try {
+      _idle.forEach(connection -> idle.add(connection._connection));
+      _idle.clear();
+      _closed = true;
+    }
+    finally {
+      _lock.unlock();
+    }
+    idle.forEach(_lifecycle::close);
+  }
+
+  /**
+   * @return number of idle connections currently held
+   */
+  public int getIdleCount() {
+    _lock.lock();
+    try {
+      return _idle.size();
+    }
+    finally {
+      _lock.unlock();
+    }
+  }
+
+  // returns a healthy idle connection, or a new one if there is none
+  private C acquire() throws Exception {
+    C connection;
+    while ((connection = takeIdle()) != null) {
+      if (_lifecycle.isHealthy(connection)) {
+        return connection;
+      }
+      FAILURES.labels(_name, "health_check").inc();
+      _lifecycle.close(connection);
+    }
+    try {
+      return _lifecycle.open();
+    }
+    catch (Exception e) {
+      FAILURES.labels(_name, "open").inc();
+      throw e;
+    }
+  }
+
+  private C takeIdle() {
+    closeExpired();
+    _lock.lock();
+    try {
+      IdleConnection<C> idle = _idle.pollFirst();
+      return idle == null ? null : idle._connection;
+    }
+    finally {
+      _lock.unlock();
+    }
+  }
+
+  private void release(C connection) {
+    try {
+      _lifecycle.reset(connection);
+    }
+    catch (Exception e) {
+      LOG.warn("Unable to reset connection from pool '" + _name + "'; closing it", e);
+      FAILURES.labels(_name, "reset").inc();
+      _lifecycle.close(connection);
+      return;
+    }
+    _lock.lock();
+    try {
+      if (!_closed) {
+        _idle.addFirst(new IdleConnection<>(connection));
+        connection = null;
+      }
+    }
+    finally {
+      _lock.unlock();
+    }
+    if (connection != null) {
+      _lifecycle.close(connection);
+    }
+  }
+
+  // expired connections are taken while holding the lock but closed after releasing it, since closing may
+  //   block on the network; the least recently released connections are at the end
+  private void closeExpired() {
+    List<C> expired = new ArrayList<>();
+    _lock.lock();
+    try {
+      long now = System.nanoTime();
+      while (!_idle.isEmpty() && now - _idle.peekLast()._idleSince > _maxIdleNanos) {
+        expired.add(_idle.pollLast()._connection);
+      }
+    }
+    finally {
+      _lock.unlock();
+    }
+    for (C connection : expired) {
+      try {
+        _lifecycle.close(connection);
+      }
+      catch (RuntimeException e) {
+        // keep the reaper running
+        LOG.warn("Unable to close expired connection from pool '" + _name + "'", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Size-bounded store of immutable byte segments, one file per segment, in a directory owned by this store.
+ * When adding a segment would exceed the store's capacity, the oldest segments are deleted.  Segments are
+ * read by memory-mapping their files, so they are served from the OS page cache without being copied onto the
+ * heap; a segment mapped before its file is deleted remains readable.
+ *
+ * Segments do not survive a restart: files left in the directory by a previous process are deleted when the
+ * store is created.
+ */
+public class DiskSegmentStore {
+
+  private static final Logger LOG = LogManager.getLogger(DiskSegmentStore.class);
+
+  private static final String SEGMENT_SUFFIX = ".seg";
+
+  private final Path _directory;
+  private final long _maxBytes;
+  private final AtomicLong _nextSegmentId = new AtomicLong();
+
+  // guards all fields below
+  private final ReentrantLock _lock = new ReentrantLock();
+  private final LinkedHashMap<Path, Long> _segmentSizes = new LinkedHashMap<>(); // oldest first
+  private long _totalBytes = 0;
+
+  /**
+   * @param directory directory to hold segment files; created if it does not exist
+   * @param maxBytes maximum total size of segments held before the oldest are deleted
+   */
+  public DiskSegmentStore(Path directory, long maxBytes) {
+    _directory = directory;
+    _maxBytes = maxBytes;
+    try {
+      Files.createDirectories(directory);
+      try (DirectoryStream<Path> staleSegments = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+        for (Path staleSegment : staleSegments) {
+          Files.deleteIfExists(staleSegment);
+        }
+      }
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException("Unable to initialize segment store in " + directory, e);
+    }
+  }
+
+  /**
+   * Writes a new segment.
+   *
+   * @param bytes contents of the segment
+   * @return path of the new segment, or empty if it is larger than this store
+   * @throws IOException if the segment could not be written
+   */
+  public Optional<Path> write(byte[] bytes) throws IOException {
+    if (bytes.length > _maxBytes) {
+      return Optional.empty();
+    }
+    String name = Long.toString(_nextSegmentId.incrementAndGet());
+    Path tempFile = _directory.resolve(name + ".tmp");
+    Path segment = _directory.resolve(name + SEGMENT_SUFFIX);
+    Files.write(tempFile, bytes);
+    // readers never see a partially written segment
+    Files.move(tempFile, segment, StandardCopyOption.ATOMIC_MOVE);
+    _lock.lock();
+    try {
+      _segmentSizes.put(segment, (long)bytes.length);
+      _totalBytes += bytes.length;
+      Iterator<Map.Entry<Path, Long>> oldest = _segmentSizes.entrySet().iterator();
+      while (_totalBytes > _maxBytes) {
+        Map.Entry<Path, Long> evicted = oldest.next();
+        oldest.remove();
+        _totalBytes -= evicted.getValue();
+        delete(evicted.getKey());
+      }
+    }
+    finally {
+      _lock.unlock();
+    }
+    return Optional.of(segment);
+  }
+
+  /**
+   * Maps a segment into memory.
+   *
+   * @param segment path returned when the segment was written
+   * @return read-only buffer over the segment's contents, or empty if the segment has since been deleted
+   */
+  public Optional<MappedByteBuffer> read(Path segment) {
+    _lock.lock();
+    try {
+      if (!_segmentSizes.containsKey(segment)) {
+        return Optional.empty();
+      }
+      // map while holding the lock so the file cannot be deleted in between
+      try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+        return Optional.of(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+      }
+    }
+    catch (IOException e) {
+      LOG.warn("Unable to read segment " + segment, e);
+      return Optional.empty();
+    }
+    finally {
+      _lock.unlock();
+    }
+  }
+
+  private static void delete(Path segment) {
+    try {
+      Files.deleteIfExists(segment);
+    }
+    catch (IOException e) {
+      LOG.warn("Unable to delete segment " + segment, e);
+    }
+  }
+}
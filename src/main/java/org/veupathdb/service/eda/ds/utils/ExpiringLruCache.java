@@ -0,0 +1,282 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * Size-bounded LRU cache whose entries expire after a time-to-live.  Loading is single-flight: if several
+ * threads ask for the same missing key at once, one of them runs the loader and the others wait for and share
+ * its result (or its exception).  Failed loads and null values are never cached.
+ *
+ * Capacity is expressed as a total weight; by default every entry weighs 1, so the capacity is an entry count.
+ *
+ * Requests (labeled hit/miss), evictions and load durations are exported to Prometheus, labeled by cache name.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class ExpiringLruCache<K, V> {
+
+  private static final Counter REQUESTS = Counter.build()
+      .name("eda_data_cache_requests_total")
+      .help("Cache lookups, by cache and result (hit or miss).")
+      .labelNames("cache", "result")
+      .register();
+
+  private static final Counter EVICTIONS = Counter.build()
+      .name("eda_data_cache_evictions_total")
+      .help("Entries removed from a cache to make room for new ones.")
+      .labelNames("cache")
+      .register();
+
+  private static final Histogram LOAD_DURATION = Histogram.build()
+      .name("eda_data_cache_load_seconds")
+      .help("Time spent producing values for cache misses.")
+      .labelNames("cache")
+      .register();
+
+  /**
+   * Produces a value for a missing key.
+   *
+   * @param <V> type of value produced
+   * @param <E> type of checked exception the loader may throw
+   */
+  @FunctionalInterface
+  public interface Loader<V, E extends Exception> {
+    V load() throws E;
+  }
+
+  private static class Entry<V> {
+
+    private final V _value;
+    private final long _weight;
+    private final long _expirationMillis;
+
+    private Entry(V value, long weight, long expirationMillis) {
+      _value = value;
+      _weight = weight;
+      _expirationMillis = expirationMillis;
+    }
+
+    private boolean isExpired(long now) {
+      return now >= _expirationMillis;
+    }
+  }
+
+  private final String _name;
+  private final long _maxWeight;
+  private final Duration _defaultTtl;
+  private final ToLongFunction<V> _weigher;
+
+  // guards all fields below
+  private final ReentrantLock _lock = new ReentrantLock();
+  private final LinkedHashMap<K, Entry<V>> _entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<K, CompletableFuture<V>> _loadsInProgress = new HashMap<>();
+  private long _totalWeight = 0;
+
+  /**
+   * Creates a cache where every entry weighs 1, i.e. the capacity is an entry count.
+   *
+   * @param name name of this cache, used to label its metrics
+   * @param maxEntries maximum number of entries held before least recently used entries are evicted
+   * @param ttl how long an entry stays valid after it is loaded
+   */
+  public ExpiringLruCache(String name, long maxEntries, Duration ttl) {
+    this(name, maxEntries, ttl, value -> 1);
+  }
+
+  /**
+   * @param name name of this cache, used to label its metrics
+   * @param maxWeight maximum total weight held before least recently used entries are evicted
+   * @param defaultTtl how long an entry stays valid after it is loaded, unless a TTL is given at load time
+   * @param weigher computes the weight of a value (e.g. its size in bytes)
+   */
+  public ExpiringLruCache(String name, long maxWeight, Duration defaultTtl, ToLongFunction<V> weigher) {
+    _name = name;
+    _maxWeight = maxWeight;
+    _defaultTtl = defaultTtl;
+    _weigher = weigher;
+  }
+
+  /**
+   * Returns the value for the passed key if present and not expired, without loading it otherwise.
+   */
+  public Optional<V> getIfPresent(K key) {
+    _lock.lock();
+    try {
+      Optional<V> value = Optional.ofNullable(findValid(key, System.currentTimeMillis()));
+      REQUESTS.labels(_name, value.isPresent() ? "hit" : "miss").inc();
+      return value;
+    }
+    finally {
+      _lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the value for the passed key, loading it with the passed loader if it is absent or expired.
+   *
+   * @param key key of the value
+   * @param loader produces the value if not cached; only called if no other thread is already loading this key
+   * @return cached or newly loaded value
+   * @throws E if the loader (this thread's or the one whose load this thread waited on) failed
+   */
+  public <E extends Exception> V get(K key, Loader<V, E> loader) throws E {
+    return get(key, _defaultTtl, loader);
+  }
+
+  /**
+   * Same as {@link #get(Object, Loader)} but a newly loaded value expires after the passed TTL instead of the
+   * cache's default.
+   */
+  public <E extends Exception> V get(K key, Duration ttl, Loader<V, E> loader) throws E {
+    CompletableFuture<V> load;
+    boolean isLoader = false;
+    _lock.lock();
+    try {
+      V value = findValid(key, System.currentTimeMillis());
+      if (value != null) {
+        REQUESTS.labels(_name, "hit").inc();
+        return value;
+      }
+      REQUESTS.labels(_name, "miss").inc();
+      load = _loadsInProgress.get(key);
+      if (load == null) {
+        load = new CompletableFuture<>();
+        _loadsInProgress.put(key, load);
+        isLoader = true;
+      }
+    }
+    finally {
+      _lock.unlock();
+    }
+    return isLoader ? load(key, ttl, loader, load) : awaitLoad(load);
+  }
+
+  /**
+   * Adds or replaces the value for the passed key, using the cache's default TTL.
+   */
+  public void put(K key, V value) {
+    put(key, value, _defaultTtl);
+  }
+
+  /**
+   * Adds or replaces the value for the passed key; the value expires after the passed TTL.
+   */
+  public void put(K key, V value, Duration ttl) {
+    _lock.lock();
+    try {
+      store(key, value, ttl);
+    }
+    finally {
+      _lock.unlock();
+    }
+  }
+
+  public void invalidate(K key) {
+    _lock.lock();
+    try {
+      remove(key);
+    }
+    finally {
+      _lock.unlock();
+    }
+  }
+
+  private <E extends Exception> V load(K key, Duration ttl, Loader<V, E> loader, CompletableFuture<V> load) throws E {
+    Histogram.Timer timer = LOAD_DURATION.labels(_name).startTimer();
+    try {
+      V value = loader.load();
+      _lock.lock();
+      try {
+        if (value != null) {
+          store(key, value, ttl);
+        }
+        _loadsInProgress.remove(key);
+      }
+      finally {
+        _lock.unlock();
+      }
+      load.complete(value);
+      return value;
+    }
+    catch (Throwable t) {
+      _lock.lock();
+      try {
+        _loadsInProgress.remove(key);
+      }
+      finally {
+        _lock.unlock();
+      }
+      load.completeExceptionally(t);
+      throw t;
+    }
+    finally {
+      timer.observeDuration();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <E extends Exception> V awaitLoad(CompletableFuture<V> load) throws E {
+    try {
+      return load.join();
+    }
+    catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if (cause instanceof Error) throw (Error)cause;
+      // the loading thread's loader can only throw E or unchecked exceptions
+      throw (E)cause;
+    }
+  }
+
+  // must be called while holding the lock
+  private V findValid(K key, long now) {
+    Entry<V> entry = _entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.isExpired(now)) {
+      remove(key);
+      return null;
+    }
+    return entry._value;
+  }
+
+  // must be called while holding the lock
+  private void store(K key, V value, Duration ttl) {
+    long weight = _weigher.applyAsLong(value);
+    remove(key);
+    if (weight > _maxWeight) {
+      // would evict everything else and still not fit
+      return;
+    }
+    _entries.put(key, new Entry<>(value, weight, System.currentTimeMillis() + ttl.toMillis()));
+    _totalWeight += weight;
+    Iterator<Map.Entry<K, Entry<V>>> leastRecentlyUsed = _entries.entrySet().iterator();
+    while (_totalWeight > _maxWeight) {
+      _totalWeight -= leastRecentlyUsed.next().getValue()._weight;
+      leastRecentlyUsed.remove();
+      EVICTIONS.labels(_name).inc();
+    }
+  }
+
+  // must be called while holding the lock
+  private void remove(K key) {
+    Entry<V> entry = _entries.remove(key);
+    if (entry != null) {
+      _totalWeight -= entry._weight;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+
+/**
+ * Input stream that keeps what is read through it, up to a limit, so that a reader may give up on the stream
+ * part way and hand it, from the start, to another.  Reading beyond the limit fails with a
+ * {@link LimitExceededException}; no byte is lost, since everything read from the underlying stream is kept.
+ */
+public class ReplayableInputStream extends InputStream {
+
+  /**
+   * Thrown on reading beyond the limit.
+   */
+  public static class LimitExceededException extends IOException {
+    private LimitExceededException(long maxBytes) {
+      super("Stream is longer than " + maxBytes + " bytes");
+    }
+  }
+
+  private final InputStream _in;
+  private final long _maxBytes;
+  private final ByteArrayOutputStream _read = new ByteArrayOutputStream();
+
+  /**
+   * @param in stream to read
+   * @param maxBytes maximum number of bytes that may be read (and so kept)
+   */
+  public ReplayableInputStream(InputStream in, long maxBytes) {
+    _in = in;
+    _maxBytes = maxBytes;
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] b = new byte[1];
+    return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (_read.size() >= _maxBytes) {
+      throw new LimitExceededException(_maxBytes);
+    }
+    int n = _in.read(b, off, (int) Math.min(len, _maxBytes - _read.size()));
+    if (n > 0) {
+      _read.write(b, off, n);
+    }
+    return n;
+  }
+
+  /**
+   * @return the stream as it was before any of it was read through this one; this one must not be read after
+   */
+  public InputStream replay() {
+    return new SequenceInputStream(new ByteArrayInputStream(_read.toByteArray()), _in);
+  }
+
+  @Override
+  public void close() throws IOException {
+    _in.close();
+  }
+}
@@ -0,0 +1,245 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import io.prometheus.client.Counter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Lets concurrent identical requests share a single computation.  The first request for a key (the leader)
+ * computes and streams its response as usual, while a copy of the bytes written is kept; requests for the same
+ * key arriving before the leader is done (followers) wait for it and are answered with those bytes.  Nothing
+ * is kept once the leader finishes, so this only affects requests that overlap in time.
+ *
+ * Followers fall back to computing their own response if the leader fails, if its response is larger than
+ * the buffer limit, if it is abandoned, or if it does not finish within the wait limit.  Callers abandon a
+ * response whose writer may never run (e.g. because the request failed after it was produced, or its client
+ * went away before it was streamed), so that followers need not wait out the limit.
+ *
+ * Outcomes (leader, coalesced, fallback) are exported to Prometheus, labeled by coalescer name.
+ */
+public class RequestCoalescer {
+
+  private static final Counter REQUESTS = Counter.build()
+      .name("eda_data_coalesced_requests_total")
+      .help("Requests passing through a request coalescer, by coalescer and outcome.")
+      .labelNames("coalescer", "outcome")
+      .register();
+
+  /**
+   * Produces the response for a request: does any setup eagerly and returns the writer of the response body.
+   *
+   * @param <E> type of checked exception thrown if setup fails
+   */
+  @FunctionalInterface
+  public interface ResponseProducer<E extends Exception> {
+    Consumer<OutputStream> produce() throws E;
+  }
+
+  /**
+   * Writer of a response obtained from a coalescer.
+   */
+  public static class CoalescedResponse implements Consumer<OutputStream> {
+
+    private final Consumer<OutputStream> _writer;
+    private final Runnable _abandon;
+
+    private CoalescedResponse(Consumer<OutputStream> writer, Runnable abandon) {
+      _writer = writer;
+      _abandon = abandon;
+    }
+
+    @Override
+    public void accept(OutputStream out) {
+      _writer.accept(out);
+    }
+
+    /**
+     * Releases the requests waiting on this one, if it leads and has not yet written its response, so they
+     * compute their own; does nothing otherwise.  Safe to call whether or not the response was written.
+     */
+    public void abandon() {
+      _abandon.run();
+    }
+  }
+
+  private static class InFlight {
+
+    private final long _startTime = System.nanoTime();
+    private final CountDownLatch _done = new CountDownLatch(1);
+    private final AtomicBoolean _completed = new AtomicBoolean();
+    private volatile byte[] _response; // null unless the leader completed within the buffer limit
+
+    // only the first completion counts, so abandoning a leader that has finished does not drop its response
+    void complete(byte[] response) {
+      if (_completed.compareAndSet(false, true)) {
+        _response = response;
+        _done.countDown();
+      }
+    }
+
+    long getAgeNanos() {
+      return System.nanoTime() - _startTime;
+    }
+
+    // returns the leader's response, or null if there is none to share
+    byte[] await(long timeoutNanos) throws InterruptedException {
+      return _done.await(timeoutNanos, TimeUnit.NANOSECONDS) ? _response : null;
+    }
+  }
+
+  private final String _name;
+  private final long _maxBufferBytes;
+  private final long _maxWaitNanos;
+  private final ConcurrentMap<String, InFlight> _inFlight = new ConcurrentHashMap<>();
+
+  /**
+   * @param name name of this coalescer, used to label its metrics
+   * @param maxBufferBytes largest response that is shared with followers
+   * @param maxWait how long followers wait for the leader's response before computing their own
+   */
+  public RequestCoalescer(String name, long maxBufferBytes, Duration maxWait) {
+    _name = name;
+    // no byte array holds more than this
+    _maxBufferBytes = Math.min(maxBufferBytes, Integer.MAX_VALUE - 8);
+    _maxWaitNanos = maxWait.toNanos();
+  }
+
+  /**
+   * Returns the response writer for a request, sharing the response of an identical request already in flight
+   * if there is one.  If this request leads, the producer is called on this thread, and its writer is wrapped
+   * to share what it writes.  If it follows, this thread waits for the leader to finish.
+   *
+   * @param key identifies requests with identical responses
+   * @param producer produces this request's response if it is not shared
+   * @return writer of this request's response body, to be abandoned if it may never run
+   * @throws E if the producer fails
+   */
+  public <E extends Exception> CoalescedResponse process(String key, ResponseProducer<E> producer) throws E {
+    while (true) {
+      InFlight created = new InFlight();
+      InFlight existing = _inFlight.putIfAbsent(key, created);
+      if (existing == null) {
+        return lead(key, created, producer);
+      }
+      long remainingWait = _maxWaitNanos - existing.getAgeNanos();
+      if (remainingWait <= 0) {
+        // leader is presumed abandoned; replace it so later requests need not wait on it either
+        if (_inFlight.replace(key, existing, created)) {
+          return lead(key, created, producer);
+        }
+        continue;
+      }
+      byte[] response = awaitLeader(existing, remainingWait);
+      if (response == null) {
+        REQUESTS.labels(_name, "fallback").inc();
+        return new CoalescedResponse(producer.produce(), () -> {});
+      }
+      REQUESTS.labels(_name, "coalesced").inc();
+      return new CoalescedResponse(out -> {
+        try {
+          out.write(response);
+          out.flush();
+        }
+        catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }, () -> {});
+    }
+  }
+
+  private static byte[] awaitLeader(InFlight leader, long timeoutNanos) {
+    try {
+      return leader.await(timeoutNanos);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for identical request to complete", e);
+    }
+  }
+
+  private <E extends Exception> CoalescedResponse lead(String key, InFlight inFlight, ResponseProducer<E> producer) throws E {
+    REQUESTS.labels(_name, "leader").inc();
+    final Consumer<OutputStream> writer;
+    try {
+      writer = producer.produce();
+    }
+    catch (Throwable t) {
+      finish(key, inFlight, null);
+      throw t;
+    }
+    return new CoalescedResponse(out -> {
+      CapturingOutputStream capturingOut = new CapturingOutputStream(out, _maxBufferBytes);
+      byte[] response = null;
+      try {
+        writer.accept(capturingOut);
+        capturingOut.flush();
+        response = capturingOut.getCaptured();
+      }
+      catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      finally {
+        finish(key, inFlight, response);
+      }
+    }, () -> finish(key, inFlight, null));
+  }
+
+  private void finish(String key, InFlight inFlight, byte[] response) {
+    _inFlight.remove(key, inFlight);
+    inFlight.complete(response);
+  }
+
+  /**
+   * Passes bytes through to the wrapped stream while keeping a copy of them, until the copy would exceed its
+   * limit, at which point the copy is dropped.
+   */
+  private static class CapturingOutputStream extends FilterOutputStream {
+
+    private final long _maxBytes;
+    private ByteArrayOutputStream _captured = new ByteArrayOutputStream();
+
+    CapturingOutputStream(OutputStream out, long maxBytes) {
+      super(out);
+      _maxBytes = maxBytes;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      capture(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      capture(b, off, len);
+    }
+
+    private void capture(byte[] b, int off, int len) {
+      if (_captured != null) {
+        if ((long)_captured.size() + len > _maxBytes) {
+          _captured = null;
+        }
+        else {
+          _captured.write(b, off, len);
+        }
+      }
+    }
+
+    // returns the bytes written, or null if there were too many to keep
+    byte[] getCaptured() {
+      return _captured == null ? null : _captured.toByteArray();
+    }
+  }
+}
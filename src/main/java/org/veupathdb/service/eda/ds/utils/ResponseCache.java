@@ -0,0 +1,201 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import io.prometheus.client.Counter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Cache of serialized responses, keyed by strings identifying the requests that produced them.  Responses are
+ * kept as the exact bytes written, so a hit is answered by copying bytes to the output without producing or
+ * serializing the response again.
+ *
+ * Responses live in one of two tiers.  The heap tier is an {@link ExpiringLruCache} bounded by total response
+ * size, which also provides expiry, single-flight loading (concurrent misses for a key produce the response
+ * once) and hit/miss metrics.  If a disk tier is configured, responses larger than the heap tier's entry limit
+ * are written to a {@link DiskSegmentStore} instead, and the heap tier only holds a reference to their segment.
+ * Disk segments may be evicted independently of the heap tier; a reference whose segment is gone is treated
+ * as a miss.
+ */
+public class ResponseCache {
+
+  private static final Counter DISK_READS = Counter.build()
+      .name("eda_data_response_cache_disk_reads_total")
+      .help("Reads of cached responses from disk, by cache and result (hit, or evicted if the segment was gone).")
+      .labelNames("cache", "result")
+      .register();
+
+  // estimated heap held by a reference to a disk segment
+  private static final long DISK_REFERENCE_BYTES = 256;
+
+  /**
+   * Writes a response to be cached.
+   */
+  @FunctionalInterface
+  public interface ResponseWriter {
+    void write(OutputStream out) throws IOException;
+  }
+
+  /**
+   * A cached response, ready to be written.
+   */
+  @FunctionalInterface
+  public interface CachedResponse {
+    void writeTo(OutputStream out) throws IOException;
+  }
+
+  // what the heap tier holds: either the response bytes or where to find them on disk
+  private static class StoredResponse {
+
+    private final byte[] _bytes;
+    private final Path _segment;
+    private final long _size;
+
+    private StoredResponse(byte[] bytes) {
+      _bytes = bytes;
+      _segment = null;
+      _size = bytes.length;
+    }
+
+    private StoredResponse(Path segment, long size) {
+      _bytes = null;
+      _segment = segment;
+      _size = size;
+    }
+
+    private long getFootprint() {
+      return _bytes != null ? _bytes.length : DISK_REFERENCE_BYTES;
+    }
+  }
+
+  private static class HeapResponse implements CachedResponse {
+
+    private final byte[] _bytes;
+
+    private HeapResponse(byte[] bytes) {
+      _bytes = bytes;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+      out.write(_bytes);
+      out.flush();
+    }
+  }
+
+  private static class MappedResponse implements CachedResponse {
+
+    private final MappedByteBuffer _buffer;
+
+    private MappedResponse(MappedByteBuffer buffer) {
+      _buffer = buffer;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+      // the buffer may be shared, so write from a private view of it
+      WritableByteChannel channel = Channels.newChannel(out);
+      ByteBuffer view = _buffer.duplicate();
+      while (view.hasRemaining()) {
+        channel.write(view);
+      }
+      out.flush();
+    }
+  }
+
+  private final String _name;
+  private final long _maxHeapEntryBytes;
+  private final Optional<DiskSegmentStore> _diskStore;
+  private final ExpiringLruCache<String, StoredResponse> _heapTier;
+
+  /**
+   * @param name name of this cache, used to label its metrics
+   * @param maxHeapBytes maximum total size of the responses held on the heap
+   * @param maxHeapEntryBytes largest response held on the heap when there is a disk tier; larger ones go to disk
+   * @param diskStore disk tier for large responses, if any
+   */
+  public ResponseCache(String name, long maxHeapBytes, long maxHeapEntryBytes, Optional<DiskSegmentStore> diskStore) {
+    _name = name;
+    _maxHeapEntryBytes = maxHeapEntryBytes;
+    _diskStore = diskStore;
+    // the TTL is always given per response, so the default is never used
+    _heapTier = new ExpiringLruCache<>(name, maxHeapBytes, Duration.ZERO, StoredResponse::getFootprint);
+  }
+
+  /**
+   * Returns the cached response for the passed key if present and not expired.
+   */
+  public Optional<CachedResponse> getIfPresent(String key) {
+    return _heapTier.getIfPresent(key).flatMap(stored -> toCachedResponse(key, stored));
+  }
+
+  /**
+   * Returns the cached response for the passed key, producing and caching it with the passed writer if absent.
+   * If other threads ask for the same absent key meanwhile, they wait for and share this thread's response.
+   * The writer is only ever run within this method, on the calling thread; if it has not run by the time this
+   * returns, the response came from the cache and the writer never will run.
+   *
+   * @param key key of the response
+   * @param ttl how long a newly produced response stays valid
+   * @param writer produces the response
+   * @return cached or newly produced response
+   * @throws IOException if the writer fails or a large response cannot be written to disk
+   */
+  public CachedResponse get(String key, Duration ttl, ResponseWriter writer) throws IOException {
+    byte[][] produced = new byte[1][];
+    StoredResponse stored = _heapTier.get(key, ttl, () -> {
+      produced[0] = produce(writer);
+      return store(produced[0]);
+    });
+    if (produced[0] != null) {
+      // this thread produced the response; no need to read back what it just stored
+      return new HeapResponse(produced[0]);
+    }
+    Optional<CachedResponse> cached = toCachedResponse(key, stored);
+    if (cached.isPresent()) {
+      return cached.get();
+    }
+    // the producer's segment was evicted from disk before we could read it; produce the response ourselves,
+    //   now rather than when it is written out, so callers can tell the writer ran
+    return new HeapResponse(produce(writer));
+  }
+
+  private static byte[] produce(ResponseWriter writer) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    writer.write(buffer);
+    return buffer.toByteArray();
+  }
+
+  private StoredResponse store(byte[] bytes) throws IOException {
+    if (_diskStore.isPresent() && bytes.length > _maxHeapEntryBytes) {
+      Optional<Path> segment = _diskStore.get().write(bytes);
+      if (segment.isPresent()) {
+        return new StoredResponse(segment.get(), bytes.length);
+      }
+    }
+    // responses too large for the heap tier are still shared with waiting requests, just not retained
+    return new StoredResponse(bytes);
+  }
+
+  private Optional<CachedResponse> toCachedResponse(String key, StoredResponse stored) {
+    if (stored._bytes != null) {
+      return Optional.of(new HeapResponse(stored._bytes));
+    }
+    Optional<MappedByteBuffer> buffer = _diskStore.orElseThrow().read(stored._segment);
+    if (buffer.isEmpty() || buffer.get().capacity() != stored._size) {
+      DISK_READS.labels(_name, "evicted").inc();
+      _heapTier.invalidate(key);
+      return Optional.empty();
+    }
+    DISK_READS.labels(_name, "hit").inc();
+    return Optional.of(new MappedResponse(buffer.get()));
+  }
+}
@@ -3,4 +3,93 @@ package org.veupathdb.service.eda.ds.utils;
 public class StatUtils {
 
   public static final double Z_SCORE_95 = 1.96;
+
+  private static final double EPSILON = 1e-15;
+  private static final double TINY = 1e-300;
+  private static final int MAX_ITERATIONS = 10000;
+
+  private static final double[] LANCZOS = {
+      0.99999999999980993, 676.5203681218851, -1259.1392167224028, 771.32342877765313, -176.61502916214059,
+      12.507343278686905, -0.13857109526572012, 9.9843695780195716e-6, 1.5056327351493116e-7
+  };
+
+  /**
+   * @return natural log of the gamma function of a positive number (Lanczos approximation)
+   */
+  public static double logGamma(double x) {
+    if (x < 0.5) {
+      // reflection formula
+      return Math.log(Math.PI / Math.sin(Math.PI * x)) - logGamma(1 - x);
+    }
+    x -= 1;
+    double sum = LANCZOS[0];
+    for (int i = 1; i < LANCZOS.length; i++) {
+      sum += LANCZOS[i] / (x + i);
+    }
+    double t = x + 7.5;
+    return 0.5 * Math.log(2 * Math.PI) + (x + 0.5) * Math.log(t) - t + Math.log(sum);
+  }
+
+  /**
+   * @return upper regularized incomplete gamma function Q(a, x) = Γ(a, x) / Γ(a)
+   */
+  public static double regularizedGammaQ(double a, double x) {
+    if (x <= 0) {
+      return 1;
+    }
+    double logPrefix = -x + a * Math.log(x) - logGamma(a);
+    if (x < a + 1) {
+      // series for the lower function converges quickly here
+      double term = 1 / a;
+      double sum = term;
+      for (int n = 1; n < MAX_ITERATIONS && Math.abs(term) > Math.abs(sum) * EPSILON; n++) {
+        term *= x / (a + n);
+        sum += term;
+      }
+      return 1 - sum * Math.exp(logPrefix);
+    }
+    // continued fraction (modified Lentz) for the upper function
+    double b = x + 1 - a;
+    double c = 1 / TINY;
+    double d = 1 / b;
+    double h = d;
+    for (int i = 1; i < MAX_ITERATIONS; i++) {
+      double an = -i * (i - a);
+      b += 2;
+      d = an * d + b;
+      if (Math.abs(d) < TINY) d = TINY;
+      c = b + an / c;
+      if (Math.abs(c) < TINY) c = TINY;
+      d = 1 / d;
+      double delta = d * c;
+      h *= delta;
+      if (Math.abs(delta - 1) < EPSILON) {
+        break;
+      }
+    }
+    return Math.exp(logPrefix) * h;
+  }
+
+  /**
+   * @return probability that a chi-squared variable with the passed degrees of freedom exceeds the passed value
+   */
+  public static double chiSquaredUpperTail(double value, double degreesOfFreedom) {
+    return regularizedGammaQ(degreesOfFreedom / 2, value / 2);
+  }
+
+  /**
+   * @return probability that a standard normal variable exceeds the passed value
+   */
+  public static double normalUpperTail(double z) {
+    // erfc(x) = Q(1/2, x^2) for x >= 0
+    double erfc = regularizedGammaQ(0.5, z * z / 2);
+    return z >= 0 ? erfc / 2 : 1 - erfc / 2;
+  }
+
+  /**
+   * @return natural log of the binomial coefficient n choose k
+   */
+  public static double logChoose(long n, long k) {
+    return logGamma(n + 1) - logGamma(k + 1) - logGamma(n - k + 1);
+  }
 }
@@ -0,0 +1,199 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies an input stream to an output stream with reading and writing overlapped.  Once started, a background
+ * task reads the input into a bounded queue of large chunks; the output can be attached later (e.g. once a
+ * connection to write to has been acquired) and is then written a chunk at a time as chunks arrive.  The
+ * contents can instead be read through {@link #toInputStream()}; a pipe is consumed one way or the other.  Reading
+ * thus continues while writes are in flight, and slow writers with per-write round trips make fewer of them.
+ *
+ * The reader blocks once the queue is full, so at most (max chunks + 1) * chunk size bytes are buffered.
+ * Failures reading the input are rethrown by {@link #drainTo(OutputStream)}; if the output fails or is never
+ * attached, {@link #cancel()} stops the reader.
+ */
+public class StreamPipe {
+
+  // marks the end of the input in the queue
+  private static final byte[] END = new byte[0];
+
+  private final InputStream _in;
+  private final int _chunkSize;
+  private final BlockingQueue<byte[]> _chunks;
+  private volatile boolean _cancelled = false;
+  // either an IOException or a RuntimeException, rethrown as is to the writer
+  private volatile Exception _readFailure;
+
+  private StreamPipe(InputStream in, int chunkSize, int maxChunks) {
+    _in = in;
+    _chunkSize = chunkSize;
+    _chunks = new ArrayBlockingQueue<>(maxChunks);
+  }
+
+  /**
+   * Starts reading the passed stream on the passed executor.
+   *
+   * @param in stream to read; closed by the caller
+   * @param chunkSize number of bytes read into each chunk (fewer at the end of the stream)
+   * @param maxChunks number of chunks read ahead of the writer
+   * @param executor runs the read task
+   * @return pipe whose contents can be drained to an output stream
+   */
+  public static StreamPipe start(InputStream in, int chunkSize, int maxChunks, Executor executor) {
+    if (chunkSize <= 0 || maxChunks <= 0) {
+      throw new IllegalArgumentException("Chunk size and max chunks must be positive.");
+    }
+    StreamPipe pipe = new StreamPipe(in, chunkSize, maxChunks);
+    executor.execute(pipe::read);
+    return pipe;
+  }
+
+  private void read() {
+    try {
+      while (!_cancelled) {
+        byte[] chunk = _in.readNBytes(_chunkSize);
+        if (chunk.length == 0) {
+          break;
+        }
+        if (!put(chunk)) {
+          return;
+        }
+        if (chunk.length < _chunkSize) {
+          break;
+        }
+      }
+    }
+    catch (IOException | RuntimeException e) {
+      _readFailure = e;
+    }
+    put(END);
+  }
+
+  // waits for room in the queue, giving up if the pipe is cancelled
+  private boolean put(byte[] chunk) {
+    try {
+      while (!_cancelled) {
+        if (_chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      _cancelled = true;
+    }
+    return false;
+  }
+
+  /**
+   * Writes the contents of the input to the passed stream as they are read, returning once all have been
+   * written.  Does not close the output.
+   *
+   * @throws IOException if reading the input or writing the output fails
+   */
+  public void drainTo(OutputStream out) throws IOException {
+    try {
+      while (true) {
+        byte[] chunk = _chunks.take();
+        if (chunk == END) {
+          if (_readFailure instanceof IOException e) {
+            throw e;
+          }
+          if (_readFailure instanceof RuntimeException e) {
+            throw e;
+          }
+          return;
+        }
+        out.write(chunk);
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      cancel();
+      throw new InterruptedIOException("Interrupted while waiting for stream data");
+    }
+    catch (IOException | RuntimeException e) {
+      cancel();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns a stream of the contents of the input, read from the buffered chunks as they arrive; an alternative
+   * to {@link #drainTo(OutputStream)} for consumers that read rather than write.  Failures reading the input are
+   * rethrown once the chunks read before them have been consumed.  Closing the stream cancels the pipe.
+   */
+  public InputStream toInputStream() {
+    return new InputStream() {
+
+      private byte[] _chunk = new byte[0];
+      private int _position = 0;
+      private boolean _ended = false;
+
+      // returns whether bytes remain, waiting for the next chunk if the current one has been consumed
+      private boolean fill() throws IOException {
+        while (!_ended && _position == _chunk.length) {
+          try {
+            _chunk = _chunks.take();
+          }
+          catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new InterruptedIOException("Interrupted while waiting for stream data");
+          }
+          _position = 0;
+          if (_chunk == END) {
+            _ended = true;
+            if (_readFailure instanceof IOException e) {
+              throw e;
+            }
+            if (_readFailure instanceof RuntimeException e) {
+              throw e;
+            }
+          }
+        }
+        return !_ended;
+      }
+
+      @Override
+      public int read() throws IOException {
+        return fill() ? _chunk[_position++] & 0xFF : -1;
+      }
+
+      @Override
+      public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+          return 0;
+        }
+        if (!fill()) {
+          return -1;
+        }
+        int count = Math.min(length, _chunk.length - _position);
+        System.arraycopy(_chunk, _position, buffer, offset, count);
+        _position += count;
+        return count;
+      }
+
+      @Override
+      public void close() {
+        cancel();
+      }
+    };
+  }
+
+  /**
+   * Stops reading the input and releases any buffered chunks.  Has no effect once the input has been drained.
+   */
+  public void cancel() {
+    _cancelled = true;
+    _chunks.clear();
+  }
+}
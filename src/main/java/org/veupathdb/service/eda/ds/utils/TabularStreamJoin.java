@@ -0,0 +1,78 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularRow;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularStreamScanner;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Joins the rows of several tabular streams of the same entity on its ID.  The merging service writes the
+ * streams of an entity (with the same filters) in the same ID order, so rows are joined as the streams are
+ * read, one row from each per step; each row's key is checked against the first stream's, and streams of
+ * different lengths are rejected, so a stream that is out of step fails the join rather than mismatching rows.
+ *
+ * The streams are read one row at a time, so buffering is up to their readers (see StreamPipe); a stream that
+ * is slow to deliver stalls the join, but not the transfer of the others.  Not thread-safe.
+ */
+public class TabularStreamJoin {
+
+  private final List<TabularStreamScanner> _scanners;
+  private final int[] _keyColumns;
+  private long _rowNumber = 0;
+
+  /**
+   * @param scanners scanners positioned after each stream's header
+   * @param keyColumns index of the key column in each stream
+   */
+  public TabularStreamJoin(List<TabularStreamScanner> scanners, int[] keyColumns) {
+    if (scanners.isEmpty() || scanners.size() != keyColumns.length) {
+      throw new IllegalArgumentException("A key column is required for each of one or more streams.");
+    }
+    _scanners = scanners;
+    _keyColumns = keyColumns;
+  }
+
+  /**
+   * Advances all streams to their next row.
+   *
+   * @return false once all streams have ended
+   * @throws IllegalStateException if the streams end at different rows or their keys differ
+   */
+  public boolean next() throws IOException {
+    boolean hasRow = _scanners.get(0).next();
+    for (int i = 1; i < _scanners.size(); i++) {
+      if (_scanners.get(i).next() != hasRow) {
+        throw new IllegalStateException("Stream " + i + " has " + (hasRow ? "fewer" : "more") +
+            " rows than stream 0 (" + _rowNumber + " rows joined).");
+      }
+    }
+    if (!hasRow) {
+      return false;
+    }
+    _rowNumber++;
+    String key = getKey();
+    for (int i = 1; i < _scanners.size(); i++) {
+      if (!key.equals(_scanners.get(i).getString(_keyColumns[i]))) {
+        throw new IllegalStateException("Row " + _rowNumber + " of stream " + i + " has key '" +
+            _scanners.get(i).getString(_keyColumns[i]) + "' but stream 0 has '" + key + "'.");
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return key of the current rows
+   */
+  public String getKey() {
+    return _scanners.get(0).getString(_keyColumns[0]);
+  }
+
+  /**
+   * @param stream index of a stream
+   * @return current row of the stream; valid until the next call to next()
+   */
+  public TabularRow getRow(int stream) {
+    return _scanners.get(stream);
+  }
+}
@@ -0,0 +1,117 @@
+package org.veupathdb.service.eda.ds.nativeplot;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.veupathdb.service.eda.ds.nativeplot.CategoricalCounts.Table;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularRow;
+import org.veupathdb.service.eda.generated.model.VariableSpec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+public class CategoricalCountsTest {
+
+  @Test
+  @DisplayName("Counts by x and group within facet panels, in any row order")
+  public void testCrossTab() {
+    // columns: facet, x, group
+    String[][] rows = {
+        { "f2", "yes", "b" }, { "f1", "no", "a" }, { "f1", "yes", "a" }, { "f1", "yes", "b" },
+        { "f2", "no", "a" }, { "f1", "yes", "a" }, { "f1", "", "a" }, { "f1", "no", "" }, { "", "no", "a" }
+    };
+    CategoricalCounts counts = new CategoricalCounts(1, 2, new int[] { 0 }, UnaryOperator.identity(), true);
+    for (String[] row : rows) {
+      counts.add(TabularRow.of(row));
+    }
+    Map<Strata, Table> tables = counts.getTables(List.of("yes", "no"), null);
+
+    Assertions.assertEquals(List.of(new Strata("f1"), new Strata("f2")), List.copyOf(tables.keySet()));
+    Table f1 = tables.get(new Strata("f1"));
+    Assertions.assertEquals(List.of("yes", "no"), f1.getXValues());
+    Assertions.assertEquals(List.of("a", "b"), f1.getGroupValues());
+    Assertions.assertArrayEquals(new long[][] { { 2, 1 }, { 1, 0 } }, f1.getCounts());
+    Assertions.assertEquals(4, f1.getTotal());
+    Table f2 = tables.get(new Strata("f2"));
+    Assertions.assertArrayEquals(new long[][] { { 0, 1 }, { 1, 0 } }, f2.getCounts());
+    Assertions.assertEquals(1, f2.getGroupTotal(0));
+
+    Assertions.assertEquals(6, counts.getCompleteCases());
+    Assertions.assertEquals(7, counts.getCompleteAxesCases());
+    Assertions.assertEquals(8, counts.getNonMissingX());
+    Assertions.assertEquals(8, counts.getNonMissingGroup());
+    Assertions.assertEquals(8, counts.getNonMissingPanel(0));
+  }
+
+  @Test
+  @DisplayName("Values outside the vocabulary follow it in string order; x-only counts have a single group")
+  public void testVocabularyOrderWithoutGroup() {
+    CategoricalCounts counts = new CategoricalCounts(0, -1, new int[0], UnaryOperator.identity(), false);
+    for (String x : new String[] { "zeta", "beta", "alpha", "beta", "gamma" }) {
+      counts.add(TabularRow.of(new String[] { x }));
+    }
+    Table table = counts.getTables(List.of("gamma", "beta"), null).get(new Strata());
+    Assertions.assertEquals(List.of("gamma", "beta", "alpha", "zeta"), table.getXValues());
+    Assertions.assertArrayEquals(new long[][] { { 1 }, { 2 }, { 1 }, { 1 } }, table.getCounts());
+  }
+
+  @Test
+  @DisplayName("Matches reference response: bar plot proportions with an overlay")
+  public void testReferenceBarplot() throws IOException {
+    RFixture fixture = RFixture.load("barplot-overlay-proportions");
+    JsonNode request = fixture.getRequest();
+    VariableSpec xVariable = RFixture.variable(request.get("xAxisVariable").asText());
+    VariableSpec overlayVariable = RFixture.variable(request.get("overlayVariable").asText());
+    List<VariableSpec> facetVariables = toVariables(request.path("facetVariables"));
+    boolean proportions = request.get("valueSpec").asText().equals("proportion");
+
+    // as BarplotPlugin builds its native response
+    CategoricalCounts counts = NativeCategoricalPlots.count(fixture.getData(), RFixture.COLUMN_NAMES,
+        xVariable, overlayVariable, facetVariables, UnaryOperator.identity(), false);
+    Map<Strata, Table> tables = counts.getTables(null, null);
+    ObjectNode barplot = RFixture.newObject();
+    barplot.set("data", RFixture.toJson(NativeCategoricalPlots.toBarplotData(tables, overlayVariable, facetVariables, proportions)));
+    barplot.set("config", RFixture.toJson(NativeCategoricalPlots.toPlotConfig(counts, null)));
+    ObjectNode response = RFixture.newObject();
+    response.set("barplot", barplot);
+    response.set("sampleSizeTable", RFixture.toJson(NativeCategoricalPlots.toBarplotSampleSizeTable(tables, overlayVariable, facetVariables)));
+    response.set("completeCasesTable", RFixture.toJson(NativeCategoricalPlots.toCompleteCasesTable(counts, xVariable, overlayVariable, facetVariables)));
+    fixture.assertMatches(response);
+  }
+
+  @Test
+  @DisplayName("Matches reference response: two-by-two tables with reference values, their statistics and facets")
+  public void testReferenceTwoByTwo() throws IOException {
+    RFixture fixture = RFixture.load("twobytwo-facets");
+    JsonNode request = fixture.getRequest();
+    VariableSpec xVariable = RFixture.variable(request.get("xAxisVariable").asText());
+    VariableSpec yVariable = RFixture.variable(request.get("yAxisVariable").asText());
+    List<VariableSpec> facetVariables = toVariables(request.path("facetVariables"));
+
+    // a mosaic response with 2x2 statistics, less the proportions only plot.data computes
+    CategoricalCounts counts = NativeCategoricalPlots.count(fixture.getData(), RFixture.COLUMN_NAMES,
+        xVariable, yVariable, facetVariables, UnaryOperator.identity(), true);
+    Map<Strata, Table> tables = counts.getTables(null, null);
+    ObjectNode mosaic = RFixture.newObject();
+    mosaic.set("data", RFixture.toJson(NativeCategoricalPlots.toMosaicData(tables, facetVariables)));
+    mosaic.set("config", RFixture.toJson(NativeCategoricalPlots.toPlotConfig(counts, null)));
+    ObjectNode response = RFixture.newObject();
+    response.set("mosaic", mosaic);
+    response.set("sampleSizeTable", RFixture.toJson(NativeCategoricalPlots.toMosaicSampleSizeTable(tables, facetVariables)));
+    response.set("statsTable", RFixture.toJson(NativeCategoricalPlots.toTwoByTwoStatsTable(tables, facetVariables,
+        request.get("xAxisReferenceValue").asText(), request.get("yAxisReferenceValue").asText(), true)));
+    response.set("completeCasesTable", RFixture.toJson(NativeCategoricalPlots.toCompleteCasesTable(counts, xVariable, yVariable, facetVariables)));
+    fixture.assertMatches(response);
+  }
+
+  private static List<VariableSpec> toVariables(JsonNode variableIds) {
+    List<VariableSpec> variables = new ArrayList<>();
+    variableIds.forEach(var -> variables.add(RFixture.variable(var.asText())));
+    return variables;
+  }
+}
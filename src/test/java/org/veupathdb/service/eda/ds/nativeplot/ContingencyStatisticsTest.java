@@ -0,0 +1,74 @@
+package org.veupathdb.service.eda.ds.nativeplot;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.veupathdb.service.eda.ds.nativeplot.ContingencyStatistics.ChiSquared;
+import org.veupathdb.service.eda.ds.nativeplot.ContingencyStatistics.Estimate;
+
+public class ContingencyStatisticsTest {
+
+  @Test
+  @DisplayName("Chi-squared test of a 2x2 table uses Yates' correction")
+  public void testChiSquared2x2() {
+    ChiSquared result = ContingencyStatistics.chiSquared(new long[][] { { 12, 5 }, { 7, 9 } });
+    Assertions.assertEquals(1.455996378814684, result.getStatistic(), 1e-12);
+    Assertions.assertEquals(1, result.getDegreesOfFreedom());
+    Assertions.assertEquals(0.22756821457580978, result.getPValue(), 1e-9);
+  }
+
+  @Test
+  @DisplayName("Chi-squared test of a larger table, with empty rows and columns dropped")
+  public void testChiSquaredRxC() {
+    ChiSquared result = ContingencyStatistics.chiSquared(new long[][] {
+        { 10, 20, 0 }, { 0, 0, 0 }, { 20, 20, 0 }, { 30, 20, 0 }
+    });
+    Assertions.assertEquals(5.333333333333334, result.getStatistic(), 1e-12);
+    Assertions.assertEquals(2, result.getDegreesOfFreedom());
+    // with two degrees of freedom the upper tail is exp(-x/2)
+    Assertions.assertEquals(Math.exp(-5.333333333333334 / 2), result.getPValue(), 1e-9);
+  }
+
+  @Test
+  @DisplayName("Fisher's exact test of the examples of fisher.test()'s documentation")
+  public void testFisher() {
+    // fisher.test(TeaTasting): p-value = 0.4857, 95% CI 0.2117329 621.9337505, odds ratio 6.408309
+    Estimate teaTasting = ContingencyStatistics.fisher(3, 1, 1, 3);
+    Assertions.assertEquals(0.4857142857142857, teaTasting.getPValue(), 1e-9);
+    Assertions.assertEquals(6.408309, teaTasting.getValue(), 1e-6);
+    Assertions.assertEquals(0.2117329, teaTasting.getLower(), 1e-7);
+    Assertions.assertEquals(621.9337505, teaTasting.getUpper(), 1e-7);
+
+    // fisher.test(Convictions): p-value = 0.0005367, 95% CI 0.003325764 0.363182271, odds ratio 0.04693661
+    Estimate convictions = ContingencyStatistics.fisher(2, 15, 10, 3);
+    Assertions.assertEquals(0.0005367241191434358, convictions.getPValue(), 1e-12);
+    Assertions.assertEquals(0.04693661, convictions.getValue(), 1e-8);
+    Assertions.assertEquals(0.003325764, convictions.getLower(), 1e-9);
+    Assertions.assertEquals(0.363182271, convictions.getUpper(), 1e-9);
+  }
+
+  @Test
+  @DisplayName("Fisher's exact test of a table with an empty cell has an unbounded estimate")
+  public void testFisherUnbounded() {
+    Estimate result = ContingencyStatistics.fisher(10, 0, 3, 5);
+    Assertions.assertEquals(Double.POSITIVE_INFINITY, result.getValue());
+    Assertions.assertEquals(Double.POSITIVE_INFINITY, result.getUpper());
+    Assertions.assertTrue(result.getLower() > 1);
+  }
+
+  @Test
+  @DisplayName("Wald odds ratio and relative risk")
+  public void testOddsRatioAndRelativeRisk() {
+    Estimate oddsRatio = ContingencyStatistics.oddsRatio(20, 10, 30, 40);
+    Assertions.assertEquals(2.6666666666666665, oddsRatio.getValue(), 1e-12);
+    Assertions.assertEquals(1.0900414711239077, oddsRatio.getLower(), 1e-9);
+    Assertions.assertEquals(6.523706940965343, oddsRatio.getUpper(), 1e-9);
+    Assertions.assertEquals(0.0316431819401453, oddsRatio.getPValue(), 1e-9);
+
+    Estimate relativeRisk = ContingencyStatistics.relativeRisk(20, 10, 30, 40);
+    Assertions.assertEquals(2.0, relativeRisk.getValue(), 1e-12);
+    Assertions.assertEquals(1.0440305188522572, relativeRisk.getLower(), 1e-9);
+    Assertions.assertEquals(3.831305625430714, relativeRisk.getUpper(), 1e-9);
+    Assertions.assertEquals(0.03662522170089945, relativeRisk.getPValue(), 1e-9);
+  }
+}
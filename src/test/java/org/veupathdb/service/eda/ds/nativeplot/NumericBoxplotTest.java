@@ -0,0 +1,160 @@
+package org.veupathdb.service.eda.ds.nativeplot;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.veupathdb.service.eda.ds.nativeplot.NumericBoxplot.Box;
+import org.veupathdb.service.eda.ds.nativeplot.NumericBoxplot.Series;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularRow;
+import org.veupathdb.service.eda.generated.model.VariableSpec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+public class NumericBoxplotTest {
+
+  @Test
+  @DisplayName("Quartiles, fences, outliers and means of each x value in each strata")
+  public void testBoxes() {
+    // columns: x, y, overlay
+    String[][] rows = {
+        { "a", "5", "o1" }, { "a", "100", "o1" }, { "b", "7", "o1" }, { "a", "1", "o1" }, { "a", "3", "o1" },
+        { "a", "2", "o1" }, { "a", "4", "o1" }, { "a", "9", "o2" }, { "", "6", "o1" }, { "a", "", "o1" }, { "a", "8", "" }
+    };
+    NumericBoxplot boxplot = new NumericBoxplot(0, 1, new int[] { 2 }, List.of(UnaryOperator.identity()), 0, false, null);
+    for (String[] row : rows) {
+      boxplot.add(TabularRow.of(row));
+    }
+    List<Series> series = boxplot.compute(List.of("b", "a"));
+
+    Assertions.assertEquals(2, series.size());
+    Assertions.assertEquals(new Strata("o1"), series.get(0).getStrata());
+    List<Box> boxes = series.get(0).getBoxes();
+    Assertions.assertEquals("b", boxes.get(0).getLabel());
+    Box a = boxes.get(1);
+    Assertions.assertEquals(6, a.getCount());
+    Assertions.assertEquals(2.25, a.getQ1(), 1e-12);
+    Assertions.assertEquals(3.5, a.getMedian(), 1e-12);
+    Assertions.assertEquals(4.75, a.getQ3(), 1e-12);
+    Assertions.assertEquals(1, a.getLowerFence(), 1e-12);
+    Assertions.assertEquals(5, a.getUpperFence(), 1e-12);
+    Assertions.assertArrayEquals(new double[] { 100 }, a.getOutliers());
+    Assertions.assertEquals(115.0 / 6, a.getMean(), 1e-12);
+    Assertions.assertNull(a.getRawData());
+
+    Assertions.assertEquals(8, boxplot.getCompleteCasesAllVars());
+    Assertions.assertEquals(9, boxplot.getCompleteCasesAxesVars());
+    Assertions.assertEquals(10, boxplot.getNonMissingX());
+    Assertions.assertEquals(10, boxplot.getNonMissingY());
+    Assertions.assertEquals(10, boxplot.getNonMissingStrata(0));
+  }
+
+  @Test
+  @DisplayName("All values are kept in read order when all points are reported")
+  public void testRawData() {
+    NumericBoxplot boxplot = new NumericBoxplot(0, 1, new int[0], Collections.emptyList(), 2, true, null);
+    for (String y : new String[] { "3", "1", "2" }) {
+      boxplot.add(TabularRow.of(new String[] { "a", y }));
+    }
+    Box box = boxplot.compute(null).get(0).getBoxes().get(0);
+    Assertions.assertArrayEquals(new double[] { 3, 1, 2 }, box.getRawData());
+    Assertions.assertEquals(2, box.getMedian(), 1e-12);
+  }
+
+  @Test
+  @DisplayName("Groups larger than the exact maximum are summarized by a sketch and their extreme values")
+  public void testSketchedGroup() {
+    NumericBoxplot boxplot = new NumericBoxplot(0, 1, new int[0], Collections.emptyList(), 10, false, null);
+    for (int i = 1000; i >= 1; i--) {
+      boxplot.add(TabularRow.of(new String[] { "a", String.valueOf(i) }));
+    }
+    boxplot.add(TabularRow.of(new String[] { "a", "100000" }));
+    Box box = boxplot.compute(null).get(0).getBoxes().get(0);
+    Assertions.assertEquals(1001, box.getCount());
+    Assertions.assertEquals(251, box.getQ1(), 2);
+    Assertions.assertEquals(501, box.getMedian(), 2);
+    Assertions.assertEquals(751, box.getQ3(), 2);
+    Assertions.assertEquals(1, box.getLowerFence(), 1e-12);
+    Assertions.assertEquals(1000, box.getUpperFence(), 1e-12);
+    Assertions.assertArrayEquals(new double[] { 100000 }, box.getOutliers());
+    Assertions.assertNull(box.getRawData());
+  }
+
+  @Test
+  @DisplayName("Reading stops once more rows with x and y values than allowed are read")
+  public void testMaxAxesCases() {
+    NumericBoxplot boxplot = new NumericBoxplot(0, 1, new int[0], Collections.emptyList(), 0, false, 2L);
+    boxplot.add(TabularRow.of(new String[] { "a", "1" }));
+    boxplot.add(TabularRow.of(new String[] { "a", "2" }));
+    Assertions.assertFalse(boxplot.exceedsMaxAxesCases());
+    boxplot.add(TabularRow.of(new String[] { "a", "3" }));
+    Assertions.assertTrue(boxplot.exceedsMaxAxesCases());
+  }
+
+  @Test
+  @DisplayName("Matches reference response: type 7 quartiles, fences and outliers, with means and an overlay")
+  public void testReferenceOutliers() throws IOException {
+    assertMatchesReference("boxplot-outliers-overlay");
+  }
+
+  @Test
+  @DisplayName("Matches reference response: all points with a facet")
+  public void testReferenceAllPoints() throws IOException {
+    assertMatchesReference("boxplot-all-points-facet");
+  }
+
+  @Test
+  @DisplayName("Matches reference response: floating box plot outliers and means")
+  public void testReferenceFloating() throws IOException {
+    RFixture fixture = RFixture.load("floating-boxplot-outliers");
+    JsonNode request = fixture.getRequest();
+    NumericBoxplot boxplot = NativeBoxplots.read(fixture.getData(), RFixture.COLUMN_NAMES,
+        RFixture.variable(request.get("xAxisVariable").asText()), RFixture.variable(request.get("yAxisVariable").asText()),
+        Collections.emptyList(), Collections.emptyList(), 0, false, null);
+
+    // as FloatingBoxplotPlugin builds its native response
+    ObjectNode plot = RFixture.newObject();
+    plot.set("data", RFixture.toJson(NativeBoxplots.toBoxplotData(boxplot.compute(null), null, Collections.emptyList(), false, true)));
+    ObjectNode response = RFixture.newObject();
+    response.set("boxplot", plot);
+    fixture.assertMatches(response);
+  }
+
+  // computes the fixture's box plot and builds the response BoxplotPlugin (and AlphaDivBoxplotPlugin) writes for it
+  private static void assertMatchesReference(String fixtureName) throws IOException {
+    RFixture fixture = RFixture.load(fixtureName);
+    JsonNode request = fixture.getRequest();
+    VariableSpec xVariable = RFixture.variable(request.get("xAxisVariable").asText());
+    VariableSpec yVariable = RFixture.variable(request.get("yAxisVariable").asText());
+    VariableSpec overlayVariable = request.hasNonNull("overlayVariable")
+        ? RFixture.variable(request.get("overlayVariable").asText())
+        : null;
+    List<VariableSpec> facetVariables = new ArrayList<>();
+    request.get("facetVariables").forEach(var -> facetVariables.add(RFixture.variable(var.asText())));
+    List<VariableSpec> strataVariables = new ArrayList<>();
+    if (overlayVariable != null) {
+      strataVariables.add(overlayVariable);
+    }
+    strataVariables.addAll(facetVariables);
+    boolean allPoints = request.get("points").asText().equals("all");
+    boolean mean = request.get("mean").asBoolean();
+
+    NumericBoxplot boxplot = NativeBoxplots.read(fixture.getData(), RFixture.COLUMN_NAMES, xVariable, yVariable,
+        strataVariables, Collections.nCopies(strataVariables.size(), UnaryOperator.identity()), 0, allPoints, null);
+    List<Series> series = boxplot.compute(null);
+
+    ObjectNode plot = RFixture.newObject();
+    plot.set("data", RFixture.toJson(NativeBoxplots.toBoxplotData(series, overlayVariable, facetVariables, allPoints, mean)));
+    plot.set("config", RFixture.toJson(NativeBoxplots.toPlotConfig(boxplot, null)));
+    ObjectNode response = RFixture.newObject();
+    response.set("boxplot", plot);
+    response.set("sampleSizeTable", RFixture.toJson(NativeBoxplots.toSampleSizeTable(series, xVariable, overlayVariable, facetVariables)));
+    response.set("completeCasesTable", RFixture.toJson(NativeBoxplots.toCompleteCasesTable(boxplot, xVariable, yVariable, strataVariables)));
+    fixture.assertMatches(response);
+  }
+}
@@ -0,0 +1,180 @@
+package org.veupathdb.service.eda.ds.nativeplot;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.veupathdb.service.eda.ds.nativeplot.NumericHistogram.BinSpecification;
+import org.veupathdb.service.eda.ds.nativeplot.NumericHistogram.Result;
+import org.veupathdb.service.eda.ds.nativeplot.NumericHistogram.Series;
+import org.veupathdb.service.eda.ds.nativeplot.NumericHistogram.ValueType;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularRow;
+import org.veupathdb.service.eda.generated.model.APIVariableType;
+import org.veupathdb.service.eda.generated.model.BinSpec;
+import org.veupathdb.service.eda.generated.model.BinSpecImpl;
+import org.veupathdb.service.eda.generated.model.BinSpecType;
+import org.veupathdb.service.eda.generated.model.NumericViewport;
+import org.veupathdb.service.eda.generated.model.NumericViewportImpl;
+import org.veupathdb.service.eda.generated.model.ValueSpec;
+import org.veupathdb.service.eda.generated.model.VariableSpec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+public class NumericHistogramTest {
+
+  @Test
+  @DisplayName("Fixed bin width, no strata")
+  public void testBinWidth() {
+    NumericHistogram histogram = new NumericHistogram(0, new int[0], List.of());
+    for (String x : new String[] { "5", "1", "2", "10", "2", "3", "9", "4" }) {
+      histogram.add(TabularRow.of(new String[] { x }));
+    }
+    Result result = histogram.compute(null, null, BinSpecification.ofWidth(2), ValueType.COUNT, false);
+
+    Assertions.assertEquals(1, result.getSeries().size());
+    Series series = result.getSeries().get(0);
+    Assertions.assertEquals(0, series.getStrata().size());
+    // viewport is the data range; bins are aligned to its minimum and the empty [7, 9) bin is left out
+    Assertions.assertEquals(List.of("[1 - 3)", "[3 - 5)", "[5 - 7)", "[9 - 11]"),
+        series.getBins().stream().map(NumericHistogram.Bin::getLabel).toList());
+    Assertions.assertEquals(List.of(3.0, 2.0, 1.0, 2.0),
+        series.getBins().stream().map(NumericHistogram.Bin::getValue).toList());
+    Assertions.assertEquals(9.0, series.getBins().get(3).getStart());
+    Assertions.assertEquals(11.0, series.getBins().get(3).getEnd());
+
+    Assertions.assertEquals(1.0, result.getSummary().getMin());
+    Assertions.assertEquals(2.0, result.getSummary().getQ1());
+    Assertions.assertEquals(3.5, result.getSummary().getMedian());
+    Assertions.assertEquals(4.5, result.getSummary().getMean());
+    Assertions.assertEquals(6.0, result.getSummary().getQ3());
+    Assertions.assertEquals(10.0, result.getSummary().getMax());
+    Assertions.assertEquals(1.0, result.getViewportMin());
+    Assertions.assertEquals(10.0, result.getViewportMax());
+    Assertions.assertEquals(8, result.getCompleteCasesAllVars());
+  }
+
+  @Test
+  @DisplayName("Number of bins within a viewport, proportions by overlay value, missing values")
+  public void testNumBinsWithStrata() {
+    NumericHistogram histogram = new NumericHistogram(0, new int[] { 1 }, List.of(UnaryOperator.identity()));
+    String[][] rows = {
+        { "0", "a" }, { "1", "a" }, { "2", "b" }, { "3", "b" }, { "4", "a" }, { "", "a" }, { "5", "" }, { "20", "b" }
+    };
+    for (String[] row : rows) {
+      histogram.add(TabularRow.of(row));
+    }
+    // data range in the viewport is [0, 4], so two bins are two wide
+    Result result = histogram.compute(0.0, 10.0, BinSpecification.ofCount(2), ValueType.PROPORTION, false);
+    Assertions.assertEquals(2.0, result.getBinWidth());
+
+    Assertions.assertEquals(2, result.getSeries().size());
+    Series a = result.getSeries().get(0);
+    Assertions.assertEquals(new Strata("a"), a.getStrata());
+    Assertions.assertEquals(List.of("[0 - 2)", "[4 - 6)"), a.getBins().stream().map(NumericHistogram.Bin::getLabel).toList());
+    Assertions.assertEquals(2.0 / 3, a.getBins().get(0).getValue(), 1e-12);
+    Assertions.assertEquals(1.0 / 3, a.getBins().get(1).getValue(), 1e-12);
+    Series b = result.getSeries().get(1);
+    Assertions.assertEquals(new Strata("b"), b.getStrata());
+    Assertions.assertEquals(List.of("[2 - 4)"), b.getBins().stream().map(NumericHistogram.Bin::getLabel).toList());
+    Assertions.assertEquals(1.0, b.getBins().get(0).getValue());
+
+    // the row outside the viewport is plotted nowhere but still counts as a complete case
+    Assertions.assertEquals(6, result.getCompleteCasesAllVars());
+    Assertions.assertEquals(7, result.getCompleteCasesAxesVars());
+    Assertions.assertEquals(7, result.getNonMissingX());
+    Assertions.assertEquals(7, result.getNonMissingStrata(0));
+    Assertions.assertEquals(Map.of(new Strata("a"), 3L, new Strata("b"), 3L), result.getSampleSizes());
+  }
+
+  @Test
+  @DisplayName("Recoded strata values, with unmapped values treated as missing")
+  public void testRecodedStrata() {
+    UnaryOperator<String> recoder = value -> value.equals("x") ? "X" : null;
+    NumericHistogram histogram = new NumericHistogram(1, new int[] { 0 }, List.of(recoder));
+    histogram.add(TabularRow.of(new String[] { "x", "1.5" }));
+    histogram.add(TabularRow.of(new String[] { "y", "2.5" }));
+    histogram.add(TabularRow.of(new String[] { "x", "2.5" }));
+    Result result = histogram.compute(null, null, BinSpecification.ofWidth(0.5), ValueType.COUNT, false);
+
+    Assertions.assertEquals(1, result.getSeries().size());
+    Assertions.assertEquals(new Strata("X"), result.getSeries().get(0).getStrata());
+    Assertions.assertEquals(List.of("[1.5 - 2)", "[2 - 2.5]"),
+        result.getSeries().get(0).getBins().stream().map(NumericHistogram.Bin::getLabel).toList());
+    Assertions.assertEquals(2, result.getCompleteCasesAllVars());
+    Assertions.assertEquals(3, result.getNonMissingStrata(0));
+  }
+
+  @Test
+  @DisplayName("Matches reference response: fixed bin width")
+  public void testReferenceBinWidth() throws IOException {
+    assertMatchesReference("histogram-bin-width");
+  }
+
+  @Test
+  @DisplayName("Matches reference response: number of bins in a viewport, proportions, overlay and facet")
+  public void testReferenceNumBinsWithStrata() throws IOException {
+    assertMatchesReference("histogram-num-bins-strata");
+  }
+
+  @Test
+  @DisplayName("Matches reference response: rows missing plotted values")
+  public void testReferenceMissingValues() throws IOException {
+    assertMatchesReference("histogram-missing-values");
+  }
+
+  @Test
+  @DisplayName("Date histograms, and those whose bin width plot.data chooses, are left to plot.data")
+  public void testUnsupportedLeftToPlotData() {
+    BinSpec dateBins = new BinSpecImpl();
+    dateBins.setType(BinSpecType.BINWIDTH);
+    dateBins.setValue(1);
+    Assertions.assertFalse(NativeHistograms.isSupported(APIVariableType.DATE.toString(), dateBins));
+    Assertions.assertTrue(NativeHistograms.isSupported(APIVariableType.NUMBER.toString(), dateBins));
+    Assertions.assertFalse(NativeHistograms.isSupported(APIVariableType.NUMBER.toString(), new BinSpecImpl()));
+  }
+
+  // computes the fixture's histogram and builds the response HistogramPlugin writes for it
+  private static void assertMatchesReference(String fixtureName) throws IOException {
+    RFixture fixture = RFixture.load(fixtureName);
+    JsonNode request = fixture.getRequest();
+    VariableSpec xVariable = RFixture.variable(request.get("xAxisVariable").asText());
+    VariableSpec overlayVariable = request.hasNonNull("overlayVariable")
+        ? RFixture.variable(request.get("overlayVariable").asText())
+        : null;
+    List<VariableSpec> facetVariables = new ArrayList<>();
+    request.path("facetVariables").forEach(var -> facetVariables.add(RFixture.variable(var.asText())));
+    List<VariableSpec> strataVariables = new ArrayList<>();
+    request.get("strataVariables").forEach(var -> strataVariables.add(RFixture.variable(var.asText())));
+
+    BinSpec binSpec = new BinSpecImpl();
+    binSpec.setType(request.get("binSpec").get("type").asText().equals("numBins") ? BinSpecType.NUMBINS : BinSpecType.BINWIDTH);
+    binSpec.setValue(request.get("binSpec").get("value").numberValue());
+    NumericViewport viewport = null;
+    if (request.hasNonNull("viewport")) {
+      viewport = new NumericViewportImpl();
+      viewport.setXMin(request.get("viewport").get("xMin").asText());
+      viewport.setXMax(request.get("viewport").get("xMax").asText());
+    }
+    ValueSpec valueSpec = request.get("valueSpec").asText().equals("proportion") ? ValueSpec.PROPORTION : ValueSpec.COUNT;
+    String xType = request.get("xType").asText();
+
+    Result result = NativeHistograms.compute(fixture.getData(), RFixture.COLUMN_NAMES, xVariable, xType,
+        strataVariables, Collections.nCopies(strataVariables.size(), UnaryOperator.identity()),
+        binSpec, viewport, valueSpec);
+
+    ObjectNode histogram = RFixture.newObject();
+    histogram.set("data", RFixture.toJson(NativeHistograms.toHistogramData(result, overlayVariable, facetVariables)));
+    histogram.set("config", RFixture.toJson(NativeHistograms.toHistogramConfig(result, binSpec, null)));
+    ObjectNode response = RFixture.newObject();
+    response.set("histogram", histogram);
+    response.set("sampleSizeTable", RFixture.toJson(NativeHistograms.toSampleSizeTable(result, overlayVariable, facetVariables)));
+    response.set("completeCasesTable", RFixture.toJson(NativeHistograms.toCompleteCasesTable(result, xVariable, strataVariables)));
+    fixture.assertMatches(response);
+  }
+}
@@ -0,0 +1,63 @@
+package org.veupathdb.service.eda.ds.nativeplot;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class RCompatTest {
+
+  @Test
+  @DisplayName("Numbers are formatted as R's as.character() formats them")
+  public void testToCharacter() {
+    Assertions.assertEquals("0", RCompat.toCharacter(0));
+    Assertions.assertEquals("12", RCompat.toCharacter(12));
+    Assertions.assertEquals("-2.5", RCompat.toCharacter(-2.5));
+    Assertions.assertEquals("0.3", RCompat.toCharacter(0.1 + 0.2));
+    Assertions.assertEquals("0.333333333333333", RCompat.toCharacter(1.0 / 3));
+    Assertions.assertEquals("123456", RCompat.toCharacter(123456));
+    Assertions.assertEquals("1e+05", RCompat.toCharacter(100000));
+    Assertions.assertEquals("1e-04", RCompat.toCharacter(0.0001));
+    Assertions.assertEquals("0.00012", RCompat.toCharacter(0.00012));
+    Assertions.assertEquals("1.5e+20", RCompat.toCharacter(1.5e20));
+    Assertions.assertEquals("Inf", RCompat.toCharacter(Double.POSITIVE_INFINITY));
+  }
+
+  @Test
+  @DisplayName("Quantiles interpolate between closest ranks (type 7)")
+  public void testQuantile() {
+    double[] values = { 1, 2, 3, 4 };
+    Assertions.assertEquals(1.0, RCompat.quantile(values, 0));
+    Assertions.assertEquals(1.75, RCompat.quantile(values, 0.25));
+    Assertions.assertEquals(2.5, RCompat.quantile(values, 0.5));
+    Assertions.assertEquals(4.0, RCompat.quantile(values, 1));
+    Assertions.assertEquals(7.0, RCompat.quantile(new double[] { 7 }, 0.75));
+  }
+
+  @Test
+  @DisplayName("Rounding takes halves to even")
+  public void testRound() {
+    Assertions.assertEquals(2.0, RCompat.round(2.5, 0));
+    Assertions.assertEquals(4.0, RCompat.round(3.5, 0));
+    Assertions.assertEquals(0.12, RCompat.round(0.125, 2));
+    Assertions.assertEquals(0.004, RCompat.round(0.0036, 3));
+  }
+
+  @Test
+  @DisplayName("Significant digits round halves to even")
+  public void testSignif() {
+    Assertions.assertEquals(0.49, RCompat.signif(0.4857142857142857, 2));
+    Assertions.assertEquals(0.00054, RCompat.signif(0.0005367241191434358, 2));
+    Assertions.assertEquals(120.0, RCompat.signif(123.4, 2));
+    Assertions.assertEquals(0.12, RCompat.signif(0.125, 2));
+    Assertions.assertEquals(0.0, RCompat.signif(0, 2));
+  }
+
+  @Test
+  @DisplayName("Roots are found to within uniroot()'s default tolerance")
+  public void testUniroot() {
+    // like uniroot(function(x) x^2 - 2, c(0, 2)), stops once within its tolerance of sqrt(2)
+    double root = RCompat.uniroot(x -> x * x - 2, 0, 2);
+    Assertions.assertEquals(Math.sqrt(2), root, 1.3e-4);
+    Assertions.assertEquals(0.0, RCompat.uniroot(x -> x, 0, 1));
+  }
+}
@@ -0,0 +1,164 @@
+package org.veupathdb.service.eda.ds.nativeplot;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Assertions;
+import org.veupathdb.service.eda.generated.model.VariableSpec;
+import org.veupathdb.service.eda.generated.model.VariableSpecImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A reference fixture of a native plot engine: the rows and request of a plot, the R commands the plugin runs
+ * for it, and the response expected of it.  Fixtures are resources under /nativeplot.
+ *
+ * A fixture's expectedFrom field tells where its expected response came from.  Those marked "hand" were derived
+ * by hand from plot.data's source, so they pin the engine's behavior but do not show that it agrees with
+ * plot.data; record-fixtures.R replaces them with the responses of an installed plot.data, marking them with
+ * its version.
+ *
+ * Columns of the fixture's data are named entity.variable, as in plugin data streams.
+ */
+class RFixture {
+
+  static final String ENTITY_ID = "e";
+
+  static final Function<VariableSpec, String> COLUMN_NAMES = var -> var.getEntityId() + "." + var.getVariableId();
+
+  private static final ObjectMapper MAPPER = new ObjectMapper()
+      .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+  private final String name;
+  private final JsonNode fixture;
+
+  private RFixture(String name, JsonNode fixture) {
+    this.name = name;
+    this.fixture = fixture;
+  }
+
+  static RFixture load(String name) throws IOException {
+    try (InputStream in = RFixture.class.getResourceAsStream("/nativeplot/" + name + ".json")) {
+      Assertions.assertNotNull(in, "No fixture named " + name);
+      return new RFixture(name, MAPPER.readTree(in));
+    }
+  }
+
+  static VariableSpec variable(String variableId) {
+    VariableSpec var = new VariableSpecImpl();
+    var.setEntityId(ENTITY_ID);
+    var.setVariableId(variableId);
+    return var;
+  }
+
+  static ObjectNode newObject() {
+    return MAPPER.createObjectNode();
+  }
+
+  static JsonNode toJson(Object value) {
+    return MAPPER.valueToTree(value);
+  }
+
+  /**
+   * @return the plot request's parameters
+   */
+  JsonNode getRequest() {
+    return fixture.get("request");
+  }
+
+  /**
+   * @return the fixture's rows as a tab-delimited stream with a header, as plugins receive them
+   */
+  InputStream getData() {
+    StringBuilder tabular = new StringBuilder();
+    JsonNode data = fixture.get("data");
+    appendLine(tabular, data.get("columns"));
+    for (JsonNode row : data.get("rows")) {
+      appendLine(tabular, row);
+    }
+    return new ByteArrayInputStream(tabular.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Asserts that the passed response matches the fixture's expected response.  Every field of the expected
+   * response must be present and equal; numbers, including those formatted as text, may differ by the fixture's
+   * relative tolerance (by default 1e-9).  Fields R does not compute (e.g. the variable mappings echoed back in
+   * plot configs) are not compared.
+   */
+  void assertMatches(JsonNode actual) {
+    double tolerance = fixture.has("tolerance") ? fixture.get("tolerance").asDouble() : 1e-9;
+    assertMatches(name, fixture.get("expected"), actual, tolerance);
+  }
+
+  private static void assertMatches(String path, JsonNode expected, JsonNode actual, double tolerance) {
+    if (expected.isNull()) {
+      Assertions.assertTrue(actual == null || actual.isNull(), path + ": expected null but was " + actual);
+      return;
+    }
+    Assertions.assertNotNull(actual, path + ": missing");
+    if (expected.isObject()) {
+      Assertions.assertTrue(actual.isObject(), path + ": expected an object but was " + actual);
+      for (Iterator<Map.Entry<String, JsonNode>> fields = expected.fields(); fields.hasNext(); ) {
+        Map.Entry<String, JsonNode> field = fields.next();
+        assertMatches(path + "." + field.getKey(), field.getValue(), actual.get(field.getKey()), tolerance);
+      }
+    }
+    else if (expected.isArray()) {
+      Assertions.assertTrue(actual.isArray(), path + ": expected an array but was " + actual);
+      Assertions.assertEquals(expected.size(), actual.size(), path + ": array lengths differ: " + actual);
+      for (int i = 0; i < expected.size(); i++) {
+        assertMatches(path + "[" + i + "]", expected.get(i), actual.get(i), tolerance);
+      }
+    }
+    else if (expected.isNumber()) {
+      Assertions.assertTrue(actual.isNumber(), path + ": expected a number but was " + actual);
+      assertClose(path, expected.asDouble(), actual.asDouble(), tolerance);
+    }
+    else if (expected.isTextual() && parseNumbers(expected.asText()) != null) {
+      // numbers formatted as text, e.g. confidence intervals ("lower - upper"), to the same tolerance
+      double[] expectedValues = parseNumbers(expected.asText());
+      double[] actualValues = parseNumbers(actual.asText());
+      Assertions.assertTrue(actualValues != null && actualValues.length == expectedValues.length,
+          path + ": expected " + expected + " but was " + actual);
+      for (int i = 0; i < expectedValues.length; i++) {
+        assertClose(path, expectedValues[i], actualValues[i], tolerance);
+      }
+    }
+    else {
+      Assertions.assertEquals(expected, actual, path);
+    }
+  }
+
+  private static void assertClose(String path, double expected, double actual, double tolerance) {
+    Assertions.assertEquals(expected, actual, tolerance * Math.max(1, Math.abs(expected)), path);
+  }
+
+  // the numbers of text holding only numbers separated by " - ", or null
+  private static double[] parseNumbers(String text) {
+    String[] parts = text.split(" - ");
+    double[] values = new double[parts.length];
+    try {
+      for (int i = 0; i < parts.length; i++) {
+        values[i] = Double.parseDouble(parts[i]);
+      }
+      return values;
+    }
+    catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static void appendLine(StringBuilder tabular, JsonNode values) {
+    for (int i = 0; i < values.size(); i++) {
+      tabular.append(i == 0 ? "" : "\t").append(values.get(i).asText());
+    }
+    tabular.append('\n');
+  }
+}
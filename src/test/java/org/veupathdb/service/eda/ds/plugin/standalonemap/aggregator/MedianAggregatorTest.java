@@ -0,0 +1,88 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+public class MedianAggregatorTest {
+
+  // same quantifier the marker plugins use for date variables
+  private static final ValueQuantifier DATE_QUANTIFIER =
+      s -> (double) LocalDateTime.parse(s).toInstant(ZoneOffset.UTC).toEpochMilli();
+
+  @Test
+  public void testValuesParsedByQuantifier() {
+    MedianAggregator agg = new MedianAggregator(0, DATE_QUANTIFIER, QuantileSketchConfig.EXACT);
+    agg.addValue(new String[] { "2020-01-03T00:00:00" });
+    agg.addValue(new String[] { "2020-01-01T00:00:00" });
+    agg.addValue(new String[] { "2020-01-02T00:00:00" });
+    Assertions.assertEquals(epochMillis("2020-01-02T00:00:00"), agg.finish());
+
+    MedianWithConfidenceAggregator withConfidence =
+        new MedianWithConfidenceAggregator(0, DATE_QUANTIFIER, QuantileSketchConfig.EXACT);
+    withConfidence.addValue(new String[] { "2020-01-04T00:00:00" });
+    withConfidence.addValue(new String[] { "2020-01-01T00:00:00" });
+    Assertions.assertEquals(epochMillis("2020-01-02T12:00:00"), withConfidence.finish().getAverage());
+  }
+
+  @Test
+  public void testIntegerValues() {
+    MedianAggregator agg = new MedianAggregator(0, ValueQuantifier.NUMERIC, QuantileSketchConfig.EXACT);
+    for (String value : new String[] { "10", "1", "3", "2" }) {
+      agg.addValue(new String[] { value });
+    }
+    Assertions.assertEquals(2.5, agg.finish());
+  }
+
+  @Test
+  public void testEmptyAndUnquantifiableValuesSkipped() {
+    // a quantifier may have no numeric representation for a value
+    ValueQuantifier quantifier = s -> s.equals("unknown") ? null : Double.valueOf(s);
+    MedianWithConfidenceAggregator agg =
+        new MedianWithConfidenceAggregator(0, quantifier, QuantileSketchConfig.EXACT);
+    agg.addValue(new String[] { "5" });
+    agg.addValue(new String[] { "" });
+    agg.addValue(new String[] { "unknown" });
+    agg.addValue(new String[] { "7" });
+    AveragesWithConfidence result = agg.finish();
+    Assertions.assertEquals(6.0, result.getAverage());
+    Assertions.assertEquals(2, result.getN());
+  }
+
+  @Test
+  public void testEmptyMarker() {
+    MedianAggregator agg = new MedianAggregator(0, ValueQuantifier.NUMERIC, QuantileSketchConfig.EXACT);
+    agg.addValue(new String[] { "" });
+    Assertions.assertNull(agg.finish());
+
+    MedianWithConfidenceAggregator withConfidence =
+        new MedianWithConfidenceAggregator(0, ValueQuantifier.NUMERIC, QuantileSketchConfig.EXACT);
+    withConfidence.addValue(new String[] { "" });
+    AveragesWithConfidence result = withConfidence.finish();
+    Assertions.assertTrue(Double.isNaN(result.getAverage()));
+    Assertions.assertNull(result.getIntervalLowerBound());
+    Assertions.assertNull(result.getIntervalUpperBound());
+    Assertions.assertEquals(0, result.getN());
+  }
+
+  @Test
+  public void testConfidenceInterval() {
+    MedianWithConfidenceAggregator agg =
+        new MedianWithConfidenceAggregator(0, ValueQuantifier.NUMERIC, QuantileSketchConfig.EXACT);
+    for (int i = 100; i >= 1; i--) {
+      agg.addValue(i);
+    }
+    // ranks ceil(50 -/+ 1.96 * 5), i.e. 41 and 60 (zero-based)
+    AveragesWithConfidence result = agg.finish();
+    Assertions.assertEquals(50.5, result.getAverage());
+    Assertions.assertEquals(42.0, result.getIntervalLowerBound());
+    Assertions.assertEquals(61.0, result.getIntervalUpperBound());
+    Assertions.assertEquals(100, result.getN());
+  }
+
+  private static double epochMillis(String dateTime) {
+    return LocalDateTime.parse(dateTime).toInstant(ZoneOffset.UTC).toEpochMilli();
+  }
+}
@@ -0,0 +1,113 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class QuantileSketchTest {
+
+  @Test
+  public void testExactSketchMatchesSortedValues() {
+    Random random = new Random(3);
+    for (int n : new int[] { 1, 2, 7, 100, 10001 }) {
+      ExactQuantileSketch sketch = new ExactQuantileSketch();
+      double[] values = new double[n];
+      for (int i = 0; i < n; i++) {
+        // few distinct values, to exercise duplicate handling
+        values[i] = random.nextInt(20);
+        sketch.add(values[i]);
+      }
+      Arrays.sort(values);
+      for (int rank : new int[] { 0, n / 3, n / 2, n - 1 }) {
+        Assertions.assertEquals(values[rank], sketch.getValueAtRank(rank));
+      }
+      double expectedMedian = n % 2 == 1 ? values[n / 2] : (values[n / 2 - 1] + values[n / 2]) / 2;
+      Assertions.assertEquals(expectedMedian, sketch.getQuantile(0.5));
+    }
+  }
+
+  @Test
+  public void testExactSketchMerge() {
+    ExactQuantileSketch first = new ExactQuantileSketch();
+    ExactQuantileSketch second = new ExactQuantileSketch();
+    for (int i = 1; i <= 50; i++) {
+      first.add(i);
+      second.add(i + 50);
+    }
+    first.merge(second);
+    Assertions.assertEquals(100, first.getCount());
+    Assertions.assertEquals(50.5, first.getQuantile(0.5));
+    Assertions.assertEquals(1, first.getValueAtRank(0));
+    Assertions.assertEquals(100, first.getValueAtRank(99));
+  }
+
+  @Test
+  public void testKllSketchStaysWithinRankError() {
+    double rankError = 0.01;
+    int n = 1_000_000;
+    KllQuantileSketch sketch = KllQuantileSketch.forRankError(rankError);
+    // values are a shuffled permutation of 0..n-1, so each value is its own rank
+    int[] permutation = new int[n];
+    for (int i = 0; i < n; i++) {
+      permutation[i] = i;
+    }
+    Random random = new Random(11);
+    for (int i = n - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int tmp = permutation[i];
+      permutation[i] = permutation[j];
+      permutation[j] = tmp;
+    }
+    for (int value : permutation) {
+      sketch.add(value);
+    }
+    Assertions.assertEquals(n, sketch.getCount());
+    Assertions.assertTrue(sketch.getNumRetained() < 2000, "retained " + sketch.getNumRetained());
+    for (double q : new double[] { 0.01, 0.25, 0.5, 0.75, 0.99 }) {
+      long rank = (long) (q * (n - 1));
+      Assertions.assertEquals(rank, sketch.getValueAtRank(rank), 2 * rankError * n, "quantile " + q);
+    }
+  }
+
+  @Test
+  public void testKllSketchMerge() {
+    int n = 200_000;
+    KllQuantileSketch merged = new KllQuantileSketch(200);
+    for (int part = 0; part < 4; part++) {
+      KllQuantileSketch partial = new KllQuantileSketch(200);
+      for (int i = part; i < n; i += 4) {
+        partial.add(i);
+      }
+      merged.merge(partial);
+    }
+    Assertions.assertEquals(n, merged.getCount());
+    double tolerance = 2 * KllQuantileSketch.getNormalizedRankError(200) * n;
+    Assertions.assertEquals(n / 2.0, merged.getQuantile(0.5), tolerance);
+    Assertions.assertEquals(n / 10.0, merged.getQuantile(0.1), tolerance);
+  }
+
+  @Test
+  public void testMedianWithConfidence() {
+    MedianWithConfidenceAggregator agg = new MedianWithConfidenceAggregator(0, ValueQuantifier.NUMERIC, QuantileSketchConfig.EXACT);
+    for (int i = 1; i <= 25; i++) {
+      agg.addValue(i);
+    }
+    AveragesWithConfidence result = agg.finish();
+    Assertions.assertEquals(13.0, result.getAverage());
+    Assertions.assertEquals(25, result.getN());
+    // ranks ceil(12.5 -/+ 1.96 * 2.5) = 8 and 18 (zero-based)
+    Assertions.assertEquals(8.0 + 1, result.getIntervalLowerBound());
+    Assertions.assertEquals(18.0 + 1, result.getIntervalUpperBound());
+
+    // too few values for an interval
+    MedianWithConfidenceAggregator small = new MedianWithConfidenceAggregator(0, ValueQuantifier.NUMERIC, QuantileSketchConfig.EXACT);
+    small.addValue(1);
+    small.addValue(2);
+    small.addValue(4);
+    small.addValue(5);
+    Assertions.assertEquals(3.0, small.finish().getAverage());
+    Assertions.assertNull(small.finish().getIntervalUpperBound());
+  }
+}
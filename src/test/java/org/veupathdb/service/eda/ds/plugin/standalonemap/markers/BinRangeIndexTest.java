@@ -0,0 +1,81 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.veupathdb.service.eda.ds.plugin.standalonemap.markers.OverlayRecoder.NO_BIN;
+
+public class BinRangeIndexTest {
+
+  private static final List<NormalizedBinRange> BINS = List.of(
+      new NormalizedBinRange(0, 10, "[0, 10]"),
+      new NormalizedBinRange(10, 20, "(10, 20]"),
+      new NormalizedBinRange(20, 30, "(20, 30]"));
+
+  @Test
+  @DisplayName("Values fall in the bin containing them, shared edges in the bin closed on them")
+  public void testEdges() {
+    BinRangeIndex index = new BinRangeIndex(BINS);
+    Assertions.assertEquals(0, index.ordinalOf(0));
+    Assertions.assertEquals(0, index.ordinalOf(5));
+    Assertions.assertEquals(0, index.ordinalOf(10));
+    Assertions.assertEquals(1, index.ordinalOf(10.000001));
+    Assertions.assertEquals(1, index.ordinalOf(20));
+    Assertions.assertEquals(2, index.ordinalOf(30));
+  }
+
+  @Test
+  @DisplayName("Values outside all bins, or open lower edges, are in no bin")
+  public void testOutOfRange() {
+    BinRangeIndex index = new BinRangeIndex(List.of(
+        new NormalizedBinRange(0, 10, "(0, 10]"),
+        new NormalizedBinRange(20, 30, "[20, 30]")));
+    Assertions.assertEquals(NO_BIN, index.ordinalOf(-1));
+    Assertions.assertEquals(NO_BIN, index.ordinalOf(0));
+    Assertions.assertEquals(NO_BIN, index.ordinalOf(15));
+    Assertions.assertEquals(NO_BIN, index.ordinalOf(30.5));
+    Assertions.assertEquals(NO_BIN, index.ordinalOf(Double.NaN));
+    Assertions.assertEquals(1, index.ordinalOf(20));
+  }
+
+  @Test
+  @DisplayName("Ordinals are in the requested order whatever the order of the bins")
+  public void testUnsortedBins() {
+    BinRangeIndex index = new BinRangeIndex(List.of(BINS.get(2), BINS.get(0), BINS.get(1)));
+    Assertions.assertEquals(1, index.ordinalOf(5));
+    Assertions.assertEquals(2, index.ordinalOf(15));
+    Assertions.assertEquals(0, index.ordinalOf(25));
+  }
+
+  @Test
+  @DisplayName("Shared edges closed in both bins fall in the first requested")
+  public void testSharedClosedEdge() {
+    BinRangeIndex index = new BinRangeIndex(List.of(
+        new NormalizedBinRange(10, 20, "[10, 20]"),
+        new NormalizedBinRange(0, 10, "[0, 10]")));
+    Assertions.assertEquals(0, index.ordinalOf(10));
+  }
+
+  @Test
+  @DisplayName("Lookup agrees with a scan of the bins in requested order")
+  public void testAgreesWithScan() {
+    BinRangeIndex index = new BinRangeIndex(BINS);
+    for (double value = -5; value <= 35; value += 0.25) {
+      int expected = NO_BIN;
+      for (int i = 0; i < BINS.size(); i++) {
+        NormalizedBinRange bin = BINS.get(i);
+        boolean inBin = bin.getLabel().startsWith("[")
+            ? bin.getMin() <= value && bin.getMax() >= value
+            : bin.getMin() < value && bin.getMax() >= value;
+        if (inBin) {
+          expected = i;
+          break;
+        }
+      }
+      Assertions.assertEquals(expected, index.ordinalOf(value), "value " + value);
+    }
+  }
+}
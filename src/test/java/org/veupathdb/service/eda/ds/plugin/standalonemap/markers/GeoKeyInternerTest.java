@@ -0,0 +1,59 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class GeoKeyInternerTest {
+
+  @Test
+  @DisplayName("Values intern to dense ids in order of first appearance, from Strings and from bytes")
+  public void testIntern() {
+    GeoKeyInterner interner = new GeoKeyInterner();
+    Assertions.assertEquals(0, interner.intern("u4pru"));
+    Assertions.assertEquals(1, interner.intern("ézs42"));
+    byte[] bytes = "xxu4pruézs42".getBytes(StandardCharsets.UTF_8);
+    Assertions.assertEquals(0, interner.intern(bytes, 2, 7));
+    Assertions.assertEquals(1, interner.intern(bytes, 7, bytes.length));
+    Assertions.assertEquals(2, interner.intern(bytes, 2, 6));
+    Assertions.assertEquals(3, interner.size());
+    Assertions.assertEquals("u4pr", interner.getKey(2));
+    Assertions.assertEquals("ézs42", interner.getKey(1));
+  }
+
+  @Test
+  @DisplayName("Ids survive the table growing")
+  public void testGrowth() {
+    GeoKeyInterner interner = new GeoKeyInterner();
+    for (int i = 0; i < 10000; i++) {
+      Assertions.assertEquals(i, interner.intern("geohash" + i));
+    }
+    for (int i = 0; i < 10000; i++) {
+      byte[] bytes = ("geohash" + i).getBytes(StandardCharsets.UTF_8);
+      Assertions.assertEquals(i, interner.intern(bytes, 0, bytes.length));
+      Assertions.assertEquals("geohash" + i, interner.getKey(i));
+    }
+    Assertions.assertEquals(10000, interner.size());
+  }
+
+  @Test
+  @DisplayName("Scanned rows intern values from their buffer")
+  public void testScannerRows() throws IOException {
+    GeoKeyInterner interner = new GeoKeyInterner();
+    TabularStreamScanner scanner = new TabularStreamScanner(
+        new ByteArrayInputStream("a\tb\n1\tdr5r\n2\tdr5x\n3\tdr5r\n".getBytes(StandardCharsets.UTF_8)));
+    scanner.readLine();
+    Assertions.assertTrue(scanner.next());
+    Assertions.assertEquals(0, scanner.internKey(1, interner));
+    Assertions.assertTrue(scanner.next());
+    Assertions.assertEquals(1, scanner.internKey(1, interner));
+    Assertions.assertTrue(scanner.next());
+    Assertions.assertEquals(0, scanner.internKey(1, interner));
+    Assertions.assertEquals(1, TabularRow.of(new String[] { "4", "dr5x" }).internKey(1, interner));
+    Assertions.assertEquals("dr5r", interner.getKey(0));
+  }
+}
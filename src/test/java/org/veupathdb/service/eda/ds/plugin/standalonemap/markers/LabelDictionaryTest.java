@@ -0,0 +1,69 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.veupathdb.service.eda.ds.plugin.standalonemap.markers.LabelDictionary.NOT_FOUND;
+
+public class LabelDictionaryTest {
+
+  @Test
+  @DisplayName("Labels resolve to their ordinals from Strings and from bytes")
+  public void testLookup() {
+    LabelDictionary dictionary = new LabelDictionary(List.of("deltamethrin", "permethrin", "DDT", "café"));
+    Assertions.assertEquals(1, dictionary.ordinalOf("permethrin"));
+    Assertions.assertEquals(3, dictionary.ordinalOf("café"));
+    Assertions.assertEquals(NOT_FOUND, dictionary.ordinalOf("malathion"));
+
+    byte[] bytes = "xxDDTcafé".getBytes(StandardCharsets.UTF_8);
+    Assertions.assertEquals(2, dictionary.ordinalOf(bytes, 2, 5));
+    Assertions.assertEquals(3, dictionary.ordinalOf(bytes, 5, bytes.length));
+    Assertions.assertEquals(NOT_FOUND, dictionary.ordinalOf(bytes, 2, 4));
+    Assertions.assertEquals(NOT_FOUND, dictionary.ordinalOf(bytes, 0, 0));
+  }
+
+  @Test
+  @DisplayName("Duplicate labels keep their first ordinal")
+  public void testDuplicates() {
+    LabelDictionary dictionary = new LabelDictionary(List.of("a", "b", "a"));
+    Assertions.assertEquals(0, dictionary.ordinalOf("a"));
+    Assertions.assertEquals(0, dictionary.ordinalOf(new byte[] { 'a' }, 0, 1));
+  }
+
+  @Test
+  @DisplayName("Large vocabularies resolve every label and reject others")
+  public void testLargeVocabulary() {
+    List<String> labels = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      labels.add("value" + i);
+    }
+    LabelDictionary dictionary = new LabelDictionary(labels);
+    for (int i = 0; i < 5000; i++) {
+      byte[] bytes = labels.get(i).getBytes(StandardCharsets.UTF_8);
+      Assertions.assertEquals(i, dictionary.ordinalOf(bytes, 0, bytes.length));
+      byte[] other = ("other" + i).getBytes(StandardCharsets.UTF_8);
+      Assertions.assertEquals(NOT_FOUND, dictionary.ordinalOf(other, 0, other.length));
+    }
+  }
+
+  @Test
+  @DisplayName("Scanned rows resolve ordinals from their buffer")
+  public void testScannerRows() throws IOException {
+    LabelDictionary dictionary = new LabelDictionary(List.of("x", "y"));
+    TabularStreamScanner scanner = new TabularStreamScanner(
+        new ByteArrayInputStream("a\tb\n1\ty\n2\tz\n".getBytes(StandardCharsets.UTF_8)));
+    scanner.readLine();
+    Assertions.assertTrue(scanner.next());
+    Assertions.assertEquals(1, scanner.getOrdinal(1, dictionary));
+    Assertions.assertTrue(scanner.next());
+    Assertions.assertEquals(NOT_FOUND, scanner.getOrdinal(1, dictionary));
+    Assertions.assertEquals(1, TabularRow.of(new String[] { "2", "y" }).getOrdinal(1, dictionary));
+  }
+}
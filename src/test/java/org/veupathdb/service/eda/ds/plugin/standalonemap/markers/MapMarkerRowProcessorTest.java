@@ -2,9 +2,11 @@ package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
 
 import org.gusdb.fgputil.DelimitedDataParser;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.AveragesWithConfidence;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.CollectionAveragesWithConfidenceAggregator;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.CountAggregator;
 import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.MarkerAggregator;
 import org.veupathdb.service.eda.generated.model.Aggregator;
 import org.veupathdb.service.eda.generated.model.CategoricalAggregationConfig;
@@ -19,14 +21,26 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 public class MapMarkerRowProcessorTest {
 
+  @BeforeAll
+  public static void setUpWorkerPool() {
+    // enough workers for the parallel path to be taken whatever the number of processors
+    MarkerWorkerPool.setSharedThreads(4);
+  }
+
   @Test
   public void test() throws IOException {
     MapMarkerRowProcessor<Map<String, AveragesWithConfidence>> collectionAggregator = new MapMarkerRowProcessor<>(2, 0, 1);
@@ -50,7 +64,6 @@ public class MapMarkerRowProcessorTest {
     ContinuousAggregationConfig aggregationConfig = new ContinuousAggregationConfigImpl();
     aggregationConfig.setAggregator(Aggregator.MEAN);
     Supplier<MarkerAggregator<Map<String, AveragesWithConfidence>>> aggregator = () -> new CollectionAveragesWithConfidenceAggregator(
-        headers::get,
         headerToIndex::get,
         List.of("E1.C1", "E1.C2"), // just collection vars.,
         new QuantitativeAggregateConfiguration(aggregationConfig, "continuous", "number", () -> List.of("1.0", "90.0", "500.0"))
@@ -89,7 +102,6 @@ public class MapMarkerRowProcessorTest {
     aggregationConfig.setNumeratorValues(List.of("a"));
 
     Supplier<MarkerAggregator<Map<String, AveragesWithConfidence>>> aggregator = () -> new CollectionAveragesWithConfidenceAggregator(
-        headers::get,
         headerToIndex::get,
         List.of("E1.C1", "E1.C2"), // just collection vars.,
         new QuantitativeAggregateConfiguration(aggregationConfig, "categorical", "string", () -> List.of("a", "b"))
@@ -102,6 +114,91 @@ public class MapMarkerRowProcessorTest {
     Assertions.assertEquals(0.666, aMarkerData.get("E1.C1").getAverage(), 0.01);
   }
 
+  @Test
+  public void testParallelMatchesSequential() throws IOException {
+    GeolocationViewport viewport = new GeolocationViewport(-60, 60, -170, 170);
+    Random random = new Random(7);
+    StringBuilder inputData = new StringBuilder("LAT\tLON\tGEO\tC1\n");
+    for (int i = 0; i < 200000; i++) {
+      inputData.append(String.format("%.5f\t%.5f\tgeo%d\t%s\n",
+          (random.nextDouble() - 0.5) * 160, (random.nextDouble() - 0.5) * 360, random.nextInt(50),
+          random.nextInt(10) == 0 ? "" : Double.toString(random.nextInt(1000) / 10.0)));
+    }
+    ContinuousAggregationConfig aggregationConfig = new ContinuousAggregationConfigImpl();
+    aggregationConfig.setAggregator(Aggregator.MEAN);
+    QuantitativeAggregateConfiguration config = new QuantitativeAggregateConfiguration(aggregationConfig, "continuous", "number", List::of);
+    Supplier<MarkerAggregator<AveragesWithConfidence>> aggregator = () -> config.getAverageWithConfidenceAggregatorProvider(3);
+
+    MapMarkerRowProcessor<AveragesWithConfidence> processor = new MapMarkerRowProcessor<>(2, 0, 1);
+    TabularStreamScanner sequentialScanner = new TabularStreamScanner(toStream(inputData.toString()));
+    sequentialScanner.readLine();
+    Map<String, MarkerData<AveragesWithConfidence>> sequential = processor.process(sequentialScanner, viewport, aggregator);
+    TabularStreamScanner parallelScanner = new TabularStreamScanner(toStream(inputData.toString()));
+    parallelScanner.readLine();
+    Map<String, MarkerData<AveragesWithConfidence>> parallel = processor.process(parallelScanner, viewport, aggregator, 4);
+
+    Assertions.assertEquals(sequential.keySet(), parallel.keySet());
+    for (String geoVal : sequential.keySet()) {
+      MarkerData<AveragesWithConfidence> expected = sequential.get(geoVal);
+      MarkerData<AveragesWithConfidence> actual = parallel.get(geoVal);
+      Assertions.assertEquals(expected.getCount(), actual.getCount());
+      Assertions.assertEquals(expected.getMinLat(), actual.getMinLat());
+      Assertions.assertEquals(expected.getMaxLon(), actual.getMaxLon());
+      Assertions.assertEquals(expected.getLatLonAvg().getCurrentAverage().getLatitude(),
+          actual.getLatLonAvg().getCurrentAverage().getLatitude(), 1e-9);
+      Assertions.assertEquals(expected.getLatLonAvg().getCurrentAverage().getLongitude(),
+          actual.getLatLonAvg().getCurrentAverage().getLongitude(), 1e-9);
+      AveragesWithConfidence expectedAverages = expected.getMarkerAggregator().finish();
+      AveragesWithConfidence actualAverages = actual.getMarkerAggregator().finish();
+      Assertions.assertEquals(expectedAverages.getN(), actualAverages.getN());
+      Assertions.assertEquals(expectedAverages.getAverage(), actualAverages.getAverage(), 1e-9);
+      Assertions.assertEquals(expectedAverages.getIntervalUpperBound(), actualAverages.getIntervalUpperBound(), 1e-9);
+    }
+  }
+
+  @Test
+  public void testParallelPropagatesFailure() throws IOException {
+    GeolocationViewport viewport = new GeolocationViewport(-90, 90, -180, 180);
+    StringBuilder inputData = new StringBuilder();
+    for (int i = 0; i < 100000; i++) {
+      inputData.append(i == 50000 ? "bad" : "1.0").append("\t1.0\tgeo\n");
+    }
+    TabularStreamScanner scanner = new TabularStreamScanner(toStream(inputData.toString()));
+    MapMarkerRowProcessor<Integer> processor = new MapMarkerRowProcessor<>(2, 0, 1);
+    Assertions.assertThrows(NumberFormatException.class, () -> processor.process(scanner, viewport, CountAggregator::new, 3));
+  }
+
+  @Test
+  public void testConcurrentRequestsShareWorkerPool() throws Exception {
+    GeolocationViewport viewport = new GeolocationViewport(-90, 90, -180, 180);
+    StringBuilder inputData = new StringBuilder();
+    for (int i = 0; i < 100000; i++) {
+      inputData.append("1.0\t1.0\tgeo").append(i % 7).append('\n');
+    }
+    MapMarkerRowProcessor<Integer> processor = new MapMarkerRowProcessor<>(2, 0, 1);
+    // more concurrent requests than the pool has threads, each asking for more workers than it has
+    ExecutorService requests = Executors.newFixedThreadPool(6);
+    try {
+      List<Future<Map<String, MarkerData<Integer>>>> results = new ArrayList<>();
+      for (int i = 0; i < 6; i++) {
+        results.add(requests.submit(() -> processor.process(
+            new TabularStreamScanner(toStream(inputData.toString())), viewport, CountAggregator::new, 8)));
+      }
+      for (Future<Map<String, MarkerData<Integer>>> result : results) {
+        Map<String, MarkerData<Integer>> markers = result.get(60, TimeUnit.SECONDS);
+        Assertions.assertEquals(7, markers.size());
+        Assertions.assertEquals(100000, markers.values().stream().mapToLong(MarkerData::getCount).sum());
+      }
+    }
+    finally {
+      requests.shutdownNow();
+    }
+  }
+
+  private static InputStream toStream(String data) {
+    return new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8));
+  }
+
   private String generateTabularRow(double lat, double lon, String geoVar, String... colectionVars) {
     return String.join(",", Double.toString(lat), Double.toString(lon), geoVar, String.join(",", colectionVars)) + "\n";
   }
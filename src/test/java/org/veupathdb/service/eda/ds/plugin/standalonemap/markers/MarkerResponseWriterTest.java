@@ -0,0 +1,67 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.gusdb.fgputil.geo.GeographyUtil.GeographicPoint;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+public class MarkerResponseWriterTest {
+
+  @Test
+  public void testMarkers() throws IOException {
+    MarkerColumns<Double> columns = new MarkerColumns<>(() -> null);
+    columns.addRow(0, 10, 20, null);
+    columns.addRow(0, 12, 22, null);
+    MarkerData<Double> data = columns.toMarkerData(0);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JsonGenerator generator = new JsonFactory().createGenerator(out);
+    MarkerResponseWriter writer = new MarkerResponseWriter(generator, "mapElements");
+    writer.writeMarker("geo1", data, overlay -> overlay.writeStringField("overlayValue", "5"));
+    writer.writeMarker(null, 3, new GeographicPoint(1, 2), 0.5, 1.5, 1.5, 2.5, null);
+    writer.finish();
+
+    JsonNode response = new ObjectMapper().readTree(out.toByteArray());
+    Assertions.assertEquals(1, response.size());
+    JsonNode markers = response.get("mapElements");
+    Assertions.assertEquals(2, markers.size());
+
+    JsonNode first = markers.get(0);
+    Assertions.assertEquals("geo1", first.get("geoAggregateValue").asText());
+    Assertions.assertEquals(2, first.get("entityCount").asLong());
+    Assertions.assertEquals(10, first.get("minLat").asDouble());
+    Assertions.assertEquals(12, first.get("maxLat").asDouble());
+    Assertions.assertEquals(20, first.get("minLon").asDouble());
+    Assertions.assertEquals(22, first.get("maxLon").asDouble());
+    Assertions.assertEquals(data.getLatLonAvg().getCurrentAverage().getLatitude(), first.get("avgLat").asDouble());
+    Assertions.assertEquals("5", first.get("overlayValue").asText());
+
+    // fields without values are left out
+    JsonNode second = markers.get(1);
+    Assertions.assertFalse(second.has("geoAggregateValue"));
+    Assertions.assertFalse(second.has("overlayValue"));
+    Assertions.assertEquals(3, second.get("entityCount").asLong());
+    Assertions.assertEquals(1, second.get("avgLat").asDouble());
+    Assertions.assertEquals(2, second.get("avgLon").asDouble());
+  }
+
+  @Test
+  public void testFieldsAfterMarkers() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JsonGenerator generator = new JsonFactory().createGenerator(out);
+    MarkerResponseWriter writer = new MarkerResponseWriter(generator, "mapElements");
+    writer.finishMarkers().writeObjectFieldStart("config");
+    generator.writeNumberField("completeCasesGeoVar", 7);
+    MarkerResponseWriter.writeOptionalNumberField(generator, "missing", null);
+    generator.writeEndObject();
+    writer.finish();
+
+    Assertions.assertEquals("{\"mapElements\":[],\"config\":{\"completeCasesGeoVar\":7}}", out.toString());
+  }
+}
@@ -0,0 +1,138 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.AveragesWithConfidence;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.aggregator.MarkerAggregator;
+import org.veupathdb.service.eda.generated.model.Aggregator;
+import org.veupathdb.service.eda.generated.model.ContinuousAggregationConfig;
+import org.veupathdb.service.eda.generated.model.ContinuousAggregationConfigImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+public class SpatialMarkerIndexTest {
+
+  private static final List<GeolocationViewport> VIEWPORTS = List.of(
+      new GeolocationViewport(-90, 90, -180, 180),
+      new GeolocationViewport(-10, 35.5, -20, 60),
+      new GeolocationViewport(0, 0.5, 0, 0.5),
+      new GeolocationViewport(-45, 45, 150, -150), // crosses the date line
+      new GeolocationViewport(80, 90, -180, 180)
+  );
+
+  private final MapMarkerRowProcessor<AveragesWithConfidence> processor = new MapMarkerRowProcessor<>(2, 0, 1);
+
+  @BeforeAll
+  public static void setUpWorkerPool() {
+    // enough workers for the parallel path to be taken whatever the number of processors
+    MarkerWorkerPool.setSharedThreads(4);
+  }
+
+  @Test
+  public void testIndexMatchesDirectAggregation() throws IOException {
+    String data = generateData(50000);
+    for (int parallelism : new int[] { 1, 4 }) {
+      MapMarkerRowProcessor.IndexedResult<AveragesWithConfidence> result =
+          processor.processAndIndex(scan(data), VIEWPORTS.get(1), medianAggregator(), parallelism, 100000);
+      assertSameMarkers(processor.process(scan(data), VIEWPORTS.get(1), medianAggregator()), result.getMarkers());
+
+      SpatialMarkerIndex<AveragesWithConfidence> index = result.getIndex().orElseThrow();
+      for (GeolocationViewport viewport : VIEWPORTS) {
+        assertSameMarkers(processor.process(scan(data), viewport, medianAggregator()), index.query(viewport));
+        // querying must not disturb the index
+        assertSameMarkers(processor.process(scan(data), viewport, medianAggregator()), index.query(viewport));
+      }
+    }
+  }
+
+  @Test
+  public void testCoarserLevelsDerivedFromIndex() throws IOException {
+    String data = generateData(50000);
+    MapMarkerRowProcessor<AveragesWithConfidence> multiLevelProcessor = new MapMarkerRowProcessor<>(new int[] { 2, 4 }, 0, 1);
+    MapMarkerRowProcessor<AveragesWithConfidence> coarseProcessor = new MapMarkerRowProcessor<>(4, 0, 1);
+    for (int parallelism : new int[] { 1, 4 }) {
+      MapMarkerRowProcessor.IndexedResult<AveragesWithConfidence> result =
+          multiLevelProcessor.processAndIndex(scan(data), VIEWPORTS.get(1), medianAggregator(), parallelism, 100000);
+      assertSameMarkers(processor.process(scan(data), VIEWPORTS.get(1), medianAggregator()), result.getMarkers());
+
+      SpatialMarkerIndex<AveragesWithConfidence> index = result.getIndex().orElseThrow();
+      for (GeolocationViewport viewport : VIEWPORTS) {
+        assertSameMarkers(processor.process(scan(data), viewport, medianAggregator()), index.query(viewport, 0));
+        assertSameMarkers(coarseProcessor.process(scan(data), viewport, medianAggregator()), index.query(viewport, 1));
+      }
+    }
+  }
+
+  @Test
+  public void testTooManyPartialsFallsBackToViewport() throws IOException {
+    String data = generateData(50000);
+    for (int parallelism : new int[] { 1, 4 }) {
+      for (int maxPartials : new int[] { 10, 45000 }) {
+        MapMarkerRowProcessor.IndexedResult<AveragesWithConfidence> result =
+            processor.processAndIndex(scan(data), VIEWPORTS.get(3), medianAggregator(), parallelism, maxPartials);
+        Assertions.assertTrue(result.getIndex().isEmpty());
+        assertSameMarkers(processor.process(scan(data), VIEWPORTS.get(3), medianAggregator()), result.getMarkers());
+      }
+    }
+  }
+
+  private static Supplier<MarkerAggregator<AveragesWithConfidence>> medianAggregator() {
+    ContinuousAggregationConfig aggregationConfig = new ContinuousAggregationConfigImpl();
+    aggregationConfig.setAggregator(Aggregator.MEDIAN);
+    QuantitativeAggregateConfiguration config = new QuantitativeAggregateConfiguration(aggregationConfig, "continuous", "number", List::of);
+    return () -> config.getAverageWithConfidenceAggregatorProvider(3);
+  }
+
+  // rows at a limited set of locations, so that many rows share a partial, with a fine and a coarse geo
+  // variable (either of which may be missing)
+  private static String generateData(int numRows) {
+    Random random = new Random(11);
+    StringBuilder data = new StringBuilder("LAT\tLON\tGEO\tC1\tCOARSE_GEO\n");
+    for (int i = 0; i < numRows; i++) {
+      double lat = random.nextInt(1800) / 10.0 - 90;
+      double lon = random.nextInt(360) - 180 + 0.25;
+      int geo = random.nextInt(20);
+      data.append(lat).append('\t').append(lon).append('\t').append(random.nextInt(30) == 0 ? "" : "geo" + geo).append('\t')
+          .append(random.nextInt(8) == 0 ? "" : Double.toString(random.nextInt(1000) / 10.0)).append('\t')
+          .append(random.nextInt(10) == 0 ? "" : "coarse" + geo % 4).append('\n');
+    }
+    return data.toString();
+  }
+
+  private static TabularStreamScanner scan(String data) throws IOException {
+    TabularStreamScanner scanner = new TabularStreamScanner(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)));
+    scanner.readLine();
+    return scanner;
+  }
+
+  private static void assertSameMarkers(Map<String, MarkerData<AveragesWithConfidence>> expected,
+                                        Map<String, MarkerData<AveragesWithConfidence>> actual) {
+    Assertions.assertEquals(expected.keySet(), actual.keySet());
+    for (String geoVal : expected.keySet()) {
+      MarkerData<AveragesWithConfidence> expectedMarker = expected.get(geoVal);
+      MarkerData<AveragesWithConfidence> actualMarker = actual.get(geoVal);
+      Assertions.assertEquals(expectedMarker.getCount(), actualMarker.getCount());
+      Assertions.assertEquals(expectedMarker.getMinLat(), actualMarker.getMinLat());
+      Assertions.assertEquals(expectedMarker.getMaxLat(), actualMarker.getMaxLat());
+      Assertions.assertEquals(expectedMarker.getMinLon(), actualMarker.getMinLon());
+      Assertions.assertEquals(expectedMarker.getMaxLon(), actualMarker.getMaxLon());
+      Assertions.assertEquals(expectedMarker.getLatLonAvg().getCurrentAverage().getLatitude(),
+          actualMarker.getLatLonAvg().getCurrentAverage().getLatitude(), 1e-9);
+      Assertions.assertEquals(expectedMarker.getLatLonAvg().getCurrentAverage().getLongitude(),
+          actualMarker.getLatLonAvg().getCurrentAverage().getLongitude(), 1e-9);
+      AveragesWithConfidence expectedMedian = expectedMarker.getMarkerAggregator().finish();
+      AveragesWithConfidence actualMedian = actualMarker.getMarkerAggregator().finish();
+      Assertions.assertEquals(expectedMedian.getN(), actualMedian.getN());
+      Assertions.assertEquals(expectedMedian.getAverage(), actualMedian.getAverage());
+      Assertions.assertEquals(expectedMedian.getIntervalLowerBound(), actualMedian.getIntervalLowerBound());
+      Assertions.assertEquals(expectedMedian.getIntervalUpperBound(), actualMedian.getIntervalUpperBound());
+    }
+  }
+}
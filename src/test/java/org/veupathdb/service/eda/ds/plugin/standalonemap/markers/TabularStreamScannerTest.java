@@ -0,0 +1,85 @@
+package org.veupathdb.service.eda.ds.plugin.standalonemap.markers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+public class TabularStreamScannerTest {
+
+  @Test
+  public void testRows() throws IOException {
+    TabularStreamScanner scanner = new TabularStreamScanner(toStream("GEO\tLAT\tLON\r\na\t1.5\t-2\n\nb\t\t3.25\nc\t0.1"));
+    Assertions.assertEquals("GEO\tLAT\tLON", scanner.readLine());
+
+    Assertions.assertTrue(scanner.next());
+    Assertions.assertEquals("a", scanner.getString(0));
+    Assertions.assertEquals(1.5, scanner.getDouble(1));
+    Assertions.assertEquals(-2.0, scanner.getDouble(2));
+
+    // blank line is skipped; empty and missing columns are reported as empty
+    Assertions.assertTrue(scanner.next());
+    Assertions.assertEquals("b", scanner.getString(0));
+    Assertions.assertTrue(scanner.isEmpty(1));
+    Assertions.assertEquals(3.25, scanner.getDouble(2));
+    Assertions.assertTrue(scanner.isEmpty(3));
+
+    // last line has no newline
+    Assertions.assertTrue(scanner.next());
+    Assertions.assertEquals("c", scanner.getString(0));
+    Assertions.assertEquals(0.1, scanner.getDouble(1));
+
+    Assertions.assertFalse(scanner.next());
+    Assertions.assertNull(scanner.readLine());
+  }
+
+  @Test
+  public void testLinesSpanningBufferRefills() throws IOException {
+    StringBuilder data = new StringBuilder();
+    int numRows = 20000;
+    for (int i = 0; i < numRows; i++) {
+      data.append("geo").append(i).append('\t').append(i).append(".5\t").append("x".repeat(i % 50)).append('\n');
+    }
+    TabularStreamScanner scanner = new TabularStreamScanner(toStream(data.toString()));
+    for (int i = 0; i < numRows; i++) {
+      Assertions.assertTrue(scanner.next());
+      Assertions.assertEquals("geo" + i, scanner.getString(0));
+      Assertions.assertEquals(i + 0.5, scanner.getDouble(1));
+      Assertions.assertEquals(i % 50 == 0, scanner.isEmpty(2));
+    }
+    Assertions.assertFalse(scanner.next());
+  }
+
+  @Test
+  public void testParseDoubleMatchesJdk() {
+    String[] values = { "0", "-0", "12", "-12.5", "+3.75", "0.1", "0.30000000000000004", "123456789.123456789",
+        "1e10", "-2.5E-3", ".5", "5.", "NaN", "Infinity", "-180.0", "89.999999", "0.000000000000000000001" };
+    for (String value : values) {
+      assertParsesLikeJdk(value);
+    }
+    Random random = new Random(42);
+    for (int i = 0; i < 100000; i++) {
+      assertParsesLikeJdk(Double.toString((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12))));
+      assertParsesLikeJdk(String.format("%.6f", (random.nextDouble() - 0.5) * 360));
+    }
+    Assertions.assertThrows(NumberFormatException.class, () -> parse("abc"));
+    Assertions.assertThrows(NumberFormatException.class, () -> parse("-"));
+  }
+
+  private static void assertParsesLikeJdk(String value) {
+    Assertions.assertEquals(Double.parseDouble(value), parse(value), value);
+  }
+
+  private static double parse(String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+    return TabularStreamScanner.parseDouble(bytes, 0, bytes.length);
+  }
+
+  private static InputStream toStream(String data) {
+    return new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,60 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class AsyncOutputStreamTest {
+
+  @Test
+  public void testWritesAllBytes() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      byte[] data = new byte[1000];
+      for (int i = 0; i < data.length; i++) {
+        data[i] = (byte) i;
+      }
+      ByteArrayOutputStream target = new ByteArrayOutputStream();
+      AsyncOutputStream out = new AsyncOutputStream(target, 7, 2, executor);
+      out.write(data, 0, 500);
+      out.flush();
+      out.write(data[500]);
+      out.write(data, 501, 499);
+      out.close();
+      Assertions.assertArrayEquals(data, target.toByteArray());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testReportsWriteFailure() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      OutputStream failing = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+          throw new IOException("connection reset");
+        }
+      };
+      AsyncOutputStream out = new AsyncOutputStream(failing, 4, 1, executor);
+      // the writer finds out about the failure at the latest when it closes the stream, without blocking on a full queue
+      IOException e = Assertions.assertThrows(IOException.class, () -> {
+        for (int i = 0; i < 100; i++) {
+          out.write(new byte[10], 0, 10);
+        }
+        out.close();
+      });
+      Assertions.assertEquals("connection reset", e.getMessage());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.veupathdb.service.eda.ds.utils.ColumnarEncoder.ColumnType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+
+public class ColumnarEncoderTest {
+
+  private static final String DATA =
+      "id\tname\tage\theight\tbirth\n" +
+      "1\tb\t30\t1.5\t2000-01-02T00:00:00\n" +
+      "2\ta\t\t\t\n" +
+      "3\tb\t41\t2\t1969-12-31\n" +
+      "4\t\t7\t1e1\t1970-01-01\n";
+
+  @Test
+  public void testSelectedColumnsAreTyped() throws IOException {
+    LinkedHashMap<String, ColumnType> columns = new LinkedHashMap<>();
+    columns.put("height", ColumnType.DOUBLE);
+    columns.put("age", ColumnType.INTEGER);
+    columns.put("birth", ColumnType.DATE);
+    columns.put("name", ColumnType.STRING);
+    ByteBuffer in = encode(columns, DATA);
+
+    byte[] magic = new byte[8];
+    in.get(magic);
+    Assertions.assertEquals("EDACOL01", new String(magic, StandardCharsets.US_ASCII));
+    Assertions.assertEquals(4, in.getInt());
+    Assertions.assertEquals(4, in.getInt());
+
+    Assertions.assertEquals("height", readString(in));
+    Assertions.assertEquals(0, in.getInt());
+    Assertions.assertEquals(1.5, in.getDouble());
+    Assertions.assertEquals(0x7FF00000000007A2L, in.getLong());
+    Assertions.assertEquals(2, in.getDouble());
+    Assertions.assertEquals(10, in.getDouble());
+
+    Assertions.assertEquals("age", readString(in));
+    Assertions.assertEquals(1, in.getInt());
+    Assertions.assertEquals(30, in.getInt());
+    Assertions.assertEquals(Integer.MIN_VALUE, in.getInt());
+    Assertions.assertEquals(41, in.getInt());
+    Assertions.assertEquals(7, in.getInt());
+
+    Assertions.assertEquals("birth", readString(in));
+    Assertions.assertEquals(2, in.getInt());
+    Assertions.assertEquals(10958, in.getInt());
+    Assertions.assertEquals(Integer.MIN_VALUE, in.getInt());
+    Assertions.assertEquals(-1, in.getInt());
+    Assertions.assertEquals(0, in.getInt());
+
+    Assertions.assertEquals("name", readString(in));
+    Assertions.assertEquals(3, in.getInt());
+    Assertions.assertEquals(2, in.getInt());
+    Assertions.assertEquals("b", readString(in));
+    Assertions.assertEquals("a", readString(in));
+    Assertions.assertEquals(1, in.getInt());
+    Assertions.assertEquals(2, in.getInt());
+    Assertions.assertEquals(1, in.getInt());
+    Assertions.assertEquals(Integer.MIN_VALUE, in.getInt());
+    Assertions.assertFalse(in.hasRemaining());
+  }
+
+  @Test
+  public void testIntegerColumnWithFractionsIsWrittenAsDoubles() throws IOException {
+    LinkedHashMap<String, ColumnType> columns = new LinkedHashMap<>();
+    columns.put("height", ColumnType.INTEGER);
+    ByteBuffer in = encode(columns, DATA);
+    in.position(16);
+    Assertions.assertEquals("height", readString(in));
+    Assertions.assertEquals(0, in.getInt());
+    Assertions.assertEquals(1.5, in.getDouble());
+  }
+
+  @Test
+  public void testMissingColumnIsRejected() {
+    LinkedHashMap<String, ColumnType> columns = new LinkedHashMap<>();
+    columns.put("weight", ColumnType.DOUBLE);
+    Assertions.assertThrows(IllegalArgumentException.class, () -> encode(columns, DATA));
+  }
+
+  private static ByteBuffer encode(LinkedHashMap<String, ColumnType> columns, String data) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new ColumnarEncoder(columns).encode(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)), out);
+    return ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private static String readString(ByteBuffer in) {
+    int start = in.position();
+    while (in.get() != 0);
+    return new String(in.array(), start, in.position() - start - 1, StandardCharsets.UTF_8);
+  }
+}
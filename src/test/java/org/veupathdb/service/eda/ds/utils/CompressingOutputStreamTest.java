@@ -0,0 +1,61 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class CompressingOutputStreamTest {
+
+  @Test
+  public void testCompressesFromThreshold() throws IOException {
+    byte[] data = "marker,".repeat(1000).getBytes(StandardCharsets.UTF_8);
+    ByteArrayOutputStream target = new ByteArrayOutputStream();
+    AtomicInteger compressions = new AtomicInteger();
+    CompressingOutputStream out = new CompressingOutputStream(target, 100,
+        stream -> new GZIPOutputStream(stream, 512, true), compressions::incrementAndGet);
+
+    // output below the threshold is held back, even when flushed
+    out.write(data, 0, 99);
+    out.flush();
+    Assertions.assertEquals(0, target.size());
+    Assertions.assertFalse(out.isCompressed());
+
+    out.write(data[99]);
+    Assertions.assertTrue(out.isCompressed());
+    Assertions.assertEquals(1, compressions.get());
+
+    // a flush writes what has been compressed so far
+    out.write(data, 100, data.length - 100);
+    out.flush();
+    Assertions.assertTrue(target.size() > 0);
+
+    out.close();
+    Assertions.assertEquals(data.length, out.getBytesWritten());
+    Assertions.assertEquals(target.size(), out.getTargetBytesWritten());
+    Assertions.assertTrue(target.size() < data.length / 10);
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(target.toByteArray()))) {
+      Assertions.assertArrayEquals(data, in.readAllBytes());
+    }
+  }
+
+  @Test
+  public void testSmallOutputUncompressed() throws IOException {
+    ByteArrayOutputStream target = new ByteArrayOutputStream();
+    AtomicInteger compressions = new AtomicInteger();
+    CompressingOutputStream out = new CompressingOutputStream(target, 100,
+        stream -> new GZIPOutputStream(stream, 512, true), compressions::incrementAndGet);
+    out.write("{\"mapElements\":[]}".getBytes(StandardCharsets.UTF_8));
+    out.close();
+    Assertions.assertFalse(out.isCompressed());
+    Assertions.assertEquals(0, compressions.get());
+    Assertions.assertEquals("{\"mapElements\":[]}", target.toString(StandardCharsets.UTF_8));
+    Assertions.assertEquals(out.getBytesWritten(), out.getTargetBytesWritten());
+  }
+}
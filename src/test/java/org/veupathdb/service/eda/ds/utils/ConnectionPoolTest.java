@@ -0,0 +1,189 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.veupathdb.service.eda.ds.utils.ConnectionPool.ConnectionLifecycle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConnectionPoolTest {
+
+  private static class TestConnection {
+    private final int id;
+    private boolean healthy = true;
+    private volatile boolean closed = false; // set by the reaper
+    private int resets = 0;
+
+    private TestConnection(int id) {
+      this.id = id;
+    }
+  }
+
+  private static class TestLifecycle implements ConnectionLifecycle<TestConnection> {
+
+    private final AtomicInteger opened = new AtomicInteger();
+
+    @Override
+    public TestConnection open() {
+      return new TestConnection(opened.incrementAndGet());
+    }
+
+    @Override
+    public boolean isHealthy(TestConnection connection) {
+      return connection.healthy;
+    }
+
+    @Override
+    public void reset(TestConnection connection) {
+      connection.resets++;
+    }
+
+    @Override
+    public void close(TestConnection connection) {
+      connection.closed = true;
+    }
+  }
+
+  @Test
+  public void testConnectionsReused() throws Exception {
+    TestLifecycle lifecycle = new TestLifecycle();
+    ConnectionPool<TestConnection> pool = newPool(lifecycle, 2, Duration.ofMinutes(5));
+    List<TestConnection> used = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      pool.use(used::add);
+    }
+    Assertions.assertEquals(1, lifecycle.opened.get());
+    Assertions.assertSame(used.get(0), used.get(2));
+    Assertions.assertEquals(3, used.get(0).resets);
+    Assertions.assertEquals(1, pool.getIdleCount());
+  }
+
+  @Test
+  public void testFailedUserConnectionClosed() throws Exception {
+    TestLifecycle lifecycle = new TestLifecycle();
+    ConnectionPool<TestConnection> pool = newPool(lifecycle, 2, Duration.ofMinutes(5));
+    List<TestConnection> used = new ArrayList<>();
+    Assertions.assertThrows(IllegalArgumentException.class, () -> pool.use(connection -> {
+      used.add(connection);
+      throw new IllegalArgumentException("bad R code");
+    }));
+    Assertions.assertTrue(used.get(0).closed);
+    Assertions.assertEquals(0, pool.getIdleCount());
+    pool.use(used::add);
+    Assertions.assertEquals(2, used.get(1).id);
+  }
+
+  @Test
+  public void testFailedUserErrorClosesConnection() throws Exception {
+    TestLifecycle lifecycle = new TestLifecycle();
+    ConnectionPool<TestConnection> pool = newPool(lifecycle, 1, Duration.ofMinutes(5));
+    List<TestConnection> used = new ArrayList<>();
+    Assertions.assertThrows(AssertionError.class, () -> pool.use(connection -> {
+      used.add(connection);
+      throw new AssertionError("not an exception");
+    }));
+    Assertions.assertTrue(used.get(0).closed);
+    Assertions.assertEquals(0, pool.getIdleCount());
+    // the permit was returned too
+    pool.use(used::add);
+    Assertions.assertEquals(2, used.get(1).id);
+  }
+
+  @Test
+  public void testIdleConnectionsReapedWithoutTraffic() throws Exception {
+    TestLifecycle lifecycle = new TestLifecycle();
+    ConnectionPool<TestConnection> pool = newPool(lifecycle, 2, Duration.ofMillis(50));
+    try {
+      List<TestConnection> used = new ArrayList<>();
+      pool.use(used::add);
+      Assertions.assertEquals(1, pool.getIdleCount());
+      long deadline = System.currentTimeMillis() + 5000;
+      while (!used.get(0).closed && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      Assertions.assertTrue(used.get(0).closed);
+      Assertions.assertEquals(0, pool.getIdleCount());
+    }
+    finally {
+      pool.close();
+    }
+  }
+
+  @Test
+  public void testCloseClosesIdleConnections() throws Exception {
+    TestLifecycle lifecycle = new TestLifecycle();
+    ConnectionPool<TestConnection> pool = newPool(lifecycle, 2, Duration.ofMinutes(5));
+    List<TestConnection> used = new ArrayList<>();
+    pool.use(used::add);
+    pool.close();
+    Assertions.assertTrue(used.get(0).closed);
+    Assertions.assertEquals(0, pool.getIdleCount());
+  }
+
+  @Test
+  public void testUnhealthyAndExpiredConnectionsReplaced() throws Exception {
+    TestLifecycle lifecycle = new TestLifecycle();
+    ConnectionPool<TestConnection> pool = newPool(lifecycle, 2, Duration.ofMillis(50));
+    List<TestConnection> used = new ArrayList<>();
+    pool.use(used::add);
+    used.get(0).healthy = false;
+    pool.use(used::add);
+    Assertions.assertTrue(used.get(0).closed);
+    Assertions.assertEquals(2, used.get(1).id);
+
+    Thread.sleep(100);
+    pool.use(used::add);
+    Assertions.assertTrue(used.get(1).closed);
+    Assertions.assertEquals(3, used.get(2).id);
+  }
+
+  @Test
+  public void testInFlightLimit() throws Exception {
+    TestLifecycle lifecycle = new TestLifecycle();
+    ConnectionPool<TestConnection> pool = newPool(lifecycle, 2, Duration.ofMinutes(5));
+    AtomicInteger inUse = new AtomicInteger();
+    AtomicInteger maxInUse = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(6);
+    try {
+      List<Future<?>> users = new ArrayList<>();
+      for (int i = 0; i < 6; i++) {
+        users.add(executor.submit(() -> {
+          start.await();
+          pool.use(connection -> {
+            maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inUse.decrementAndGet();
+          });
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> user : users) {
+        user.get();
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    Assertions.assertEquals(2, maxInUse.get());
+    Assertions.assertEquals(2, lifecycle.opened.get());
+  }
+
+  @Test
+  public void testAcquireTimeout() throws Exception {
+    ConnectionPool<TestConnection> pool = new ConnectionPool<>("test-timeout", new TestLifecycle(), 1, Duration.ofMinutes(5), Duration.ofMillis(50));
+    pool.use(outer -> Assertions.assertThrows(IllegalStateException.class, () -> pool.use(inner -> {})));
+  }
+
+  private static ConnectionPool<TestConnection> newPool(TestLifecycle lifecycle, int maxConnections, Duration maxIdle) {
+    return new ConnectionPool<>("test", lifecycle, maxConnections, maxIdle, Duration.ofSeconds(10));
+  }
+}
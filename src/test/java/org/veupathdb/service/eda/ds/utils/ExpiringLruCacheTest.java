@@ -0,0 +1,155 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ExpiringLruCacheTest {
+
+  private static final int WAITERS = 4;
+
+  @Test
+  public void testExpiredEntryIsReloaded() throws Exception {
+    ExpiringLruCache<String, String> cache = new ExpiringLruCache<>("test-ttl", 10, Duration.ofSeconds(30));
+    cache.put("live", "cached");
+    cache.put("expired", "stale", Duration.ZERO);
+
+    Assertions.assertEquals(Optional.of("cached"), cache.getIfPresent("live"));
+    Assertions.assertEquals(Optional.empty(), cache.getIfPresent("expired"));
+    Assertions.assertEquals("cached", cache.get("live", () -> "reloaded"));
+    Assertions.assertEquals("reloaded", cache.get("expired", () -> "reloaded"));
+    Assertions.assertEquals(Optional.of("reloaded"), cache.getIfPresent("expired"));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEvictedFirst() throws Exception {
+    ExpiringLruCache<String, String> cache = new ExpiringLruCache<>("test-lru", 3, Duration.ofSeconds(30));
+    cache.put("a", "A");
+    cache.put("b", "B");
+    cache.put("c", "C");
+    // reading a makes b the least recently used
+    Assertions.assertEquals("A", cache.get("a", () -> "reloaded"));
+
+    cache.put("d", "D");
+    Assertions.assertEquals(Optional.empty(), cache.getIfPresent("b"));
+
+    // c is now the least recently used
+    cache.put("e", "E");
+    Assertions.assertEquals(Optional.empty(), cache.getIfPresent("c"));
+    Assertions.assertEquals(Optional.of("A"), cache.getIfPresent("a"));
+    Assertions.assertEquals(Optional.of("D"), cache.getIfPresent("d"));
+    Assertions.assertEquals(Optional.of("E"), cache.getIfPresent("e"));
+  }
+
+  @Test
+  public void testEvictionByWeight() {
+    ExpiringLruCache<String, String> cache = new ExpiringLruCache<>("test-weight", 10, Duration.ofSeconds(30),
+        String::length);
+    cache.put("a", "aaaa");
+    cache.put("b", "bbbb");
+    cache.put("c", "cccc");
+    Assertions.assertEquals(Optional.empty(), cache.getIfPresent("a"));
+    Assertions.assertEquals(Optional.of("bbbb"), cache.getIfPresent("b"));
+    Assertions.assertEquals(Optional.of("cccc"), cache.getIfPresent("c"));
+
+    // too heavy to ever fit, so not cached and nothing else is evicted for it
+    cache.put("d", "ddddddddddd");
+    Assertions.assertEquals(Optional.empty(), cache.getIfPresent("d"));
+    Assertions.assertEquals(Optional.of("bbbb"), cache.getIfPresent("b"));
+  }
+
+  @Test
+  public void testConcurrentCallersShareOneLoad() throws Exception {
+    ExpiringLruCache<String, String> cache = new ExpiringLruCache<>("test-single-flight", 10, Duration.ofSeconds(30));
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch loadStarted = new CountDownLatch(1);
+    CountDownLatch finishLoad = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(1 + WAITERS);
+    try {
+      Future<String> loader = executor.submit(() -> cache.get("key", () -> {
+        loads.incrementAndGet();
+        loadStarted.countDown();
+        finishLoad.await();
+        return "loaded";
+      }));
+      loadStarted.await();
+      List<Future<String>> waiters = new ArrayList<>();
+      for (int i = 0; i < WAITERS; i++) {
+        waiters.add(executor.submit(() -> cache.get("key", () -> {
+          loads.incrementAndGet();
+          return "loaded again";
+        })));
+      }
+      // waiters cannot be observed waiting; give them time to reach the cache first
+      Thread.sleep(200);
+      finishLoad.countDown();
+
+      Assertions.assertEquals("loaded", loader.get());
+      for (Future<String> waiter : waiters) {
+        Assertions.assertEquals("loaded", waiter.get());
+      }
+      Assertions.assertEquals(1, loads.get());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testFailedLoadIsSharedButNotCached() throws Exception {
+    ExpiringLruCache<String, String> cache = new ExpiringLruCache<>("test-failed", 10, Duration.ofSeconds(30));
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch loadStarted = new CountDownLatch(1);
+    CountDownLatch finishLoad = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> loader = executor.submit(() -> cache.get("key", () -> {
+        loads.incrementAndGet();
+        loadStarted.countDown();
+        finishLoad.await();
+        throw new IOException("load failed");
+      }));
+      loadStarted.await();
+      Future<String> waiter = executor.submit(() -> cache.get("key", () -> {
+        loads.incrementAndGet();
+        return "loaded";
+      }));
+      Thread.sleep(200);
+      finishLoad.countDown();
+
+      // the waiter gets the loader's failure rather than loading itself
+      assertFailedWith(IOException.class, loader);
+      assertFailedWith(IOException.class, waiter);
+      Assertions.assertEquals(1, loads.get());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    // the failure was not cached, so the next caller loads again
+    Assertions.assertEquals(Optional.empty(), cache.getIfPresent("key"));
+    Assertions.assertEquals("loaded", cache.get("key", () -> {
+      loads.incrementAndGet();
+      return "loaded";
+    }));
+    Assertions.assertEquals(2, loads.get());
+  }
+
+  private static void assertFailedWith(Class<? extends Exception> expected, Future<?> result) {
+    ExecutionException e = Assertions.assertThrows(ExecutionException.class, result::get);
+    Assertions.assertInstanceOf(expected, e.getCause());
+  }
+}
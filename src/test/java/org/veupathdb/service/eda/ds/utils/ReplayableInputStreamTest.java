@@ -0,0 +1,52 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.veupathdb.service.eda.ds.utils.ColumnarEncoder.ColumnType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+
+public class ReplayableInputStreamTest {
+
+  private static final String DATA = "a\tb\n1\t2\n3\t4\n";
+
+  @Test
+  public void testReadWithinLimit() throws IOException {
+    ReplayableInputStream in = new ReplayableInputStream(toStream(DATA), 1024);
+    Assertions.assertEquals(DATA, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testReplayAfterLimitExceeded() throws IOException {
+    ReplayableInputStream in = new ReplayableInputStream(toStream(DATA), 5);
+    byte[] buffer = new byte[4];
+    Assertions.assertEquals(4, in.read(buffer));
+    Assertions.assertEquals('1', in.read());
+    Assertions.assertThrows(ReplayableInputStream.LimitExceededException.class, () -> in.read(buffer));
+    InputStream replayed = in.replay();
+    Assertions.assertEquals(DATA, new String(replayed.readAllBytes(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testEncoderGivesUpOnLongStream() throws IOException {
+    LinkedHashMap<String, ColumnType> columns = new LinkedHashMap<>();
+    columns.put("a", ColumnType.INTEGER);
+    StringBuilder data = new StringBuilder("a\tb\n");
+    for (int i = 0; i < 100000; i++) {
+      data.append(i).append("\tx\n");
+    }
+    ReplayableInputStream in = new ReplayableInputStream(toStream(data.toString()), 10000);
+    Assertions.assertThrows(ReplayableInputStream.LimitExceededException.class,
+        () -> new ColumnarEncoder(columns).encode(in, new ByteArrayOutputStream()));
+    Assertions.assertEquals(data.toString(), new String(in.replay().readAllBytes(), StandardCharsets.UTF_8));
+  }
+
+  private static InputStream toStream(String data) {
+    return new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,162 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class RequestCoalescerTest {
+
+  private static final int FOLLOWERS = 4;
+
+  @Test
+  public void testFollowersShareLeaderResponse() throws Exception {
+    RequestCoalescer coalescer = new RequestCoalescer("test-shared", 1024, Duration.ofSeconds(30));
+    AtomicInteger computations = new AtomicInteger();
+
+    // leader has done its setup but not yet written its response
+    Consumer<OutputStream> leaderWriter = coalescer.process("key", () -> {
+      computations.incrementAndGet();
+      return write("response");
+    });
+    List<String> responses = runFollowers(coalescer, "key", computations,
+        () -> leaderWriter.accept(new ByteArrayOutputStream()));
+
+    Assertions.assertEquals(1, computations.get());
+    responses.forEach(response -> Assertions.assertEquals("response", response));
+  }
+
+  @Test
+  public void testOversizedResponseFallsBack() throws Exception {
+    RequestCoalescer coalescer = new RequestCoalescer("test-oversized", 4, Duration.ofSeconds(30));
+    AtomicInteger computations = new AtomicInteger();
+
+    Consumer<OutputStream> leaderWriter = coalescer.process("key", () -> {
+      computations.incrementAndGet();
+      return write("response");
+    });
+    List<String> responses = runFollowers(coalescer, "key", computations, () -> {
+      ByteArrayOutputStream leaderOut = new ByteArrayOutputStream();
+      leaderWriter.accept(leaderOut);
+      // the leader's own client still gets the whole response
+      Assertions.assertEquals("response", leaderOut.toString(StandardCharsets.UTF_8));
+    });
+
+    Assertions.assertEquals(1 + FOLLOWERS, computations.get());
+    responses.forEach(response -> Assertions.assertEquals("response", response));
+  }
+
+  @Test
+  public void testFailedSetupIsNotShared() throws Exception {
+    RequestCoalescer coalescer = new RequestCoalescer("test-failed", 1024, Duration.ofSeconds(30));
+    Assertions.assertThrows(IOException.class, () -> coalescer.process("key", () -> {
+      throw new IOException("setup failed");
+    }));
+    // key is free again, so the next request leads and computes its own response
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    coalescer.process("key", () -> write("retried")).accept(out);
+    Assertions.assertEquals("retried", out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testAbandonedLeaderIsReplaced() throws Exception {
+    RequestCoalescer coalescer = new RequestCoalescer("test-abandoned", 1024, Duration.ofMillis(50));
+    // leader whose response is never written, e.g. because its client disconnected
+    coalescer.process("key", () -> write("abandoned"));
+    Thread.sleep(100);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    coalescer.process("key", () -> write("fresh")).accept(out);
+    Assertions.assertEquals("fresh", out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testAbandonedLeaderReleasesFollowers() throws Exception {
+    RequestCoalescer coalescer = new RequestCoalescer("test-released", 1024, Duration.ofSeconds(30));
+    AtomicInteger computations = new AtomicInteger();
+
+    // leader whose writer will never run, e.g. because its request failed after setup
+    RequestCoalescer.CoalescedResponse leader = coalescer.process("key", () -> {
+      computations.incrementAndGet();
+      return write("response");
+    });
+    long start = System.nanoTime();
+    List<String> responses = runFollowers(coalescer, "key", computations, leader::abandon);
+
+    // followers compute their own responses at once rather than waiting out the limit
+    Assertions.assertTrue(System.nanoTime() - start < Duration.ofSeconds(10).toNanos());
+    Assertions.assertEquals(1 + FOLLOWERS, computations.get());
+    responses.forEach(response -> Assertions.assertEquals("response", response));
+  }
+
+  @Test
+  public void testAbandonAfterWriteKeepsResponse() throws Exception {
+    RequestCoalescer coalescer = new RequestCoalescer("test-written", 1024, Duration.ofSeconds(30));
+    AtomicInteger computations = new AtomicInteger();
+
+    RequestCoalescer.CoalescedResponse leader = coalescer.process("key", () -> {
+      computations.incrementAndGet();
+      return write("response");
+    });
+    List<String> responses = runFollowers(coalescer, "key", computations, () -> {
+      leader.accept(new ByteArrayOutputStream());
+      // as when the request completes after its response was written
+      leader.abandon();
+    });
+
+    Assertions.assertEquals(1, computations.get());
+    responses.forEach(response -> Assertions.assertEquals("response", response));
+  }
+
+  // starts followers for the passed key, runs the leader's action once they are waiting, and returns their responses
+  private static List<String> runFollowers(RequestCoalescer coalescer, String key, AtomicInteger computations,
+                                           Runnable leaderAction) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(FOLLOWERS);
+    try {
+      List<Future<String>> followers = new ArrayList<>();
+      for (int i = 0; i < FOLLOWERS; i++) {
+        followers.add(executor.submit(() -> {
+          ByteArrayOutputStream out = new ByteArrayOutputStream();
+          coalescer.process(key, () -> {
+            computations.incrementAndGet();
+            return write("response");
+          }).accept(out);
+          return out.toString(StandardCharsets.UTF_8);
+        }));
+      }
+      // followers cannot be observed waiting; give them time to reach the coalescer first
+      Thread.sleep(200);
+      leaderAction.run();
+      List<String> responses = new ArrayList<>();
+      for (Future<String> follower : followers) {
+        responses.add(follower.get());
+      }
+      return responses;
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Consumer<OutputStream> write(String response) {
+    return out -> {
+      try {
+        out.write(response.getBytes(StandardCharsets.UTF_8));
+      }
+      catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    };
+  }
+}
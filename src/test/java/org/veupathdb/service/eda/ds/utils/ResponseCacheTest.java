@@ -0,0 +1,122 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.veupathdb.service.eda.ds.utils.ResponseCache.CachedResponse;
+import org.veupathdb.service.eda.ds.utils.ResponseCache.ResponseWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class ResponseCacheTest {
+
+  private static final Duration TTL = Duration.ofMinutes(5);
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  public void testHeapTier() throws IOException {
+    ResponseCache cache = new ResponseCache("test-heap", 1024, 16, Optional.empty());
+    AtomicInteger writes = new AtomicInteger();
+
+    Assertions.assertTrue(cache.getIfPresent("a").isEmpty());
+    Assertions.assertEquals("response a", read(cache.get("a", TTL, writer("response a", writes))));
+    Assertions.assertEquals("response a", read(cache.get("a", TTL, writer("other", writes))));
+    Assertions.assertEquals("response a", read(cache.getIfPresent("a").orElseThrow()));
+    Assertions.assertEquals(1, writes.get());
+  }
+
+  @Test
+  public void testOversizedResponseNotRetained() throws IOException {
+    ResponseCache cache = new ResponseCache("test-oversized", 8, 8, Optional.empty());
+    AtomicInteger writes = new AtomicInteger();
+
+    Assertions.assertEquals("too large to keep", read(cache.get("a", TTL, writer("too large to keep", writes))));
+    Assertions.assertTrue(cache.getIfPresent("a").isEmpty());
+  }
+
+  @Test
+  public void testLargeResponsesGoToDisk() throws IOException {
+    Path directory = tempDir.resolve("segments");
+    ResponseCache cache = new ResponseCache("test-disk", 1024, 8, Optional.of(new DiskSegmentStore(directory, 1024)));
+    AtomicInteger writes = new AtomicInteger();
+
+    Assertions.assertEquals("large response", read(cache.get("a", TTL, writer("large response", writes))));
+    Assertions.assertEquals(1, countSegments(directory));
+    Assertions.assertEquals("large response", read(cache.getIfPresent("a").orElseThrow()));
+    Assertions.assertEquals("small", read(cache.get("b", TTL, writer("small", writes))));
+    Assertions.assertEquals(1, countSegments(directory));
+    Assertions.assertEquals(2, writes.get());
+  }
+
+  @Test
+  public void testEvictedSegmentIsMiss() throws IOException {
+    Path directory = tempDir.resolve("segments");
+    // room for only one segment at a time
+    ResponseCache cache = new ResponseCache("test-evicted", 1024, 0, Optional.of(new DiskSegmentStore(directory, 20)));
+    AtomicInteger writes = new AtomicInteger();
+
+    cache.get("a", TTL, writer("first response", writes));
+    cache.get("b", TTL, writer("second response", writes));
+    Assertions.assertEquals(1, countSegments(directory));
+    Assertions.assertTrue(cache.getIfPresent("a").isEmpty());
+    Assertions.assertEquals("second response", read(cache.getIfPresent("b").orElseThrow()));
+    Assertions.assertEquals("first response", read(cache.get("a", TTL, writer("first response", writes))));
+    Assertions.assertEquals(3, writes.get());
+  }
+
+  @Test
+  public void testEvictedSegmentProducedBeforeReturning() throws IOException {
+    Path directory = tempDir.resolve("segments");
+    // room for only one segment at a time
+    ResponseCache cache = new ResponseCache("test-evicted-follower", 1024, 0, Optional.of(new DiskSegmentStore(directory, 20)));
+    AtomicInteger writes = new AtomicInteger();
+
+    // the heap tier still references the producer's segment for "a" when its follower asks for it
+    cache.get("a", TTL, writer("first response", writes));
+    cache.get("b", TTL, writer("second response", writes));
+    Assertions.assertEquals(2, writes.get());
+    CachedResponse follower = cache.get("a", TTL, writer("first response", writes));
+    // the follower's writer has already run, so its caller knows its data streams were used
+    Assertions.assertEquals(3, writes.get());
+    Assertions.assertEquals("first response", read(follower));
+    Assertions.assertEquals(3, writes.get());
+  }
+
+  @Test
+  public void testStaleSegmentsRemovedOnStartup() throws IOException {
+    Path directory = tempDir.resolve("segments");
+    new DiskSegmentStore(directory, 1024).write("left over".getBytes(StandardCharsets.UTF_8));
+    Assertions.assertEquals(1, countSegments(directory));
+    new DiskSegmentStore(directory, 1024);
+    Assertions.assertEquals(0, countSegments(directory));
+  }
+
+  private static ResponseWriter writer(String response, AtomicInteger writes) {
+    return out -> {
+      writes.incrementAndGet();
+      out.write(response.getBytes(StandardCharsets.UTF_8));
+    };
+  }
+
+  private static String read(CachedResponse response) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    response.writeTo(out);
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  private static long countSegments(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+}
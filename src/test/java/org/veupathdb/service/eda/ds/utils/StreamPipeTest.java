@@ -0,0 +1,104 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class StreamPipeTest {
+
+  @Test
+  public void testCopiesAllBytes() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      byte[] data = new byte[1000];
+      for (int i = 0; i < data.length; i++) {
+        data[i] = (byte) i;
+      }
+      StreamPipe pipe = StreamPipe.start(new ByteArrayInputStream(data), 7, 2, executor);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      pipe.drainTo(out);
+      Assertions.assertArrayEquals(data, out.toByteArray());
+
+      // a chunk-aligned stream ends cleanly too
+      pipe = StreamPipe.start(new ByteArrayInputStream(new byte[14]), 7, 2, executor);
+      out = new ByteArrayOutputStream();
+      pipe.drainTo(out);
+      Assertions.assertEquals(14, out.size());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testReadsAsInputStream() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      byte[] data = new byte[1000];
+      for (int i = 0; i < data.length; i++) {
+        data[i] = (byte) i;
+      }
+      InputStream in = StreamPipe.start(new ByteArrayInputStream(data), 7, 2, executor).toInputStream();
+      Assertions.assertEquals(0, in.read());
+      Assertions.assertEquals(1, in.read());
+      byte[] rest = in.readAllBytes();
+      Assertions.assertEquals(998, rest.length);
+      Assertions.assertEquals((byte) 999, rest[997]);
+      Assertions.assertEquals(-1, in.read());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testReadFailureIsRethrown() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      InputStream failing = new InputStream() {
+        private int _read = 0;
+        @Override
+        public int read() throws IOException {
+          if (_read++ >= 20) {
+            throw new IOException("connection reset");
+          }
+          return 1;
+        }
+      };
+      StreamPipe pipe = StreamPipe.start(failing, 8, 4, executor);
+      IOException e = Assertions.assertThrows(IOException.class, () -> pipe.drainTo(new ByteArrayOutputStream()));
+      Assertions.assertEquals("connection reset", e.getMessage());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testReadAheadIsBoundedAndCancellable() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    AtomicLong bytesRead = new AtomicLong();
+    InputStream endless = new InputStream() {
+      @Override
+      public int read() {
+        bytesRead.incrementAndGet();
+        return 0;
+      }
+    };
+    StreamPipe pipe = StreamPipe.start(endless, 4, 2, executor);
+    Thread.sleep(200);
+    // two queued chunks, plus one read and waiting for room
+    Assertions.assertEquals(12, bytesRead.get());
+    pipe.cancel();
+    executor.shutdown();
+    Assertions.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+  }
+}
@@ -0,0 +1,47 @@
+package org.veupathdb.service.eda.ds.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.veupathdb.service.eda.ds.plugin.standalonemap.markers.TabularStreamScanner;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class TabularStreamJoinTest {
+
+  @Test
+  public void testJoinsRowsOnKey() throws IOException {
+    TabularStreamJoin join = new TabularStreamJoin(List.of(
+        scanner("id\ta\n1\tx\n2\ty\n"),
+        scanner("b\tid\n10\t1\n20\t2\n")), new int[] { 0, 1 });
+    Assertions.assertTrue(join.next());
+    Assertions.assertEquals("1", join.getKey());
+    Assertions.assertEquals("x", join.getRow(0).getString(1));
+    Assertions.assertEquals("10", join.getRow(1).getString(0));
+    Assertions.assertTrue(join.next());
+    Assertions.assertEquals("2", join.getKey());
+    Assertions.assertEquals("20", join.getRow(1).getString(0));
+    Assertions.assertFalse(join.next());
+  }
+
+  @Test
+  public void testMismatchedStreamsAreRejected() throws IOException {
+    TabularStreamJoin keys = new TabularStreamJoin(List.of(
+        scanner("id\n1\n2\n"), scanner("id\n1\n3\n")), new int[] { 0, 0 });
+    Assertions.assertTrue(keys.next());
+    Assertions.assertThrows(IllegalStateException.class, keys::next);
+
+    TabularStreamJoin lengths = new TabularStreamJoin(List.of(
+        scanner("id\n1\n"), scanner("id\n1\n2\n")), new int[] { 0, 0 });
+    Assertions.assertTrue(lengths.next());
+    Assertions.assertThrows(IllegalStateException.class, lengths::next);
+  }
+
+  private static TabularStreamScanner scanner(String data) throws IOException {
+    TabularStreamScanner scanner = new TabularStreamScanner(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)));
+    scanner.readLine();
+    return scanner;
+  }
+}